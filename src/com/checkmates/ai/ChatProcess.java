@@ -56,10 +56,20 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 
+import java.time.Duration;
+import java.util.Map;
+
+import com.checkmates.data.ClassRepository;
+import com.checkmates.data.Repositories;
+import com.checkmates.net.BackendClient;
+import com.checkmates.net.BackendException;
 import com.checkmates.ui.ChatDialog;
 
 public class ChatProcess {
     
+    // Completions can take far longer than a backend round trip
+    private static final Duration COMPLETION_TIMEOUT = Duration.ofSeconds(60);
+
     // Store conversation history for contextual memory
     private static List<String> conversationHistory = new ArrayList<>();
 
@@ -122,45 +132,18 @@ public class ChatProcess {
      */
     private static String getAttendanceSummary(int classId) {
         try {
-            String urlString = "http://cm8tes.com/getAttendanceSummary.php?class_id=" +
-                           URLEncoder.encode(String.valueOf(classId), StandardCharsets.UTF_8.toString());
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            BufferedReader in = new BufferedReader(
-                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)
-            );
-            StringBuilder response = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            in.close();
-
-            JSONObject json = new JSONObject(response.toString());
-            if ("success".equalsIgnoreCase(json.optString("status"))) {
-                int total = json.optInt("total", 0);
-                JSONArray records = json.optJSONArray("records");
-                StringBuilder recordsBuilder = new StringBuilder();
-                if (records != null) {
-                    for (int i = 0; i < records.length(); i++) {
-                        JSONObject record = records.getJSONObject(i);
-                        String studentId = record.optString("studentId");
-                        String name = record.optString("name");
-                        String time = record.optString("time");
-                        String date = record.optString("date");
-                        recordsBuilder.append("- Student ").append(studentId)
-                                      .append(" (").append(name)
-                                      .append(") checked in at ").append(time)
-                                      .append(" on ").append(date)
-                                      .append("\n");
-                    }
-                }
-                return "Total: " + total + "\nRecords:\n" + recordsBuilder.toString();
-            } else {
-                return "Attendance data unavailable.";
+            ClassRepository.Attendance summary = Repositories.getInstance().classes().attendance(classId);
+            StringBuilder recordsBuilder = new StringBuilder();
+            for (ClassRepository.CheckIn record : summary.records()) {
+                recordsBuilder.append("- Student ").append(record.studentId())
+                              .append(" (").append(record.name())
+                              .append(") checked in at ").append(record.time())
+                              .append(" on ").append(record.date())
+                              .append("\n");
             }
+            return "Total: " + summary.total() + "\nRecords:\n" + recordsBuilder.toString();
+        } catch (BackendException e) {
+            return "Attendance data unavailable.";
         } catch (Exception e) {
             e.printStackTrace();
             return "Attendance data unavailable.";
@@ -172,8 +155,6 @@ public class ChatProcess {
      */
     private static String getChatGPTResponse(String prompt) {
         try {
-            HttpClient client = HttpClient.newHttpClient();
-            
             // Build the JSON payload using org.json
             JSONObject payload = new JSONObject();
             payload.put("model", "gpt-4-0125-preview");
@@ -221,15 +202,12 @@ public class ChatProcess {
             
             String jsonPayload = payload.toString();
             
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.openai.com/v1/chat/completions"))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer API")
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonPayload))
-                    .build();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            JSONObject jsonResponse = new JSONObject(response.body());
+            String response = BackendClient.getInstance().postJson(
+                    "https://api.openai.com/v1/chat/completions",
+                    jsonPayload,
+                    Map.of("Authorization", "Bearer API"),
+                    COMPLETION_TIMEOUT);
+            JSONObject jsonResponse = new JSONObject(response);
 
             if (jsonResponse.has("error")) {
                 JSONObject errorObj = jsonResponse.getJSONObject("error");
@@ -318,29 +296,18 @@ public class ChatProcess {
  * Returns an array of ClassItem for this professor.
  */
 public static List<ChatDialog.ClassItem> fetchAllClasses(String professorId) throws IOException {
-    String urlString = "http://cm8tes.com/getClasses.php?professor_id=" +
-        URLEncoder.encode(professorId, StandardCharsets.UTF_8.toString());
-    HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-    conn.setConnectTimeout(5000);
-    conn.setReadTimeout(5000);
-
-    try (BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8.toString()))) {
-        JSONObject json = new JSONObject(in.lines().collect(joining()));
-        List<ChatDialog.ClassItem> list = new ArrayList<>();
-        if ("success".equalsIgnoreCase(json.optString("status"))) {
-            JSONArray classesArray = json.getJSONArray("classes");
-            for (int i = 0; i < classesArray.length(); i++) {
-             JSONObject obj = classesArray.getJSONObject(i);
-             int id        = obj.getInt("class_id");
-             String name   = obj.getString("className");
-             String section= obj.getString("section");
-             String display= name + " – " + section;
-             list.add(new ChatDialog.ClassItem(id, display));
-}
-
-        }
+    List<ChatDialog.ClassItem> list = new ArrayList<>();
+    List<ClassRepository.ClassInfo> classes;
+    try {
+        classes = Repositories.getInstance().classes().classesFor(professorId);
+    } catch (BackendException e) {
         return list;
     }
+    for (ClassRepository.ClassInfo c : classes) {
+        String display = c.name() + " – " + c.section();
+        list.add(new ChatDialog.ClassItem(c.id(), display));
+    }
+    return list;
 }
 
 
@@ -0,0 +1,329 @@
+package com.checkmates.audit;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+import com.checkmates.store.MappedTable;
+import com.checkmates.util.Isbn;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+
+/**
+ * Inventory audit from a folder of shelf photos.
+ *
+ * Every image under the folder is decoded for EAN-13 barcodes on its own
+ * platform thread, one per core (decoding is pure CPU work, so more threads
+ * would only take turns). Each worker keeps one {@link MultiFormatReader},
+ * set up once with the hints. Image files are read through a memory mapping
+ * rather than a stream copy.
+ *
+ * A photo's shelf is the first sub-folder it is in, or the photo itself when
+ * it sits directly in the chosen folder. The catalog has no shelf locations,
+ * so {@link #compare} (matching on the ISBN-13 form) can only report what the sightings contradict: books
+ * the catalog has IN that no photo shows, books photographed while the
+ * catalog has them OUT, books seen on more than one shelf, and barcodes that
+ * aren't in the catalog at all.
+ */
+public final class ShelfAudit {
+
+    /** Where a book was seen. */
+    public record Sighting(String shelf, Path image) {
+    }
+
+    /** What the photos showed. */
+    public record Scan(Map<String, List<Sighting>> seen, int images, List<String> unreadable, long elapsedMs) {
+    }
+
+    public record Report(Scan scan, List<String> missing, List<String> checkedOutButShelved,
+                         Map<String, Set<String>> onSeveralShelves, List<String> unknown) {
+    }
+
+    /** Called from the workers as images are finished. */
+    public interface Progress {
+        void update(int done, int total);
+    }
+
+    private static final Set<String> IMAGE_TYPES = Set.of("jpg", "jpeg", "png", "bmp", "gif");
+    public static final int DEFAULT_THREADS = Integer.getInteger("checkmates.audit.threads",
+            Runtime.getRuntime().availableProcessors());
+
+    private final int threads;
+
+    public ShelfAudit() {
+        this(DEFAULT_THREADS);
+    }
+
+    public ShelfAudit(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Decodes every image under {@code folder}. Blocks until done;
+     * interrupting the caller stops the workers.
+     */
+    public Scan scan(Path folder, Progress progress) throws IOException {
+        long start = System.nanoTime();
+        List<Path> images;
+        try (Stream<Path> walk = Files.walk(folder)) {
+            images = walk.filter(Files::isRegularFile).filter(ShelfAudit::isImage).sorted().toList();
+        }
+
+        Map<String, List<Sighting>> seen = new ConcurrentHashMap<>();
+        List<String> unreadable = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        int workers = Math.min(threads, Math.max(1, images.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name("shelf-audit-", 0).daemon().factory());
+        try {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                futures.add(pool.submit(() -> {
+                    Decoder decoder = new Decoder();
+                    for (int i; (i = next.getAndIncrement()) < images.size(); ) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        Path image = images.get(i);
+                        try {
+                            Sighting sighting = new Sighting(shelfOf(folder, image), image);
+                            for (String isbn : decoder.decode(image)) {
+                                seen.computeIfAbsent(isbn, k -> Collections.synchronizedList(new ArrayList<>()))
+                                        .add(sighting);
+                            }
+                        } catch (IOException | RuntimeException ex) {
+                            unreadable.add(folder.relativize(image) + ": " + ex.getMessage());
+                        }
+                        if (progress != null) {
+                            progress.update(done.incrementAndGet(), images.size());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Audit cancelled");
+        } catch (ExecutionException ex) {
+            throw new IOException("Audit failed", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<String> sortedUnreadable = new ArrayList<>(unreadable);
+        Collections.sort(sortedUnreadable);
+        return new Scan(new TreeMap<>(seen), images.size(), sortedUnreadable, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Compares the sightings with a saved catalog (rows ISBN, title,
+     * authors, availability).
+     */
+    public static Report compare(Scan scan, MappedTable catalog) {
+        List<String> missing = new ArrayList<>();
+        List<String> checkedOut = new ArrayList<>();
+        Set<String> known = new LinkedHashSet<>();
+        for (int row = 0; row < catalog.getRowCount(); row++) {
+            String isbn = Isbn.normalize(catalog.get(row, 0));
+            if (isbn == null) {
+                continue; // can't be on a barcode either
+            }
+            isbn = Isbn.toIsbn13(isbn); // barcodes always carry the 13-digit form
+            known.add(isbn);
+            boolean out = "OUT".equalsIgnoreCase(catalog.get(row, 3));
+            boolean shelved = scan.seen().containsKey(isbn);
+            if (!out && !shelved) {
+                missing.add(isbn);
+            } else if (out && shelved) {
+                checkedOut.add(isbn);
+            }
+        }
+
+        Map<String, Set<String>> several = new TreeMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (Map.Entry<String, List<Sighting>> e : scan.seen().entrySet()) {
+            if (!known.contains(e.getKey())) {
+                unknown.add(e.getKey());
+            }
+            Set<String> shelves = new LinkedHashSet<>();
+            synchronized (e.getValue()) {
+                for (Sighting s : e.getValue()) {
+                    shelves.add(s.shelf());
+                }
+            }
+            if (shelves.size() > 1) {
+                several.put(e.getKey(), shelves);
+            }
+        }
+        return new Report(scan, missing, checkedOut, several, unknown);
+    }
+
+    /** Writes the report as CSV (finding, isbn, detail), returning the file written. */
+    public static Path writeReport(Path file, Report report) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("finding,isbn,detail");
+            out.newLine();
+            for (String isbn : report.missing()) {
+                out.write("missing," + isbn + ",catalog has it IN");
+                out.newLine();
+            }
+            for (String isbn : report.checkedOutButShelved()) {
+                out.write("checked out but shelved," + isbn + "," + shelves(report.scan().seen().get(isbn)));
+                out.newLine();
+            }
+            for (Map.Entry<String, Set<String>> e : report.onSeveralShelves().entrySet()) {
+                out.write("on several shelves," + e.getKey() + "," + String.join(" ", e.getValue()));
+                out.newLine();
+            }
+            for (String isbn : report.unknown()) {
+                out.write("not in catalog," + isbn + "," + shelves(report.scan().seen().get(isbn)));
+                out.newLine();
+            }
+            for (String line : report.scan().unreadable()) {
+                out.write("unreadable image,,\"" + line.replace("\"", "\"\"") + "\"");
+                out.newLine();
+            }
+        }
+        return file;
+    }
+
+    private static String shelves(List<Sighting> sightings) {
+        Set<String> shelves = new LinkedHashSet<>();
+        synchronized (sightings) {
+            for (Sighting s : sightings) {
+                shelves.add(s.shelf());
+            }
+        }
+        return String.join(" ", shelves);
+    }
+
+    static String shelfOf(Path folder, Path image) {
+        Path relative = folder.relativize(image);
+        String name = relative.getNameCount() > 1 ? relative.getName(0).toString() : relative.toString();
+        int dot = name.lastIndexOf('.');
+        return relative.getNameCount() > 1 || dot <= 0 ? name : name.substring(0, dot);
+    }
+
+    private static boolean isImage(Path p) {
+        String name = p.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && IMAGE_TYPES.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /** One worker's reader; not thread-safe. */
+    static final class Decoder {
+
+        private final Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        private final MultiFormatReader reader = new MultiFormatReader();
+        private final GenericMultipleBarcodeReader multi = new GenericMultipleBarcodeReader(reader);
+
+        Decoder() {
+            hints.put(DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.EAN_13));
+            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+            reader.setHints(hints);
+        }
+
+        /** The distinct ISBNs on {@code image}, in the order found. */
+        Set<String> decode(Path image) throws IOException {
+            BufferedImage img = read(image);
+            if (img == null) {
+                throw new IOException("not a readable image");
+            }
+            Set<String> isbns = new LinkedHashSet<>();
+            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(img)));
+            try {
+                for (Result r : multi.decodeMultiple(bitmap, hints)) {
+                    String isbn = Isbn.normalize(r.getText()); // EAN-13s that aren't books drop out here
+                    if (isbn != null) {
+                        isbns.add(isbn);
+                    }
+                }
+            } catch (NotFoundException ex) {
+                // No barcode in this photo
+            } finally {
+                reader.reset();
+            }
+            return isbns;
+        }
+
+        private static BufferedImage read(Path image) throws IOException {
+            try (FileChannel ch = FileChannel.open(image, StandardOpenOption.READ)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                return ImageIO.read(new BufferInputStream(buf));
+            }
+        }
+    }
+
+    /** Reads a mapped file without copying it to the heap first. */
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buf;
+
+        BufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) {
+                return len == 0 ? 0 : -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+}
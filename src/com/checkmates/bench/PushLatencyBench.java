@@ -0,0 +1,112 @@
+package com.checkmates.bench;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import com.checkmates.net.push.MessagePush;
+import com.checkmates.net.stub.StubMessageServer;
+
+/**
+ * Load test for the push channel against {@link StubMessageServer}: many
+ * librarians connected at once, messages posted between random pairs, and
+ * every stream cut halfway through so each client has to reconnect and
+ * resume from its last event id.
+ *
+ * Usage: {@code java com.checkmates.bench.PushLatencyBench [clients] [messages] [perSecond]}
+ * (default 500 clients, 5,000 messages at 500/s). Prints delivery latency
+ * percentiles and checks that every message reached both ends exactly once.
+ */
+public class PushLatencyBench {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int perSecond = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        StubMessageServer stub = new StubMessageServer(0, 15_000);
+        stub.start();
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1) // one stream per connection, as the PHP server would see it
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        Map<String, Long> postedAt = new ConcurrentHashMap<>();
+        Set<String> deliveries = ConcurrentHashMap.newKeySet(); // "user/id"
+        AtomicLong duplicates = new AtomicLong();
+        long[] latencies = new long[count * 2];
+        AtomicLong received = new AtomicLong();
+        List<MessagePush> channels = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            String user = "lib" + c;
+            MessagePush push = new MessagePush(http, stub.baseUrl() + "messageStream.php", user);
+            push.addListener((other, message) -> {
+                long now = System.nanoTime();
+                if (!deliveries.add(user + "/" + message.id())) {
+                    duplicates.incrementAndGet();
+                    return;
+                }
+                Long at = postedAt.get(message.id());
+                long i = received.getAndIncrement();
+                if (at != null && i < latencies.length) {
+                    latencies[(int) i] = now - at;
+                }
+            });
+            channels.add(push);
+            push.start();
+        }
+        waitFor(() -> stub.getOpenStreams() == clients, 30_000);
+        System.out.println(clients + " streams open");
+
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            if (i == count / 2) {
+                stub.dropStreams();
+                System.out.println("Dropped every stream at message " + i);
+            }
+            int a = random.nextInt(clients);
+            int b = (a + 1 + random.nextInt(clients - 1)) % clients;
+            long due = start + i * 1_000_000_000L / perSecond;
+            for (long left; (left = due - System.nanoTime()) > 0; ) {
+                LockSupport.parkNanos(left);
+            }
+            // Stamped before posting so a fast delivery can't beat it
+            String id = String.valueOf(i + 1);
+            postedAt.put(id, System.nanoTime());
+            stub.post("lib" + a, "lib" + b, "message " + i);
+        }
+        waitFor(() -> received.get() >= 2L * count, 120_000);
+
+        long n = Math.min(received.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, (int) n);
+        Arrays.sort(sorted);
+        long reconnects = channels.stream().mapToLong(MessagePush::getReconnectCount).sum();
+        System.out.printf("Delivered %,d of %,d (%,d duplicates), %,d reconnects, %,d streams opened%n",
+                received.get(), 2L * count, duplicates.get(), reconnects, stub.getStreamsOpened());
+        if (n > 0) {
+            System.out.printf("Latency p50 %.1f ms, p99 %.1f ms, max %.1f ms (includes the reconnect gap)%n",
+                    sorted[(int) (n / 2)] / 1e6, sorted[(int) (n * 99 / 100)] / 1e6, sorted[(int) n - 1] / 1e6);
+        }
+
+        channels.forEach(MessagePush::close);
+        stub.stop();
+        System.exit(received.get() == 2L * count && duplicates.get() == 0 ? 0 : 1);
+    }
+
+    private static void waitFor(BooleanSupplier done, long timeoutMs) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeoutMs;
+        while (!done.getAsBoolean() && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.checkmates.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+
+import com.checkmates.ui.table.LoanTableModel;
+
+/**
+ * Compares the heap footprint of the loan history held in a
+ * {@code DefaultTableModel} (how the dashboard stored it before) against
+ * {@link LoanTableModel}.
+ *
+ * Usage: {@code java -Xmx2g com.checkmates.bench.TableModelMemoryBench [rows]}
+ * (default 1,000,000). Rows are generated with the shape getLoans.php returns:
+ * 20k borrowers, 200k titles, 12 librarians, a third of the loans still out.
+ * Every cell is a fresh String, as it would be after JSON parsing.
+ */
+public class TableModelMemoryBench {
+
+    private static final String[] COLUMNS = {"No.", "Isbn", "Card ID", "Date Out", "Due Date", "Date In", "Lib ID OUT", "Lib ID IN"};
+    private static final int CHUNK = 500;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long base = usedHeap();
+        TableModel legacy = fillDefault(rows);
+        long legacyBytes = usedHeap() - base;
+        check(legacy, rows);
+        legacy = null;
+
+        base = usedHeap();
+        TableModel columnar = fillColumnar(rows);
+        long columnarBytes = usedHeap() - base;
+        check(columnar, rows);
+
+        System.out.printf("%,d loan rows%n", rows);
+        report("DefaultTableModel", legacyBytes, rows);
+        report("LoanTableModel", columnarBytes, rows);
+        System.out.printf("%-18s %.1fx smaller%n", "", (double) legacyBytes / columnarBytes);
+    }
+
+    private static TableModel fillDefault(int rows) {
+        DefaultTableModel model = new DefaultTableModel(COLUMNS, 0);
+        Random rnd = new Random(42);
+        for (int i = 0; i < rows; i++) {
+            model.addRow(row(i, rnd));
+        }
+        return model;
+    }
+
+    private static TableModel fillColumnar(int rows) {
+        LoanTableModel model = new LoanTableModel(COLUMNS);
+        Random rnd = new Random(42);
+        List<String[]> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < rows; i++) {
+            chunk.add(row(i, rnd));
+            if (chunk.size() == CHUNK) {
+                model.appendRows(chunk);
+                chunk.clear();
+            }
+        }
+        model.appendRows(chunk);
+        return model;
+    }
+
+    private static String[] row(int i, Random rnd) {
+        LocalDate out = LocalDate.of(2023, 1, 1).plusDays(rnd.nextInt(730));
+        boolean returned = rnd.nextInt(3) != 0;
+        return new String[]{
+                String.valueOf(i + 1),
+                String.valueOf(9780000000000L + rnd.nextInt(200_000) * 7L),
+                "ID" + String.format("%06d", rnd.nextInt(20_000)),
+                out.toString(),
+                out.plusDays(14).toString(),
+                returned ? out.plusDays(rnd.nextInt(20)).toString() : "---",
+                "L" + (100 + rnd.nextInt(12)),
+                returned ? "L" + (100 + rnd.nextInt(12)) : "---"
+        };
+    }
+
+    // Reads every cell back so the JIT can't drop the model and decoding is exercised
+    private static void check(TableModel model, int rows) {
+        long hash = 0;
+        for (int r = 0; r < rows; r += 997) {
+            for (int c = 0; c < model.getColumnCount(); c++) {
+                hash += String.valueOf(model.getValueAt(r, c)).hashCode();
+            }
+        }
+        if (model.getRowCount() != rows || hash == 42) {
+            throw new IllegalStateException("unexpected model contents");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Collect until the number settles
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    }
+
+    private static void report(String name, long bytes, int rows) {
+        System.out.printf("%-18s %,8.1f MB  %,6.1f bytes/row%n", name, bytes / 1048576.0, (double) bytes / rows);
+    }
+}
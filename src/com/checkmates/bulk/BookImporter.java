@@ -0,0 +1,371 @@
+package com.checkmates.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.checkmates.concurrent.TaskScope;
+import com.checkmates.data.BookRepository;
+import com.checkmates.net.BackendException;
+import com.checkmates.util.Isbn;
+
+/**
+ * Adds every book in a CSV or JSON-lines file.
+ *
+ * The file is read through a {@link FileChannel} one record at a time, so its
+ * size doesn't matter. Each row's ISBN is normalized and checked before
+ * anything is sent; valid rows are added through the {@link BookRepository}
+ * with up to {@code window} requests in flight, so the file is read while
+ * earlier adds are still on the wire. Requests that fail on the network are
+ * retried with backoff; rows the backend refuses (a duplicate ISBN, an
+ * unknown author) are not. An add carries no request key, so a retry can
+ * find the book already stored by an attempt whose answer was lost; when a
+ * retry is refused the ISBN is looked up, and a book with the same title
+ * counts as added. Every row that didn't make it is listed in the
+ * {@link Report}.
+ *
+ * CSV files may start with a header naming the {@code isbn}, {@code title}
+ * and {@code author_id} columns in any order; without one those are the
+ * first three columns. JSON-lines files ({@code .jsonl}, {@code .ndjson})
+ * hold one object per line with the same keys.
+ */
+public final class BookImporter {
+
+    /** One row that wasn't added; {@code line} is 1-based. */
+    public record Failure(long line, String isbn, String reason) {
+    }
+
+    public record Report(int added, List<Failure> failures, long elapsedMs) {
+
+        public int failed() {
+            return failures.size();
+        }
+    }
+
+    /** Called from the reading thread as rows are read and confirmed. */
+    public interface Progress {
+        void update(int added, int failed, long bytesRead, long totalBytes);
+    }
+
+    public static final int DEFAULT_WINDOW = Integer.getInteger("checkmates.import.window", 8);
+    public static final int DEFAULT_ATTEMPTS = 3;
+
+    private final BookRepository books;
+    private final TaskScope tasks;
+    private final int window;
+    private final int attempts;
+
+    public BookImporter(BookRepository books, TaskScope tasks) {
+        this(books, tasks, DEFAULT_WINDOW, DEFAULT_ATTEMPTS);
+    }
+
+    public BookImporter(BookRepository books, TaskScope tasks, int window, int attempts) {
+        if (window < 1 || attempts < 1) {
+            throw new IllegalArgumentException("window and attempts must be at least 1");
+        }
+        this.books = books;
+        this.tasks = tasks;
+        this.window = window;
+        this.attempts = attempts;
+    }
+
+    /**
+     * Imports {@code file}; blocks until the last add has been answered.
+     * Interrupting the calling thread stops the import (adds already sent
+     * may still complete).
+     */
+    public Report run(Path file, Progress progress) throws IOException {
+        long start = System.nanoTime();
+        boolean jsonLines = isJsonLines(file);
+        List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger added = new AtomicInteger();
+        Pipeline pipeline = new Pipeline(tasks, window, attempts);
+        Map<String, Long> seen = new HashMap<>();
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedReader in = new BufferedReader(Channels.newReader(ch, StandardCharsets.UTF_8), 1 << 16)) {
+            long total = ch.size();
+            RecordReader records = jsonLines ? new JsonLinesReader(in) : new CsvReader(in);
+            String[] row;
+            while ((row = records.next()) != null) {
+                long line = records.line();
+                String rawIsbn = row[0];
+                String isbn = Isbn.normalize(rawIsbn);
+                if (isbn == null) {
+                    failures.add(new Failure(line, rawIsbn, "Invalid ISBN"));
+                } else if (row[1].isBlank()) {
+                    failures.add(new Failure(line, isbn, "Missing title"));
+                } else if (row[2].isBlank()) {
+                    failures.add(new Failure(line, isbn, "Missing author id"));
+                } else if (seen.containsKey(isbn)) {
+                    failures.add(new Failure(line, isbn, "Duplicate of line " + seen.get(isbn)));
+                } else {
+                    seen.put(isbn, line);
+                    String title = row[1].trim();
+                    String authorId = row[2].trim();
+                    pipeline.submit(new Add(isbn, title, authorId), (message, failure) -> {
+                        if (failure == null) {
+                            added.incrementAndGet();
+                        } else {
+                            failures.add(new Failure(line, isbn, pipeline.describe(failure)));
+                        }
+                    });
+                }
+                if (progress != null && (line & 63) == 0) {
+                    progress.update(added.get(), failures.size(), ch.position(), total);
+                }
+            }
+            pipeline.await();
+            if (progress != null) {
+                progress.update(added.get(), failures.size(), total, total);
+            }
+        }
+
+        List<Failure> sorted = new ArrayList<>(failures);
+        sorted.sort((a, b) -> Long.compare(a.line(), b.line()));
+        return new Report(added.get(), sorted, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private final class Add implements Pipeline.Request<String> {
+
+        private final String isbn;
+        private final String title;
+        private final String authorId;
+        private boolean sent;
+
+        Add(String isbn, String title, String authorId) {
+            this.isbn = isbn;
+            this.title = title;
+            this.authorId = authorId;
+        }
+
+        @Override
+        public String send() throws IOException {
+            boolean retry = sent;
+            sent = true;
+            try {
+                return books.add(isbn, title, authorId);
+            } catch (BackendException ex) {
+                if (retry) {
+                    String[] stored = books.find(isbn);
+                    if (stored != null && title.equals(stored[1])) {
+                        return "Book added successfully.";
+                    }
+                }
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Writes the failures as CSV ({@code line,isbn,reason}) next to
+     * {@code source}, returning the file written.
+     */
+    public static Path writeErrorReport(Path source, Report report) throws IOException {
+        String name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        Path target = source.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".errors.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            out.write("line,isbn,reason");
+            out.newLine();
+            for (Failure f : report.failures()) {
+                out.write(f.line() + "," + CsvReader.quote(f.isbn()) + "," + CsvReader.quote(f.reason()));
+                out.newLine();
+            }
+        }
+        return target;
+    }
+
+    static boolean isJsonLines(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    // --- Record readers: each returns {isbn, title, author id}, never null fields ---
+
+    interface RecordReader {
+        String[] next() throws IOException;
+
+        /** Line the last record started on. */
+        long line();
+    }
+
+    /** RFC 4180 CSV: quoted fields may contain commas, doubled quotes and line breaks. */
+    static final class CsvReader implements RecordReader {
+
+        private final BufferedReader in;
+        private final int[] columns = {0, 1, 2};
+        private long nextLine = 1;
+        private long line;
+        private boolean first = true;
+
+        CsvReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            List<String> fields;
+            while ((fields = record()) != null) {
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue; // blank line
+                }
+                if (first) {
+                    first = false;
+                    if (readHeader(fields)) {
+                        continue;
+                    }
+                }
+                return new String[]{field(fields, 0), field(fields, 1), field(fields, 2)};
+            }
+            return null;
+        }
+
+        private boolean readHeader(List<String> fields) {
+            int isbn = -1, title = -1, author = -1;
+            for (int i = 0; i < fields.size(); i++) {
+                String name = fields.get(i).trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+                switch (name) {
+                    case "isbn", "isbn10", "isbn13" -> isbn = isbn < 0 ? i : isbn;
+                    case "title", "book_title" -> title = i;
+                    case "author_id", "authorid", "author" -> author = i;
+                    default -> { }
+                }
+            }
+            if (isbn < 0) {
+                return false; // data, not a header
+            }
+            columns[0] = isbn;
+            columns[1] = title;
+            columns[2] = author;
+            return true;
+        }
+
+        private String field(List<String> fields, int which) {
+            int i = columns[which];
+            return i >= 0 && i < fields.size() ? fields.get(i) : "";
+        }
+
+        private List<String> record() throws IOException {
+            int c = in.read();
+            if (c < 0) {
+                return null;
+            }
+            line = nextLine;
+            List<String> fields = new ArrayList<>(4);
+            StringBuilder sb = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) {
+                        throw new IOException("Unterminated quote in record starting on line " + line);
+                    }
+                    if (c == '"') {
+                        int n = in.read();
+                        if (n == '"') {
+                            sb.append('"');
+                        } else {
+                            quoted = false;
+                            c = n;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            nextLine++;
+                        }
+                        sb.append((char) c);
+                    }
+                } else if (c == '"' && sb.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(sb.toString());
+                    sb.setLength(0);
+                } else if (c == '\n' || c < 0) {
+                    nextLine++;
+                    break;
+                } else if (c != '\r') {
+                    sb.append((char) c);
+                }
+                c = in.read();
+            }
+            fields.add(sb.toString());
+            return fields;
+        }
+
+        static String quote(String s) {
+            if (s == null) {
+                return "";
+            }
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+                return s;
+            }
+            return '"' + s.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    static final class JsonLinesReader implements RecordReader {
+
+        private final BufferedReader in;
+        private long line;
+
+        JsonLinesReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            String text;
+            while ((text = in.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    JSONObject obj = new JSONObject(text);
+                    return new String[]{
+                            first(obj, "isbn", "Isbn", "ISBN"),
+                            first(obj, "title", "Title"),
+                            first(obj, "author_id", "Author_id", "authorId")};
+                } catch (JSONException ex) {
+                    // Reported like an invalid row rather than aborting the file
+                    return new String[]{text.length() > 40 ? text.substring(0, 40) + "..." : text, "", ""};
+                }
+            }
+            return null;
+        }
+
+        private static String first(JSONObject obj, String... keys) {
+            for (String k : keys) {
+                if (obj.has(k) && !obj.isNull(k)) {
+                    return String.valueOf(obj.get(k));
+                }
+            }
+            return "";
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.checkmates.bulk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.checkmates.concurrent.TaskScope;
+import com.checkmates.data.LoanRepository;
+import com.checkmates.util.Isbn;
+
+/**
+ * Checks many books out to one borrower, or many books back in, at the desk.
+ *
+ * Requests go out through a {@link Pipeline}, several at a time, each with
+ * its own request key: a retry after a network failure reuses the key, so the
+ * backend confirms the first attempt rather than lending a book twice. Each
+ * item is reported to the {@link Listener} as soon as it is answered, and the
+ * whole batch once more in the {@link Summary}.
+ */
+public final class CirculationBatch {
+
+    public enum Kind {
+        CHECK_OUT("checked out"),
+        CHECK_IN("checked in");
+
+        private final String pastTense;
+
+        Kind(String pastTense) {
+            this.pastTense = pastTense;
+        }
+
+        public String pastTense() {
+            return pastTense;
+        }
+    }
+
+    public record Outcome(String isbn, boolean ok, String message) {
+    }
+
+    /** Outcomes in the order the ISBNs were given. */
+    public record Summary(Kind kind, List<Outcome> outcomes, long elapsedMs) {
+
+        public int succeeded() {
+            return (int) outcomes.stream().filter(Outcome::ok).count();
+        }
+
+        public int failed() {
+            return outcomes.size() - succeeded();
+        }
+    }
+
+    /** Called on a background thread as each item is answered. */
+    public interface Listener {
+        void itemDone(Outcome outcome);
+    }
+
+    public static final int DEFAULT_WINDOW = Integer.getInteger("checkmates.circulation.window", 8);
+
+    private final LoanRepository loans;
+    private final TaskScope tasks;
+    private final int window;
+    private final int attempts;
+
+    public CirculationBatch(LoanRepository loans, TaskScope tasks) {
+        this(loans, tasks, DEFAULT_WINDOW, BookImporter.DEFAULT_ATTEMPTS);
+    }
+
+    public CirculationBatch(LoanRepository loans, TaskScope tasks, int window, int attempts) {
+        this.loans = loans;
+        this.tasks = tasks;
+        this.window = window;
+        this.attempts = attempts;
+    }
+
+    /** Lends every book in {@code isbns} to {@code cardId}; blocks until all are answered. */
+    public Summary checkOut(String cardId, List<String> isbns, String libId, Listener listener) throws IOException {
+        return run(Kind.CHECK_OUT, isbns, listener, (isbn, key) -> loans.checkOut(isbn, cardId, libId, key));
+    }
+
+    /** Returns every book in {@code isbns}; blocks until all are answered. */
+    public Summary checkIn(List<String> isbns, String libId, Listener listener) throws IOException {
+        return run(Kind.CHECK_IN, isbns, listener, (isbn, key) -> loans.checkIn(isbn, libId, key));
+    }
+
+    private interface Call {
+        String send(String isbn, String requestKey) throws IOException;
+    }
+
+    private Summary run(Kind kind, List<String> isbns, Listener listener, Call call) throws IOException {
+        long start = System.nanoTime();
+        Pipeline pipeline = new Pipeline(tasks, window, attempts);
+        Outcome[] outcomes = new Outcome[isbns.size()];
+        for (int i = 0; i < isbns.size(); i++) {
+            int at = i;
+            String isbn = isbns.get(i);
+            String key = LoanRepository.newRequestKey(); // shared by this item's retries
+            pipeline.submit(() -> call.send(isbn, key), (message, failure) -> {
+                Outcome outcome = failure == null
+                        ? new Outcome(isbn, true, message)
+                        : new Outcome(isbn, false, pipeline.describe(failure));
+                synchronized (outcomes) {
+                    outcomes[at] = outcome;
+                }
+                if (listener != null) {
+                    listener.itemDone(outcome);
+                }
+            });
+        }
+        pipeline.await();
+        List<Outcome> list;
+        synchronized (outcomes) {
+            list = new ArrayList<>(Arrays.asList(outcomes));
+        }
+        return new Summary(kind, list, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * The ISBNs in text typed or scanned into a box: separated by whitespace,
+     * commas or semicolons, in order, each once. Valid ISBNs are normalized;
+     * anything else is kept as typed for the backend to refuse.
+     */
+    public static List<String> parseIsbns(String text) {
+        Set<String> isbns = new LinkedHashSet<>();
+        for (String token : text.split("[\\s,;]+")) {
+            if (!token.isEmpty()) {
+                String isbn = Isbn.normalize(token);
+                isbns.add(isbn != null ? isbn : token);
+            }
+        }
+        return new ArrayList<>(isbns);
+    }
+}
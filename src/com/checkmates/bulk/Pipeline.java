@@ -0,0 +1,125 @@
+package com.checkmates.bulk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.checkmates.concurrent.TaskScope;
+import com.checkmates.net.BackendException;
+
+/**
+ * Keeps up to {@code window} backend requests in flight on a window's
+ * {@link TaskScope}. {@link #submit} blocks while the window is full, so the
+ * caller produces requests only as fast as they are answered. The caller must
+ * not hold an executor slot while it waits ({@link TaskScope#submitBatch}).
+ *
+ * A request that fails on the network is sent again, up to {@code attempts}
+ * times with doubling delays; one the backend refused
+ * ({@link BackendException}) or that was cancelled is not.
+ */
+final class Pipeline {
+
+    interface Request<T> {
+        T send() throws IOException;
+    }
+
+    /** Gets the request's result, or the failure from its last attempt. */
+    interface Callback<T> {
+        void done(T result, IOException failure);
+    }
+
+    private static final long RETRY_DELAY_MS = 250;
+
+    private final TaskScope tasks;
+    private final int window;
+    private final int attempts;
+    private final Semaphore inFlight;
+
+    Pipeline(TaskScope tasks, int window, int attempts) {
+        if (window < 1 || attempts < 1) {
+            throw new IllegalArgumentException("window and attempts must be at least 1");
+        }
+        this.tasks = tasks;
+        this.window = window;
+        this.attempts = attempts;
+        this.inFlight = new Semaphore(window);
+    }
+
+    int attempts() {
+        return attempts;
+    }
+
+    <T> void submit(Request<T> request, Callback<T> callback) throws InterruptedIOException {
+        acquire(1);
+        tasks.submit(() -> {
+            try {
+                send(request, callback);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /** Waits until every submitted request has been answered. */
+    void await() throws InterruptedIOException {
+        acquire(window);
+        inFlight.release(window);
+    }
+
+    private <T> void send(Request<T> request, Callback<T> callback) {
+        for (int attempt = 1; ; attempt++) {
+            T result;
+            try {
+                result = request.send();
+            } catch (IOException ex) {
+                if (ex instanceof BackendException || cancelled(ex) || attempt >= attempts) {
+                    callback.done(null, ex);
+                    return;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MS << (attempt - 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    callback.done(null, new InterruptedIOException("Cancelled"));
+                    return;
+                }
+                continue;
+            }
+            callback.done(result, null);
+            return;
+        }
+    }
+
+    // Gives up if the window that owns the requests was closed (its queued
+    // requests will never run, so their permits never come back)
+    private void acquire(int permits) throws InterruptedIOException {
+        try {
+            while (!inFlight.tryAcquire(permits, 200, TimeUnit.MILLISECONDS)) {
+                if (tasks.isClosed()) {
+                    throw new InterruptedIOException("Cancelled");
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Cancelled");
+        }
+    }
+
+    // A socket timeout is an InterruptedIOException too, but worth retrying
+    private static boolean cancelled(IOException failure) {
+        return failure instanceof InterruptedIOException && !(failure instanceof SocketTimeoutException);
+    }
+
+    /** How a failed request is reported to the user. */
+    String describe(IOException failure) {
+        if (failure instanceof BackendException) {
+            return failure.getMessage();
+        }
+        if (cancelled(failure)) {
+            return "Cancelled";
+        }
+        return "Failed after " + attempts + " attempts: " + failure.getMessage();
+    }
+}
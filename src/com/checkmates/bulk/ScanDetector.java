@@ -0,0 +1,66 @@
+package com.checkmates.bulk;
+
+/**
+ * Tells a barcode scanner's keystrokes from a person's by their timing.
+ *
+ * Keyboard-wedge scanners "type" a whole code in a few milliseconds per
+ * character and finish with Enter; people take 80 ms or more between keys.
+ * The detector is fed every typed character with its event time and, on
+ * Enter, reports the fast run that ended there. Stray keys typed by hand
+ * just before a scan are left out of it, so a scan is never glued to
+ * whatever was in the field.
+ *
+ * Used from the EDT only.
+ */
+public final class ScanDetector {
+
+    public static final long DEFAULT_MAX_GAP_MS = Long.getLong("checkmates.scan.maxGapMs", 50);
+    // Shortest scanner burst taken as a code (ISBN-10 without its leading zero)
+    public static final int DEFAULT_MIN_LENGTH = 9;
+
+    private final long maxGapMs;
+    private final int minLength;
+    private final StringBuilder typed = new StringBuilder(32);
+    private int runStart;
+    private long lastKey = Long.MIN_VALUE;
+
+    public ScanDetector() {
+        this(DEFAULT_MAX_GAP_MS, DEFAULT_MIN_LENGTH);
+    }
+
+    public ScanDetector(long maxGapMs, int minLength) {
+        this.maxGapMs = maxGapMs;
+        this.minLength = minLength;
+    }
+
+    /** A printable character typed at {@code when} (milliseconds). */
+    public void typed(char c, long when) {
+        if (lastKey == Long.MIN_VALUE || when - lastKey > maxGapMs) {
+            runStart = typed.length(); // a pause: whatever comes next starts a new run
+        }
+        typed.append(c);
+        lastKey = when;
+    }
+
+    /**
+     * Enter was pressed at {@code when}. Returns the scanned code if the
+     * characters before it arrived as a scanner burst, or null if they were
+     * typed by hand (the caller then takes the field's text as typed).
+     * Either way the detector starts over.
+     */
+    public String enter(long when) {
+        String scan = null;
+        int length = typed.length() - runStart;
+        if (length >= minLength && when - lastKey <= maxGapMs) {
+            scan = typed.substring(runStart).trim();
+        }
+        reset();
+        return scan;
+    }
+
+    public void reset() {
+        typed.setLength(0);
+        runStart = 0;
+        lastKey = Long.MIN_VALUE;
+    }
+}
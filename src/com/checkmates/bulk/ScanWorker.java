@@ -0,0 +1,116 @@
+package com.checkmates.bulk;
+
+import java.io.InterruptedIOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.checkmates.concurrent.TaskScope;
+import com.checkmates.data.LoanRepository;
+
+/**
+ * Sends scanned books to the backend without the scanning side ever waiting.
+ *
+ * {@link #offer} puts the scan on a lock-free queue and returns at once; a
+ * worker thread of its own drains the queue into a {@link Pipeline}, so
+ * several requests are on the wire while the librarian keeps scanning. Each
+ * scan carries its own request key, making the pipeline's retries safe.
+ *
+ * Scans are already acknowledged at the desk when they are queued, so the
+ * worker does not stop with the window: {@link #finish} lets it send
+ * whatever is still queued and then shut down.
+ */
+public final class ScanWorker {
+
+    public record Scan(long id, CirculationBatch.Kind kind, String isbn, String cardId) {
+    }
+
+    /** Called on a background thread when a scan has been answered. */
+    public interface Listener {
+        void answered(Scan scan, CirculationBatch.Outcome outcome);
+    }
+
+    private final LoanRepository loans;
+    private final String libId;
+    private final Listener listener;
+    private final Queue<Scan> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final TaskScope tasks = TaskScope.standalone("ScanWorker"); // outlives the desk window
+    private final Pipeline pipeline;
+    private final Thread worker;
+    private volatile boolean finishing;
+    private volatile Runnable whenDone;
+
+    public ScanWorker(LoanRepository loans, String libId, Listener listener) {
+        this.loans = loans;
+        this.libId = libId;
+        this.listener = listener;
+        this.pipeline = new Pipeline(tasks, CirculationBatch.DEFAULT_WINDOW, BookImporter.DEFAULT_ATTEMPTS);
+        // Mostly parked waiting for scans; a pooled task would hold an executor slot all that time
+        this.worker = Thread.ofPlatform().name("scan-worker").start(this::drain);
+    }
+
+    /** Queues a checkout ({@code cardId} set) or check-in; never blocks. */
+    public Scan offer(CirculationBatch.Kind kind, String isbn, String cardId) {
+        Scan scan = new Scan(ids.incrementAndGet(), kind, isbn, cardId);
+        pending.incrementAndGet();
+        queue.add(scan);
+        LockSupport.unpark(worker);
+        return scan;
+    }
+
+    /** Scans queued or on the wire. */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Stops taking scans once those already queued have been answered (the
+     * listener still hears about each), then runs {@code whenDone} on the
+     * worker thread.
+     */
+    public void finish(Runnable whenDone) {
+        this.whenDone = whenDone;
+        finishing = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Scan scan = queue.poll();
+                if (scan != null) {
+                    send(scan);
+                } else if (finishing) {
+                    break;
+                } else {
+                    LockSupport.park(this); // offer() and finish() unpark; spurious wakeups just poll again
+                }
+            }
+            pipeline.await();
+        } catch (InterruptedIOException ex) {
+            System.err.println("Scan worker stopped with " + pending.get() + " scans unsent");
+        } finally {
+            tasks.close();
+            Runnable done = whenDone;
+            if (done != null) {
+                done.run();
+            }
+        }
+    }
+
+    private void send(Scan scan) throws InterruptedIOException {
+        String key = LoanRepository.newRequestKey();
+        pipeline.submit(() -> scan.kind() == CirculationBatch.Kind.CHECK_OUT
+                ? loans.checkOut(scan.isbn(), scan.cardId(), libId, key)
+                : loans.checkIn(scan.isbn(), libId, key), (message, failure) -> {
+            pending.decrementAndGet();
+            listener.answered(scan, failure == null
+                    ? new CirculationBatch.Outcome(scan.isbn(), true, message)
+                    : new CirculationBatch.Outcome(scan.isbn(), false, pipeline.describe(failure)));
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.checkmates.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application-wide executor for background work (network calls, parsing, ...).
+ *
+ * Every task runs on its own named virtual thread, but at most
+ * {@code checkmates.tasks.maxConcurrent} (default 32) run at once; the rest wait
+ * their turn and show up in {@link #getQueuedCount()}. Windows should not use
+ * this directly but go through a {@link TaskScope} so their work is cancelled on
+ * dispose.
+ */
+public final class AppExecutor {
+
+    private static final AppExecutor INSTANCE =
+            new AppExecutor(Integer.getInteger("checkmates.tasks.maxConcurrent", 32));
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+
+    private AppExecutor(int maxConcurrent) {
+        ThreadFactory factory = Thread.ofVirtual().name("checkmates-task-", 0).factory();
+        this.executor = Executors.newThreadPerTaskExecutor(factory);
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public static AppExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    public Future<?> submit(Runnable task) {
+        return executor.submit(() -> {
+            runBounded(() -> {
+                task.run();
+                return null;
+            });
+            return null;
+        });
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(() -> runBounded(task));
+    }
+
+    private <T> T runBounded(Callable<T> task) throws Exception {
+        queued.incrementAndGet();
+        try {
+            permits.acquire();
+        } finally {
+            queued.decrementAndGet();
+        }
+        inFlight.incrementAndGet();
+        try {
+            return task.call();
+        } finally {
+            inFlight.decrementAndGet();
+            completed.incrementAndGet();
+            permits.release();
+        }
+    }
+
+    /** Tasks submitted but still waiting for a free slot. */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /** Tasks currently running. */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    @Override
+    public String toString() {
+        return "AppExecutor[queued=" + getQueuedCount()
+                + ", inFlight=" + getInFlightCount()
+                + ", completed=" + getCompletedCount() + "]";
+    }
+}
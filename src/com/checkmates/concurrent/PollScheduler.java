@@ -0,0 +1,194 @@
+package com.checkmates.concurrent;
+
+import java.awt.EventQueue;
+import java.awt.Frame;
+import java.awt.Window;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application-wide timer for periodic checks (message polls and the like).
+ *
+ * One daemon thread serves every subscription, so a window's poller can't
+ * outlive it the way a private executor does. Each subscription belongs to a
+ * window: it is cancelled when the window is closed, or on the first tick
+ * after the window was disposed without a close event. While
+ * the window is hidden or minimized its ticks are skipped, and the first
+ * tick after it is shown again runs at once.
+ *
+ * Ticks run on the scheduler thread and must be quick; anything slow goes to
+ * the window's {@link TaskScope}.
+ */
+public final class PollScheduler {
+
+    private static final PollScheduler INSTANCE = new PollScheduler();
+
+    /** Handle for one periodic tick. */
+    public interface Subscription {
+        void cancel();
+
+        boolean isCancelled();
+
+        /** True while the owner window is hidden or minimized. */
+        boolean isPaused();
+    }
+
+    private final ScheduledThreadPoolExecutor timer;
+    private final Set<Sub> live = ConcurrentHashMap.newKeySet();
+
+    private PollScheduler() {
+        timer = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("checkmates-poll").daemon().factory());
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public static PollScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs {@code tick} every {@code periodMs} while {@code owner} is on
+     * screen, until the owner is closed or the subscription cancelled. Call on
+     * the EDT.
+     */
+    public Subscription every(Window owner, long periodMs, Runnable tick) {
+        Sub sub = new Sub(owner, tick);
+        owner.addWindowListener(sub.windowListener);
+        owner.addComponentListener(sub.componentListener);
+        sub.paused = !owner.isShowing() || iconified(owner);
+        live.add(sub);
+        sub.future = timer.scheduleWithFixedDelay(sub::run, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        return sub;
+    }
+
+    /** Subscriptions not yet cancelled, paused ones included. */
+    public int getLiveCount() {
+        return live.size();
+    }
+
+    public int getPausedCount() {
+        int paused = 0;
+        for (Sub s : live) {
+            if (s.paused) {
+                paused++;
+            }
+        }
+        return paused;
+    }
+
+    private static boolean iconified(Window w) {
+        return w instanceof Frame f && (f.getExtendedState() & Frame.ICONIFIED) != 0;
+    }
+
+    private final class Sub implements Subscription {
+
+        private final Window owner;
+        private final Runnable tick;
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean paused;
+        private volatile boolean cancelled;
+        private boolean displayed; // scheduler thread only
+
+        private final WindowAdapter windowListener = new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancel();
+            }
+
+            @Override
+            public void windowIconified(WindowEvent e) {
+                paused = true;
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                resume();
+            }
+
+            @Override
+            public void windowOpened(WindowEvent e) {
+                resume();
+            }
+        };
+
+        private final ComponentAdapter componentListener = new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                paused = true;
+            }
+
+            @Override
+            public void componentShown(ComponentEvent e) {
+                resume();
+            }
+        };
+
+        Sub(Window owner, Runnable tick) {
+            this.owner = owner;
+            this.tick = tick;
+        }
+
+        private void run() {
+            if (displayed && !owner.isDisplayable()) {
+                cancel(); // disposed without a close event
+                return;
+            }
+            displayed |= owner.isDisplayable();
+            if (paused || cancelled) {
+                return;
+            }
+            try {
+                tick.run();
+            } catch (RuntimeException ex) {
+                ex.printStackTrace(); // keep ticking; a thrown tick would stop the schedule
+            }
+        }
+
+        private void resume() {
+            if (paused && !cancelled) {
+                paused = false;
+                timer.execute(this::run); // catch up now rather than a period later
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            live.remove(this);
+            ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+            // Listeners belong to the EDT; cancel() may come from a tick
+            if (EventQueue.isDispatchThread()) {
+                removeListeners();
+            } else {
+                EventQueue.invokeLater(this::removeListeners);
+            }
+        }
+
+        private void removeListeners() {
+            owner.removeWindowListener(windowListener);
+            owner.removeComponentListener(componentListener);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isPaused() {
+            return paused;
+        }
+    }
+}
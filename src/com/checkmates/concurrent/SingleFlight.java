@@ -0,0 +1,114 @@
+package com.checkmates.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same resource into one in-flight fetch.
+ *
+ * {@link #join} hands every caller the fetch that is already running for the
+ * key, if any. {@link #refresh} is for callers that need data newer than the
+ * moment they asked (e.g. reloading after a checkout): if a fetch is already
+ * running they all share a single follow-up fetch that starts when it ends, so a
+ * burst of N refreshes costs at most two downloads instead of N.
+ *
+ * Callers each get their own copy of the shared future, so cancelling one
+ * caller's future does not cancel the fetch for the others.
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> flights = new HashMap<>();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private static final class Flight<V> {
+        CompletableFuture<V> current;
+        CompletableFuture<V> next;
+        Supplier<CompletableFuture<V>> nextFetch;
+    }
+
+    public CompletableFuture<V> join(K key, Supplier<CompletableFuture<V>> fetch) {
+        synchronized (flights) {
+            Flight<V> flight = flights.get(key);
+            if (flight != null) {
+                coalesced.incrementAndGet();
+                return flight.current.copy();
+            }
+            flight = new Flight<>();
+            flights.put(key, flight);
+            return start(key, flight, fetch).copy();
+        }
+    }
+
+    public CompletableFuture<V> refresh(K key, Supplier<CompletableFuture<V>> fetch) {
+        synchronized (flights) {
+            Flight<V> flight = flights.get(key);
+            if (flight == null) {
+                flight = new Flight<>();
+                flights.put(key, flight);
+                return start(key, flight, fetch).copy();
+            }
+            if (flight.next == null) {
+                flight.next = new CompletableFuture<>();
+            } else {
+                coalesced.incrementAndGet();
+            }
+            flight.nextFetch = fetch;
+            return flight.next.copy();
+        }
+    }
+
+    // Must be called holding the lock
+    private CompletableFuture<V> start(K key, Flight<V> flight, Supplier<CompletableFuture<V>> fetch) {
+        started.incrementAndGet();
+        CompletableFuture<V> f;
+        try {
+            f = fetch.get();
+        } catch (RuntimeException ex) {
+            f = CompletableFuture.failedFuture(ex);
+        }
+        flight.current = f;
+        f.whenComplete((v, t) -> finished(key, flight));
+        return f;
+    }
+
+    private void finished(K key, Flight<V> flight) {
+        synchronized (flights) {
+            if (flight.next == null) {
+                flights.remove(key, flight);
+                return;
+            }
+            CompletableFuture<V> waiting = flight.next;
+            Supplier<CompletableFuture<V>> fetch = flight.nextFetch;
+            flight.next = null;
+            flight.nextFetch = null;
+            start(key, flight, fetch).whenComplete((v, t) -> {
+                if (t != null) {
+                    waiting.completeExceptionally(t);
+                } else {
+                    waiting.complete(v);
+                }
+            });
+        }
+    }
+
+    /** Number of keys with a fetch currently running. */
+    public int getInFlightCount() {
+        synchronized (flights) {
+            return flights.size();
+        }
+    }
+
+    /** Fetches actually started. */
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    /** Requests that were served by another caller's fetch. */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,184 @@
+package com.checkmates.concurrent;
+
+import java.awt.Component;
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import javax.swing.SwingUtilities;
+
+/**
+ * The background tasks owned by one window.
+ *
+ * A scope is created once per window with {@link #forWindow(Window)} and
+ * closed automatically when the window is disposed, which interrupts whatever
+ * is still running for it. Tasks submitted after that are dropped, except
+ * writes ({@link #submitWrite}), which always finish.
+ */
+public final class TaskScope {
+
+    private static final Map<Window, TaskScope> SCOPES = new WeakHashMap<>();
+
+    private final String name;
+    private final Set<Future<?>> active = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private TaskScope(String name) {
+        this.name = name;
+    }
+
+    public static TaskScope forWindow(Window window) {
+        synchronized (SCOPES) {
+            TaskScope scope = SCOPES.get(window);
+            if (scope == null) {
+                scope = new TaskScope(window.getClass().getSimpleName());
+                TaskScope created = scope;
+                window.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(WindowEvent e) {
+                        created.close();
+                        synchronized (SCOPES) {
+                            SCOPES.remove(window);
+                        }
+                    }
+                });
+                SCOPES.put(window, scope);
+            }
+            return scope;
+        }
+    }
+
+    /** A scope owned by something other than a window, which must {@link #close} it. */
+    public static TaskScope standalone(String name) {
+        return new TaskScope(name);
+    }
+
+    /** Scope of the window containing {@code c}. */
+    public static TaskScope of(Component c) {
+        Window w = c instanceof Window ? (Window) c : SwingUtilities.getWindowAncestor(c);
+        if (w == null) {
+            throw new IllegalStateException("Component is not inside a window: " + c);
+        }
+        return forWindow(w);
+    }
+
+    public Future<?> submit(Runnable task) {
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Future<?> f = AppExecutor.getInstance().submit(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                // Nobody reads these futures, so report it like an uncaught thread exception would
+                if (!closed) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+        track(f);
+        return f;
+    }
+
+    /**
+     * Runs a write the user already counts as done (a message on screen, a
+     * note saved, a book deleted). Unlike {@link #submit} it is not tied to
+     * the window: closing the window neither interrupts nor drops it, the
+     * way the threads these replaced always ran to the end.
+     */
+    public Future<?> submitWrite(Runnable task) {
+        return AppExecutor.getInstance().submit(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Runs a task that mostly waits for work it submits to a scope (a bulk
+     * import or circulation batch). It gets a thread of its own instead of
+     * one of AppExecutor's slots: enough of these holding slots while they
+     * wait would leave their own requests nowhere to run. Cancelled with the
+     * scope, like {@link #submit}.
+     */
+    public Future<?> submitBatch(Runnable task) {
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        FutureTask<Void> f = new FutureTask<>(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                if (!closed) {
+                    ex.printStackTrace();
+                }
+            }
+        }, null);
+        track(f);
+        Thread.ofVirtual().name("checkmates-batch-" + name).start(f);
+        return f;
+    }
+
+    public <T> CompletableFuture<T> supply(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (closed) {
+            result.cancel(false);
+            return result;
+        }
+        Future<?> f = AppExecutor.getInstance().submit(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        track(f);
+        result.whenComplete((v, t) -> {
+            if (result.isCancelled()) {
+                f.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private void track(Future<?> f) {
+        // Futures from AppExecutor have no completion callback, so prune lazily
+        active.removeIf(Future::isDone);
+        active.add(f);
+        if (closed) {
+            f.cancel(true);
+        }
+    }
+
+    /** Cancels everything still running for this window. */
+    public void close() {
+        closed = true;
+        for (Future<?> f : active) {
+            f.cancel(true);
+        }
+        active.clear();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getActiveCount() {
+        active.removeIf(Future::isDone);
+        return active.size();
+    }
+
+    @Override
+    public String toString() {
+        return "TaskScope[" + name + ", active=" + getActiveCount() + (closed ? ", closed" : "") + "]";
+    }
+}
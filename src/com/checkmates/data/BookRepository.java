@@ -0,0 +1,95 @@
+package com.checkmates.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * The book catalog. Rows are in {@code BookTableModel} column order: ISBN,
+ * title, authors (comma separated) and "IN" or "OUT".
+ *
+ * Writes return the backend's confirmation message and throw
+ * {@link com.checkmates.net.BackendException} with its explanation when it
+ * refuses the change.
+ */
+public interface BookRepository {
+
+    /** A slice of the catalog plus the total number of books matching the query. */
+    record Page(int total, List<String[]> rows) {
+    }
+
+    /**
+     * Streams the whole catalog into {@code sink} in chunks, reading the
+     * current data (a cached copy is only used if it is still valid).
+     *
+     * @return the number of rows
+     */
+    int streamAll(Consumer<List<String[]>> sink) throws IOException;
+
+    /**
+     * Same as {@link #streamAll}, but may answer from a copy that has not been
+     * checked yet; {@code onStale} (may be null) runs on some background
+     * thread if that copy turns out to be out of date. Backends without a
+     * cache always read the current data.
+     */
+    default int streamCached(Consumer<List<String[]>> sink, Runnable onStale) throws IOException {
+        return streamAll(sink);
+    }
+
+    /**
+     * The row for {@code isbn}, or {@code null} if there is none. Backends
+     * without a lookup read the whole catalog, so this is for rare checks.
+     */
+    default String[] find(String isbn) throws IOException {
+        String[][] found = new String[1][];
+        streamAll(rows -> {
+            for (String[] row : rows) {
+                if (found[0] == null && isbn.equals(row[0])) {
+                    found[0] = row;
+                }
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * Rows {@code offset} to {@code offset + limit} of the books whose ISBN,
+     * title or authors contain {@code query} (ignoring case; empty matches
+     * everything), in the same order as {@link #streamAll}. Backends without
+     * paging read the whole catalog and keep the slice.
+     */
+    default Page page(int offset, int limit, String query) throws IOException {
+        List<String[]> rows = new ArrayList<>(limit);
+        int[] total = {0};
+        streamAll(chunk -> {
+            for (String[] row : chunk) {
+                if (matches(row, query)) {
+                    if (total[0] >= offset && rows.size() < limit) {
+                        rows.add(row);
+                    }
+                    total[0]++;
+                }
+            }
+        });
+        return new Page(total[0], rows);
+    }
+
+    /** Whether {@code row} matches a {@link #page} query. */
+    static boolean matches(String[] row, String query) {
+        if (query.isEmpty()) {
+            return true;
+        }
+        String q = query.toLowerCase(Locale.ROOT);
+        return row[0].toLowerCase(Locale.ROOT).contains(q)
+                || row[1].toLowerCase(Locale.ROOT).contains(q)
+                || row[2].toLowerCase(Locale.ROOT).contains(q);
+    }
+
+    String add(String isbn, String title, String authorId) throws IOException;
+
+    String updateTitle(String isbn, String title) throws IOException;
+
+    String delete(String isbn) throws IOException;
+}
@@ -0,0 +1,33 @@
+package com.checkmates.data;
+
+import java.io.IOException;
+import java.util.List;
+
+/** Classes a professor takes attendance for. */
+public interface ClassRepository {
+
+    record ClassInfo(int id, String name, String section) {
+    }
+
+    /** The passcode students check in with and when it stops working. */
+    record Passcode(int passcode, String expires) {
+    }
+
+    record CheckIn(String studentId, String name, String time, String date) {
+    }
+
+    record Attendance(int total, List<CheckIn> records) {
+    }
+
+    List<ClassInfo> classesFor(String professorId) throws IOException;
+
+    /**
+     * Creates a class open for check-in for {@code expirationMinutes}.
+     *
+     * @param ipv6 the only address check-ins are accepted from, or null for any
+     */
+    Passcode create(String professorId, String className, String section,
+                    int passcode, int expirationMinutes, String ipv6) throws IOException;
+
+    Attendance attendance(int classId) throws IOException;
+}
@@ -0,0 +1,51 @@
+package com.checkmates.data;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Loan history. Rows are in {@code LoanTableModel} column order: "No." (the
+ * row's 1-based position in the answer), ISBN, card id, date out, due date,
+ * date in, librarian who checked it out, librarian who took it back; the last
+ * two dates and the return librarian are "---" while the book is out.
+ */
+public interface LoanRepository {
+
+    /**
+     * Streams the loans changed since {@code watermark}, or every loan when it
+     * is null, into {@code sink} in chunks.
+     *
+     * @return the watermark to pass next time, or null if this backend can't
+     *         answer deltas (the rows were then everything)
+     * @throws WatermarkExpiredException if the backend no longer remembers
+     *         changes that far back
+     */
+    String streamChanges(String watermark, Consumer<List<String[]>> sink) throws IOException;
+
+    /** Lends {@code isbn} to {@code cardId}; returns the backend's confirmation message. */
+    default String checkOut(String isbn, String cardId, String libId) throws IOException {
+        return checkOut(isbn, cardId, libId, newRequestKey());
+    }
+
+    /**
+     * Same as {@link #checkOut(String, String, String)}, identified by
+     * {@code requestKey}: sending it again with the same key (a retry after a
+     * lost answer) confirms the first loan instead of failing or lending the
+     * book twice.
+     */
+    String checkOut(String isbn, String cardId, String libId, String requestKey) throws IOException;
+
+    /**
+     * Records the return of {@code isbn}'s open loan, taken back by
+     * {@code libId}. Retries with the same {@code requestKey} are confirmed
+     * like the first attempt.
+     */
+    String checkIn(String isbn, String libId, String requestKey) throws IOException;
+
+    /** A fresh key for one checkout or check-in and its retries. */
+    static String newRequestKey() {
+        return UUID.randomUUID().toString();
+    }
+}
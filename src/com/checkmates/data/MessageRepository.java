@@ -0,0 +1,140 @@
+package com.checkmates.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.checkmates.model.Librarian;
+import com.checkmates.net.BackendException;
+
+/**
+ * Messages between librarians and their contact lists. Message text is
+ * AES-encrypted with {@link com.checkmates.util.AESUtil} before it is stored.
+ */
+public interface MessageRepository {
+
+    /**
+     * One message of a conversation, already decrypted. Ids increase with
+     * every message sent, so the last id seen marks how far a client has
+     * read.
+     */
+    record Message(String id, String from, String text, String time) {
+    }
+
+    /**
+     * The conversation was deleted (by either side) since the message a
+     * caller last saw, so the ids it holds no longer mean anything; start
+     * over from the beginning.
+     */
+    class ConversationResetException extends BackendException {
+        public ConversationResetException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Whether the ids in the last answer were issued by the server. When
+     * they were made up from positions they restart after a delete, and are
+     * not worth keeping beyond the session.
+     */
+    default boolean hasServerIds() {
+        return true;
+    }
+
+    /** Messages between the two users in both directions, oldest first. */
+    List<Message> conversation(String user1, String user2) throws IOException;
+
+    /**
+     * The messages of the conversation after the one with id
+     * {@code afterId}, oldest first; all of them when it is null.
+     */
+    default List<Message> conversationAfter(String user1, String user2, String afterId) throws IOException {
+        return after(conversation(user1, user2), afterId);
+    }
+
+    /**
+     * A slice of a conversation, oldest first; {@code more} says whether the
+     * conversation goes on past it in the direction it was asked for.
+     */
+    record Page(List<Message> messages, boolean more) {
+    }
+
+    /**
+     * Up to {@code limit} messages just before the one with id
+     * {@code beforeId}, oldest first; the newest {@code limit} when it is
+     * null. For opening a long conversation at its end and scrolling back.
+     */
+    default Page pageBefore(String user1, String user2, String beforeId, int limit) throws IOException {
+        return lastOf(before(conversation(user1, user2), beforeId), limit);
+    }
+
+    /**
+     * Up to {@code limit} messages just after the one with id
+     * {@code afterId}, oldest first.
+     */
+    default Page pageAfter(String user1, String user2, String afterId, int limit) throws IOException {
+        return firstOf(conversationAfter(user1, user2, afterId), limit);
+    }
+
+    /** The messages in {@code messages} older than {@code beforeId} (all of them when it is null). */
+    static List<Message> before(List<Message> messages, String beforeId) {
+        if (beforeId == null) {
+            return messages;
+        }
+        List<Message> older = new ArrayList<>();
+        for (Message m : messages) {
+            if (compareIds(m.id(), beforeId) < 0) {
+                older.add(m);
+            }
+        }
+        return older;
+    }
+
+    /** The last {@code limit} of {@code messages} as a page. */
+    static Page lastOf(List<Message> messages, int limit) {
+        int from = Math.max(0, messages.size() - limit);
+        return new Page(List.copyOf(messages.subList(from, messages.size())), from > 0);
+    }
+
+    /** The first {@code limit} of {@code messages} as a page. */
+    static Page firstOf(List<Message> messages, int limit) {
+        int to = Math.min(limit, messages.size());
+        return new Page(List.copyOf(messages.subList(0, to)), to < messages.size());
+    }
+
+    /** The messages in {@code messages} newer than {@code afterId}. */
+    static List<Message> after(List<Message> messages, String afterId) {
+        if (afterId == null) {
+            return messages;
+        }
+        List<Message> newer = new ArrayList<>();
+        for (Message m : messages) {
+            if (compareIds(m.id(), afterId) > 0) {
+                newer.add(m);
+            }
+        }
+        return newer;
+    }
+
+    /** Orders ids numerically when both are numbers (they are with every backend here). */
+    static int compareIds(String a, String b) {
+        try {
+            return Long.compare(Long.parseLong(a), Long.parseLong(b));
+        } catch (NumberFormatException ex) {
+            return a.length() != b.length() ? Integer.compare(a.length(), b.length()) : a.compareTo(b);
+        }
+    }
+
+    void send(String senderId, String receiverId, String text) throws IOException;
+
+    String deleteConversation(String senderId, String receiverId) throws IOException;
+
+    /** The librarian with this id, or {@code null} if there is none. */
+    Librarian findLibrarian(String id) throws IOException;
+
+    List<Librarian> contacts(String ownerId) throws IOException;
+
+    String addContact(String ownerId, String contactId) throws IOException;
+
+    String deleteContact(String ownerId, String contactId) throws IOException;
+}
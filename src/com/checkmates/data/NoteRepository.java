@@ -0,0 +1,15 @@
+package com.checkmates.data;
+
+import java.io.IOException;
+import java.util.List;
+
+/** A professor's sticky notes; a note is identified by its text. */
+public interface NoteRepository {
+
+    /** The professor's notes, oldest first. */
+    List<String> list(String professorId) throws IOException;
+
+    String create(String professorId, String note) throws IOException;
+
+    String delete(String professorId, String note) throws IOException;
+}
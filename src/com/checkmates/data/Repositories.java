@@ -0,0 +1,99 @@
+package com.checkmates.data;
+
+import java.time.Duration;
+
+import com.checkmates.data.http.HttpBookRepository;
+import com.checkmates.data.http.HttpClassRepository;
+import com.checkmates.data.http.HttpLoanRepository;
+import com.checkmates.data.http.HttpMessageRepository;
+import com.checkmates.data.http.HttpNoteRepository;
+import com.checkmates.data.jdbc.ConnectionPool;
+import com.checkmates.data.jdbc.JdbcBookRepository;
+import com.checkmates.data.jdbc.JdbcClassRepository;
+import com.checkmates.data.jdbc.JdbcLoanRepository;
+import com.checkmates.data.jdbc.JdbcMessageRepository;
+import com.checkmates.data.jdbc.JdbcNoteRepository;
+import com.checkmates.data.memory.MemoryBookRepository;
+import com.checkmates.data.memory.MemoryClassRepository;
+import com.checkmates.data.memory.MemoryDatabase;
+import com.checkmates.data.memory.MemoryLoanRepository;
+import com.checkmates.data.memory.MemoryMessageRepository;
+import com.checkmates.data.memory.MemoryNoteRepository;
+import com.checkmates.net.BackendClient;
+
+/**
+ * One backend's set of repositories.
+ *
+ * The process-wide set is picked by {@code -Dcheckmates.backend}:
+ * <ul>
+ *   <li>{@code http} (default): the PHP endpoints through {@link BackendClient}</li>
+ *   <li>{@code jdbc}: MySQL directly, at {@code checkmates.jdbc.url} with
+ *       {@code checkmates.jdbc.user} / {@code checkmates.jdbc.password} and at
+ *       most {@code checkmates.jdbc.poolSize} connections (default 8)</li>
+ *   <li>{@code memory}: an in-process database with
+ *       {@code checkmates.memory.books} / {@code checkmates.memory.loans}
+ *       synthetic rows, for measuring the UI on its own</li>
+ * </ul>
+ */
+public record Repositories(String name, BookRepository books, LoanRepository loans,
+                           NoteRepository notes, MessageRepository messages, ClassRepository classes) {
+
+    public static Repositories getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public static Repositories http(BackendClient client) {
+        return new Repositories("http",
+                new HttpBookRepository(client, HttpBookRepository.BOOKS_URL),
+                new HttpLoanRepository(client, HttpLoanRepository.LOANS_URL),
+                new HttpNoteRepository(client),
+                new HttpMessageRepository(client, HttpMessageRepository.MESSAGES_URL),
+                new HttpClassRepository(client));
+    }
+
+    public static Repositories jdbc(ConnectionPool pool) {
+        return new Repositories("jdbc",
+                new JdbcBookRepository(pool),
+                new JdbcLoanRepository(pool),
+                new JdbcNoteRepository(pool),
+                new JdbcMessageRepository(pool),
+                new JdbcClassRepository(pool));
+    }
+
+    public static Repositories memory(MemoryDatabase db) {
+        return new Repositories("memory",
+                new MemoryBookRepository(db),
+                new MemoryLoanRepository(db),
+                new MemoryNoteRepository(db),
+                new MemoryMessageRepository(db),
+                new MemoryClassRepository(db));
+    }
+
+    private static Repositories fromProperties() {
+        String backend = System.getProperty("checkmates.backend", "http");
+        switch (backend) {
+            case "http":
+                return http(BackendClient.getInstance());
+            case "jdbc":
+                ConnectionPool pool = new ConnectionPool(
+                        System.getProperty("checkmates.jdbc.url", "jdbc:mysql://cm8tes.com:3306/checkmates"),
+                        System.getProperty("checkmates.jdbc.user"),
+                        System.getProperty("checkmates.jdbc.password"),
+                        Integer.getInteger("checkmates.jdbc.poolSize", 8),
+                        Duration.ofSeconds(10));
+                Runtime.getRuntime().addShutdownHook(new Thread(pool::close, "jdbc-pool-close"));
+                return jdbc(pool);
+            case "memory":
+                return memory(MemoryDatabase.generated(
+                        Integer.getInteger("checkmates.memory.books", 1_000),
+                        Integer.getInteger("checkmates.memory.loans", 500)));
+            default:
+                throw new IllegalArgumentException("Unknown checkmates.backend: " + backend
+                        + " (expected http, jdbc or memory)");
+        }
+    }
+
+    private static final class Holder {
+        static final Repositories INSTANCE = fromProperties();
+    }
+}
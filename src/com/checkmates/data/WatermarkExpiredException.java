@@ -0,0 +1,11 @@
+package com.checkmates.data;
+
+import com.checkmates.net.BackendException;
+
+/** A delta was asked for with a watermark older than the backend's change log. */
+public class WatermarkExpiredException extends BackendException {
+
+    public WatermarkExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,135 @@
+package com.checkmates.data.http;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.json.JSONObject;
+
+import com.checkmates.data.BookRepository;
+import com.checkmates.net.BackendClient;
+import com.checkmates.net.JsonArrayStreamer;
+
+/**
+ * Catalog through getBooks.php and the add/update/delete endpoints next to it.
+ * Reads go through the client's response cache and are streamed straight off
+ * the connection.
+ */
+public class HttpBookRepository implements BookRepository {
+
+    public static final String BOOKS_URL = System.getProperty(
+            "checkmates.books.url", "http://cm8tes.com/CS4347_Project_Folder/getBooks.php");
+
+    private final BackendClient client;
+    private final String booksUrl;
+    private final String folder;
+
+    public HttpBookRepository(BackendClient client, String booksUrl) {
+        this.client = client;
+        this.booksUrl = booksUrl;
+        this.folder = HttpSupport.folderOf(booksUrl);
+    }
+
+    public String getBooksUrl() {
+        return booksUrl;
+    }
+
+    @Override
+    public int streamAll(Consumer<List<String[]>> sink) throws IOException {
+        try (Reader in = new InputStreamReader(
+                client.getStreamCached(booksUrl, true, null), StandardCharsets.UTF_8)) {
+            return JsonArrayStreamer.stream(in, "books", HttpBookRepository::row, sink);
+        }
+    }
+
+    @Override
+    public int streamCached(Consumer<List<String[]>> sink, Runnable onStale) throws IOException {
+        try (Reader in = new InputStreamReader(
+                client.getStreamCached(booksUrl, false, onStale), StandardCharsets.UTF_8)) {
+            return JsonArrayStreamer.stream(in, "books", HttpBookRepository::row, sink);
+        }
+    }
+
+    /**
+     * Asks getBooks.php for just this ISBN ({@code q=}, as the paged catalog
+     * does), bypassing the cache. A server without the filter sends the whole
+     * catalog, which is then searched as it streams in.
+     */
+    @Override
+    public String[] find(String isbn) throws IOException {
+        String url = booksUrl + (booksUrl.contains("?") ? "&" : "?") + "offset=0&limit=10&q=" + BackendClient.encode(isbn);
+        String[][] found = new String[1][];
+        try (Reader in = new InputStreamReader(client.getStream(url), StandardCharsets.UTF_8)) {
+            JsonArrayStreamer.stream(in, "books", HttpBookRepository::row, rows -> {
+                for (String[] row : rows) {
+                    if (found[0] == null && isbn.equals(row[0])) {
+                        found[0] = row;
+                    }
+                }
+            });
+        }
+        return found[0];
+    }
+
+    /**
+     * One page from {@code getBooks.php?offset=..&limit=..[&q=..]}, which
+     * answers with the usual "books" array plus a "total" count. Pages are
+     * small and change with every write, so they skip the cache.
+     */
+    @Override
+    public Page page(int offset, int limit, String query) throws IOException {
+        String url = booksUrl + (booksUrl.contains("?") ? "&" : "?") + "offset=" + offset + "&limit=" + limit;
+        if (!query.isEmpty()) {
+            url += "&q=" + BackendClient.encode(query);
+        }
+
+        List<String[]> rows = new ArrayList<>(limit);
+        Map<String, Object> fields = new HashMap<>();
+        try (Reader in = new InputStreamReader(client.getStream(url), StandardCharsets.UTF_8)) {
+            JsonArrayStreamer.stream(in, "books", HttpBookRepository::row, rows::addAll, fields);
+        }
+
+        // PHP may send the count as a number or as a string
+        int count = offset + rows.size();
+        Object total = fields.get("total");
+        if (total != null) {
+            try {
+                count = Integer.parseInt(total.toString());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return new Page(count, rows);
+    }
+
+    @Override
+    public String add(String isbn, String title, String authorId) throws IOException {
+        return HttpSupport.confirm(client.postForm(folder + "addBook.php",
+                Map.of("isbn", isbn, "title", title, "author_id", authorId)));
+    }
+
+    @Override
+    public String updateTitle(String isbn, String title) throws IOException {
+        return HttpSupport.confirm(client.postForm(folder + "updateBook.php",
+                Map.of("isbn", isbn, "title", title)));
+    }
+
+    @Override
+    public String delete(String isbn) throws IOException {
+        return HttpSupport.confirm(client.postForm(folder + "deleteBook.php", Map.of("isbn", isbn)));
+    }
+
+    /** One getBooks.php element as a table row. */
+    public static String[] row(int i, JSONObject obj) {
+        return new String[]{
+                obj.optString("Isbn"),
+                obj.optString("Title"),
+                obj.optString("Authors"),     // Comma separated
+                obj.optString("Availability") // "IN" or "OUT"
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.checkmates.data.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.checkmates.data.ClassRepository;
+import com.checkmates.net.BackendClient;
+
+/** Classes through getClasses.php, createClass.php and getAttendanceSummary.php. */
+public class HttpClassRepository implements ClassRepository {
+
+    private final BackendClient client;
+
+    public HttpClassRepository(BackendClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public List<ClassInfo> classesFor(String professorId) throws IOException {
+        String url = "http://cm8tes.com/getClasses.php?professor_id=" + BackendClient.encode(professorId);
+        JSONArray arr = HttpSupport.check(BackendClient.await(client.getShared(url))).optJSONArray("classes");
+        List<ClassInfo> classes = new ArrayList<>();
+        for (int i = 0; arr != null && i < arr.length(); i++) {
+            JSONObject obj = arr.getJSONObject(i);
+            classes.add(new ClassInfo(obj.optInt("class_id"), obj.optString("className"), obj.optString("section")));
+        }
+        return classes;
+    }
+
+    @Override
+    public Passcode create(String professorId, String className, String section,
+                           int passcode, int expirationMinutes, String ipv6) throws IOException {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("professor_id", professorId);
+        params.put("class", className);
+        params.put("section", section);
+        params.put("expiration", String.valueOf(expirationMinutes));
+        params.put("passcode", String.valueOf(passcode));
+        params.put("ip_restriction", ipv6 != null ? "1" : "0");
+        if (ipv6 != null) {
+            params.put("ip_address_v6", ipv6);
+        }
+        JSONObject json = HttpSupport.check(client.postForm("http://cm8tes.com/createClass.php", params));
+        return new Passcode(json.optInt("passcode"), json.optString("passcode_expires"));
+    }
+
+    @Override
+    public Attendance attendance(int classId) throws IOException {
+        String url = "http://cm8tes.com/getAttendanceSummary.php?class_id=" + classId;
+        JSONObject json = HttpSupport.check(BackendClient.await(client.getShared(url)));
+        JSONArray arr = json.optJSONArray("records");
+        List<CheckIn> records = new ArrayList<>();
+        for (int i = 0; arr != null && i < arr.length(); i++) {
+            JSONObject r = arr.getJSONObject(i);
+            records.add(new CheckIn(r.optString("studentId"), r.optString("name"),
+                    r.optString("time"), r.optString("date")));
+        }
+        return new Attendance(json.optInt("total", 0), records);
+    }
+}
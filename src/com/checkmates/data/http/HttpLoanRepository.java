@@ -0,0 +1,181 @@
+package com.checkmates.data.http;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.json.JSONObject;
+
+import com.checkmates.data.LoanRepository;
+import com.checkmates.data.WatermarkExpiredException;
+import com.checkmates.net.BackendClient;
+import com.checkmates.net.BackendException;
+import com.checkmates.net.JsonArrayStreamer;
+
+/**
+ * Loans through getLoans.php, checkoutBook.php and checkinBook.php.
+ *
+ * Deltas: {@code getLoans.php?since=<watermark>} returns
+ * {@code {"status": "success", "watermark": "...", "loans": [changed rows]}},
+ * where the watermark is opaque to the client (the server's change sequence
+ * or last-modified time). A plain {@code getLoans.php} returns every loan plus
+ * the current watermark. If the watermark is too old for the server's change
+ * log it answers {@code "code": "watermark_expired"}; a server without delta
+ * support simply omits the watermark.
+ *
+ * Checkouts and check-ins carry a {@code request_id}; a server that has
+ * already applied that request answers with its original confirmation, so a
+ * retry after a lost response is safe. The PHP scripts in use today ignore
+ * the field and refuse such a retry ("already checked out", "not checked
+ * out"), so a refused retry is settled by looking for the loan the first
+ * attempt would have written, as {@code JdbcLoanRepository} does.
+ *
+ * checkinBook.php is newer than the other scripts and has to be installed on
+ * the server. Where it is missing (a 404 that isn't a JSON answer) every
+ * check-in fails at once with "Check-in not supported by server" instead of
+ * being retried, and later ones don't go out at all.
+ */
+public class HttpLoanRepository implements LoanRepository {
+
+    public static final String LOANS_URL = System.getProperty(
+            "checkmates.loans.url", "http://cm8tes.com/CS4347_Project_Folder/getLoans.php");
+
+    /** Server answer when the watermark is older than its change log. */
+    public static final String WATERMARK_EXPIRED = "watermark_expired";
+
+    private static final String CHECKED_OUT = "Book checked out successfully.";
+    private static final String CHECKED_IN = "Book checked in successfully.";
+    private static final int REMEMBERED_REQUESTS = 10_000;
+
+    private final BackendClient client;
+    private final String loansUrl;
+    private final String folder;
+    private volatile boolean checkInMissing;
+    // Request keys sent at least once, so a refused retry can be recognized
+    private final Set<String> sent = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > REMEMBERED_REQUESTS;
+                }
+            }));
+
+    public HttpLoanRepository(BackendClient client, String loansUrl) {
+        this.client = client;
+        this.loansUrl = loansUrl;
+        this.folder = HttpSupport.folderOf(loansUrl);
+    }
+
+    @Override
+    public String streamChanges(String watermark, Consumer<List<String[]>> sink) throws IOException {
+        String url = watermark == null ? loansUrl
+                : loansUrl + (loansUrl.contains("?") ? "&" : "?") + "since=" + BackendClient.encode(watermark);
+        Map<String, Object> fields = new HashMap<>();
+        try (Reader in = new InputStreamReader(client.getStream(url), StandardCharsets.UTF_8)) {
+            JsonArrayStreamer.stream(in, "loans", HttpLoanRepository::row, sink, fields);
+        } catch (BackendException ex) {
+            if (WATERMARK_EXPIRED.equals(fields.get("code"))) {
+                throw new WatermarkExpiredException(ex.getMessage());
+            }
+            throw ex;
+        }
+        Object next = fields.get("watermark");
+        return next == null || next == JSONObject.NULL ? null : String.valueOf(next);
+    }
+
+    @Override
+    public String checkOut(String isbn, String cardId, String libId, String requestKey) throws IOException {
+        boolean retry = !sent.add(requestKey);
+        try {
+            return HttpSupport.confirm(client.postForm(folder + "checkoutBook.php",
+                    Map.of("isbn", isbn, "Card_id", cardId, "lib_id_checkout", libId, "request_id", requestKey)));
+        } catch (BackendException ex) {
+            if (retry) {
+                String today = LocalDate.now().toString();
+                for (String[] loan : loansOf(isbn)) {
+                    if (loan[2].equals(cardId) && loan[3].equals(today) && loan[5].equals("---")) {
+                        return CHECKED_OUT; // the first attempt went through
+                    }
+                }
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public String checkIn(String isbn, String libId, String requestKey) throws IOException {
+        if (!checkInMissing) {
+            boolean retry = !sent.add(requestKey);
+            HttpResponse<String> resp = client.postFormForResponse(folder + "checkinBook.php",
+                    Map.of("isbn", isbn, "lib_id_return", libId, "request_id", requestKey));
+            if (resp.statusCode() != 404 || HttpSupport.isJson(resp.body())) {
+                try {
+                    return HttpSupport.confirm(resp.body());
+                } catch (BackendException ex) {
+                    if (retry && returnedToday(isbn, libId)) {
+                        return CHECKED_IN; // the first attempt went through
+                    }
+                    throw ex;
+                }
+            }
+            checkInMissing = true;
+        }
+        throw new BackendException("Check-in not supported by server (checkinBook.php is missing)");
+    }
+
+    // Returned today at this desk and not lent again since
+    private boolean returnedToday(String isbn, String libId) throws IOException {
+        String today = LocalDate.now().toString();
+        boolean returned = false;
+        for (String[] loan : loansOf(isbn)) {
+            if (loan[5].equals("---")) {
+                return false;
+            }
+            returned |= loan[5].equals(today) && loan[7].equals(libId);
+        }
+        return returned;
+    }
+
+    // There is no per-book endpoint, so this reads every loan; only refused retries need it
+    private List<String[]> loansOf(String isbn) throws IOException {
+        List<String[]> found = new ArrayList<>();
+        streamChanges(null, rows -> {
+            for (String[] row : rows) {
+                if (row[1].equals(isbn)) {
+                    found.add(row);
+                }
+            }
+        });
+        return found;
+    }
+
+    /** One getLoans.php element as a table row; "No." is its position in the response. */
+    public static String[] row(int i, JSONObject obj) {
+        String dateIn = obj.optString("Date_in");
+        if (dateIn == null || dateIn.equals("null") || dateIn.isEmpty()) dateIn = "---";
+
+        String libIn = obj.optString("lib_id_return");
+        if (libIn == null || libIn.equals("null") || libIn.isEmpty()) libIn = "---";
+
+        return new String[]{
+            String.valueOf(i + 1),
+            obj.optString("Isbn"),
+            obj.optString("Card_id"),
+            obj.optString("Date_out"),
+            obj.optString("Due_date"),
+            dateIn,
+            obj.optString("lib_id_checkout"),
+            libIn
+        };
+    }
+}
@@ -0,0 +1,169 @@
+package com.checkmates.data.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.checkmates.data.MessageRepository;
+import com.checkmates.model.Librarian;
+import com.checkmates.net.BackendClient;
+import com.checkmates.net.BackendException;
+import com.checkmates.util.AESUtil;
+
+/**
+ * Messages and contacts through the chat endpoints. Text is encrypted here
+ * and decrypted by getMessages.php.
+ */
+public class HttpMessageRepository implements MessageRepository {
+
+    /** Folder of the chat endpoints; overridable to point at a stand-in server. */
+    public static final String MESSAGES_URL = System.getProperty("checkmates.messages.url", "https://cm8tes.com/");
+
+    private final BackendClient client;
+    private final String base;
+    private volatile boolean positionIds; // the last answer had no ids of its own
+
+    public HttpMessageRepository(BackendClient client, String base) {
+        this.client = client;
+        this.base = base.endsWith("/") ? base : base + "/";
+    }
+
+    @Override
+    public List<Message> conversation(String user1, String user2) throws IOException {
+        return conversationAfter(user1, user2, null);
+    }
+
+    /**
+     * Asks getMessages.php for {@code after_id} onwards. An older script
+     * ignores the parameter and sends no ids; its messages are then numbered
+     * by position in the full conversation and filtered here, so callers
+     * see the same answer either way (minus the saved bandwidth). Positions
+     * start again at 1 once the conversation is deleted, so a conversation
+     * shorter than {@code afterId} throws {@link ConversationResetException}.
+     */
+    @Override
+    public List<Message> conversationAfter(String user1, String user2, String afterId) throws IOException {
+        String query = afterId == null ? "" : "&after_id=" + BackendClient.encode(afterId);
+        List<Message> messages = fetch(user1, user2, query);
+        if (positionIds && afterId != null && MessageRepository.compareIds(String.valueOf(messages.size()), afterId) < 0) {
+            throw new ConversationResetException("Conversation was deleted since message " + afterId);
+        }
+        return MessageRepository.after(messages, afterId);
+    }
+
+    @Override
+    public boolean hasServerIds() {
+        return !positionIds;
+    }
+
+    /**
+     * Asks getMessages.php for the {@code limit} messages before
+     * {@code before_id} (the newest ones without it). One extra is asked for
+     * to learn whether there are more; a script that ignores the parameters
+     * sends everything, which is cut down here instead.
+     */
+    @Override
+    public Page pageBefore(String user1, String user2, String beforeId, int limit) throws IOException {
+        String query = "&limit=" + (limit + 1);
+        if (beforeId != null) {
+            query += "&before_id=" + BackendClient.encode(beforeId);
+        }
+        return MessageRepository.lastOf(MessageRepository.before(fetch(user1, user2, query), beforeId), limit);
+    }
+
+    /** As {@link #pageBefore}, with {@code after_id} and the oldest messages after it. */
+    @Override
+    public Page pageAfter(String user1, String user2, String afterId, int limit) throws IOException {
+        String query = "&limit=" + (limit + 1) + "&after_id=" + BackendClient.encode(afterId);
+        return MessageRepository.firstOf(MessageRepository.after(fetch(user1, user2, query), afterId), limit);
+    }
+
+    private List<Message> fetch(String user1, String user2, String query) throws IOException {
+        String raw = client.get(base + "getMessages.php?user1=" + BackendClient.encode(user1)
+                + "&user2=" + BackendClient.encode(user2) + query);
+        JSONArray arr;
+        try {
+            arr = new JSONArray(raw.trim());
+        } catch (JSONException ex) {
+            throw new BackendException("Unexpected response from server");
+        }
+        List<Message> messages = new ArrayList<>(arr.length());
+        boolean positions = false;
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject m = arr.getJSONObject(i);
+            String id = m.has("id") ? m.optString("id") : m.optString("message_id", null);
+            if (id == null) {
+                id = String.valueOf(i + 1);
+                positions = true;
+            }
+            messages.add(new Message(id, m.getString("from"), m.getString("plaintext"), m.getString("time")));
+        }
+        if (!messages.isEmpty()) {
+            positionIds = positions; // an empty answer says nothing either way
+        }
+        return messages;
+    }
+
+    @Override
+    public void send(String senderId, String receiverId, String text) throws IOException {
+        Map<String, String> enc;
+        try {
+            enc = AESUtil.encrypt(text);
+        } catch (Exception ex) {
+            throw new IOException("Encryption error: " + ex.getMessage(), ex);
+        }
+        client.postForm(base + "postMessages.php", Map.of(
+                "sender_id", senderId,
+                "receiver_id", receiverId,
+                "cipher", enc.get("cipher"),
+                "iv", enc.get("iv")));
+    }
+
+    @Override
+    public String deleteConversation(String senderId, String receiverId) throws IOException {
+        return HttpSupport.confirm(client.postForm(base + "deleteMessages.php",
+                Map.of("sender_id", senderId, "receiver_id", receiverId)));
+    }
+
+    @Override
+    public Librarian findLibrarian(String id) throws IOException {
+        JSONObject json = new JSONObject(client.get("http://cm8tes.com/getProfessors.php?professor_id="
+                + BackendClient.encode(id)));
+        if (!"success".equals(json.optString("status"))) {
+            return null; // 404 or error from the php
+        }
+        return new Librarian(json.getString("professorName"), null, json.getString("professor_id"));
+    }
+
+    @Override
+    public List<Librarian> contacts(String ownerId) throws IOException {
+        String raw = BackendClient.await(client.getShared(base + "loadContacts.php?owner_id="
+                + BackendClient.encode(ownerId)));
+        JSONArray arr = HttpSupport.check(raw).optJSONArray("contacts");
+        List<Librarian> contacts = new ArrayList<>();
+        for (int i = 0; arr != null && i < arr.length(); i++) {
+            JSONObject obj = arr.optJSONObject(i);
+            String id = obj == null ? null : obj.optString("professor_id", null);
+            if (id != null) {
+                contacts.add(new Librarian(obj.optString("professorName", ""), null, id));
+            }
+        }
+        return contacts;
+    }
+
+    @Override
+    public String addContact(String ownerId, String contactId) throws IOException {
+        return HttpSupport.confirm(client.postForm(base + "addProfessorContact.php",
+                Map.of("owner_id", ownerId, "contact_id", contactId)));
+    }
+
+    @Override
+    public String deleteContact(String ownerId, String contactId) throws IOException {
+        return HttpSupport.confirm(client.postForm(base + "deleteChat.php",
+                Map.of("owner_id", ownerId, "contact_id", contactId)));
+    }
+}
@@ -0,0 +1,43 @@
+package com.checkmates.data.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+
+import com.checkmates.data.NoteRepository;
+import com.checkmates.net.BackendClient;
+
+/** Notes through getNote.php, createNote.php and deleteNote.php. */
+public class HttpNoteRepository implements NoteRepository {
+
+    private final BackendClient client;
+
+    public HttpNoteRepository(BackendClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public List<String> list(String professorId) throws IOException {
+        String url = "http://cm8tes.com/getNote.php?professor_id=" + BackendClient.encode(professorId);
+        JSONArray arr = HttpSupport.check(BackendClient.await(client.getShared(url))).optJSONArray("data");
+        List<String> notes = new ArrayList<>();
+        for (int i = 0; arr != null && i < arr.length(); i++) {
+            notes.add(arr.getJSONObject(i).getString("note"));
+        }
+        return notes;
+    }
+
+    @Override
+    public String create(String professorId, String note) throws IOException {
+        return HttpSupport.confirm(client.postForm("https://cm8tes.com/createNote.php",
+                Map.of("professor_id", professorId, "note", note)));
+    }
+
+    @Override
+    public String delete(String professorId, String note) throws IOException {
+        return HttpSupport.confirm(client.postForm("https://cm8tes.com/deleteNote.php",
+                Map.of("professor_id", professorId, "note", note)));
+    }
+}
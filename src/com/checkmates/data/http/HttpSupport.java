@@ -0,0 +1,52 @@
+package com.checkmates.data.http;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.checkmates.net.BackendException;
+
+final class HttpSupport {
+
+    private HttpSupport() {
+    }
+
+    /** The endpoint's directory, so related endpoints follow a relocated one. */
+    static String folderOf(String url) {
+        int q = url.indexOf('?');
+        String path = q < 0 ? url : url.substring(0, q);
+        return path.substring(0, path.lastIndexOf('/') + 1);
+    }
+
+    /** Parses a {@code {"status", "message"}} answer; the message on success. */
+    static String confirm(String raw) throws BackendException {
+        return message(check(raw));
+    }
+
+    /** The parsed answer if its status is "success". */
+    static JSONObject check(String raw) throws BackendException {
+        JSONObject json;
+        try {
+            json = new JSONObject(raw.trim());
+        } catch (JSONException ex) {
+            throw new BackendException("Unexpected response from server");
+        }
+        if (!"success".equalsIgnoreCase(json.optString("status"))) {
+            throw new BackendException(json.optString("message", "Unknown error"));
+        }
+        return json;
+    }
+
+    /** Whether the answer came from a script (as opposed to a web server's error page). */
+    static boolean isJson(String raw) {
+        try {
+            new JSONObject(raw.trim());
+            return true;
+        } catch (JSONException ex) {
+            return false;
+        }
+    }
+
+    static String message(JSONObject json) {
+        return json.optString("message", "");
+    }
+}
@@ -0,0 +1,241 @@
+package com.checkmates.data.jdbc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.checkmates.net.BackendException;
+
+/**
+ * A small pool of JDBC connections, each with its own prepared-statement cache.
+ *
+ * Work is handed in as a callback ({@link #call}, {@link #transaction}) so a
+ * connection always goes back to the pool, and one that failed is closed
+ * instead. At most {@code maxSize} connections are open; callers beyond that
+ * wait up to the borrow timeout. A connection idle for longer than
+ * {@link #VALIDATE_AFTER} is checked before it is handed out, since MySQL
+ * drops idle connections after {@code wait_timeout}.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /** Work done with a borrowed connection. */
+    public interface SqlWork<T> {
+        T run(Lease c) throws SQLException, IOException;
+    }
+
+    static final Duration VALIDATE_AFTER = Duration.ofSeconds(30);
+    private static final int STATEMENT_CACHE = 64;
+
+    private final String url;
+    private final Properties info;
+    private final Semaphore permits;
+    private final long borrowTimeoutMs;
+    // Most recently returned last, so the warmest connection is reused first
+    private final Deque<Lease> idle = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, Duration borrowTimeout) {
+        this.url = url;
+        this.info = new Properties();
+        if (user != null) {
+            info.setProperty("user", user);
+        }
+        if (password != null) {
+            info.setProperty("password", password);
+        }
+        this.permits = new Semaphore(maxSize, true);
+        this.borrowTimeoutMs = borrowTimeout.toMillis();
+    }
+
+    /** Runs {@code work} on a pooled connection in auto-commit mode. */
+    public <T> T call(SqlWork<T> work) throws IOException {
+        Lease c = borrow();
+        boolean ok = false;
+        try {
+            T result = work.run(c);
+            ok = true;
+            return result;
+        } catch (BackendException ex) {
+            ok = true; // refused by a business rule; the connection is fine
+            throw ex;
+        } catch (SQLException ex) {
+            throw failure(ex);
+        } finally {
+            release(c, ok);
+        }
+    }
+
+    /** Runs {@code work} in one transaction, rolled back if it throws. */
+    public <T> T transaction(SqlWork<T> work) throws IOException {
+        return call(c -> {
+            Connection raw = c.connection();
+            raw.setAutoCommit(false);
+            try {
+                T result = work.run(c);
+                raw.commit();
+                return result;
+            } catch (SQLException | IOException | RuntimeException ex) {
+                raw.rollback();
+                throw ex;
+            } finally {
+                raw.setAutoCommit(true);
+            }
+        });
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            for (Lease c : idle) {
+                c.close();
+            }
+            idle.clear();
+        }
+    }
+
+    private Lease borrow() throws IOException {
+        if (closed) {
+            throw new IOException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IOException("No database connection free after " + borrowTimeoutMs + " ms");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a database connection");
+        }
+        try {
+            while (true) {
+                Lease c;
+                synchronized (this) {
+                    c = idle.pollLast();
+                }
+                if (c == null) {
+                    return new Lease(DriverManager.getConnection(url, info));
+                }
+                if (c.isUsable()) {
+                    return c;
+                }
+                c.close();
+            }
+        } catch (SQLException ex) {
+            permits.release();
+            throw failure(ex);
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private void release(Lease c, boolean ok) {
+        try {
+            if (ok && !closed) {
+                c.lastUsed = System.nanoTime();
+                synchronized (this) {
+                    idle.addLast(c);
+                }
+            } else {
+                c.close(); // may be half-way through something; start clean
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static IOException failure(SQLException ex) {
+        if (ex instanceof SQLTransientException) {
+            return new IOException("Database busy: " + ex.getMessage(), ex);
+        }
+        return new IOException("Database error: " + ex.getMessage(), ex);
+    }
+
+    /**
+     * A borrowed connection. Statements from {@link #prepare} are cached per
+     * connection by their SQL and must not be closed by the caller.
+     */
+    public static final class Lease {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                        if (size() > STATEMENT_CACHE) {
+                            closeQuietly(eldest.getValue());
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+        private long lastUsed = System.nanoTime();
+
+        private Lease(Connection connection) {
+            this.connection = connection;
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null || ps.isClosed()) {
+                ps = connection.prepareStatement(sql);
+                statements.put(sql, ps);
+            } else {
+                ps.clearParameters();
+            }
+            return ps;
+        }
+
+        private boolean isUsable() {
+            try {
+                if (connection.isClosed()) {
+                    return false;
+                }
+                return System.nanoTime() - lastUsed < VALIDATE_AFTER.toNanos() || connection.isValid(2);
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+
+        private void close() {
+            for (Iterator<PreparedStatement> it = statements.values().iterator(); it.hasNext(); ) {
+                closeQuietly(it.next());
+                it.remove();
+            }
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Already broken
+            }
+        }
+
+        private static void closeQuietly(PreparedStatement ps) {
+            try {
+                ps.close();
+            } catch (SQLException ignored) {
+                // The connection is going away anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.checkmates.data.jdbc;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.checkmates.data.BookRepository;
+import com.checkmates.net.BackendException;
+
+/**
+ * Catalog straight from the library schema: {@code BOOK(Isbn, Title)},
+ * {@code AUTHORS(Author_id, Name)}, {@code BOOK_AUTHORS(Author_id, Isbn)}, with
+ * availability derived from open rows in {@code BOOK_LOANS}.
+ */
+public class JdbcBookRepository implements BookRepository {
+
+    private static final String SELECT_BOOKS =
+            "SELECT b.Isbn, b.Title,"
+            + " GROUP_CONCAT(a.Name ORDER BY a.Name SEPARATOR ', ') AS Authors,"
+            + " CASE WHEN EXISTS (SELECT 1 FROM BOOK_LOANS l WHERE l.Isbn = b.Isbn AND l.Date_in IS NULL)"
+            + " THEN 'OUT' ELSE 'IN' END AS Availability"
+            + " FROM BOOK b"
+            + " LEFT JOIN BOOK_AUTHORS ba ON ba.Isbn = b.Isbn"
+            + " LEFT JOIN AUTHORS a ON a.Author_id = ba.Author_id";
+    private static final String SELECT_ALL = SELECT_BOOKS
+            + " GROUP BY b.Isbn, b.Title"
+            + " ORDER BY b.Isbn";
+    // Authors is the GROUP_CONCAT alias, hence HAVING; MySQL's default collation ignores case
+    private static final String MATCHING = " GROUP BY b.Isbn, b.Title"
+            + " HAVING ? = '' OR b.Isbn LIKE ? OR b.Title LIKE ? OR Authors LIKE ?";
+    private static final String SELECT_PAGE = SELECT_BOOKS + MATCHING
+            + " ORDER BY b.Isbn"
+            + " LIMIT ? OFFSET ?";
+    private static final String COUNT_MATCHING = "SELECT COUNT(*) FROM (" + SELECT_BOOKS + MATCHING + ") m";
+    private static final String SELECT_ONE = SELECT_BOOKS
+            + " WHERE b.Isbn = ?"
+            + " GROUP BY b.Isbn, b.Title";
+    private static final String INSERT_BOOK = "INSERT INTO BOOK (Isbn, Title) VALUES (?, ?)";
+    private static final String INSERT_AUTHOR = "INSERT INTO BOOK_AUTHORS (Author_id, Isbn) VALUES (?, ?)";
+    private static final String UPDATE_TITLE = "UPDATE BOOK SET Title = ? WHERE Isbn = ?";
+    private static final String DELETE_AUTHORS = "DELETE FROM BOOK_AUTHORS WHERE Isbn = ?";
+    private static final String DELETE_BOOK = "DELETE FROM BOOK WHERE Isbn = ?";
+
+    private final ConnectionPool pool;
+
+    public JdbcBookRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public int streamAll(Consumer<List<String[]>> sink) throws IOException {
+        return pool.call(c -> JdbcSupport.stream(c.prepare(SELECT_ALL), (i, rs) -> row(rs), sink));
+    }
+
+    @Override
+    public String[] find(String isbn) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(SELECT_ONE);
+            ps.setString(1, isbn);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? row(rs) : null;
+            }
+        });
+    }
+
+    @Override
+    public Page page(int offset, int limit, String query) throws IOException {
+        String like = "%" + query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return pool.call(c -> {
+            PreparedStatement count = c.prepare(COUNT_MATCHING);
+            bindQuery(count, query, like);
+            int total;
+            try (ResultSet rs = count.executeQuery()) {
+                total = rs.next() ? rs.getInt(1) : 0;
+            }
+            PreparedStatement ps = c.prepare(SELECT_PAGE);
+            bindQuery(ps, query, like);
+            ps.setInt(5, limit);
+            ps.setInt(6, offset);
+            List<String[]> rows = new ArrayList<>(limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(row(rs));
+                }
+            }
+            return new Page(total, rows);
+        });
+    }
+
+    private static void bindQuery(PreparedStatement ps, String query, String like) throws SQLException {
+        ps.setString(1, query);
+        ps.setString(2, like);
+        ps.setString(3, like);
+        ps.setString(4, like);
+    }
+
+    private static String[] row(ResultSet rs) throws SQLException {
+        return new String[]{
+                rs.getString(1),
+                rs.getString(2),
+                rs.getString(3) == null ? "" : rs.getString(3),
+                rs.getString(4)
+        };
+    }
+
+    @Override
+    public String add(String isbn, String title, String authorId) throws IOException {
+        return pool.transaction(c -> {
+            try {
+                PreparedStatement book = c.prepare(INSERT_BOOK);
+                book.setString(1, isbn);
+                book.setString(2, title);
+                book.executeUpdate();
+                PreparedStatement author = c.prepare(INSERT_AUTHOR);
+                author.setString(1, authorId);
+                author.setString(2, isbn);
+                author.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException ex) {
+                throw new BackendException("A book with ISBN " + isbn + " already exists, or author "
+                        + authorId + " does not.");
+            }
+            return "Book added successfully.";
+        });
+    }
+
+    @Override
+    public String updateTitle(String isbn, String title) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(UPDATE_TITLE);
+            ps.setString(1, title);
+            ps.setString(2, isbn);
+            if (ps.executeUpdate() == 0) {
+                throw new BackendException("No book with ISBN " + isbn + ".");
+            }
+            return "Book updated successfully.";
+        });
+    }
+
+    @Override
+    public String delete(String isbn) throws IOException {
+        return pool.transaction(c -> {
+            try {
+                PreparedStatement authors = c.prepare(DELETE_AUTHORS);
+                authors.setString(1, isbn);
+                authors.executeUpdate();
+                PreparedStatement book = c.prepare(DELETE_BOOK);
+                book.setString(1, isbn);
+                if (book.executeUpdate() == 0) {
+                    throw new BackendException("No book with ISBN " + isbn + ".");
+                }
+            } catch (SQLIntegrityConstraintViolationException ex) {
+                throw new BackendException("Book " + isbn + " has loans on record and can't be deleted.");
+            }
+            return "Book deleted successfully.";
+        });
+    }
+}
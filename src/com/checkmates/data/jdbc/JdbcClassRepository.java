@@ -0,0 +1,90 @@
+package com.checkmates.data.jdbc;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.checkmates.data.ClassRepository;
+
+/**
+ * Classes in {@code classes(class_id, professor_id, className, section,
+ * passcode, passcode_expires, ip_restriction, ip_address_v6)} and check-ins in
+ * {@code attendance(class_id, studentId, name, time, date)}.
+ */
+public class JdbcClassRepository implements ClassRepository {
+
+    private static final String SELECT_CLASSES =
+            "SELECT class_id, className, section FROM classes WHERE professor_id = ? ORDER BY class_id";
+    private static final String INSERT_CLASS =
+            "INSERT INTO classes (professor_id, className, section, passcode, passcode_expires,"
+            + " ip_restriction, ip_address_v6) VALUES (?, ?, ?, ?, DATE_ADD(NOW(), INTERVAL ? MINUTE), ?, ?)";
+    private static final String SELECT_EXPIRY = "SELECT passcode_expires FROM classes WHERE class_id = ?";
+    private static final String SELECT_ATTENDANCE =
+            "SELECT studentId, name, time, date FROM attendance WHERE class_id = ? ORDER BY date, time";
+
+    private final ConnectionPool pool;
+
+    public JdbcClassRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<ClassInfo> classesFor(String professorId) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(SELECT_CLASSES);
+            ps.setString(1, professorId);
+            List<ClassInfo> classes = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    classes.add(new ClassInfo(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                }
+            }
+            return classes;
+        });
+    }
+
+    @Override
+    public Passcode create(String professorId, String className, String section,
+                           int passcode, int expirationMinutes, String ipv6) throws IOException {
+        return pool.transaction(c -> {
+            // Generated keys need their own statement flag, so this one isn't cached
+            try (PreparedStatement ps = c.connection().prepareStatement(INSERT_CLASS, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, professorId);
+                ps.setString(2, className);
+                ps.setString(3, section);
+                ps.setInt(4, passcode);
+                ps.setInt(5, expirationMinutes);
+                ps.setInt(6, ipv6 != null ? 1 : 0);
+                ps.setString(7, ipv6);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    PreparedStatement expiry = c.prepare(SELECT_EXPIRY);
+                    expiry.setInt(1, keys.getInt(1));
+                    try (ResultSet rs = expiry.executeQuery()) {
+                        rs.next();
+                        return new Passcode(passcode, rs.getString(1));
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public Attendance attendance(int classId) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(SELECT_ATTENDANCE);
+            ps.setInt(1, classId);
+            List<CheckIn> records = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    records.add(new CheckIn(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+                }
+            }
+            return new Attendance(records.size(), records);
+        });
+    }
+}
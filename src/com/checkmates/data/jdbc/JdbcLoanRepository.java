@@ -0,0 +1,156 @@
+package com.checkmates.data.jdbc;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.checkmates.data.LoanRepository;
+import com.checkmates.net.BackendException;
+
+/**
+ * Loans from {@code BOOK_LOANS(Loan_id, Isbn, Card_id, Date_out, Due_date,
+ * Date_in, lib_id_checkout, lib_id_return)}.
+ *
+ * The table keeps no change log, so there are no deltas: every sync reads
+ * all loans, which over a LAN connection is still cheaper than one PHP round
+ * trip with JSON encoding.
+ *
+ * Nor is there a column for request keys, so they are remembered here, in
+ * process: a key seen before either replays its confirmation or, if the
+ * first attempt's outcome was lost with its connection, is settled by
+ * looking at the loan it would have written.
+ */
+public class JdbcLoanRepository implements LoanRepository {
+
+    /** Loan period, as in checkoutBook.php. */
+    public static final int LOAN_DAYS = 14;
+
+    private static final String SELECT_ALL =
+            "SELECT Isbn, Card_id, Date_out, Due_date, Date_in, lib_id_checkout, lib_id_return"
+            + " FROM BOOK_LOANS ORDER BY Loan_id";
+    private static final String OPEN_LOAN =
+            "SELECT 1 FROM BOOK_LOANS WHERE Isbn = ? AND Date_in IS NULL FOR UPDATE";
+    private static final String INSERT_LOAN =
+            "INSERT INTO BOOK_LOANS (Isbn, Card_id, Date_out, Due_date, lib_id_checkout)"
+            + " VALUES (?, ?, CURDATE(), DATE_ADD(CURDATE(), INTERVAL " + LOAN_DAYS + " DAY), ?)";
+    private static final String OPEN_LOAN_BY =
+            "SELECT 1 FROM BOOK_LOANS WHERE Isbn = ? AND Card_id = ? AND Date_out = CURDATE() AND Date_in IS NULL";
+    private static final String RETURN_LOAN =
+            "UPDATE BOOK_LOANS SET Date_in = CURDATE(), lib_id_return = ? WHERE Isbn = ? AND Date_in IS NULL";
+    private static final String RETURNED_BY =
+            "SELECT 1 FROM BOOK_LOANS WHERE Isbn = ? AND Date_in = CURDATE() AND lib_id_return = ?"
+            + " AND NOT EXISTS (SELECT 1 FROM BOOK_LOANS o WHERE o.Isbn = ? AND o.Date_in IS NULL)";
+    private static final String CHECKED_OUT = "Book checked out successfully.";
+    private static final String CHECKED_IN = "Book checked in successfully.";
+    private static final int REMEMBERED_REQUESTS = 10_000;
+    private static final String PENDING = "";
+
+    // Request key -> confirmation, or PENDING while (or if) the outcome is unknown
+    private final Map<String, String> requests = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > REMEMBERED_REQUESTS;
+                }
+            });
+
+    private final ConnectionPool pool;
+
+    public JdbcLoanRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public String streamChanges(String watermark, Consumer<List<String[]>> sink) throws IOException {
+        pool.call(c -> JdbcSupport.stream(c.prepare(SELECT_ALL), (i, rs) -> new String[]{
+                String.valueOf(i + 1),
+                rs.getString(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getString(4),
+                JdbcSupport.orDash(rs.getString(5)),
+                rs.getString(6),
+                JdbcSupport.orDash(rs.getString(7))
+        }, sink));
+        return null;
+    }
+
+    @Override
+    public String checkOut(String isbn, String cardId, String libId, String requestKey) throws IOException {
+        return once(requestKey, retry -> pool.transaction(c -> {
+            if (retry && exists(c.prepare(OPEN_LOAN_BY), isbn, cardId)) {
+                return CHECKED_OUT; // the first attempt went through
+            }
+            PreparedStatement open = c.prepare(OPEN_LOAN);
+            open.setString(1, isbn);
+            try (ResultSet rs = open.executeQuery()) {
+                if (rs.next()) {
+                    throw new BackendException("Book " + isbn + " is already checked out.");
+                }
+            }
+            PreparedStatement insert = c.prepare(INSERT_LOAN);
+            insert.setString(1, isbn);
+            insert.setString(2, cardId);
+            insert.setString(3, libId);
+            try {
+                insert.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException ex) {
+                throw new BackendException("Unknown book " + isbn + " or borrower " + cardId + ".");
+            }
+            return CHECKED_OUT;
+        }));
+    }
+
+    @Override
+    public String checkIn(String isbn, String libId, String requestKey) throws IOException {
+        return once(requestKey, retry -> pool.transaction(c -> {
+            PreparedStatement update = c.prepare(RETURN_LOAN);
+            update.setString(1, libId);
+            update.setString(2, isbn);
+            if (update.executeUpdate() == 0) {
+                if (retry && exists(c.prepare(RETURNED_BY), isbn, libId, isbn)) {
+                    return CHECKED_IN; // the first attempt went through
+                }
+                throw new BackendException("Book " + isbn + " is not checked out.");
+            }
+            return CHECKED_IN;
+        }));
+    }
+
+    private interface Attempt {
+        String run(boolean retry) throws IOException;
+    }
+
+    // Replays a confirmed key; tells the work whether an earlier attempt may
+    // have been applied without us hearing back
+    private String once(String requestKey, Attempt work) throws IOException {
+        String earlier = requests.putIfAbsent(requestKey, PENDING);
+        if (earlier != null && !earlier.isEmpty()) {
+            return earlier;
+        }
+        try {
+            String message = work.run(earlier != null);
+            requests.put(requestKey, message);
+            return message;
+        } catch (BackendException ex) {
+            requests.remove(requestKey); // refused, so nothing was written
+            throw ex;
+        }
+    }
+
+    private static boolean exists(PreparedStatement ps, String... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            ps.setString(i + 1, params[i]);
+        }
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.checkmates.data.jdbc;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.checkmates.data.MessageRepository;
+import com.checkmates.model.Librarian;
+import com.checkmates.net.BackendException;
+import com.checkmates.util.AESUtil;
+
+/**
+ * Messages in {@code messages(message_id, sender_id, receiver_id, cipher, iv,
+ * created_at)}, contacts in {@code professor_contacts(owner_id, contact_id)}
+ * and names from {@code professors(professor_id, professorName, email)}.
+ * Rows hold the same cipher text the PHP endpoints store.
+ */
+public class JdbcMessageRepository implements MessageRepository {
+
+    private static final String SELECT_MESSAGES =
+            "SELECT m.message_id, COALESCE(p.professorName, m.sender_id), m.cipher, m.iv, m.created_at"
+            + " FROM messages m LEFT JOIN professors p ON p.professor_id = m.sender_id"
+            + " WHERE ((m.sender_id = ? AND m.receiver_id = ?) OR (m.sender_id = ? AND m.receiver_id = ?))";
+    private static final String CONVERSATION = SELECT_MESSAGES + " AND m.message_id > ? ORDER BY m.message_id";
+    private static final String PAGE_AFTER = CONVERSATION + " LIMIT ?";
+    private static final String PAGE_BEFORE = SELECT_MESSAGES
+            + " AND m.message_id < ? ORDER BY m.message_id DESC LIMIT ?";
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO messages (sender_id, receiver_id, cipher, iv, created_at) VALUES (?, ?, ?, ?, NOW())";
+    private static final String DELETE_MESSAGES =
+            "DELETE FROM messages WHERE (sender_id = ? AND receiver_id = ?) OR (sender_id = ? AND receiver_id = ?)";
+    private static final String SELECT_LIBRARIAN =
+            "SELECT professor_id, professorName, email FROM professors WHERE professor_id = ?";
+    private static final String SELECT_CONTACTS =
+            "SELECT p.professor_id, p.professorName, p.email FROM professor_contacts c"
+            + " JOIN professors p ON p.professor_id = c.contact_id WHERE c.owner_id = ? ORDER BY p.professorName";
+    private static final String INSERT_CONTACT = "INSERT INTO professor_contacts (owner_id, contact_id) VALUES (?, ?)";
+    private static final String DELETE_CONTACT = "DELETE FROM professor_contacts WHERE owner_id = ? AND contact_id = ?";
+
+    private final ConnectionPool pool;
+
+    public JdbcMessageRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<Message> conversation(String user1, String user2) throws IOException {
+        return conversationAfter(user1, user2, null);
+    }
+
+    @Override
+    public List<Message> conversationAfter(String user1, String user2, String afterId) throws IOException {
+        return select(CONVERSATION, user1, user2, afterId == null ? 0 : parseId(afterId), 0);
+    }
+
+    @Override
+    public Page pageBefore(String user1, String user2, String beforeId, int limit) throws IOException {
+        long before = beforeId == null ? Long.MAX_VALUE : parseId(beforeId);
+        List<Message> newestFirst = select(PAGE_BEFORE, user1, user2, before, limit + 1);
+        List<Message> page = new ArrayList<>(newestFirst.subList(0, Math.min(limit, newestFirst.size())));
+        Collections.reverse(page);
+        return new Page(page, newestFirst.size() > limit);
+    }
+
+    @Override
+    public Page pageAfter(String user1, String user2, String afterId, int limit) throws IOException {
+        return MessageRepository.firstOf(select(PAGE_AFTER, user1, user2, parseId(afterId), limit + 1), limit);
+    }
+
+    // limit 0: the statement has no LIMIT
+    private List<Message> select(String sql, String user1, String user2, long id, int limit) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(sql);
+            ps.setString(1, user1);
+            ps.setString(2, user2);
+            ps.setString(3, user2);
+            ps.setString(4, user1);
+            ps.setLong(5, id);
+            if (limit > 0) {
+                ps.setInt(6, limit);
+            }
+            List<Message> messages = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(new Message(rs.getString(1), rs.getString(2),
+                            decrypt(rs.getString(3), rs.getString(4)), rs.getString(5)));
+                }
+            }
+            return messages;
+        });
+    }
+
+    private static long parseId(String id) throws BackendException {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException ex) {
+            throw new BackendException("Bad message id " + id);
+        }
+    }
+
+    @Override
+    public void send(String senderId, String receiverId, String text) throws IOException {
+        Map<String, String> enc;
+        try {
+            enc = AESUtil.encrypt(text);
+        } catch (Exception ex) {
+            throw new IOException("Encryption error: " + ex.getMessage(), ex);
+        }
+        pool.call(c -> {
+            PreparedStatement ps = c.prepare(INSERT_MESSAGE);
+            ps.setString(1, senderId);
+            ps.setString(2, receiverId);
+            ps.setString(3, enc.get("cipher"));
+            ps.setString(4, enc.get("iv"));
+            return ps.executeUpdate();
+        });
+    }
+
+    @Override
+    public String deleteConversation(String senderId, String receiverId) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(DELETE_MESSAGES);
+            ps.setString(1, senderId);
+            ps.setString(2, receiverId);
+            ps.setString(3, receiverId);
+            ps.setString(4, senderId);
+            return ps.executeUpdate() + " messages deleted.";
+        });
+    }
+
+    @Override
+    public Librarian findLibrarian(String id) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(SELECT_LIBRARIAN);
+            ps.setString(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Librarian(rs.getString(2), rs.getString(3), rs.getString(1)) : null;
+            }
+        });
+    }
+
+    @Override
+    public List<Librarian> contacts(String ownerId) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(SELECT_CONTACTS);
+            ps.setString(1, ownerId);
+            List<Librarian> contacts = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    contacts.add(new Librarian(rs.getString(2), rs.getString(3), rs.getString(1)));
+                }
+            }
+            return contacts;
+        });
+    }
+
+    @Override
+    public String addContact(String ownerId, String contactId) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(INSERT_CONTACT);
+            ps.setString(1, ownerId);
+            ps.setString(2, contactId);
+            try {
+                ps.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException ex) {
+                throw new BackendException("Contact already added.");
+            }
+            return "Contact saved.";
+        });
+    }
+
+    @Override
+    public String deleteContact(String ownerId, String contactId) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(DELETE_CONTACT);
+            ps.setString(1, ownerId);
+            ps.setString(2, contactId);
+            if (ps.executeUpdate() == 0) {
+                throw new BackendException("Contact not found.");
+            }
+            return "Contact deleted.";
+        });
+    }
+
+    private static String decrypt(String cipher, String iv) throws IOException {
+        try {
+            return AESUtil.decrypt(cipher, iv);
+        } catch (Exception ex) {
+            throw new IOException("Could not decrypt message: " + ex.getMessage(), ex);
+        }
+    }
+}
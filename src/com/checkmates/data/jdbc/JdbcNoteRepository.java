@@ -0,0 +1,63 @@
+package com.checkmates.data.jdbc;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.checkmates.data.NoteRepository;
+import com.checkmates.net.BackendException;
+
+/** Notes in {@code notes(note_id, professor_id, note)}. */
+public class JdbcNoteRepository implements NoteRepository {
+
+    private static final String SELECT = "SELECT note FROM notes WHERE professor_id = ? ORDER BY note_id";
+    private static final String INSERT = "INSERT INTO notes (professor_id, note) VALUES (?, ?)";
+    private static final String DELETE = "DELETE FROM notes WHERE professor_id = ? AND note = ? LIMIT 1";
+
+    private final ConnectionPool pool;
+
+    public JdbcNoteRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<String> list(String professorId) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(SELECT);
+            ps.setString(1, professorId);
+            List<String> notes = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    notes.add(rs.getString(1));
+                }
+            }
+            return notes;
+        });
+    }
+
+    @Override
+    public String create(String professorId, String note) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(INSERT);
+            ps.setString(1, professorId);
+            ps.setString(2, note);
+            ps.executeUpdate();
+            return "Note saved.";
+        });
+    }
+
+    @Override
+    public String delete(String professorId, String note) throws IOException {
+        return pool.call(c -> {
+            PreparedStatement ps = c.prepare(DELETE);
+            ps.setString(1, professorId);
+            ps.setString(2, note);
+            if (ps.executeUpdate() == 0) {
+                throw new BackendException("Note not found.");
+            }
+            return "Note deleted.";
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package com.checkmates.data.jdbc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.checkmates.net.JsonArrayStreamer;
+
+final class JdbcSupport {
+
+    /** Turns the current result row into a table row; {@code index} is its position. */
+    interface RowReader {
+        String[] read(int index, ResultSet rs) throws SQLException;
+    }
+
+    private JdbcSupport() {
+    }
+
+    /**
+     * Runs {@code query} and hands its rows to {@code sink} in the same chunk
+     * sizes as the JSON streamer, so the first screen shows up as quickly.
+     * The driver streams the result instead of buffering all of it.
+     */
+    static int stream(PreparedStatement query, RowReader reader, Consumer<List<String[]>> sink)
+            throws SQLException, IOException {
+        // Connector/J streams row by row only with this fetch size
+        query.setFetchSize(Integer.MIN_VALUE);
+        int count = 0;
+        int limit = JsonArrayStreamer.FIRST_CHUNK;
+        List<String[]> chunk = new ArrayList<>(limit);
+        try (ResultSet rs = query.executeQuery()) {
+            while (rs.next()) {
+                chunk.add(reader.read(count++, rs));
+                if (chunk.size() >= limit) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Load cancelled");
+                    }
+                    sink.accept(chunk);
+                    limit = JsonArrayStreamer.CHUNK;
+                    chunk = new ArrayList<>(limit);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+        return count;
+    }
+
+    static String orDash(String value) {
+        return value == null || value.isEmpty() ? "---" : value;
+    }
+}
@@ -0,0 +1,92 @@
+package com.checkmates.data.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.checkmates.data.BookRepository;
+import com.checkmates.net.BackendException;
+
+public class MemoryBookRepository implements BookRepository {
+
+    private final MemoryDatabase db;
+
+    public MemoryBookRepository(MemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public int streamAll(Consumer<List<String[]>> sink) {
+        List<String[]> rows;
+        synchronized (db) {
+            rows = new ArrayList<>(db.books);
+        }
+        return MemoryDatabase.stream(rows, sink);
+    }
+
+    @Override
+    public String[] find(String isbn) {
+        synchronized (db) {
+            Integer at = db.bookIndex.get(isbn);
+            return at == null ? null : db.books.get(at);
+        }
+    }
+
+    @Override
+    public Page page(int offset, int limit, String query) {
+        List<String[]> rows = new ArrayList<>(limit);
+        int total = 0;
+        synchronized (db) {
+            for (String[] row : db.books) {
+                if (BookRepository.matches(row, query)) {
+                    if (total >= offset && rows.size() < limit) {
+                        rows.add(row);
+                    }
+                    total++;
+                }
+            }
+        }
+        return new Page(total, rows);
+    }
+
+    @Override
+    public String add(String isbn, String title, String authorId) throws BackendException {
+        synchronized (db) {
+            if (db.bookIndex.containsKey(isbn)) {
+                throw new BackendException("A book with ISBN " + isbn + " already exists.");
+            }
+            db.bookIndex.put(isbn, db.books.size());
+            db.books.add(new String[]{isbn, title, db.authors.getOrDefault(authorId, authorId), "IN"});
+        }
+        return "Book added successfully.";
+    }
+
+    @Override
+    public String updateTitle(String isbn, String title) throws BackendException {
+        synchronized (db) {
+            Integer at = db.bookIndex.get(isbn);
+            if (at == null) {
+                throw new BackendException("No book with ISBN " + isbn + ".");
+            }
+            String[] row = db.books.get(at).clone();
+            row[1] = title;
+            db.books.set(at, row);
+        }
+        return "Book updated successfully.";
+    }
+
+    @Override
+    public String delete(String isbn) throws BackendException {
+        synchronized (db) {
+            Integer at = db.bookIndex.remove(isbn);
+            if (at == null) {
+                throw new BackendException("No book with ISBN " + isbn + ".");
+            }
+            db.books.remove((int) at);
+            for (int i = at; i < db.books.size(); i++) {
+                db.bookIndex.put(db.books.get(i)[0], i);
+            }
+        }
+        return "Book deleted successfully.";
+    }
+}
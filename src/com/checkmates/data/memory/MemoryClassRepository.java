@@ -0,0 +1,52 @@
+package com.checkmates.data.memory;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.checkmates.data.ClassRepository;
+
+public class MemoryClassRepository implements ClassRepository {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final MemoryDatabase db;
+
+    public MemoryClassRepository(MemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public List<ClassInfo> classesFor(String professorId) {
+        List<ClassInfo> found = new ArrayList<>();
+        synchronized (db) {
+            for (ClassInfo c : db.classes) {
+                if (professorId.equals(db.classOwners.get(c.id()))) {
+                    found.add(c);
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Passcode create(String professorId, String className, String section,
+                           int passcode, int expirationMinutes, String ipv6) {
+        synchronized (db) {
+            int id = db.classes.size() + 1;
+            db.classes.add(new ClassInfo(id, className, section));
+            db.classOwners.put(id, professorId);
+        }
+        return new Passcode(passcode, LocalDateTime.now().plusMinutes(expirationMinutes).format(TIME));
+    }
+
+    @Override
+    public Attendance attendance(int classId) {
+        List<CheckIn> records;
+        synchronized (db) {
+            records = new ArrayList<>(db.attendance.getOrDefault(classId, List.of()));
+        }
+        return new Attendance(records.size(), records);
+    }
+}
@@ -0,0 +1,131 @@
+package com.checkmates.data.memory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.checkmates.data.ClassRepository;
+import com.checkmates.data.MessageRepository;
+import com.checkmates.model.Librarian;
+import com.checkmates.net.JsonArrayStreamer;
+import com.checkmates.net.stub.StubBackendServer;
+
+/**
+ * State behind the in-memory repositories. Everything is guarded by the
+ * database's own monitor; the repositories copy what they read under it and
+ * stream the copy outside, the way a server answers from a snapshot.
+ */
+public final class MemoryDatabase {
+
+    // Catalog rows in table order, the last column kept in step with the loans
+    final List<String[]> books = new ArrayList<>();
+    final Map<String, Integer> bookIndex = new HashMap<>();
+    final Map<String, String> authors = new HashMap<>();
+
+    // Loan rows in table order ("No." = position + 1) and the change sequence of each
+    final List<String[]> loans = new ArrayList<>();
+    final List<Long> loanChanges = new ArrayList<>();
+    long changeSequence;
+    // Confirmation of every checkout / check-in by request key, for replaying retries
+    final Map<String, String> completedRequests = new HashMap<>();
+
+    final Map<String, List<String>> notes = new HashMap<>();
+    final List<MessageRepository.Message> messages = new ArrayList<>();
+    long messageSequence; // id of the last message sent
+    final List<String[]> messageParties = new ArrayList<>(); // sender, receiver of each message
+    final Map<String, Librarian> librarians = new LinkedHashMap<>();
+    final Map<String, List<String>> contacts = new HashMap<>();
+    final List<ClassRepository.ClassInfo> classes = new ArrayList<>();
+    final Map<Integer, String> classOwners = new HashMap<>();
+    final Map<Integer, List<ClassRepository.CheckIn>> attendance = new HashMap<>();
+
+    /** An empty database. */
+    public MemoryDatabase() {
+    }
+
+    /**
+     * A database with {@code bookCount} synthetic books and {@code loanCount}
+     * loans of them, for measuring the UI without a backend in the way.
+     */
+    public static MemoryDatabase generated(int bookCount, int loanCount) {
+        MemoryDatabase db = new MemoryDatabase();
+        List<String[]> books = StubBackendServer.generateBooks(bookCount);
+        for (String[] b : books) {
+            db.bookIndex.put(b[0], db.books.size());
+            db.books.add(new String[]{b[0], b[1], b[2], "IN"});
+        }
+        for (String[] l : StubBackendServer.generateLoans(books, loanCount)) {
+            db.addLoan(l[0], l[1], l[2], l[3], l[4], l[5], l[6]);
+        }
+        return db;
+    }
+
+    public synchronized void addLibrarian(Librarian lib) {
+        librarians.put(lib.getLibID(), lib);
+    }
+
+    public synchronized void addAuthor(String authorId, String name) {
+        authors.put(authorId, name);
+    }
+
+    public synchronized void addCheckIn(int classId, ClassRepository.CheckIn checkIn) {
+        attendance.computeIfAbsent(classId, k -> new ArrayList<>()).add(checkIn);
+    }
+
+    // Caller holds the monitor
+    void addLoan(String isbn, String cardId, String dateOut, String dueDate,
+                 String dateIn, String libOut, String libIn) {
+        loans.add(new String[]{
+                String.valueOf(loans.size() + 1), isbn, cardId, dateOut, dueDate,
+                dateIn == null ? "---" : dateIn, libOut, libIn == null ? "---" : libIn});
+        loanChanges.add(++changeSequence);
+        Integer book = bookIndex.get(isbn);
+        if (book != null && dateIn == null) {
+            setAvailability(book, "OUT");
+        }
+    }
+
+    // Caller holds the monitor
+    void returnLoan(int loan, String dateIn, String libIn) {
+        String[] row = loans.get(loan).clone();
+        row[5] = dateIn;
+        row[7] = libIn;
+        loans.set(loan, row);
+        loanChanges.set(loan, ++changeSequence);
+        Integer book = bookIndex.get(row[1]);
+        if (book != null) {
+            setAvailability(book, "IN");
+        }
+    }
+
+    // Caller holds the monitor
+    String complete(String requestKey, String message) {
+        if (requestKey != null) {
+            completedRequests.put(requestKey, message);
+        }
+        return message;
+    }
+
+    // Rows are shared with readers, so they are replaced rather than modified
+    void setAvailability(int book, String availability) {
+        String[] row = books.get(book).clone();
+        row[3] = availability;
+        books.set(book, row);
+    }
+
+    /** Hands {@code rows} to {@code sink} in the JSON streamer's chunk sizes. */
+    static int stream(List<String[]> rows, Consumer<List<String[]>> sink) {
+        int at = 0;
+        int limit = JsonArrayStreamer.FIRST_CHUNK;
+        while (at < rows.size()) {
+            int end = Math.min(rows.size(), at + limit);
+            sink.accept(new ArrayList<>(rows.subList(at, end)));
+            at = end;
+            limit = JsonArrayStreamer.CHUNK;
+        }
+        return rows.size();
+    }
+}
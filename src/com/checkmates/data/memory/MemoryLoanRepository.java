@@ -0,0 +1,80 @@
+package com.checkmates.data.memory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.checkmates.data.LoanRepository;
+import com.checkmates.net.BackendException;
+
+/** Loans with deltas: the watermark is the database's change sequence. */
+public class MemoryLoanRepository implements LoanRepository {
+
+    private final MemoryDatabase db;
+
+    public MemoryLoanRepository(MemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public String streamChanges(String watermark, Consumer<List<String[]>> sink) throws BackendException {
+        long since;
+        try {
+            since = watermark == null ? 0 : Long.parseLong(watermark);
+        } catch (NumberFormatException ex) {
+            throw new BackendException("Bad watermark " + watermark);
+        }
+        List<String[]> rows = new ArrayList<>();
+        long next;
+        synchronized (db) {
+            for (int i = 0; i < db.loans.size(); i++) {
+                if (db.loanChanges.get(i) > since) {
+                    rows.add(db.loans.get(i).clone()); // the sync renumbers what it receives
+                }
+            }
+            next = db.changeSequence;
+        }
+        MemoryDatabase.stream(rows, sink);
+        return String.valueOf(next);
+    }
+
+    @Override
+    public String checkOut(String isbn, String cardId, String libId, String requestKey) throws BackendException {
+        LocalDate today = LocalDate.now();
+        synchronized (db) {
+            String replay = db.completedRequests.get(requestKey);
+            if (replay != null) {
+                return replay;
+            }
+            Integer book = db.bookIndex.get(isbn);
+            if (book == null) {
+                throw new BackendException("No book with ISBN " + isbn + ".");
+            }
+            if ("OUT".equals(db.books.get(book)[3])) {
+                throw new BackendException("Book " + isbn + " is already checked out.");
+            }
+            db.addLoan(isbn, cardId, today.toString(), today.plusDays(14).toString(), null, libId, null);
+            return db.complete(requestKey, "Book checked out successfully.");
+        }
+    }
+
+    @Override
+    public String checkIn(String isbn, String libId, String requestKey) throws BackendException {
+        LocalDate today = LocalDate.now();
+        synchronized (db) {
+            String replay = db.completedRequests.get(requestKey);
+            if (replay != null) {
+                return replay;
+            }
+            for (int i = db.loans.size() - 1; i >= 0; i--) {
+                String[] loan = db.loans.get(i);
+                if (loan[1].equals(isbn) && "---".equals(loan[5])) {
+                    db.returnLoan(i, today.toString(), libId);
+                    return db.complete(requestKey, "Book checked in successfully.");
+                }
+            }
+            throw new BackendException("Book " + isbn + " is not checked out.");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.checkmates.data.memory;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.checkmates.data.MessageRepository;
+import com.checkmates.model.Librarian;
+import com.checkmates.net.BackendException;
+
+/** Messages kept as plain text; nothing leaves the process, so there is nothing to encrypt for. */
+public class MemoryMessageRepository implements MessageRepository {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final MemoryDatabase db;
+
+    public MemoryMessageRepository(MemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public List<Message> conversation(String user1, String user2) {
+        List<Message> found = new ArrayList<>();
+        synchronized (db) {
+            for (int i = 0; i < db.messages.size(); i++) {
+                String[] p = db.messageParties.get(i);
+                if ((p[0].equals(user1) && p[1].equals(user2)) || (p[0].equals(user2) && p[1].equals(user1))) {
+                    found.add(db.messages.get(i));
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void send(String senderId, String receiverId, String text) {
+        String time = LocalDateTime.now().format(TIME);
+        synchronized (db) {
+            Librarian sender = db.librarians.get(senderId);
+            db.messages.add(new Message(String.valueOf(++db.messageSequence),
+                    sender != null ? sender.getLibName() : senderId, text, time));
+            db.messageParties.add(new String[]{senderId, receiverId});
+        }
+    }
+
+    @Override
+    public String deleteConversation(String senderId, String receiverId) {
+        int removed = 0;
+        synchronized (db) {
+            for (int i = db.messages.size() - 1; i >= 0; i--) {
+                String[] p = db.messageParties.get(i);
+                if ((p[0].equals(senderId) && p[1].equals(receiverId))
+                        || (p[0].equals(receiverId) && p[1].equals(senderId))) {
+                    db.messages.remove(i);
+                    db.messageParties.remove(i);
+                    removed++;
+                }
+            }
+        }
+        return removed + " messages deleted.";
+    }
+
+    @Override
+    public Librarian findLibrarian(String id) {
+        synchronized (db) {
+            return db.librarians.get(id);
+        }
+    }
+
+    @Override
+    public List<Librarian> contacts(String ownerId) {
+        List<Librarian> found = new ArrayList<>();
+        synchronized (db) {
+            for (String id : db.contacts.getOrDefault(ownerId, List.of())) {
+                Librarian lib = db.librarians.get(id);
+                found.add(lib != null ? lib : new Librarian(id, null, id));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public String addContact(String ownerId, String contactId) throws BackendException {
+        synchronized (db) {
+            List<String> list = db.contacts.computeIfAbsent(ownerId, k -> new ArrayList<>());
+            if (list.contains(contactId)) {
+                throw new BackendException("Contact already added.");
+            }
+            list.add(contactId);
+        }
+        return "Contact saved.";
+    }
+
+    @Override
+    public String deleteContact(String ownerId, String contactId) throws BackendException {
+        synchronized (db) {
+            List<String> list = db.contacts.get(ownerId);
+            if (list == null || !list.remove(contactId)) {
+                throw new BackendException("Contact not found.");
+            }
+        }
+        return "Contact deleted.";
+    }
+}
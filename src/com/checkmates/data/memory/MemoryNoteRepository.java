@@ -0,0 +1,42 @@
+package com.checkmates.data.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.checkmates.data.NoteRepository;
+import com.checkmates.net.BackendException;
+
+public class MemoryNoteRepository implements NoteRepository {
+
+    private final MemoryDatabase db;
+
+    public MemoryNoteRepository(MemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public List<String> list(String professorId) {
+        synchronized (db) {
+            return new ArrayList<>(db.notes.getOrDefault(professorId, List.of()));
+        }
+    }
+
+    @Override
+    public String create(String professorId, String note) {
+        synchronized (db) {
+            db.notes.computeIfAbsent(professorId, k -> new ArrayList<>()).add(note);
+        }
+        return "Note saved.";
+    }
+
+    @Override
+    public String delete(String professorId, String note) throws BackendException {
+        synchronized (db) {
+            List<String> notes = db.notes.get(professorId);
+            if (notes == null || !notes.remove(note)) {
+                throw new BackendException("Note not found.");
+            }
+        }
+        return "Note deleted.";
+    }
+}
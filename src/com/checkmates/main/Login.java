@@ -69,6 +69,7 @@ import org.json.JSONObject;
 import com.checkmates.ui.components.OutlinedTextCanvas;
 import com.checkmates.ui.Dashboard;
 import com.checkmates.model.Librarian;
+import com.checkmates.net.BackendClient;
 import com.checkmates.ui.components.FancyHoverButton;
 import com.checkmates.ui.SignUp;
 /**
@@ -518,30 +519,8 @@ public class Login extends javax.swing.JFrame {
         String urlParameters = "email=" + URLEncoder.encode(email, "UTF-8") +
                 "&passWord=" + URLEncoder.encode(password, "UTF-8");
 
-        byte[] postData = urlParameters.getBytes(StandardCharsets.UTF_8);
-
-        URI uri = URI.create(urlString);
-        URL url = uri.toURL();
-
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        conn.setDoOutput(true);
-
-        // Send POST data
-        try (DataOutputStream out = new DataOutputStream(conn.getOutputStream())) {
-            out.write(postData);
-        }
-
-        // Read the response
-        BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-        String inputLine;
-        StringBuilder response = new StringBuilder();
-        while ((inputLine = in.readLine()) != null) {
-            response.append(inputLine);
-        }
-        in.close();
-        return response.toString();
+        // Send POST data and read the response
+        return BackendClient.getInstance().postForm(urlString, urlParameters);
     }
 
     /**
@@ -0,0 +1,386 @@
+package com.checkmates.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import com.checkmates.concurrent.SingleFlight;
+
+/**
+ * Shared HTTP client for every call to the CheckMates backend.
+ *
+ * All windows go through one {@link HttpClient}, so connections to cm8tes.com
+ * are kept alive and reused (HTTP/2 multiplexed where the server supports it)
+ * instead of paying a new TCP/TLS handshake per request.
+ *
+ * Read endpoints that several windows load at once (books, loans, classes,
+ * contacts) should use {@link #getShared} or {@link #getFresh}, which coalesce
+ * concurrent requests for the same URL into one download.
+ *
+ * Endpoints with a {@link ResponseCache} policy are answered from the cache by
+ * {@link #getShared}, {@link #getCached} and {@link #getStreamCached}, and
+ * revalidated with If-None-Match / If-Modified-Since once their TTL runs out.
+ *
+ * Timeouts can be tuned with the system properties
+ * {@code checkmates.http.connectTimeoutMs} and {@code checkmates.http.readTimeoutMs}.
+ */
+public class BackendClient {
+
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded; charset=UTF-8";
+
+    private static volatile BackendClient instance;
+
+    private final HttpClient http;
+    private final Duration readTimeout;
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+    private final SingleFlight<String, ResponseCache.Entry> revalidations = new SingleFlight<>();
+    private final ResponseCache cache;
+
+    public BackendClient(Duration connectTimeout, Duration readTimeout) {
+        this(connectTimeout, readTimeout, ResponseCache.createDefault());
+    }
+
+    public BackendClient(Duration connectTimeout, Duration readTimeout, ResponseCache cache) {
+        this.readTimeout = readTimeout;
+        this.cache = cache;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    public static BackendClient getInstance() {
+        BackendClient c = instance;
+        if (c == null) {
+            synchronized (BackendClient.class) {
+                c = instance;
+                if (c == null) {
+                    c = new BackendClient(
+                            Duration.ofMillis(Long.getLong("checkmates.http.connectTimeoutMs", 5000)),
+                            Duration.ofMillis(Long.getLong("checkmates.http.readTimeoutMs", 15000)));
+                    instance = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    public HttpClient getHttpClient() {
+        return http;
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    // --- Blocking API ---
+
+    public String get(String url) throws IOException {
+        return send(newRequest(url).GET().build());
+    }
+
+    /**
+     * Opens the response body of a GET for incremental reading. The caller must
+     * close the stream; closing it early aborts the transfer.
+     */
+    public InputStream getStream(String url) throws IOException {
+        return send(newRequest(url).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    public String postForm(String url, Map<String, String> params) throws IOException {
+        return postForm(url, formEncode(params));
+    }
+
+    public String postForm(String url, String encodedBody) throws IOException {
+        try {
+            return send(formRequest(url, encodedBody));
+        } finally {
+            cache.afterWrite(url);
+        }
+    }
+
+    /** Same as {@link #postForm}, for callers that need the status code. */
+    public HttpResponse<String> postFormForResponse(String url, Map<String, String> params) throws IOException {
+        try {
+            return sendForResponse(formRequest(url, formEncode(params)),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } finally {
+            cache.afterWrite(url);
+        }
+    }
+
+    public String postJson(String url, String json, Map<String, String> headers, Duration timeout) throws IOException {
+        return send(jsonRequest(url, json, headers, timeout));
+    }
+
+    // --- Async API ---
+
+    public CompletableFuture<String> getAsync(String url) {
+        return sendAsync(newRequest(url).GET().build());
+    }
+
+    public CompletableFuture<String> postFormAsync(String url, Map<String, String> params) {
+        return sendAsync(formRequest(url, formEncode(params)))
+                .whenComplete((body, err) -> cache.afterWrite(url));
+    }
+
+    public CompletableFuture<String> postJsonAsync(String url, String json, Map<String, String> headers, Duration timeout) {
+        return sendAsync(jsonRequest(url, json, headers, timeout));
+    }
+
+    // --- Coalesced reads ---
+
+    /**
+     * GET that shares a download already in flight for the same URL, answered
+     * from the cache when the endpoint has a cache policy.
+     */
+    public CompletableFuture<String> getShared(String url) {
+        return flights.join(url, () -> getCached(url, null));
+    }
+
+    /**
+     * GET whose result is guaranteed to start after this call, e.g. to reload
+     * after a write. Concurrent callers still share one follow-up download;
+     * a cached copy is revalidated rather than trusted.
+     */
+    public CompletableFuture<String> getFresh(String url) {
+        return flights.refresh(url, () -> cache.policyFor(url) == null
+                ? getAsync(url)
+                : revalidate(url, cache.get(url)).thenApply(ResponseCache.Entry::text));
+    }
+
+    // --- Cached reads ---
+
+    /**
+     * GET through the response cache. A fresh entry is returned as is. A stale
+     * one is returned immediately too if the endpoint allows
+     * stale-while-revalidate, and {@code onUpdate} (may be null) receives the
+     * new body from a background thread if revalidation finds it changed.
+     * Otherwise the entry is revalidated first.
+     */
+    public CompletableFuture<String> getCached(String url, Consumer<String> onUpdate) {
+        ResponseCache.Policy policy = cache.policyFor(url);
+        if (policy == null) {
+            return getAsync(url);
+        }
+        ResponseCache.Entry cached = cache.get(url);
+        if (cached != null && (cache.isFresh(cached, policy) || policy.staleWhileRevalidate())) {
+            if (!cache.isFresh(cached, policy)) {
+                revalidateInBackground(url, cached, onUpdate == null ? null : fresh -> onUpdate.accept(fresh.text()));
+            }
+            return CompletableFuture.completedFuture(cached.text());
+        }
+        return revalidate(url, cached).thenApply(ResponseCache.Entry::text);
+    }
+
+    /**
+     * Streaming counterpart of {@link #getCached} for large bodies. With
+     * {@code revalidate} set, a cached copy is always checked with a
+     * conditional request first (a 304 then costs no body transfer).
+     * A full download is stored in the cache as the caller reads it.
+     */
+    public InputStream getStreamCached(String url, boolean revalidate, Runnable onUpdate) throws IOException {
+        ResponseCache.Policy policy = cache.policyFor(url);
+        if (policy == null) {
+            return getStream(url);
+        }
+        ResponseCache.Entry cached = cache.get(url);
+        try {
+            if (cached != null && !revalidate) {
+                if (cache.isFresh(cached, policy)) {
+                    return cached.stream();
+                }
+                if (policy.staleWhileRevalidate()) {
+                    InputStream in = cached.stream();
+                    revalidateStreamInBackground(url, cached, onUpdate);
+                    return in;
+                }
+            }
+        } catch (IOException ex) {
+            cached = null; // the file was replaced or dropped meanwhile; download instead
+        }
+
+        long sentAt = cache.generation();
+        HttpResponse<InputStream> resp = sendForResponse(conditionalRequest(url, cached),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (resp.statusCode() == 304 && cached != null) {
+            resp.body().close();
+            try {
+                return cache.store(url, cached, 304, resp.headers(), null, sentAt).stream();
+            } catch (IOException ex) {
+                return getStream(url); // dropped between the request and now
+            }
+        }
+        if (resp.statusCode() == 200) {
+            return cache.teeInto(url, resp.headers(), resp.body(), sentAt);
+        }
+        return resp.body();
+    }
+
+    private CompletableFuture<ResponseCache.Entry> revalidate(String url, ResponseCache.Entry cached) {
+        long sentAt = cache.generation();
+        return http.sendAsync(conditionalRequest(url, cached), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(resp -> cache.store(url, cached, resp.statusCode(), resp.headers(), resp.body(), sentAt));
+    }
+
+    // Like revalidateInBackground, but a changed body goes straight to the cache
+    // file instead of being collected in memory
+    private void revalidateStreamInBackground(String url, ResponseCache.Entry cached, Runnable onChange) {
+        long sentAt = cache.generation();
+        revalidations.join(url, () -> http.sendAsync(conditionalRequest(url, cached), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(resp -> {
+                    try {
+                        if (resp.statusCode() == 304) {
+                            resp.body().close();
+                            return cache.store(url, cached, 304, resp.headers(), null, sentAt);
+                        }
+                        if (resp.statusCode() != 200) {
+                            resp.body().close();
+                            throw new IOException("HTTP " + resp.statusCode());
+                        }
+                        ResponseCache.Entry fresh = cache.storeStream(url, resp.headers(), resp.body(), sentAt);
+                        // Not stored means the data changed while it downloaded
+                        if (onChange != null && (fresh == null || !fresh.sameBody(cached))) {
+                            onChange.run();
+                        }
+                        return fresh;
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                })).whenComplete((fresh, err) -> {
+                    if (err != null) {
+                        System.err.println("Revalidating " + url + " failed: " + err.getMessage());
+                    }
+                });
+    }
+
+    private void revalidateInBackground(String url, ResponseCache.Entry cached, Consumer<ResponseCache.Entry> onChange) {
+        revalidations.join(url, () -> revalidate(url, cached)).whenComplete((fresh, err) -> {
+            if (err != null) {
+                System.err.println("Revalidating " + url + " failed: " + err.getMessage());
+            } else if (onChange != null && fresh.body() != cached.body() && !same(fresh, cached)) {
+                onChange.accept(fresh);
+            }
+        });
+    }
+
+    private static boolean same(ResponseCache.Entry a, ResponseCache.Entry b) {
+        try {
+            return a.sameBody(b);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    public SingleFlight<String, String> getFlights() {
+        return flights;
+    }
+
+    /** Waits for an async call from a background task, unwrapping its failure. */
+    public static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("Request was cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // --- Helpers ---
+
+    public static String encode(String value) {
+        return URLEncoder.encode(value == null ? "" : value, StandardCharsets.UTF_8);
+    }
+
+    public static String formEncode(Map<String, String> params) {
+        StringJoiner sj = new StringJoiner("&");
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            sj.add(encode(e.getKey()) + "=" + encode(e.getValue()));
+        }
+        return sj.toString();
+    }
+
+    private HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(readTimeout);
+    }
+
+    private HttpRequest conditionalRequest(String url, ResponseCache.Entry cached) {
+        HttpRequest.Builder b = newRequest(url).GET();
+        if (cached != null) {
+            if (cached.etag() != null) {
+                b.header("If-None-Match", cached.etag());
+            }
+            if (cached.lastModified() != null) {
+                b.header("If-Modified-Since", cached.lastModified());
+            }
+        }
+        return b.build();
+    }
+
+    private HttpRequest formRequest(String url, String encodedBody) {
+        return newRequest(url)
+                .header("Content-Type", FORM_CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofString(encodedBody, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private HttpRequest jsonRequest(String url, String json, Map<String, String> headers, Duration timeout) {
+        HttpRequest.Builder b = newRequest(url)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8));
+        headers.forEach(b::header);
+        return b.build();
+    }
+
+    // The PHP endpoints report failures as JSON with a non-2xx code, so the body
+    // is handed back regardless of status and callers inspect "status" themselves.
+    private String send(HttpRequest request) throws IOException {
+        return send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private <T> T send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        return sendForResponse(request, handler).body();
+    }
+
+    private <T> HttpResponse<T> sendForResponse(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return http.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request to " + request.uri() + " was interrupted");
+        }
+    }
+
+    private CompletableFuture<String> sendAsync(HttpRequest request) {
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(HttpResponse::body);
+    }
+}
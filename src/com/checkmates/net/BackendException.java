@@ -0,0 +1,14 @@
+package com.checkmates.net;
+
+import java.io.IOException;
+
+/**
+ * The backend answered, but with {@code "status": "error"} (or no status at all).
+ * The message is the one the PHP endpoint sent back.
+ */
+public class BackendException extends IOException {
+
+    public BackendException(String message) {
+        super(message);
+    }
+}
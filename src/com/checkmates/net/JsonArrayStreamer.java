@@ -0,0 +1,141 @@
+package com.checkmates.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Reads responses shaped like {@code {"status": "success", "books": [ {...}, ... ]}}
+ * straight off the connection, one array element at a time.
+ *
+ * Only the current element is ever held as a {@link JSONObject}; mapped rows are
+ * handed to the sink in chunks (a small first chunk so the first screen shows up
+ * quickly, then larger ones). Interrupting the reading thread aborts the load.
+ */
+public final class JsonArrayStreamer {
+
+    /** Turns one array element into a table row; {@code index} is its position in the array. */
+    public interface RowMapper {
+        String[] map(int index, JSONObject obj);
+    }
+
+    public static final int FIRST_CHUNK = 50;
+    public static final int CHUNK = 500;
+
+    private JsonArrayStreamer() {
+    }
+
+    /**
+     * Streams the array stored under {@code arrayKey} into {@code sink}.
+     *
+     * @return the number of rows read
+     * @throws BackendException if the response status is not "success"
+     */
+    public static int stream(Reader reader, String arrayKey, RowMapper mapper,
+                             Consumer<List<String[]>> sink) throws IOException {
+        return stream(reader, arrayKey, mapper, sink, null);
+    }
+
+    /**
+     * Same as {@link #stream(Reader, String, RowMapper, Consumer)}, but also copies
+     * every other top-level field (e.g. "total" for paged responses) into
+     * {@code fields} when it is not null.
+     */
+    public static int stream(Reader reader, String arrayKey, RowMapper mapper,
+                             Consumer<List<String[]>> sink, Map<String, Object> fields) throws IOException {
+        JSONTokener t = new JSONTokener(reader);
+        if (t.nextClean() != '{') {
+            throw t.syntaxError("Expected a JSON object");
+        }
+
+        String status = null;
+        String message = null;
+        int count = 0;
+
+        char c = t.nextClean();
+        while (c != '}') {
+            if (c != '"' && c != '\'') {
+                throw t.syntaxError("Expected a key");
+            }
+            String key = t.nextString(c);
+            if (t.nextClean() != ':') {
+                throw t.syntaxError("Expected ':' after " + key);
+            }
+
+            if (key.equals(arrayKey)) {
+                count = readArray(t, mapper, sink);
+            } else {
+                Object value = t.nextValue();
+                if (fields != null) {
+                    fields.put(key, value);
+                }
+                if (key.equals("status")) {
+                    status = String.valueOf(value);
+                } else if (key.equals("message")) {
+                    message = String.valueOf(value);
+                }
+            }
+
+            c = t.nextClean();
+            if (c == ',') {
+                c = t.nextClean();
+            } else if (c != '}') {
+                throw t.syntaxError("Expected ',' or '}'");
+            }
+        }
+
+        if (!"success".equalsIgnoreCase(status)) {
+            throw new BackendException(message != null ? message : "Unexpected response from server");
+        }
+        return count;
+    }
+
+    private static int readArray(JSONTokener t, RowMapper mapper, Consumer<List<String[]>> sink) throws IOException {
+        char c = t.nextClean();
+        if (c != '[') {
+            // e.g. "books": null when the table is empty
+            t.back();
+            t.nextValue();
+            return 0;
+        }
+
+        int count = 0;
+        int limit = FIRST_CHUNK;
+        List<String[]> chunk = new ArrayList<>(limit);
+
+        c = t.nextClean();
+        while (c != ']') {
+            t.back();
+            Object value = t.nextValue();
+            if (value instanceof JSONObject obj) {
+                chunk.add(mapper.map(count++, obj));
+            }
+            if (chunk.size() >= limit) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Load cancelled");
+                }
+                sink.accept(chunk);
+                limit = CHUNK;
+                chunk = new ArrayList<>(limit);
+            }
+
+            c = t.nextClean();
+            if (c == ',') {
+                c = t.nextClean();
+            } else if (c != ']') {
+                throw t.syntaxError("Expected ',' or ']'");
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+        return count;
+    }
+}
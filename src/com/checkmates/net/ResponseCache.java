@@ -0,0 +1,712 @@
+package com.checkmates.net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache for the backend's read endpoints, kept in memory and on disk so
+ * windows can render from the last response instead of re-downloading it.
+ *
+ * Only endpoints with a {@link Policy} are cached; everything else passes
+ * straight through {@link BackendClient}. Entries keep the response's ETag
+ * and Last-Modified so an expired entry is revalidated with a conditional
+ * request, and a 304 just renews it. Writes through {@code postForm} drop the
+ * entries of the endpoints they affect (see {@link #afterWrite}).
+ *
+ * The memory tier is an LRU bounded by body size
+ * ({@code checkmates.cache.memoryMb}, default 16); larger bodies such as the
+ * full catalog live on disk only, are written there as they download and are
+ * read back as a stream, so they are never held whole. The disk tier goes under the user's cache
+ * directory (override with {@code checkmates.cache.dir}, disable with
+ * {@code -Dcheckmates.cache.disk=false}) and is bounded by
+ * {@code checkmates.cache.diskMb} (default 256), oldest files first.
+ * Per-endpoint TTLs can be overridden in seconds, e.g.
+ * {@code -Dcheckmates.cache.ttl.getBooks=30}.
+ */
+public final class ResponseCache {
+
+    /**
+     * How long a response stays fresh, and whether a stale one may be shown
+     * while it is revalidated in the background.
+     */
+    public record Policy(Duration ttl, boolean staleWhileRevalidate, Set<String> invalidatedBy) {}
+
+    /**
+     * One cached response body with its validators. Small bodies are held in
+     * {@code body}; a large one is left in {@code file} ({@code length} bytes
+     * at {@code bodyOffset}) and {@code body} is null.
+     */
+    public record Entry(String url, byte[] body, Path file, long bodyOffset, long length,
+                        String etag, String lastModified, long fetchedAt) {
+
+        Entry(String url, byte[] body, String etag, String lastModified, long fetchedAt) {
+            this(url, body, null, 0, body.length, etag, lastModified, fetchedAt);
+        }
+
+        public String text() {
+            try {
+                return new String(bytes(), StandardCharsets.UTF_8);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        public byte[] bytes() throws IOException {
+            if (body != null) {
+                return body;
+            }
+            try (InputStream in = stream()) {
+                return in.readAllBytes();
+            }
+        }
+
+        /**
+         * The body. For an entry on disk this opens the file, and fails if it
+         * was replaced or dropped since the entry was read.
+         */
+        public InputStream stream() throws IOException {
+            if (body != null) {
+                return new ByteArrayInputStream(body);
+            }
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                if (ch.size() != bodyOffset + length) {
+                    throw new IOException(file + " changed since it was read");
+                }
+                ch.position(bodyOffset);
+            } catch (IOException ex) {
+                ch.close();
+                throw ex;
+            }
+            return new BufferedInputStream(Channels.newInputStream(ch), 1 << 16);
+        }
+
+        /** Whether both bodies hold the same bytes; compares large ones a block at a time. */
+        public boolean sameBody(Entry other) throws IOException {
+            if (length != other.length) {
+                return false;
+            }
+            if (body != null && other.body != null) {
+                return Arrays.equals(body, other.body);
+            }
+            try (InputStream a = stream(); InputStream b = other.stream()) {
+                byte[] x = new byte[8192];
+                byte[] y = new byte[8192];
+                int n;
+                while ((n = a.readNBytes(x, 0, x.length)) > 0) {
+                    if (b.readNBytes(y, 0, n) != n || !Arrays.equals(x, 0, n, y, 0, n)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+
+        Entry renewed(long now) {
+            return new Entry(url, body, file, bodyOffset, length, etag, lastModified, now);
+        }
+    }
+
+    private static final int DISK_MAGIC = 0x434D5243; // "CMRC"
+    private static final int DISK_VERSION = 1;
+    // Offset of fetchedAt in a disk entry, so a 304 can renew it in place
+    private static final int FETCHED_AT_OFFSET = 8;
+
+    private final Map<String, Policy> policies;
+    private final long memoryBudget;
+    private final Path dir;
+    private final long diskBudget;
+
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+
+    // Bumped by every invalidation; responses to requests sent before it are not stored
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+
+    public ResponseCache(Map<String, Policy> policies, long memoryBudget, Path dir, long diskBudget) {
+        this.policies = Map.copyOf(policies);
+        this.memoryBudget = memoryBudget;
+        this.dir = dir;
+        this.diskBudget = diskBudget;
+    }
+
+    /** Cache with the app's endpoint policies and the configured locations and sizes. */
+    public static ResponseCache createDefault() {
+        long mb = 1024L * 1024;
+        Path dir = Boolean.parseBoolean(System.getProperty("checkmates.cache.disk", "true")) ? defaultDirectory() : null;
+        return new ResponseCache(defaultPolicies(),
+                Long.getLong("checkmates.cache.memoryMb", 16) * mb,
+                dir,
+                Long.getLong("checkmates.cache.diskMb", 256) * mb);
+    }
+
+    static Map<String, Policy> defaultPolicies() {
+        Map<String, Policy> p = new HashMap<>();
+        p.put("getBooks.php", policy("getBooks", 300, true,
+                "addBook.php", "updateBook.php", "deleteBook.php", "checkoutBook.php", "checkinBook.php"));
+        p.put("getClasses.php", policy("getClasses", 600, true, "createClass.php"));
+        p.put("loadContacts.php", policy("loadContacts", 600, true, "addProfessorContact.php", "deleteChat.php"));
+        // Notes and attendance are read right after being changed, so never show them stale
+        p.put("getNote.php", policy("getNote", 300, false, "createNote.php", "deleteNote.php"));
+        p.put("getAttendanceSummary.php", policy("getAttendanceSummary", 30, false));
+        return p;
+    }
+
+    private static Policy policy(String name, long ttlSeconds, boolean staleWhileRevalidate, String... invalidatedBy) {
+        long ttl = Long.getLong("checkmates.cache.ttl." + name, ttlSeconds);
+        return new Policy(Duration.ofSeconds(ttl), staleWhileRevalidate, Set.of(invalidatedBy));
+    }
+
+    /** Per-user cache directory for the app; other local stores live next to the cache files. */
+    public static Path defaultDirectory() {
+        String configured = System.getProperty("checkmates.cache.dir");
+        if (configured != null) {
+            return Path.of(configured);
+        }
+        String home = System.getProperty("user.home");
+        String os = System.getProperty("os.name", "").toLowerCase();
+        if (os.contains("win")) {
+            String local = System.getenv("LOCALAPPDATA");
+            return Path.of(local != null ? local : home, "CheckMates", "cache");
+        }
+        if (os.contains("mac")) {
+            return Path.of(home, "Library", "Caches", "CheckMates");
+        }
+        String xdg = System.getenv("XDG_CACHE_HOME");
+        return Path.of(xdg != null ? xdg : home + "/.cache", "checkmates");
+    }
+
+    // --- Lookup ---
+
+    /** Policy for {@code url}'s endpoint, or {@code null} if it is not cached. */
+    public Policy policyFor(String url) {
+        return policies.get(endpoint(url));
+    }
+
+    public boolean isFresh(Entry entry, Policy policy) {
+        return System.currentTimeMillis() - entry.fetchedAt() < policy.ttl().toMillis();
+    }
+
+    /** Cached response for {@code url} from memory or disk, fresh or not; {@code null} if none. */
+    public Entry get(String url) {
+        synchronized (memory) {
+            Entry e = memory.get(url);
+            if (e != null) {
+                hits.incrementAndGet();
+                return e;
+            }
+        }
+        Entry e = readDisk(url);
+        if (e != null) {
+            hits.incrementAndGet();
+            remember(e);
+        }
+        return e;
+    }
+
+    // --- Updates ---
+
+    /** Take before sending a request and pass to {@link #store} with its response. */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Records a response to a (possibly conditional) GET and returns the entry
+     * to use: the renewed {@code cached} one on a 304, the new body on a 200.
+     * Other statuses, and responses that raced with an invalidation, are
+     * returned without being stored.
+     */
+    public Entry store(String url, Entry cached, int status, HttpHeaders headers, byte[] body, long sentAt) {
+        long now = System.currentTimeMillis();
+        boolean current = sentAt == generation.get();
+        if (status == 304 && cached != null) {
+            notModified.incrementAndGet();
+            Entry renewed = cached.renewed(now);
+            if (current) {
+                remember(renewed);
+                renewDisk(renewed);
+            }
+            return renewed;
+        }
+        downloads.incrementAndGet();
+        Entry fresh = new Entry(url, body,
+                headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null),
+                now);
+        if (status == 200 && current) {
+            remember(fresh);
+            writeDisk(fresh);
+        }
+        return fresh;
+    }
+
+    /** Drops every cached response of the endpoints a POST to {@code url} changes. */
+    public void afterWrite(String url) {
+        String written = endpoint(url);
+        for (Map.Entry<String, Policy> p : policies.entrySet()) {
+            if (p.getValue().invalidatedBy().contains(written)) {
+                invalidate(p.getKey());
+            }
+        }
+    }
+
+    /** Drops every cached response of {@code endpoint} (e.g. {@code "getBooks.php"}). */
+    public void invalidate(String endpoint) {
+        generation.incrementAndGet();
+        synchronized (memory) {
+            Iterator<Entry> it = memory.values().iterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                if (endpoint(e.url()).equals(endpoint)) {
+                    memoryBytes -= e.length();
+                    it.remove();
+                }
+            }
+        }
+        if (dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, endpoint + "-*.cache")) {
+            for (Path f : files) {
+                Files.deleteIfExists(f);
+            }
+        } catch (IOException ex) {
+            System.err.println("Response cache: could not invalidate " + endpoint + ": " + ex.getMessage());
+        }
+    }
+
+    public void clear() {
+        for (String endpoint : policies.keySet()) {
+            invalidate(endpoint);
+        }
+    }
+
+    // --- Memory tier ---
+
+    private void remember(Entry e) {
+        // One huge body (the full catalog) would evict everything else
+        if (e.body() == null || e.length() > memoryLimit()) {
+            return;
+        }
+        synchronized (memory) {
+            Entry old = memory.put(e.url(), e);
+            if (old != null) {
+                memoryBytes -= old.length();
+            }
+            memoryBytes += e.length();
+            Iterator<Entry> it = memory.values().iterator();
+            while (memoryBytes > memoryBudget && it.hasNext()) {
+                memoryBytes -= it.next().length();
+                it.remove();
+            }
+        }
+    }
+
+    // Largest body kept in memory
+    private long memoryLimit() {
+        return memoryBudget / 4;
+    }
+
+    // --- Disk tier ---
+
+    // Layout: magic, version, fetchedAt, url, etag, lastModified, body length, body
+    private void writeDisk(Entry e) {
+        if (dir == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(dir);
+            Path target = file(e.url());
+            Path tmp = Files.createTempFile(dir, "entry", ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                out.write(diskHeader(e.url(), e.etag(), e.lastModified(), e.fetchedAt(), e.body().length));
+                out.write(e.body());
+            }
+            // Readers see the old entry or the new one, never half of it
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            trimDisk();
+        } catch (IOException ex) {
+            System.err.println("Response cache: could not store " + e.url() + ": " + ex.getMessage());
+        }
+    }
+
+    private static byte[] diskHeader(String url, String etag, String lastModified, long fetchedAt, int length)
+            throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        out.writeInt(DISK_MAGIC);
+        out.writeInt(DISK_VERSION);
+        out.writeLong(fetchedAt);
+        out.writeUTF(url);
+        out.writeUTF(etag == null ? "" : etag);
+        out.writeUTF(lastModified == null ? "" : lastModified);
+        out.writeInt(length);
+        return header.toByteArray();
+    }
+
+    // Small bodies are read in; a large one stays in the file and is streamed from it
+    private Entry readDisk(String url) {
+        if (dir == null) {
+            return null;
+        }
+        Path f = file(url);
+        if (!Files.isRegularFile(f)) {
+            return null;
+        }
+        // Unbuffered, so the channel's position is where the body starts
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(Channels.newInputStream(ch))) {
+            if (in.readInt() != DISK_MAGIC || in.readInt() != DISK_VERSION) {
+                Files.deleteIfExists(f);
+                return null;
+            }
+            long fetchedAt = in.readLong();
+            String storedUrl = in.readUTF();
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+            int length = in.readInt();
+            long bodyOffset = ch.position();
+            if (length < 0 || bodyOffset + length != ch.size()) {
+                throw new IOException("truncated");
+            }
+            if (!storedUrl.equals(url)) {
+                return null;
+            }
+            byte[] body = length <= memoryLimit() ? in.readNBytes(length) : null;
+            return new Entry(url, body, body == null ? f : null, bodyOffset, length, etag.isEmpty() ? null : etag,
+                    lastModified.isEmpty() ? null : lastModified, fetchedAt);
+        } catch (IOException ex) {
+            System.err.println("Response cache: dropping unreadable " + f + ": " + ex.getMessage());
+            try {
+                Files.deleteIfExists(f);
+            } catch (IOException ignored) {
+                // Next write replaces it anyway
+            }
+            return null;
+        }
+    }
+
+    // Rewrites just the timestamp rather than the whole body
+    private void renewDisk(Entry e) {
+        if (dir == null) {
+            return;
+        }
+        Path f = file(e.url());
+        if (!Files.isRegularFile(f)) {
+            writeDisk(e);
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(Long.BYTES).putLong(0, e.fetchedAt()), FETCHED_AT_OFFSET);
+        } catch (IOException ex) {
+            System.err.println("Response cache: could not renew " + e.url() + ": " + ex.getMessage());
+        }
+    }
+
+    private void trimDisk() throws IOException {
+        List<Path> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.cache")) {
+            for (Path f : ds) {
+                files.add(f);
+                total += Files.size(f);
+            }
+        }
+        if (total <= diskBudget) {
+            return;
+        }
+        Map<Path, Long> modified = new HashMap<>();
+        for (Path f : files) {
+            modified.put(f, Files.getLastModifiedTime(f).toMillis());
+        }
+        files.sort((a, b) -> Long.compare(modified.get(a), modified.get(b)));
+        for (Path f : files) {
+            if (total <= diskBudget) {
+                break;
+            }
+            total -= Files.size(f);
+            Files.deleteIfExists(f);
+        }
+    }
+
+    // Endpoint name first so invalidate() can find an endpoint's files by pattern
+    private Path file(String url) {
+        return dir.resolve(endpoint(url) + "-" + sha1(url) + ".cache");
+    }
+
+    // --- Helpers ---
+
+    static String endpoint(String url) {
+        String path = URI.create(url).getPath();
+        return path == null ? "" : path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String sha1(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Wraps a 200 response body so that, once it has been read to the end, it
+     * is stored as {@code url}'s entry. The bytes go to the cache file as they
+     * are read (and are kept in memory only while small enough for the memory
+     * tier). Closing it well before the end stores nothing.
+     */
+    InputStream teeInto(String url, HttpHeaders headers, InputStream body, long sentAt) {
+        Sink sink = new Sink(url, headers, sentAt);
+        return new InputStream() {
+            private boolean done;
+
+            @Override
+            public int read() throws IOException {
+                int b = body.read();
+                if (b < 0) {
+                    finish();
+                } else {
+                    sink.write(new byte[]{(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buf, int off, int len) throws IOException {
+                int n = body.read(buf, off, len);
+                if (n < 0) {
+                    finish();
+                } else {
+                    sink.write(buf, off, n);
+                }
+                return n;
+            }
+
+            // Parsers stop at the closing bracket; pick up a short remainder so
+            // the body still gets stored, but don't finish a download nobody wants
+            @Override
+            public void close() throws IOException {
+                try {
+                    if (!done) {
+                        byte[] rest = body.readNBytes(8192);
+                        sink.write(rest, 0, rest.length);
+                        if (body.read() < 0) {
+                            finish();
+                        }
+                    }
+                } finally {
+                    if (!done) {
+                        done = true;
+                        sink.abandon();
+                    }
+                    body.close();
+                }
+            }
+
+            private void finish() {
+                if (!done) {
+                    done = true;
+                    sink.finish();
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads a whole 200 response body into the cache the same way, returning
+     * the stored entry, or null if it wasn't stored (it raced with an
+     * invalidation, or the disk failed with a body too big for memory).
+     */
+    Entry storeStream(String url, HttpHeaders headers, InputStream body, long sentAt) throws IOException {
+        Sink sink = new Sink(url, headers, sentAt);
+        try (body) {
+            byte[] buf = new byte[1 << 16];
+            int n;
+            while ((n = body.read(buf)) > 0) {
+                sink.write(buf, 0, n);
+            }
+        } catch (IOException ex) {
+            sink.abandon();
+            throw ex;
+        }
+        return sink.finish();
+    }
+
+    // A body on its way into the cache
+    private final class Sink {
+
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final long sentAt;
+        private ByteArrayOutputStream small = new ByteArrayOutputStream(); // null once too big for memory
+        private Path tmp;
+        private OutputStream file;
+        private int headerLength;
+        private long length;
+
+        Sink(String url, HttpHeaders headers, long sentAt) {
+            this.url = url;
+            this.etag = headers.firstValue("ETag").orElse(null);
+            this.lastModified = headers.firstValue("Last-Modified").orElse(null);
+            this.sentAt = sentAt;
+            if (dir == null) {
+                return;
+            }
+            try {
+                Files.createDirectories(dir);
+                tmp = Files.createTempFile(dir, "entry", ".tmp");
+                file = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16);
+                byte[] header = diskHeader(url, etag, lastModified, 0, 0); // both filled in by finish()
+                headerLength = header.length;
+                file.write(header);
+            } catch (IOException ex) {
+                diskFailed(ex);
+            }
+        }
+
+        void write(byte[] buf, int off, int len) {
+            length += len;
+            if (small != null) {
+                if (length > memoryLimit()) {
+                    small = null;
+                } else {
+                    small.write(buf, off, len);
+                }
+            }
+            if (file != null) {
+                try {
+                    file.write(buf, off, len);
+                } catch (IOException ex) {
+                    diskFailed(ex);
+                }
+            }
+        }
+
+        Entry finish() {
+            long now = System.currentTimeMillis();
+            downloads.incrementAndGet();
+            boolean current = sentAt == generation.get();
+            if (!current) {
+                abandon(); // answers a request sent before the data changed
+                return null;
+            }
+            byte[] body = small == null ? null : small.toByteArray();
+            Path stored = null;
+            if (file != null && length <= Integer.MAX_VALUE) {
+                try {
+                    file.close();
+                    file = null;
+                    try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                        ch.write(ByteBuffer.allocate(Long.BYTES).putLong(0, now), FETCHED_AT_OFFSET);
+                        ch.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, (int) length), headerLength - Integer.BYTES);
+                    }
+                    stored = file(url);
+                    // Readers see the old entry or the new one, never half of it
+                    Files.move(tmp, stored, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    tmp = null;
+                    trimDisk();
+                } catch (IOException ex) {
+                    diskFailed(ex);
+                    stored = null;
+                }
+            }
+            abandon();
+            if (body == null && stored == null) {
+                return null;
+            }
+            Entry e = new Entry(url, body, body == null ? stored : null, headerLength, length, etag, lastModified, now);
+            remember(e);
+            return e;
+        }
+
+        // Drops the temporary file unless finish() moved it into place
+        void abandon() {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ignored) {
+                    // deleted below
+                }
+                file = null;
+            }
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // Still open elsewhere (Windows); harmless, it is never read
+                }
+                tmp = null;
+            }
+        }
+
+        private void diskFailed(IOException ex) {
+            System.err.println("Response cache: could not store " + url + ": " + ex.getMessage());
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ignored) {
+                    // deleted by abandon()
+                }
+                file = null;
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    public long getDownloads() {
+        return downloads.get();
+    }
+
+    @Override
+    public String toString() {
+        synchronized (memory) {
+            return "ResponseCache[" + memory.size() + " in memory (" + memoryBytes / 1024 + " KB), hits=" + hits
+                    + ", 304s=" + notModified + ", downloads=" + downloads + ", dir=" + dir + "]";
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.checkmates.net.push;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.checkmates.data.MessageRepository;
+import com.checkmates.data.MessageRepository.Message;
+import com.checkmates.net.BackendClient;
+
+/**
+ * One Server-Sent Events connection per signed-in librarian, carrying new
+ * messages for all of their conversations.
+ *
+ * The stream is {@code messageStream.php?user=ID} under
+ * {@code checkmates.push.url}. Every event is one message as JSON
+ * ({@code id, sender_id, receiver_id, from, plaintext, time}) with the
+ * message id as the event id, so a reconnect sends {@code Last-Event-ID}
+ * and the server replays what was missed. A dropped or silent connection
+ * (no bytes, keep-alives included, for {@link #STALL_MS}) is retried after
+ * 1 s, or the delay the server last sent in a {@code retry:} line, doubling
+ * up to a minute, with jitter so a server restart isn't met by every client
+ * in the same second.
+ *
+ * A 400 to a resumed connection means the server can't replay from that
+ * id (its numbering was reset, say). The id is dropped and the channel
+ * reconnects from the present at once; the windows' catch-up poll, which
+ * runs every time the channel goes live, fetches whatever came in between.
+ *
+ * A server without the endpoint (404, 405, 501, a 400 without
+ * {@code Last-Event-ID}, or an answer that isn't an event stream) makes the channel {@link State#UNAVAILABLE}; windows then
+ * keep polling as before, and push is tried again after
+ * {@link #UNAVAILABLE_RETRY_MS}. {@code -Dcheckmates.push=off} never
+ * connects.
+ *
+ * Windows {@link #acquire} the channel for their user and {@link #release}
+ * it when they close; the connection lives while anyone holds it.
+ */
+public final class MessagePush {
+
+    public enum State { CONNECTING, LIVE, UNAVAILABLE, CLOSED }
+
+    /** Called on the channel's thread; hand the work to the EDT. */
+    public interface Listener {
+        /** {@code other} is the other party of the message's conversation. */
+        void received(String other, Message message);
+
+        default void stateChanged(State state) {
+        }
+    }
+
+    public static final String STREAM_URL = System.getProperty("checkmates.push.url",
+            "https://cm8tes.com/messageStream.php");
+    public static final boolean ENABLED = !"off".equals(System.getProperty("checkmates.push"));
+    public static final long STALL_MS = Long.getLong("checkmates.push.stallMs", 45_000);
+    public static final long UNAVAILABLE_RETRY_MS = Long.getLong("checkmates.push.unavailableRetryMs", 300_000);
+    private static final long MIN_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+    private static final long MIN_SERVER_RETRY_MS = 250; // a lower retry: is raised to this
+
+    private static final Map<String, MessagePush> OPEN = new HashMap<>();
+
+    private final HttpClient http;
+    private final String streamUrl;
+    private final String user;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    private volatile State state = State.CONNECTING;
+    private volatile String lastEventId;
+    private volatile long lastActivity;
+    private volatile InputStream current;
+    private volatile boolean closed;
+    private volatile boolean heard; // on the current connection
+    private volatile long baseBackoff = MIN_BACKOFF_MS; // the server's retry: once it sends one
+    private Thread thread;
+    private int holders; // guarded by OPEN
+
+    public MessagePush(HttpClient http, String streamUrl, String user) {
+        this.http = http;
+        this.streamUrl = streamUrl;
+        this.user = user;
+    }
+
+    /**
+     * The shared channel for {@code user}, started on first use, or null when
+     * push is switched off. Pair with {@link #release}.
+     */
+    public static MessagePush acquire(String user) {
+        if (!ENABLED) {
+            return null;
+        }
+        synchronized (OPEN) {
+            MessagePush push = OPEN.get(user);
+            if (push == null) {
+                push = new MessagePush(BackendClient.getInstance().getHttpClient(), STREAM_URL, user);
+                OPEN.put(user, push);
+                push.start();
+            }
+            push.holders++;
+            return push;
+        }
+    }
+
+    /** Drops a hold from {@link #acquire}; the last one closes the connection. */
+    public void release() {
+        synchronized (OPEN) {
+            if (--holders > 0) {
+                return;
+            }
+            OPEN.remove(user, this);
+        }
+        close();
+    }
+
+    public void addListener(Listener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /** The id of the newest message received, sent back on reconnect. */
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    public long getEventCount() {
+        return events.get();
+    }
+
+    public long getReconnectCount() {
+        return reconnects.get();
+    }
+
+    public synchronized void start() {
+        if (thread == null && !closed) {
+            thread = Thread.ofVirtual().name("message-push-" + user).start(this::run);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t != null) {
+            t.interrupt();
+        }
+        closeStream();
+        setState(State.CLOSED);
+    }
+
+    private void run() {
+        long backoff = MIN_BACKOFF_MS;
+        while (!closed) {
+            long wait;
+            heard = false;
+            try {
+                stream();
+                wait = backoff;
+            } catch (Unavailable ex) {
+                setState(State.UNAVAILABLE);
+                wait = UNAVAILABLE_RETRY_MS;
+            } catch (ResumeRejected ex) {
+                System.err.println(ex.getMessage());
+                reconnects.incrementAndGet();
+                continue; // nothing to wait for; the next request is a different one
+            } catch (IOException ex) {
+                wait = backoff;
+            } catch (InterruptedException ex) {
+                break;
+            }
+            if (closed) {
+                break;
+            }
+            // A connection the server sent something on starts the backoff over;
+            // one that is accepted and dropped at once doesn't
+            long base = baseBackoff;
+            backoff = heard ? base : Math.min(MAX_BACKOFF_MS, Math.max(base, backoff * 2));
+            if (heard) {
+                wait = base;
+            }
+            if (state == State.LIVE) {
+                setState(State.CONNECTING);
+            }
+            reconnects.incrementAndGet();
+            try {
+                // Up to a fifth either way
+                Thread.sleep(wait + ThreadLocalRandom.current().nextLong(-wait / 5, wait / 5 + 1));
+            } catch (InterruptedException ex) {
+                break;
+            }
+        }
+        setState(State.CLOSED);
+    }
+
+    /** One connection, until it ends. */
+    private void stream() throws IOException, InterruptedException {
+        String url = streamUrl + (streamUrl.contains("?") ? "&" : "?") + "user=" + BackendClient.encode(user);
+        HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(STALL_MS)) // until the headers; the watchdog covers the body
+                .header("Accept", "text/event-stream")
+                .header("Cache-Control", "no-cache")
+                .GET();
+        String resumeFrom = lastEventId;
+        if (resumeFrom != null) {
+            req.header("Last-Event-ID", resumeFrom);
+        }
+        HttpResponse<InputStream> resp = http.send(req.build(), HttpResponse.BodyHandlers.ofInputStream());
+        InputStream body = resp.body();
+        String type = resp.headers().firstValue("Content-Type").orElse("");
+        int code = resp.statusCode();
+        if (code == 400 && resumeFrom != null) {
+            body.close();
+            lastEventId = null;
+            throw new ResumeRejected(resumeFrom);
+        }
+        if (code == 400 || code == 404 || code == 405 || code == 501
+                || (code == 200 && !type.startsWith("text/event-stream"))) {
+            body.close();
+            throw new Unavailable();
+        }
+        if (code != 200) {
+            body.close();
+            throw new IOException("HTTP " + code);
+        }
+
+        current = body;
+        lastActivity = System.currentTimeMillis();
+        Thread watchdog = Thread.ofVirtual().name("message-push-watchdog-" + user).start(() -> watch(body));
+        SseReader reader = new SseReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        try {
+            Runnable touch = () -> {
+                lastActivity = System.currentTimeMillis();
+                heard = true;
+            };
+            setState(State.LIVE);
+            SseReader.Event event;
+            while (!closed && (event = reader.next(touch)) != null) {
+                if ("message".equals(event.type())) {
+                    dispatch(event);
+                }
+            }
+        } finally {
+            watchdog.interrupt();
+            current = null;
+            body.close();
+            long retry = reader.getRetryMs();
+            if (retry >= 0) {
+                baseBackoff = Math.max(MIN_SERVER_RETRY_MS, Math.min(MAX_BACKOFF_MS, retry));
+            }
+        }
+    }
+
+    // Closes a stream that went quiet; a read on a dead TCP connection can block forever
+    private void watch(InputStream body) {
+        try {
+            while (current == body) {
+                long quiet = System.currentTimeMillis() - lastActivity;
+                if (quiet >= STALL_MS) {
+                    closeStream();
+                    return;
+                }
+                Thread.sleep(STALL_MS - quiet);
+            }
+        } catch (InterruptedException ignored) {
+            // Stream ended first
+        }
+    }
+
+    private void dispatch(SseReader.Event event) {
+        Message message;
+        String other;
+        try {
+            JSONObject m = new JSONObject(event.data());
+            String id = m.has("id") ? m.optString("id") : event.id();
+            message = new Message(id, m.getString("from"), m.getString("plaintext"), m.getString("time"));
+            String sender = m.optString("sender_id");
+            other = user.equals(sender) ? m.optString("receiver_id") : sender;
+        } catch (JSONException ex) {
+            System.err.println("Skipping malformed push event: " + ex.getMessage());
+            return;
+        }
+        String id = event.id() != null ? event.id() : message.id();
+        if (id != null && (lastEventId == null || MessageRepository.compareIds(id, lastEventId) > 0)) {
+            lastEventId = id;
+        }
+        events.incrementAndGet();
+        for (Listener l : listeners) {
+            try {
+                l.received(other, message);
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void closeStream() {
+        InputStream in = current;
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+        }
+    }
+
+    private void setState(State next) {
+        State previous;
+        synchronized (this) {
+            previous = state;
+            if (previous == next || previous == State.CLOSED) {
+                return;
+            }
+            state = next;
+        }
+        for (Listener l : listeners) {
+            try {
+                l.stateChanged(next);
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /** The server refused to resume from {@code Last-Event-ID}. */
+    private static final class ResumeRejected extends IOException {
+        ResumeRejected(String id) {
+            super("Push: server can't resume after message " + id + "; reconnecting from now");
+        }
+    }
+
+    /** The server has no push endpoint. */
+    private static final class Unavailable extends IOException {
+        Unavailable() {
+            super("Push not supported by the server");
+        }
+    }
+}
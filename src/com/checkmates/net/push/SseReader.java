@@ -0,0 +1,83 @@
+package com.checkmates.net.push;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a Server-Sent Events stream (the {@code text/event-stream} format):
+ * {@code id:}, {@code event:}, {@code data:} and {@code retry:} lines, events
+ * separated by a blank line, comment lines starting with a colon.
+ */
+public final class SseReader {
+
+    /** One event; {@code id} is null when the event didn't set one. */
+    public record Event(String id, String type, String data) {
+    }
+
+    private final BufferedReader in;
+    private long retryMs = -1;
+
+    public SseReader(Reader in) {
+        this.in = in instanceof BufferedReader b ? b : new BufferedReader(in);
+    }
+
+    /**
+     * The next event, or null at the end of the stream. Comment lines (the
+     * server's keep-alives) are skipped but still count as traffic for
+     * {@code onActivity}, which may be null.
+     */
+    public Event next(Runnable onActivity) throws IOException {
+        String id = null;
+        String type = "message";
+        StringBuilder data = null;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (onActivity != null) {
+                onActivity.run();
+            }
+            if (line.isEmpty()) {
+                if (data != null) {
+                    return new Event(id, type, data.toString());
+                }
+                id = null; // an event without data is dropped
+                type = "message";
+                continue;
+            }
+            if (line.charAt(0) == ':') {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            switch (field) {
+                case "id" -> id = value;
+                case "event" -> type = value;
+                case "data" -> {
+                    if (data == null) {
+                        data = new StringBuilder(value);
+                    } else {
+                        data.append('\n').append(value);
+                    }
+                }
+                case "retry" -> {
+                    try {
+                        retryMs = Long.parseLong(value);
+                    } catch (NumberFormatException ignored) {
+                        // Not a number: ignored, as the format says
+                    }
+                }
+                default -> { }
+            }
+        }
+        return null;
+    }
+
+    /** The reconnect delay the server asked for, or -1. */
+    public long getRetryMs() {
+        return retryMs;
+    }
+}
@@ -0,0 +1,439 @@
+package com.checkmates.net.stub;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the cm8tes.com PHP endpoints, for trying the client
+ * against a large generated catalog without touching the real database.
+ *
+ * Run {@link #main} and start the app with
+ * {@code -Dcheckmates.books.url=http://localhost:8089/CS4347_Project_Folder/getBooks.php}.
+ *
+ * Responses carry an ETag and Last-Modified and honour conditional requests
+ * with a 304, like a caching-aware deployment would; {@link #updateBook}
+ * changes the catalog so the next conditional request gets a full body.
+ *
+ * getLoans.php supports delta sync: every loan carries the sequence number
+ * of its last change, {@code ?since=N} returns the loans changed after N,
+ * and a {@code since} older than the retained change log
+ * ({@link #expireChangesBefore}) is answered with 410 and
+ * {@code "code": "watermark_expired"}.
+ *
+ * checkoutBook.php and checkinBook.php remember each {@code request_id} they
+ * applied and answer a repeat with the original confirmation.
+ */
+public class StubBackendServer {
+
+    public static final String FOLDER = "/CS4347_Project_Folder";
+
+    private static final String[] WORDS = {
+        "Introduction", "Database", "Systems", "Modern", "Algorithms", "Theory", "Practice",
+        "Advanced", "Networks", "Design", "Principles", "Java", "Data", "Structures", "Compilers",
+        "Operating", "Security", "Learning", "History", "Art"
+    };
+    private static final String[] AUTHORS = {
+        "Abraham Silberschatz", "Thomas H. Cormen", "Andrew S. Tanenbaum", "Donald E. Knuth",
+        "Ramez Elmasri", "Shamkant B. Navathe", "Robert Sedgewick", "Kevin Wayne",
+        "Alfred V. Aho", "Jeffrey D. Ullman", "Bruce Schneier", "Barbara Liskov"
+    };
+
+    private final HttpServer server;
+    private final List<String[]> books;
+    // Isbn, Card_id, Date_out, Due_date, Date_in, lib_id_checkout, lib_id_return; seq of last change
+    private final List<String[]> loans = new ArrayList<>();
+    private final List<Long> loanSeq = new ArrayList<>();
+    private long seq;
+    private long oldestRetained;
+    private volatile Instant lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+    private final Map<String, String> completedRequests = new HashMap<>();
+
+    public StubBackendServer(int port, int bookCount) throws IOException {
+        this(port, bookCount, bookCount / 2);
+    }
+
+    public StubBackendServer(int port, int bookCount, int loanCount) throws IOException {
+        this.books = generateBooks(bookCount);
+        for (String[] loan : generateLoans(books, loanCount)) {
+            loans.add(loan);
+            loanSeq.add(0L);
+        }
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(FOLDER + "/getBooks.php", this::getBooks);
+        server.createContext(FOLDER + "/getLoans.php", this::getLoans);
+        server.createContext(FOLDER + "/checkoutBook.php", this::checkoutBook);
+        server.createContext(FOLDER + "/checkinBook.php", this::checkinBook);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + FOLDER;
+    }
+
+    public List<String[]> getBooks() {
+        return books;
+    }
+
+    /** Replaces one catalog row, as an edit through the real backend would. */
+    public synchronized void updateBook(int index, String[] book) {
+        books.set(index, book);
+        lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /** Records a new loan and returns its index. */
+    public synchronized int checkOut(String isbn, String cardId, String dateOut, String dueDate, String libId) {
+        loans.add(new String[]{isbn, cardId, dateOut, dueDate, null, libId, null});
+        loanSeq.add(++seq);
+        return loans.size() - 1;
+    }
+
+    public synchronized void checkIn(int loan, String dateIn, String libId) {
+        String[] l = loans.get(loan).clone();
+        l[4] = dateIn;
+        l[6] = libId;
+        loans.set(loan, l);
+        loanSeq.set(loan, ++seq);
+    }
+
+    /** Forgets the change log up to the current sequence, as a server pruning it would. */
+    public synchronized void expireChangesBefore(long sequence) {
+        oldestRetained = sequence;
+    }
+
+    public synchronized long getChangeSequence() {
+        return seq;
+    }
+
+    public synchronized int getLoanCount() {
+        return loans.size();
+    }
+
+    /** Number of 304 responses sent so far. */
+    public int getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    // --- Endpoints ---
+
+    // Without offset/limit this returns the whole catalog like the real
+    // getBooks.php; with them it returns one page plus the matching total.
+    private void getBooks(HttpExchange ex) throws IOException {
+        Map<String, String> params = query(ex);
+        String q = params.getOrDefault("q", "").toLowerCase(Locale.ROOT);
+
+        List<String[]> matches = books;
+        if (!q.isEmpty()) {
+            matches = new ArrayList<>();
+            for (String[] b : books) {
+                if (b[0].contains(q) || b[1].toLowerCase(Locale.ROOT).contains(q)
+                        || b[2].toLowerCase(Locale.ROOT).contains(q)) {
+                    matches.add(b);
+                }
+            }
+        }
+
+        int offset = 0;
+        int limit = matches.size();
+        JSONObject resp = new JSONObject().put("status", "success");
+        if (params.containsKey("offset") || params.containsKey("limit")) {
+            offset = Math.max(0, Integer.parseInt(params.getOrDefault("offset", "0")));
+            limit = Math.max(0, Integer.parseInt(params.getOrDefault("limit", "100")));
+            resp.put("total", matches.size());
+        }
+
+        JSONArray arr = new JSONArray();
+        for (int i = offset; i < Math.min(matches.size(), offset + limit); i++) {
+            arr.put(bookJson(matches.get(i)));
+        }
+        resp.put("books", arr);
+        sendCacheable(ex, resp.toString());
+    }
+
+    private void getLoans(HttpExchange ex) throws IOException {
+        Map<String, String> params = query(ex);
+        JSONObject resp = new JSONObject();
+        JSONArray arr = new JSONArray();
+        synchronized (this) {
+            long since = -1;
+            if (params.containsKey("since")) {
+                try {
+                    since = Long.parseLong(params.get("since"));
+                } catch (NumberFormatException e) {
+                    since = Long.MIN_VALUE;
+                }
+                if (since < oldestRetained) {
+                    resp.put("status", "error").put("code", "watermark_expired")
+                            .put("message", "Changes before " + oldestRetained + " are no longer available");
+                    send(ex, 410, resp.toString());
+                    return;
+                }
+            }
+            for (int i = 0; i < loans.size(); i++) {
+                if (loanSeq.get(i) > since) {
+                    arr.put(loanJson(loans.get(i)));
+                }
+            }
+            resp.put("status", "success").put("watermark", String.valueOf(seq));
+        }
+        resp.put("loans", arr);
+        send(ex, 200, resp.toString());
+    }
+
+    private void checkoutBook(HttpExchange ex) throws IOException {
+        Map<String, String> params = query(ex);
+        String isbn = params.getOrDefault("isbn", "");
+        String response;
+        synchronized (this) {
+            response = completedRequests.get(params.get("request_id"));
+            if (response == null) {
+                int book = findBook(isbn);
+                if (book < 0) {
+                    response = error("No book with ISBN " + isbn + ".");
+                } else if ("OUT".equals(books.get(book)[3])) {
+                    response = error("Book " + isbn + " is already checked out.");
+                } else {
+                    LocalDate today = LocalDate.now();
+                    checkOut(isbn, params.getOrDefault("Card_id", ""), today.toString(),
+                            today.plusDays(14).toString(), params.getOrDefault("lib_id_checkout", ""));
+                    setAvailability(book, "OUT");
+                    response = complete(params.get("request_id"), "Book checked out successfully.");
+                }
+            }
+        }
+        send(ex, 200, response);
+    }
+
+    private void checkinBook(HttpExchange ex) throws IOException {
+        Map<String, String> params = query(ex);
+        String isbn = params.getOrDefault("isbn", "");
+        String response;
+        synchronized (this) {
+            response = completedRequests.get(params.get("request_id"));
+            if (response == null) {
+                int loan = loans.size() - 1;
+                while (loan >= 0 && !(loans.get(loan)[0].equals(isbn) && loans.get(loan)[4] == null)) {
+                    loan--;
+                }
+                if (loan < 0) {
+                    response = error("Book " + isbn + " is not checked out.");
+                } else {
+                    checkIn(loan, LocalDate.now().toString(), params.getOrDefault("lib_id_return", ""));
+                    int book = findBook(isbn);
+                    if (book >= 0) {
+                        setAvailability(book, "IN");
+                    }
+                    response = complete(params.get("request_id"), "Book checked in successfully.");
+                }
+            }
+        }
+        send(ex, 200, response);
+    }
+
+    // --- Helpers ---
+
+    // Caller holds the monitor
+    private int findBook(String isbn) {
+        for (int i = 0; i < books.size(); i++) {
+            if (books.get(i)[0].equals(isbn)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Caller holds the monitor
+    private void setAvailability(int book, String availability) {
+        String[] b = books.get(book).clone();
+        b[3] = availability;
+        updateBook(book, b);
+    }
+
+    // Caller holds the monitor; refusals aren't remembered, since nothing changed
+    private String complete(String requestId, String message) {
+        String response = new JSONObject().put("status", "success").put("message", message).toString();
+        if (requestId != null) {
+            completedRequests.put(requestId, response);
+        }
+        return response;
+    }
+
+    private static String error(String message) {
+        return new JSONObject().put("status", "error").put("message", message).toString();
+    }
+
+    static JSONObject loanJson(String[] l) {
+        return new JSONObject()
+                .put("Isbn", l[0])
+                .put("Card_id", l[1])
+                .put("Date_out", l[2])
+                .put("Due_date", l[3])
+                .put("Date_in", l[4] == null ? JSONObject.NULL : l[4])
+                .put("lib_id_checkout", l[5])
+                .put("lib_id_return", l[6] == null ? JSONObject.NULL : l[6]);
+    }
+
+    static JSONObject bookJson(String[] b) {
+        return new JSONObject()
+                .put("Isbn", b[0])
+                .put("Title", b[1])
+                .put("Authors", b[2])
+                .put("Availability", b[3]);
+    }
+
+    static Map<String, String> query(HttpExchange ex) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseInto(params, ex.getRequestURI().getRawQuery());
+        if ("POST".equalsIgnoreCase(ex.getRequestMethod())) {
+            parseInto(params, new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void parseInto(Map<String, String> params, String raw) {
+        if (raw == null || raw.isEmpty()) {
+            return;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            String v = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+        }
+    }
+
+    static void send(HttpExchange ex, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        ex.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    // 304 if the client's ETag (or, without one, its date) still matches
+    private void sendCacheable(HttpExchange ex, String body) throws IOException {
+        String etag = "\"" + sha1(body) + "\"";
+        Instant modified = lastModified;
+        ex.getResponseHeaders().set("ETag", etag);
+        ex.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(modified.atZone(ZoneOffset.UTC)));
+
+        String ifNoneMatch = ex.getRequestHeaders().getFirst("If-None-Match");
+        String ifModifiedSince = ex.getRequestHeaders().getFirst("If-Modified-Since");
+        boolean notModified;
+        if (ifNoneMatch != null) {
+            notModified = ifNoneMatch.equals(etag) || ifNoneMatch.equals("*");
+        } else {
+            notModified = ifModifiedSince != null && !modified.isAfter(parseHttpDate(ifModifiedSince));
+        }
+        if (notModified) {
+            notModifiedCount.incrementAndGet();
+            ex.sendResponseHeaders(304, -1);
+            ex.close();
+            return;
+        }
+        send(ex, 200, body);
+    }
+
+    private static Instant parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return Instant.MIN;
+        }
+    }
+
+    private static String sha1(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Synthetic catalog rows (ISBN, title, authors, availability), the same for the same count. */
+    public static List<String[]> generateBooks(int count) {
+        List<String[]> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String isbn = isbn13(978_000_000_000L + i * 7L);
+            String title = WORDS[i % WORDS.length] + " " + WORDS[(i / 7) % WORDS.length]
+                    + " " + WORDS[(i / 131) % WORDS.length] + " Vol. " + (i % 97 + 1);
+            String authors = AUTHORS[i % AUTHORS.length]
+                    + (i % 3 == 0 ? ", " + AUTHORS[(i / 3 + 5) % AUTHORS.length] : "");
+            list.add(new String[]{isbn, title, authors, i % 5 == 0 ? "OUT" : "IN"});
+        }
+        return list;
+    }
+
+    /** Synthetic loans of {@code books}, in the stub's raw seven-field shape. */
+    public static List<String[]> generateLoans(List<String[]> books, int count) {
+        List<String[]> list = new ArrayList<>(count);
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < count && !books.isEmpty(); i++) {
+            LocalDate out = start.plusDays(i % 730);
+            boolean returned = i % 3 != 0;
+            list.add(new String[]{
+                    books.get((i * 31) % books.size())[0],
+                    "ID" + String.format("%06d", i % 20_000),
+                    out.toString(),
+                    out.plusDays(14).toString(),
+                    returned ? out.plusDays(i % 20).toString() : null,
+                    "L" + (i % 12),
+                    returned ? "L" + ((i + 5) % 12) : null});
+        }
+        return list;
+    }
+
+    // 12-digit prefix plus EAN-13 check digit
+    static String isbn13(long prefix12) {
+        String digits = String.format("%012d", prefix12);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int d = digits.charAt(i) - '0';
+            sum += (i % 2 == 0) ? d : d * 3;
+        }
+        return digits + ((10 - sum % 10) % 10);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        StubBackendServer stub = new StubBackendServer(port, count);
+        stub.start();
+        System.out.println("Stub backend with " + count + " books at " + stub.baseUrl());
+    }
+}
@@ -0,0 +1,294 @@
+package com.checkmates.net.stub;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.checkmates.util.AESUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the chat endpoints, for trying (and load-testing) the
+ * push channel and history paging without the real server.
+ *
+ * Run {@link #main} and start the app with
+ * {@code -Dcheckmates.messages.url=http://localhost:8090/} and
+ * {@code -Dcheckmates.push.url=http://localhost:8090/messageStream.php}.
+ *
+ * postMessages.php takes the encrypted form the client sends and
+ * getMessages.php answers with ids and honours {@code after_id}, like the
+ * real scripts, as well as the paging parameters {@code before_id} and
+ * {@code limit}: the newest {@code limit} messages before the id, or the
+ * oldest ones after {@code after_id}.
+ *
+ * messageStream.php is the Server-Sent Events stream: it first replays the
+ * user's messages after {@code Last-Event-ID}, then sends each new one as it
+ * is posted, with a keep-alive comment every {@code heartbeatMs}.
+ * {@link #dropStreams} cuts every open stream (a server restart, as the
+ * clients see it) and {@link #setPushEnabled} answers 404, for exercising
+ * the client's reconnect and polling fallback.
+ */
+public class StubMessageServer {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** One stored message. */
+    private record Stored(long id, String sender, String receiver, String text, String time) {
+        JSONObject toJson() {
+            return new JSONObject()
+                    .put("id", String.valueOf(id))
+                    .put("sender_id", sender)
+                    .put("receiver_id", receiver)
+                    .put("from", sender) // the real script sends the sender's name; there are no names here
+                    .put("plaintext", text)
+                    .put("time", time);
+        }
+    }
+
+    private final HttpServer server;
+    private final long heartbeatMs;
+    private final List<Stored> messages = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock(); // not synchronized: streams wait on virtual threads
+    private final Condition posted = lock.newCondition();
+    private final Set<OutputStream> streams = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger streamsOpened = new AtomicInteger();
+    private final AtomicInteger pollRequests = new AtomicInteger();
+    private volatile boolean pushEnabled = true;
+
+    public StubMessageServer(int port, long heartbeatMs) throws IOException {
+        this.heartbeatMs = heartbeatMs;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/postMessages.php", this::postMessages);
+        server.createContext("/getMessages.php", this::getMessages);
+        server.createContext("/messageStream.php", this::messageStream);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        dropStreams();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    /** Stores a message as postMessages.php would, returning its id. */
+    public long post(String sender, String receiver, String text) {
+        lock.lock();
+        try {
+            long id = messages.size() + 1;
+            messages.add(new Stored(id, sender, receiver, text, LocalDateTime.now().format(TIME)));
+            posted.signalAll();
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Cuts every open stream; clients should reconnect and resume. */
+    public void dropStreams() {
+        for (OutputStream out : streams) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+        }
+        lock.lock();
+        try {
+            posted.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** While false, messageStream.php answers 404 like a server without push. */
+    public void setPushEnabled(boolean enabled) {
+        pushEnabled = enabled;
+        if (!enabled) {
+            dropStreams();
+        }
+    }
+
+    public int getOpenStreams() {
+        return streams.size();
+    }
+
+    public int getStreamsOpened() {
+        return streamsOpened.get();
+    }
+
+    public int getPollRequests() {
+        return pollRequests.get();
+    }
+
+    // --- Handlers ---
+
+    private void postMessages(HttpExchange ex) throws IOException {
+        Map<String, String> p = StubBackendServer.query(ex);
+        String text;
+        try {
+            text = AESUtil.decrypt(p.get("cipher"), p.get("iv"));
+        } catch (Exception e) {
+            StubBackendServer.send(ex, 400, new JSONObject().put("status", "error")
+                    .put("message", "Bad cipher").toString());
+            return;
+        }
+        long id = post(p.get("sender_id"), p.get("receiver_id"), text);
+        StubBackendServer.send(ex, 200, new JSONObject().put("status", "success")
+                .put("id", String.valueOf(id)).toString());
+    }
+
+    private void getMessages(HttpExchange ex) throws IOException {
+        pollRequests.incrementAndGet();
+        Map<String, String> p = StubBackendServer.query(ex);
+        String u1 = p.get("user1");
+        String u2 = p.get("user2");
+        long after;
+        long before;
+        int limit;
+        try {
+            after = p.containsKey("after_id") ? Long.parseLong(p.get("after_id")) : 0;
+            before = p.containsKey("before_id") ? Long.parseLong(p.get("before_id")) : Long.MAX_VALUE;
+            limit = p.containsKey("limit") ? Integer.parseInt(p.get("limit")) : Integer.MAX_VALUE;
+        } catch (NumberFormatException e) {
+            StubBackendServer.send(ex, 400, new JSONObject().put("status", "error")
+                    .put("message", "Bad paging parameter").toString());
+            return;
+        }
+        List<Stored> found = new ArrayList<>();
+        lock.lock();
+        try {
+            // Ids are positions + 1. With after_id the page runs forward
+            // from it, otherwise back from before_id (or the end).
+            int from = (int) Math.min(after, messages.size());
+            int to = (int) Math.min(before - 1, messages.size());
+            boolean forward = p.containsKey("after_id");
+            for (int n = from; n < to && found.size() < limit; n++) {
+                Stored m = messages.get(forward ? n : to - 1 - (n - from));
+                if ((m.sender().equals(u1) && m.receiver().equals(u2))
+                        || (m.sender().equals(u2) && m.receiver().equals(u1))) {
+                    found.add(m);
+                }
+            }
+            if (!forward) {
+                Collections.reverse(found);
+            }
+        } finally {
+            lock.unlock();
+        }
+        JSONArray arr = new JSONArray();
+        found.forEach(m -> arr.put(m.toJson()));
+        StubBackendServer.send(ex, 200, arr.toString());
+    }
+
+    private void messageStream(HttpExchange ex) throws IOException {
+        String user = StubBackendServer.query(ex).get("user");
+        if (!pushEnabled || user == null) {
+            StubBackendServer.send(ex, 404, "");
+            return;
+        }
+        String lastEventId = ex.getRequestHeaders().getFirst("Last-Event-ID");
+        int next;
+        try {
+            long resume = lastEventId == null ? latest() : Long.parseLong(lastEventId.trim());
+            if (resume < 0) {
+                throw new NumberFormatException(lastEventId);
+            }
+            next = (int) Math.min(resume, latest());
+        } catch (NumberFormatException e) {
+            StubBackendServer.send(ex, 400, new JSONObject().put("status", "error")
+                    .put("message", "Bad Last-Event-ID").toString());
+            return;
+        }
+
+        ex.getResponseHeaders().set("Content-Type", "text/event-stream; charset=UTF-8");
+        ex.getResponseHeaders().set("Cache-Control", "no-cache");
+        ex.sendResponseHeaders(200, 0);
+        OutputStream out = ex.getResponseBody();
+        streams.add(out);
+        streamsOpened.incrementAndGet();
+        try {
+            out.write(": connected\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            long lastWrite = System.currentTimeMillis();
+            while (pushEnabled) {
+                List<Stored> batch = new ArrayList<>();
+                lock.lock();
+                try {
+                    if (next >= messages.size()) {
+                        posted.await(heartbeatMs, TimeUnit.MILLISECONDS);
+                    }
+                    for (; next < messages.size(); next++) {
+                        Stored m = messages.get(next);
+                        if (m.sender().equals(user) || m.receiver().equals(user)) {
+                            batch.add(m);
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                StringBuilder buf = new StringBuilder();
+                for (Stored m : batch) {
+                    buf.append("id: ").append(m.id()).append('\n')
+                            .append("data: ").append(m.toJson()).append("\n\n");
+                }
+                long now = System.currentTimeMillis();
+                if (buf.isEmpty()) {
+                    if (now - lastWrite < heartbeatMs) {
+                        continue; // woken for someone else's message
+                    }
+                    buf.append(": keep-alive\n\n");
+                }
+                lastWrite = now;
+                out.write(buf.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Client went away, or dropStreams()
+        } finally {
+            streams.remove(out);
+            ex.close();
+        }
+    }
+
+    private int latest() {
+        lock.lock();
+        try {
+            return messages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8090;
+        StubMessageServer stub = new StubMessageServer(port, 15_000);
+        stub.start();
+        System.out.println("Stub chat endpoints at " + stub.baseUrl());
+    }
+}
@@ -0,0 +1,296 @@
+package com.checkmates.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over the searchable catalog columns (ISBN, title, authors).
+ *
+ * Every field is split into lower-case letter/digit tokens and each token maps to
+ * the sorted list of row ids containing it. A query matches a row when every
+ * query token is a prefix of some token in that row, so "knu art" finds
+ * "The Art of Computer Programming / Donald E. Knuth". Hyphens in ISBNs are
+ * ignored, and the search text is never interpreted as a regex.
+ *
+ * Row ids are the table model's row indices. The dashboards update it on the
+ * EDT while {@link SearchPipeline} queries it from a background task, so
+ * access is guarded by a read/write lock.
+ */
+public class CatalogIndex {
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // Per row, the postings it appears in (for removal); shares the dictionary's entries
+    private final List<Postings[]> rowTerms = new ArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Sorted, growable list of row ids containing one term. */
+    private static final class Postings {
+        final String term;
+        int[] ids = new int[2];
+        int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int id) {
+            if (size == 0 || ids[size - 1] < id) {
+                ensure();
+                ids[size++] = id;
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            ensure();
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        private void ensure() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Indexes row {@code id}; ids are normally appended in increasing order. */
+    public void add(int id, String isbn, String title, String authors) {
+        lock.writeLock().lock();
+        try {
+            index(id, isbn, title, authors);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Re-indexes a row whose fields changed. */
+    public void update(int id, String isbn, String title, String authors) {
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+            index(id, isbn, title, authors);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes row {@code id}; every higher id moves down by one, mirroring
+     * {@code DefaultTableModel.removeRow}.
+     */
+    public void delete(int id) {
+        deleteAll(new int[]{id});
+    }
+
+    /** Removes several rows at once; {@code ids} must be sorted ascending. */
+    public void deleteAll(int[] ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (int id : ids) {
+                unindex(id);
+            }
+            for (int i = ids.length - 1; i >= 0; i--) {
+                rowTerms.remove(ids[i]);
+            }
+            for (Postings p : terms.values()) {
+                int pos = Arrays.binarySearch(p.ids, 0, p.size, ids[0]);
+                for (int i = pos >= 0 ? pos : -pos - 1; i < p.size; i++) {
+                    p.ids[i] -= deletedBelow(ids, p.ids[i]);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Number of entries of sorted ids smaller than id
+    static int deletedBelow(int[] ids, int id) {
+        int pos = Arrays.binarySearch(ids, id);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private void index(int id, String isbn, String title, String authors) {
+        while (rowTerms.size() <= id) {
+            rowTerms.add(null);
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(isbn == null ? null : isbn.replace("-", ""), tokens);
+        tokenize(title, tokens);
+        tokenize(authors, tokens);
+
+        Postings[] postings = new Postings[tokens.size()];
+        int n = 0;
+        for (String t : tokens) {
+            Postings p = terms.get(t);
+            if (p == null) {
+                p = new Postings(t);
+                terms.put(t, p);
+            }
+            p.add(id);
+            postings[n++] = p;
+        }
+        rowTerms.set(id, postings);
+    }
+
+    private void unindex(int id) {
+        if (id >= rowTerms.size() || rowTerms.get(id) == null) {
+            return;
+        }
+        for (Postings p : rowTerms.get(id)) {
+            p.remove(id);
+            if (p.size == 0) {
+                terms.remove(p.term);
+            }
+        }
+        rowTerms.set(id, null);
+    }
+
+    /**
+     * Rows matching every token of {@code query} as a prefix, or {@code null} if
+     * the query has no tokens (i.e. no filtering).
+     */
+    public BitSet search(String query) {
+        return search(query, null);
+    }
+
+    /**
+     * Like {@link #search(String)} but only considers rows in {@code within}, the
+     * result of an earlier query this one extends. Small candidate sets are
+     * checked row by row instead of going through the dictionary.
+     */
+    public BitSet search(String query, BitSet within) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query == null ? null : query.replace("-", ""))));
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        // Longest tokens first: they usually match the fewest rows
+        tokens.sort((a, b) -> b.length() - a.length());
+
+        lock.readLock().lock();
+        try {
+            if (within != null && within.cardinality() < rowTerms.size() / 16) {
+                return verify(tokens, within);
+            }
+            BitSet result = within == null ? null : (BitSet) within.clone();
+            for (String token : tokens) {
+                BitSet hits = prefixMatchesLocked(token);
+                if (result == null) {
+                    result = hits;
+                } else {
+                    result.and(hits);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet verify(List<String> tokens, BitSet candidates) {
+        BitSet result = new BitSet(rowTerms.size());
+        for (int row = candidates.nextSetBit(0); row >= 0 && row < rowTerms.size(); row = candidates.nextSetBit(row + 1)) {
+            Postings[] rowPostings = rowTerms.get(row);
+            if (rowPostings != null && containsAll(rowPostings, tokens)) {
+                result.set(row);
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsAll(Postings[] rowPostings, List<String> tokens) {
+        for (String token : tokens) {
+            boolean found = false;
+            for (Postings p : rowPostings) {
+                if (p.term.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Rows with a token starting with {@code prefix}. */
+    public BitSet prefixMatches(String prefix) {
+        lock.readLock().lock();
+        try {
+            return prefixMatchesLocked(prefix);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet prefixMatchesLocked(String prefix) {
+        BitSet hits = new BitSet(rowTerms.size());
+        NavigableMap<String, Postings> range = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        for (Map.Entry<String, Postings> e : range.entrySet()) {
+            Postings p = e.getValue();
+            for (int i = 0; i < p.size; i++) {
+                hits.set(p.ids[i]);
+            }
+        }
+        return hits;
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> out = new ArrayList<>();
+        tokenize(text, out);
+        return out;
+    }
+
+    private static void tokenize(String text, java.util.Collection<String> out) {
+        if (text == null) {
+            return;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                out.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+}
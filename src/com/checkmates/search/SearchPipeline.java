@@ -0,0 +1,157 @@
+package com.checkmates.search;
+
+import java.util.BitSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import com.checkmates.concurrent.TaskScope;
+
+/**
+ * Turns search-field edits into row filters without blocking the EDT.
+ *
+ * Keystrokes are debounced, and the match for the settled text runs as a
+ * background task of the window's {@link TaskScope}. Starting a new query
+ * cancels the one still running, and a finished query is only published if
+ * nothing newer was requested meanwhile. When the new text extends the last
+ * published query, only the rows that query matched are searched again.
+ *
+ * All methods must be called on the EDT; results are delivered there too.
+ */
+public final class SearchPipeline {
+
+    public static final int DEFAULT_DELAY_MS = 150;
+
+    /** Rows of the current model matching a query. */
+    public interface Matcher {
+        /**
+         * @param within rows to restrict the search to, or {@code null} for all
+         * @return matching model rows; implementations should give up with a
+         *         {@link CancellationException} once the thread is interrupted
+         */
+        BitSet match(String query, BitSet within);
+
+        /** Whether the rows matching a query always include those matching any extension of it. */
+        default boolean canNarrow() {
+            return true;
+        }
+    }
+
+    /** A matcher that also orders its matches by relevance. */
+    public interface RankedMatcher extends Matcher {
+        /** Matching model rows, best first. */
+        int[] rank(String query);
+    }
+
+    /**
+     * A published query; {@code rows} is {@code null} for a blank query or when
+     * there is no matcher, and {@code ranking} is only set for a {@link RankedMatcher}.
+     */
+    public record Result(String query, BitSet rows, int[] ranking, Matcher matcher) {}
+
+    private record Hits(BitSet rows, int[] ranking) {}
+
+    private final TaskScope tasks;
+    private final Consumer<Result> publisher;
+    private final Timer debounce;
+
+    private Matcher matcher;
+    private String pendingText = "";
+    private long generation;
+    private CompletableFuture<Hits> running;
+
+    // Last published result, the base for narrowing
+    private String lastQuery;
+    private BitSet lastRows;
+
+    public SearchPipeline(TaskScope tasks, int delayMs, Consumer<Result> publisher) {
+        this.tasks = tasks;
+        this.publisher = publisher;
+        this.debounce = new Timer(delayMs, e -> run(pendingText, true));
+        debounce.setRepeats(false);
+    }
+
+    /**
+     * Sets what queries are matched against, e.g. after a new model was
+     * installed. {@code null} publishes queries without matching (server-side search).
+     */
+    public void setMatcher(Matcher matcher) {
+        this.matcher = matcher;
+        invalidate();
+    }
+
+    public Matcher getMatcher() {
+        return matcher;
+    }
+
+    /** Search-field text changed; the match runs once typing pauses. */
+    public void queryChanged(String text) {
+        pendingText = text == null ? "" : text;
+        debounce.restart();
+    }
+
+    /** Re-runs the current text right away against the full data, e.g. after rows changed. */
+    public void refresh() {
+        debounce.stop();
+        invalidate();
+        run(pendingText, false);
+    }
+
+    /** Forgets the last result so the next query searches all rows. */
+    public void invalidate() {
+        lastQuery = null;
+        lastRows = null;
+    }
+
+    public String getQuery() {
+        return pendingText;
+    }
+
+    private void run(String text, boolean allowNarrowing) {
+        long gen = ++generation;
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+
+        Matcher m = matcher;
+        if (m == null || text.isBlank()) {
+            lastQuery = null;
+            lastRows = null;
+            publisher.accept(new Result(text, null, null, m));
+            return;
+        }
+
+        BitSet within = allowNarrowing && m.canNarrow() && lastQuery != null && lastRows != null
+                && text.startsWith(lastQuery) ? lastRows : null;
+        CompletableFuture<Hits> task = tasks.supply(() -> {
+            if (m instanceof RankedMatcher ranked) {
+                int[] order = ranked.rank(text);
+                BitSet rows = new BitSet();
+                for (int r : order) {
+                    rows.set(r);
+                }
+                return new Hits(rows, order);
+            }
+            return new Hits(m.match(text, within), null);
+        });
+        running = task;
+        task.whenComplete((hits, err) -> SwingUtilities.invokeLater(() -> {
+            if (gen != generation || m != matcher) {
+                return; // superseded
+            }
+            running = null;
+            if (err != null) {
+                if (!(err instanceof CancellationException) && !task.isCancelled()) {
+                    err.printStackTrace();
+                }
+                return;
+            }
+            lastQuery = text;
+            lastRows = hits.rows();
+            publisher.accept(new Result(text, hits.rows(), hits.ranking(), m));
+        }));
+    }
+}
@@ -0,0 +1,45 @@
+package com.checkmates.search;
+
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import javax.swing.table.TableModel;
+
+/**
+ * Case-insensitive literal substring match over every cell of a row, for
+ * tables without an index. Scans run on a background thread, so rows are read
+ * through {@link TableModel#getValueAt} only up to the row count at the start.
+ */
+public class TableTextMatcher implements SearchPipeline.Matcher {
+
+    private final TableModel model;
+
+    public TableTextMatcher(TableModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public BitSet match(String query, BitSet within) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        int rows = model.getRowCount();
+        int cols = model.getColumnCount();
+        BitSet result = new BitSet(rows);
+
+        int checked = 0;
+        for (int row = within == null ? 0 : within.nextSetBit(0);
+                row >= 0 && row < rows;
+                row = within == null ? row + 1 : within.nextSetBit(row + 1)) {
+            if ((++checked & 4095) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Search superseded");
+            }
+            for (int col = 0; col < cols; col++) {
+                Object v = model.getValueAt(row, col);
+                if (v != null && v.toString().toLowerCase(Locale.ROOT).contains(needle)) {
+                    result.set(row);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,328 @@
+package com.checkmates.search;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Fuzzy matcher over book titles and authors, tolerant of misspellings such as
+ * "Cormann" or "Knuht".
+ *
+ * Each word is padded ("  knuth ") and cut into overlapping three-character
+ * grams. A row scores the share of the query's grams it contains; rows at or
+ * above the cutoff are returned best first, ties going to the row whose own
+ * gram set is closest in size (Dice coefficient).
+ *
+ * Grams are folded to a 38-symbol alphabet (a-z, 0-9, "other", blank), so
+ * every gram is a small int and the postings are a flat array of int lists
+ * indexed by it. Row ids are table-model row indices, as in {@link CatalogIndex}.
+ */
+public class TrigramIndex implements SearchPipeline.RankedMatcher {
+
+    public static final double DEFAULT_CUTOFF = 0.45;
+
+    private static final int K = 38;
+    private static final int GRAMS = K * K * K;
+
+    private final int[][] postings = new int[GRAMS][];
+    private final int[] postingSize = new int[GRAMS];
+    private int[] rowGramCount = new int[1024];
+    private int rowCount;
+    private volatile double cutoff;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Per-row hit counters reused across queries instead of allocating one per keystroke
+    private final AtomicReference<int[]> scratch = new AtomicReference<>();
+
+    public TrigramIndex() {
+        this(Double.parseDouble(System.getProperty("checkmates.search.fuzzyCutoff", String.valueOf(DEFAULT_CUTOFF))));
+    }
+
+    public TrigramIndex(double cutoff) {
+        setCutoff(cutoff);
+    }
+
+    /** Minimum share (0..1] of the query's trigrams a row must contain to be returned. */
+    public void setCutoff(double cutoff) {
+        if (cutoff <= 0 || cutoff > 1) {
+            throw new IllegalArgumentException("cutoff must be in (0, 1]: " + cutoff);
+        }
+        this.cutoff = cutoff;
+    }
+
+    public double getCutoff() {
+        return cutoff;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(int id, String title, String authors) {
+        int[] grams = grams(title + " " + authors);
+        lock.writeLock().lock();
+        try {
+            if (id >= rowGramCount.length) {
+                rowGramCount = Arrays.copyOf(rowGramCount, Math.max(id + 1, rowGramCount.length * 2));
+            }
+            rowCount = Math.max(rowCount, id + 1);
+            rowGramCount[id] = grams.length;
+            for (int g : grams) {
+                insert(g, id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Re-indexes a row; the old values are needed to find its postings. */
+    public void update(int id, String oldTitle, String oldAuthors, String title, String authors) {
+        lock.writeLock().lock();
+        try {
+            unindex(id, oldTitle, oldAuthors);
+            add(id, title, authors);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes a row; higher ids move down by one like {@code DefaultTableModel.removeRow}. */
+    public void delete(int id, String title, String authors) {
+        deleteAll(new int[]{id}, new String[]{title}, new String[]{authors});
+    }
+
+    /** Removes several rows at once; {@code ids} must be sorted ascending. */
+    public void deleteAll(int[] ids, String[] titles, String[] authors) {
+        if (ids.length == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                unindex(ids[i], titles[i], authors[i]);
+            }
+            for (int g = 0; g < GRAMS; g++) {
+                int[] rows = postings[g];
+                if (rows == null) {
+                    continue;
+                }
+                int pos = Arrays.binarySearch(rows, 0, postingSize[g], ids[0]);
+                for (int i = pos >= 0 ? pos : -pos - 1; i < postingSize[g]; i++) {
+                    rows[i] -= CatalogIndex.deletedBelow(ids, rows[i]);
+                }
+            }
+            int to = ids[0];
+            for (int from = ids[0]; from < rowCount; from++) {
+                if (CatalogIndex.deletedBelow(ids, from + 1) == CatalogIndex.deletedBelow(ids, from)) {
+                    rowGramCount[to++] = rowGramCount[from];
+                }
+            }
+            rowCount -= ids.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(int id, String title, String authors) {
+        for (int g : grams(title + " " + authors)) {
+            int[] ids = postings[g];
+            if (ids == null) {
+                continue;
+            }
+            int pos = Arrays.binarySearch(ids, 0, postingSize[g], id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, postingSize[g] - pos - 1);
+                postingSize[g]--;
+            }
+        }
+        rowGramCount[id] = 0;
+    }
+
+    private void insert(int g, int id) {
+        int[] ids = postings[g];
+        int n = postingSize[g];
+        if (ids == null) {
+            ids = postings[g] = new int[4];
+        } else if (n == ids.length) {
+            ids = postings[g] = Arrays.copyOf(ids, n * 2);
+        }
+        if (n == 0 || ids[n - 1] < id) {
+            ids[n] = id;
+        } else {
+            int pos = Arrays.binarySearch(ids, 0, n, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            System.arraycopy(ids, pos, ids, pos + 1, n - pos);
+            ids[pos] = id;
+        }
+        postingSize[g] = n + 1;
+    }
+
+    // --- Querying ---
+
+    @Override
+    public BitSet match(String query, BitSet within) {
+        BitSet rows = new BitSet();
+        for (int r : rank(query)) {
+            if (within == null || within.get(r)) {
+                rows.set(r);
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean canNarrow() {
+        // A longer query can raise a row's score above the cutoff
+        return false;
+    }
+
+    /** Rows scoring at or above the cutoff, best match first. */
+    @Override
+    public int[] rank(String query) {
+        int[] q = grams(query);
+        if (q.length == 0) {
+            return new int[0];
+        }
+        int minCommon = (int) Math.ceil(cutoff * q.length);
+
+        lock.readLock().lock();
+        int[] counts = borrowScratch(rowCount);
+        int[] touched = new int[64];
+        int nTouched = 0;
+        try {
+            for (int k = 0; k < q.length; k++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Search superseded");
+                }
+                int[] ids = postings[q[k]];
+                int n = postingSize[q[k]];
+                for (int i = 0; i < n; i++) {
+                    int r = ids[i];
+                    if (counts[r]++ == 0) {
+                        if (nTouched == touched.length) {
+                            touched = Arrays.copyOf(touched, nTouched * 2);
+                        }
+                        touched[nTouched++] = r;
+                    }
+                }
+            }
+
+            // Sort key: containment, then Dice, then lower row id first
+            long[] keys = new long[nTouched];
+            int nKeys = 0;
+            for (int i = 0; i < nTouched; i++) {
+                int r = touched[i];
+                int common = counts[r];
+                counts[r] = 0;
+                if (common < minCommon) {
+                    continue;
+                }
+                long containment = common * 1023L / q.length;
+                long dice = 2L * common * 1023L / (q.length + rowGramCount[r]);
+                keys[nKeys++] = (containment << 42) | (dice << 32) | (Integer.MAX_VALUE - r);
+            }
+            Arrays.sort(keys, 0, nKeys);
+
+            int[] ranked = new int[nKeys];
+            for (int i = 0; i < nKeys; i++) {
+                ranked[i] = Integer.MAX_VALUE - (int) (keys[nKeys - 1 - i] & 0xFFFFFFFFL);
+            }
+            return ranked;
+        } finally {
+            // Only touched entries were incremented; clear them if we bailed out early
+            for (int i = 0; i < nTouched; i++) {
+                counts[touched[i]] = 0;
+            }
+            lock.readLock().unlock();
+            scratch.set(counts);
+        }
+    }
+
+    private int[] borrowScratch(int size) {
+        int[] counts = scratch.getAndSet(null);
+        if (counts == null || counts.length < size) {
+            counts = new int[Math.max(size, 1024)];
+        }
+        return counts;
+    }
+
+    // --- Trigrams ---
+
+    /** Sorted, distinct trigram codes of {@code text}. */
+    static int[] grams(String text) {
+        if (text == null || text.isEmpty()) {
+            return new int[0];
+        }
+        // Fold accents so "Gödel" and "Godel" share grams
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD);
+
+        int[] out = new int[folded.length() * 2 + 4];
+        int n = 0;
+        int a = 0;
+        int b = 0;
+        boolean inWord = false;
+        for (int i = 0; i <= folded.length(); i++) {
+            char ch = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.getType(ch) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            int c = code(ch);
+            if (c == 0) {
+                if (inWord) {
+                    // Closing gram, e.g. "th " for "knuth"
+                    out = ensure(out, n);
+                    out[n++] = (a * K + b) * K;
+                    inWord = false;
+                }
+                continue;
+            }
+            if (!inWord) {
+                a = 0;
+                b = 0;
+                inWord = true;
+            }
+            out = ensure(out, n);
+            out[n++] = (a * K + b) * K + c;
+            a = b;
+            b = c;
+        }
+
+        Arrays.sort(out, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || out[distinct - 1] != out[i]) {
+                out[distinct++] = out[i];
+            }
+        }
+        return Arrays.copyOf(out, distinct);
+    }
+
+    private static int[] ensure(int[] arr, int n) {
+        return n < arr.length ? arr : Arrays.copyOf(arr, arr.length * 2);
+    }
+
+    // 0 = blank, 1-26 = a-z, 27-36 = 0-9, 37 = any other letter
+    private static int code(char ch) {
+        if (ch >= 'a' && ch <= 'z') {
+            return ch - 'a' + 1;
+        }
+        if (ch >= 'A' && ch <= 'Z') {
+            return ch - 'A' + 1;
+        }
+        if (ch >= '0' && ch <= '9') {
+            return ch - '0' + 27;
+        }
+        return Character.isLetter(ch) ? 37 : 0;
+    }
+}
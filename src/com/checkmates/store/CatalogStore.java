@@ -0,0 +1,145 @@
+package com.checkmates.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.checkmates.data.Repositories;
+import com.checkmates.net.ResponseCache;
+
+/**
+ * Keeps the last downloaded catalog on disk as a {@link MappedTable}, so the
+ * Manage window can show books before the network answers.
+ *
+ * Every save writes a new segment ({@code books-<generation>.seg}) under a
+ * temporary name and renames it into place, and readers open the newest
+ * complete segment. Older segments are deleted afterwards when possible;
+ * one still mapped by an open window (Windows refuses to delete those) is
+ * left for a later save to clean up.
+ */
+public final class CatalogStore {
+
+    private static final String PREFIX = "books-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path dir;
+
+    public CatalogStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Store for the backend's catalog in the app's cache directory; each
+     * backend gets its own, so a test session never replaces the real one.
+     */
+    public static CatalogStore forBackend(Repositories backend) {
+        return new CatalogStore(ResponseCache.defaultDirectory().resolve("catalog-" + backend.name()));
+    }
+
+    /** Newest saved catalog, or {@code null} if there is none (or it can't be read). */
+    public MappedTable openLatest() {
+        List<Path> segments = segments();
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            try {
+                return MappedTable.open(segments.get(i));
+            } catch (IOException ex) {
+                System.err.println("Skipping catalog segment " + segments.get(i) + ": " + ex.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts a new segment; rows are written to disk as they are added and the
+     * segment becomes the newest on {@link Segment#commit}.
+     */
+    public Segment begin(int columns) throws IOException {
+        Files.createDirectories(dir);
+        return new Segment(Files.createTempFile(dir, PREFIX, ".tmp"), columns);
+    }
+
+    /** A catalog being saved. Closing it without committing deletes it. */
+    public final class Segment implements Closeable {
+
+        private final Path tmp;
+        private final MappedTable.Writer writer;
+
+        private Segment(Path tmp, int columns) throws IOException {
+            this.tmp = tmp;
+            try {
+                writer = new MappedTable.Writer(tmp, columns);
+            } catch (IOException | RuntimeException ex) {
+                Files.deleteIfExists(tmp);
+                throw ex;
+            }
+        }
+
+        public void add(String[] row) throws IOException {
+            writer.add(row);
+        }
+
+        public void commit() throws IOException {
+            writer.finish();
+            writer.close();
+            synchronized (CatalogStore.this) {
+                List<Path> old = segments();
+                long generation = old.isEmpty() ? 1 : generation(old.get(old.size() - 1)) + 1;
+                Path target = dir.resolve(String.format("%s%012d%s", PREFIX, generation, SUFFIX));
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                for (Path p : old) {
+                    try {
+                        Files.deleteIfExists(p);
+                    } catch (IOException ex) {
+                        // Still mapped somewhere; retried on the next save
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Removes a segment that failed {@link MappedTable#verify}. */
+    public void discard(MappedTable table) {
+        try {
+            Files.deleteIfExists(table.getFile());
+        } catch (IOException ex) {
+            System.err.println("Could not delete " + table.getFile() + ": " + ex.getMessage());
+        }
+    }
+
+    // Oldest first; zero-padded generations sort by name
+    private List<Path> segments() {
+        List<Path> found = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return found;
+        }
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path p : ds) {
+                found.add(p);
+            }
+        } catch (IOException ex) {
+            System.err.println("Could not list " + dir + ": " + ex.getMessage());
+        }
+        found.sort(null);
+        return found;
+    }
+
+    private static long generation(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
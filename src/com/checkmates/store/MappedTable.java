@@ -0,0 +1,190 @@
+package com.checkmates.store;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only table of strings in a memory-mapped file.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header   magic "CMTB", version, rows, columns, heap length (long), CRC-32 of the rest
+ *   heap     the cells' UTF-8 bytes back to back
+ *   offsets  rows * columns + 1 ints: where each cell starts in the heap
+ * </pre>
+ * Opening a table only maps the file and checks the header, so it costs the
+ * same for ten rows or a million; {@link #get} decodes a single cell. The
+ * checksum is only read by {@link #verify}, which callers can run in the
+ * background after showing the data.
+ *
+ * A {@link Writer} streams rows into the file as they arrive: the heap goes
+ * straight to disk and only the offsets (four bytes a cell) are held until
+ * the end, which is why they come last.
+ */
+public final class MappedTable {
+
+    public static final int VERSION = 2; // 1 had the offsets before the heap
+
+    private static final int MAGIC = 0x434D5442; // "CMTB"
+    private static final int HEADER = 4 + 4 + 4 + 4 + 8 + 4;
+    private static final byte[] EMPTY = {};
+
+    private final Path file;
+    private final MappedByteBuffer buf;
+    private final int rows;
+    private final int columns;
+    private final long offsetsStart;
+    private final long heapLength;
+    private final int crc;
+    // Cell bytes are copied here before decoding; grows to the longest cell read
+    private byte[] scratch = new byte[256];
+
+    private MappedTable(Path file, MappedByteBuffer buf) throws IOException {
+        this.file = file;
+        this.buf = buf;
+        if (buf.capacity() < HEADER || buf.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a table file");
+        }
+        if (buf.getInt(4) != VERSION) {
+            throw new IOException(file + " has version " + buf.getInt(4) + ", expected " + VERSION);
+        }
+        rows = buf.getInt(8);
+        columns = buf.getInt(12);
+        heapLength = buf.getLong(16);
+        crc = buf.getInt(24);
+        offsetsStart = HEADER + heapLength;
+        if (rows < 0 || columns <= 0 || heapLength < 0
+                || offsetsStart + ((long) rows * columns + 1) * Integer.BYTES != buf.capacity()
+                || buf.getInt(buf.capacity() - Integer.BYTES) != heapLength) {
+            throw new IOException(file + " is truncated or damaged");
+        }
+    }
+
+    public static MappedTable open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new MappedTable(file, ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return columns;
+    }
+
+    /** Decodes one cell; not thread-safe (the table is read from the EDT). */
+    public String get(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Cell " + row + "," + column + " outside " + rows + "x" + columns);
+        }
+        int cell = (int) offsetsStart + (row * columns + column) * Integer.BYTES;
+        int start = buf.getInt(cell);
+        int length = buf.getInt(cell + Integer.BYTES) - start;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buf.get(HEADER + start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /** Reads the whole file and compares it with the checksum written with it. */
+    public boolean verify() {
+        CRC32 check = new CRC32();
+        check.update(buf.slice(HEADER, buf.capacity() - HEADER));
+        return (int) check.getValue() == crc;
+    }
+
+    /**
+     * Writes a table a row at a time. Callers write to a temporary name and
+     * rename after {@link #finish}, so a crash never leaves a half-written
+     * table under the real name; closing without finishing leaves a file
+     * that won't open.
+     */
+    public static final class Writer implements Closeable {
+
+        private final FileChannel ch;
+        private final DataOutputStream out;
+        private final int columns;
+        private final CRC32 check = new CRC32();
+        private int[] offsets = new int[1024];
+        private int cells;
+        private long heap;
+
+        public Writer(Path file, int columns) throws IOException {
+            if (columns <= 0) {
+                throw new IllegalArgumentException("columns must be positive");
+            }
+            this.columns = columns;
+            ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            ch.position(HEADER); // filled in by finish()
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+        }
+
+        /** Appends one row; null cells become empty. */
+        public void add(String[] row) throws IOException {
+            for (int c = 0; c < columns; c++) {
+                byte[] b = row[c] == null ? EMPTY : row[c].getBytes(StandardCharsets.UTF_8);
+                if (cells == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, cells * 2);
+                }
+                offsets[cells++] = (int) heap;
+                heap += b.length;
+                if (HEADER + heap + (cells + 1L) * Integer.BYTES > Integer.MAX_VALUE) {
+                    throw new IOException("Table too large for one file: " + heap + " bytes of text");
+                }
+                check.update(b);
+                out.write(b);
+            }
+        }
+
+        /** Writes the offsets and the header and forces the file to disk. */
+        public void finish() throws IOException {
+            ByteBuffer tail = ByteBuffer.allocate(1 << 16);
+            for (int i = 0; i <= cells; i++) {
+                tail.putInt(i < cells ? offsets[i] : (int) heap);
+                if (!tail.hasRemaining() || i == cells) {
+                    check.update(tail.array(), 0, tail.position());
+                    out.write(tail.array(), 0, tail.position());
+                    tail.clear();
+                }
+            }
+            out.flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putInt(VERSION).putInt(cells / columns).putInt(columns)
+                    .putLong(heap).putInt((int) check.getValue()).flip();
+            while (header.hasRemaining()) {
+                ch.write(header, header.position());
+            }
+            ch.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedTable[" + file.getFileName() + ", " + rows + " rows x " + columns + "]";
+    }
+}
@@ -0,0 +1,545 @@
+package com.checkmates.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.checkmates.data.MessageRepository;
+import com.checkmates.data.MessageRepository.Message;
+import com.checkmates.net.ResponseCache;
+import com.checkmates.util.AESUtil;
+
+/**
+ * Append-only log of one librarian's messages on disk, so a conversation
+ * opens from disk and only what is newer than the last stored message is
+ * downloaded.
+ *
+ * Layout (big-endian): the header is magic "CMML" and a version. Every
+ * record after it is
+ * <pre>
+ *   length   int, of the payload
+ *   crc      int, CRC-32 of the payload
+ *   payload  type byte, conversation, then for a message: id, from, time,
+ *            cipher, iv (each an int length and UTF-8 bytes)
+ * </pre>
+ * Text is kept in the cipher + iv form {@link AESUtil#encrypt} produces and
+ * decrypted only when read. A {@code FORGET} record marks a deleted
+ * conversation.
+ *
+ * Opening reads the log once, checking every checksum, and builds the
+ * per-conversation index of record offsets and ids in memory; reading the
+ * last N messages of a conversation, or the N before a given id, then seeks
+ * straight to them. A torn or
+ * corrupt record (a crash mid-write) ends the log: the file is cut there,
+ * and the next poll downloads whatever was lost. Space taken by forgotten
+ * conversations and by messages past {@link #KEEP_PER_CONVERSATION} is
+ * reclaimed by {@link #compact}, which rewrites the live records into a new
+ * generation ({@code messages-<generation>.log}) and renames it into place.
+ * It runs on open and whenever more than half the file is garbage.
+ *
+ * Only messages with ids the server issued belong here. Ids a client made
+ * up from positions are reused once a conversation is deleted, and a stored
+ * one would make the next session skip every newer message.
+ *
+ * The log is locked while open, so a second copy of the app for the same
+ * user runs without one rather than interleaving writes.
+ */
+public final class MessageLog {
+
+    // 2: only server-issued ids; version 1 logs may hold position numbers
+    public static final int VERSION = 2;
+    public static final int KEEP_PER_CONVERSATION = Integer.getInteger("checkmates.chat.logKeep", 10_000);
+
+    private static final int MAGIC = 0x434D4D4C; // "CMML"
+    private static final int HEADER = 8;
+    private static final int MAX_RECORD = 1 << 24;
+    private static final byte MESSAGE = 1;
+    private static final byte FORGET = 2;
+    private static final long MIN_GARBAGE_TO_COMPACT = 1 << 20;
+    private static final String PREFIX = "messages-";
+    private static final String SUFFIX = ".log";
+
+    private static final Map<String, MessageLog> OPEN = new HashMap<>();
+
+    /** Where one conversation's records are, oldest first. */
+    private static final class Conversation {
+        long[] offsets = new long[16];
+        int[] lengths = new int[16]; // whole records, header included
+        String[] ids = new String[16];
+        int size;
+        String lastId;
+
+        void add(long offset, int length, String id) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            offsets[size] = offset;
+            lengths[size] = length;
+            ids[size] = id;
+            size++;
+            lastId = id;
+        }
+
+        int firstKept() {
+            return Math.max(0, size - KEEP_PER_CONVERSATION);
+        }
+
+        // Index of the first message not older than id (ids ascend)
+        int indexOf(String id) {
+            int lo = firstKept();
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (MessageRepository.compareIds(ids[mid], id) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private final Path dir;
+    private final Map<String, Conversation> conversations = new LinkedHashMap<>();
+    private FileChannel channel;
+    private FileLock lock;
+    private long generation;
+    private long garbage; // bytes compaction would drop
+
+    private MessageLog(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * The log of {@code ownerId} in the app's cache directory, opened on first
+     * use, or null if it can't be opened (e.g. another copy of the app holds it).
+     */
+    public static MessageLog forOwner(String ownerId) {
+        synchronized (OPEN) {
+            if (!OPEN.containsKey(ownerId)) {
+                Path dir = ResponseCache.defaultDirectory().resolve("messages")
+                        .resolve(ownerId.replaceAll("[^A-Za-z0-9._-]", "_"));
+                MessageLog log = null;
+                try {
+                    log = open(dir);
+                } catch (IOException ex) {
+                    System.err.println("Message log unavailable: " + ex.getMessage());
+                }
+                OPEN.put(ownerId, log); // a failure isn't retried every time a window opens
+            }
+            return OPEN.get(ownerId);
+        }
+    }
+
+    public static MessageLog open(Path dir) throws IOException {
+        MessageLog log = new MessageLog(dir);
+        log.load();
+        return log;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> found = generations();
+        Path file;
+        if (found.isEmpty()) {
+            generation = 1;
+            file = fileFor(generation);
+        } else {
+            file = found.get(found.size() - 1);
+            generation = generationOf(file);
+            for (Path old : found.subList(0, found.size() - 1)) {
+                Files.deleteIfExists(old); // left by a compaction that didn't finish cleaning up
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException(file + " is in use by another copy of the app");
+        }
+        if (channel.size() < HEADER) {
+            writeHeader(channel);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                System.err.println(file + " is not a version " + VERSION + " message log; starting over");
+                channel.truncate(0);
+                writeHeader(channel);
+            }
+        }
+        scan();
+        compactIfWorthIt();
+    }
+
+    // Rebuilds the index, cutting the file at the first record that doesn't check out
+    private void scan() throws IOException {
+        conversations.clear();
+        garbage = 0;
+        long size = channel.size();
+        long pos = HEADER;
+        ByteBuffer head = ByteBuffer.allocate(8);
+        while (pos < size) {
+            Record r;
+            try {
+                head.clear();
+                readFully(channel, head, pos);
+                int length = head.getInt(0);
+                if (length <= 0 || length > MAX_RECORD || pos + 8 + length > size) {
+                    throw new IOException("bad record length " + length);
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, pos + 8);
+                if (crc(payload.array(), length) != head.getInt(4)) {
+                    throw new IOException("checksum mismatch");
+                }
+                r = Record.parse(payload);
+            } catch (IOException | RuntimeException ex) {
+                System.err.println("Message log cut at byte " + pos + " of " + size + ": " + ex.getMessage());
+                channel.truncate(pos);
+                break;
+            }
+            int recordLength = 8 + r.length;
+            index(r, pos, recordLength);
+            pos += recordLength;
+        }
+    }
+
+    private void index(Record r, long offset, int recordLength) {
+        if (r.type == FORGET) {
+            Conversation gone = conversations.remove(r.other);
+            if (gone != null) {
+                for (int i = 0; i < gone.size; i++) {
+                    garbage += gone.lengths[i];
+                }
+            }
+            garbage += recordLength;
+            return;
+        }
+        Conversation c = conversations.computeIfAbsent(r.other, k -> new Conversation());
+        c.add(offset, recordLength, r.id);
+        if (c.size > KEEP_PER_CONVERSATION) {
+            garbage += c.lengths[c.size - 1 - KEEP_PER_CONVERSATION];
+        }
+    }
+
+    /** Id of the newest stored message with {@code other}, or null if none. */
+    public synchronized String lastId(String other) {
+        Conversation c = conversations.get(other);
+        return c == null ? null : c.lastId;
+    }
+
+    /** How many messages with {@code other} are stored (up to the retention limit). */
+    public synchronized int count(String other) {
+        Conversation c = conversations.get(other);
+        return c == null ? 0 : Math.min(c.size, KEEP_PER_CONVERSATION);
+    }
+
+    /** The newest {@code n} stored messages with {@code other}, oldest first, decrypted. */
+    public synchronized List<Message> last(String other, int n) throws IOException {
+        Conversation c = conversations.get(other);
+        return c == null ? List.of() : read(c, Math.max(c.size - n, c.firstKept()), c.size);
+    }
+
+    /** Up to {@code n} stored messages with {@code other} just before {@code beforeId}, oldest first. */
+    public synchronized List<Message> before(String other, String beforeId, int n) throws IOException {
+        Conversation c = conversations.get(other);
+        if (c == null) {
+            return List.of();
+        }
+        int end = c.indexOf(beforeId);
+        return read(c, Math.max(end - n, c.firstKept()), end);
+    }
+
+    /** Id of the oldest message with {@code other} still kept, or null if none. */
+    public synchronized String firstId(String other) {
+        Conversation c = conversations.get(other);
+        return c == null || c.size == 0 ? null : c.ids[c.firstKept()];
+    }
+
+    /** Up to {@code n} stored messages with {@code other} just after {@code afterId}, oldest first. */
+    public synchronized List<Message> after(String other, String afterId, int n) throws IOException {
+        Conversation c = conversations.get(other);
+        if (c == null) {
+            return List.of();
+        }
+        int start = c.indexOf(afterId);
+        if (start < c.size && MessageRepository.compareIds(c.ids[start], afterId) == 0) {
+            start++;
+        }
+        return read(c, start, Math.min(start + n, c.size));
+    }
+
+    /** Whether anything older than {@code id} is stored for {@code other}. */
+    public synchronized boolean hasBefore(String other, String id) {
+        Conversation c = conversations.get(other);
+        return c != null && c.indexOf(id) > c.firstKept();
+    }
+
+    private List<Message> read(Conversation c, int from, int to) throws IOException {
+        List<Message> out = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            ByteBuffer payload = ByteBuffer.allocate(c.lengths[i] - 8);
+            readFully(channel, payload, c.offsets[i] + 8);
+            Record r = Record.parse(payload);
+            try {
+                out.add(new Message(r.id, r.from, AESUtil.decrypt(r.cipher, r.iv), r.time));
+            } catch (Exception ex) {
+                throw new IOException("Could not decrypt stored message " + r.id, ex);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Appends the messages with {@code other} that are newer than the last
+     * stored one; older ones (a repeat of what is on disk) are skipped.
+     */
+    public synchronized void append(String other, List<Message> messages) throws IOException {
+        String last = lastId(other);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<Record> added = new ArrayList<>();
+        for (Message m : messages) {
+            if (last != null && MessageRepository.compareIds(m.id(), last) <= 0) {
+                continue;
+            }
+            Map<String, String> enc;
+            try {
+                enc = AESUtil.encrypt(m.text());
+            } catch (Exception ex) {
+                throw new IOException("Encryption error: " + ex.getMessage(), ex);
+            }
+            Record r = new Record(MESSAGE, other, m.id(), m.from(), m.time(), enc.get("cipher"), enc.get("iv"));
+            r.writeTo(bytes);
+            added.add(r);
+            last = m.id();
+        }
+        if (!added.isEmpty()) {
+            write(bytes.toByteArray(), added);
+        }
+    }
+
+    /** The conversation with {@code other} was deleted; its messages go at the next compaction. */
+    public synchronized void forget(String other) throws IOException {
+        if (!conversations.containsKey(other)) {
+            return;
+        }
+        Record r = new Record(FORGET, other, null, null, null, null, null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        r.writeTo(bytes);
+        write(bytes.toByteArray(), List.of(r));
+    }
+
+    private void write(byte[] bytes, List<Record> records) throws IOException {
+        long pos = channel.size();
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+            channel.write(buf, pos + buf.position());
+        }
+        for (Record r : records) {
+            index(r, pos, 8 + r.length);
+            pos += 8 + r.length;
+        }
+        compactIfWorthIt();
+    }
+
+    private void compactIfWorthIt() throws IOException {
+        if (garbage >= MIN_GARBAGE_TO_COMPACT && garbage * 2 > channel.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the live records (the last {@link #KEEP_PER_CONVERSATION} of
+     * each conversation) into a new file and switches to it.
+     */
+    public synchronized void compact() throws IOException {
+        Path next = fileFor(generation + 1);
+        Path tmp = Files.createTempFile(dir, PREFIX, ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                writeHeader(out);
+                out.position(HEADER);
+                for (Conversation c : conversations.values()) {
+                    for (int i = Math.max(0, c.size - KEEP_PER_CONVERSATION); i < c.size; i++) {
+                        ByteBuffer record = ByteBuffer.allocate(c.lengths[i]);
+                        readFully(channel, record, c.offsets[i]);
+                        record.flip();
+                        while (record.hasRemaining()) {
+                            out.write(record);
+                        }
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(tmp, next, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        Path previous = fileFor(generation);
+        lock.release();
+        channel.close();
+        generation++;
+        channel = FileChannel.open(next, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lock = channel.tryLock();
+        Files.deleteIfExists(previous);
+        scan();
+    }
+
+    /** Size of the current log file. */
+    public synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    /** Bytes the next compaction would reclaim. */
+    public synchronized long getGarbage() {
+        return garbage;
+    }
+
+    public synchronized void close() throws IOException {
+        if (lock != null) {
+            lock.release();
+        }
+        channel.close();
+    }
+
+    // --- Files ---
+
+    private Path fileFor(long gen) {
+        return dir.resolve(String.format("%s%012d%s", PREFIX, gen, SUFFIX));
+    }
+
+    // Oldest first; zero-padded generations sort by name
+    private List<Path> generations() throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path p : ds) {
+                found.add(p);
+            }
+        }
+        found.sort(null);
+        return found;
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return 1;
+        }
+    }
+
+    private static void writeHeader(FileChannel ch) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        ch.write(header, 0);
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, pos + buf.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static int crc(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /** One record's payload. */
+    private static final class Record {
+        final byte type;
+        final String other, id, from, time, cipher, iv;
+        int length; // of the payload
+
+        Record(byte type, String other, String id, String from, String time, String cipher, String iv) {
+            this.type = type;
+            this.other = other;
+            this.id = id;
+            this.from = from;
+            this.time = time;
+            this.cipher = cipher;
+            this.iv = iv;
+        }
+
+        void writeTo(ByteArrayOutputStream out) throws IOException {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+            DataOutputStream data = new DataOutputStream(payload);
+            data.writeByte(type);
+            putString(data, other);
+            if (type == MESSAGE) {
+                putString(data, id);
+                putString(data, from);
+                putString(data, time);
+                putString(data, cipher);
+                putString(data, iv);
+            }
+            byte[] bytes = payload.toByteArray();
+            length = bytes.length;
+            DataOutputStream head = new DataOutputStream(out);
+            head.writeInt(length);
+            head.writeInt(crc(bytes, length));
+            head.write(bytes);
+        }
+
+        static Record parse(ByteBuffer payload) {
+            payload.rewind();
+            byte type = payload.get();
+            if (type != MESSAGE && type != FORGET) {
+                throw new IllegalStateException("unknown record type " + type);
+            }
+            String other = getString(payload);
+            Record r = type == MESSAGE
+                    ? new Record(type, other, getString(payload), getString(payload), getString(payload),
+                            getString(payload), getString(payload))
+                    : new Record(type, other, null, null, null, null, null);
+            r.length = payload.capacity();
+            return r;
+        }
+
+        private static void putString(DataOutputStream out, String s) throws IOException {
+            byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+
+        private static String getString(ByteBuffer in) {
+            int n = in.getInt();
+            if (n < 0 || n > in.remaining()) {
+                throw new IllegalStateException("bad string length " + n);
+            }
+            String s = new String(in.array(), in.position(), n, StandardCharsets.UTF_8);
+            in.position(in.position() + n);
+            return s;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.checkmates.sync;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.checkmates.data.LoanRepository;
+import com.checkmates.data.Repositories;
+import com.checkmates.data.WatermarkExpiredException;
+import com.checkmates.net.ResponseCache;
+
+/**
+ * Local replica of the loan history, kept current by asking the
+ * {@link LoanRepository} only for what changed since the last sync.
+ *
+ * The watermark the repository hands back is opaque here. If it has expired
+ * the replica falls back to a full sync; a backend without delta support
+ * returns no watermark, which is treated as a full snapshot every time.
+ *
+ * Rows are the dashboard's table rows ("No." first) and are matched on
+ * ISBN + card id + date out. Existing loans keep their position and new ones
+ * are appended, so row {@code i} of the replica is row {@code i} of a table
+ * built from it.
+ *
+ * Every sync bumps the replica's version and stamps the rows it touched, so
+ * each window that shows the replica asks for the changes since the version
+ * it last applied; several windows can share one replica without any of
+ * them missing an update another window's sync fetched.
+ *
+ * The replica is saved as a snapshot followed by one appended record per
+ * delta, and rewritten once the deltas outgrow a fraction of the snapshot.
+ */
+public final class LoanSync {
+
+    private static final int MAGIC = 0x434D4C52; // "CMLR"
+    private static final int VERSION = 1;
+    private static final byte SNAPSHOT = 1;
+    private static final byte DELTA = 2;
+    private static final int FIELDS = 8;
+
+    /**
+     * The changes since some version, bringing a table to {@code version}.
+     * Unless {@code full}, {@code updatedRows} now hold {@code updated} and
+     * {@code appended} follow the {@code baseSize} rows the table already
+     * had; a full delta (the replica was rebuilt since) has every row in
+     * {@code appended}.
+     */
+    public record Delta(long version, boolean full, int baseSize, int[] updatedRows, List<String[]> updated,
+                        List<String[]> appended) {
+
+        public boolean isEmpty() {
+            return !full && updatedRows.length == 0 && appended.isEmpty();
+        }
+    }
+
+    private final LoanRepository loans;
+    private final Path file;
+    // Windows syncing at once take turns; each then gets the changes since its own version
+    private final Object syncLock = new Object();
+
+    private final List<String[]> rows = new ArrayList<>();
+    private long version;
+    private long rebuiltAt;
+    // Per row: the version that appended it and the one that last changed it
+    private long[] addedAt = new long[0];
+    private long[] changedAt = new long[0];
+    private Map<String, Integer> byKey;
+    private String watermark;
+    private int journalRows;
+
+    public LoanSync(LoanRepository loans, Path file) {
+        this.loans = loans;
+        this.file = file;
+    }
+
+    /** Sync for the backend's loans, saving its replica in the app's cache directory. */
+    public static LoanSync forBackend(Repositories backend) {
+        return new LoanSync(backend.loans(),
+                ResponseCache.defaultDirectory().resolve("loans-" + backend.name() + ".replica"));
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized String getWatermark() {
+        return watermark;
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    /** The replica's rows; the arrays are shared and must not be modified. */
+    public synchronized List<String[]> rows() {
+        return new ArrayList<>(rows);
+    }
+
+    // --- Sync ---
+
+    /**
+     * Brings the replica up to date and returns the changes since
+     * {@code since} (-1 for a table that has nothing yet). Without a
+     * watermark (or once the server rejects it) this downloads everything,
+     * passing the rows to {@code fullChunks} (may be null) as they arrive.
+     */
+    public Delta sync(long since, Consumer<List<String[]>> fullChunks) throws IOException {
+        synchronized (syncLock) {
+            syncLocked(fullChunks);
+            return changesSince(since);
+        }
+    }
+
+    /** The changes since {@code since} without asking the backend. */
+    public synchronized Delta changesSince(long since) {
+        if (since < rebuiltAt) {
+            return new Delta(version, true, 0, new int[0], List.of(), new ArrayList<>(rows));
+        }
+        int base = rows.size();
+        while (base > 0 && addedAt[base - 1] > since) {
+            base--;
+        }
+        List<Integer> updatedRows = new ArrayList<>();
+        List<String[]> updated = new ArrayList<>();
+        for (int i = 0; i < base; i++) {
+            if (changedAt[i] > since) {
+                updatedRows.add(i);
+                updated.add(rows.get(i));
+            }
+        }
+        return new Delta(version, false, base, updatedRows.stream().mapToInt(Integer::intValue).toArray(),
+                updated, new ArrayList<>(rows.subList(base, rows.size())));
+    }
+
+    private void syncLocked(Consumer<List<String[]>> fullChunks) throws IOException {
+        String since = getWatermark();
+        if (since != null) {
+            List<String[]> changed = new ArrayList<>();
+            String next;
+            try {
+                next = loans.streamChanges(since, changed::addAll);
+            } catch (WatermarkExpiredException ex) {
+                changed = null;
+                next = null;
+            }
+            if (changed != null) {
+                if (next != null) {
+                    merge(changed, next);
+                    return;
+                }
+                // The backend ignored the watermark and sent everything
+                replaceAll(changed, null);
+                if (fullChunks != null) {
+                    fullChunks.accept(changed);
+                }
+                return;
+            }
+        }
+
+        List<String[]> all = new ArrayList<>();
+        String next = loans.streamChanges(null, chunk -> {
+            all.addAll(chunk);
+            if (fullChunks != null) {
+                fullChunks.accept(chunk);
+            }
+        });
+        replaceAll(all, next);
+    }
+
+    private synchronized void merge(List<String[]> changed, String next) {
+        Map<String, Integer> index = index();
+        version++;
+        for (String[] row : changed) {
+            Integer at = index.get(key(row));
+            if (at != null) {
+                row[0] = rows.get(at)[0];
+                rows.set(at, row);
+                changedAt[at] = version;
+            } else {
+                row[0] = String.valueOf(rows.size() + 1);
+                index.put(key(row), rows.size());
+                rows.add(row);
+                stampAppended();
+            }
+        }
+        watermark = next;
+        try {
+            appendDelta(changed);
+        } catch (IOException ex) {
+            System.err.println("Could not save loan replica " + file + ": " + ex.getMessage());
+        }
+    }
+
+    private synchronized void replaceAll(List<String[]> all, String next) {
+        rows.clear();
+        rows.addAll(all);
+        byKey = null;
+        watermark = next;
+        rebuilt();
+        try {
+            writeSnapshot();
+        } catch (IOException ex) {
+            System.err.println("Could not save loan replica " + file + ": " + ex.getMessage());
+        }
+    }
+
+    // A new version in which every row is new
+    private void rebuilt() {
+        rebuiltAt = ++version;
+        addedAt = new long[Math.max(16, rows.size())];
+        changedAt = new long[addedAt.length];
+        Arrays.fill(addedAt, 0, rows.size(), version);
+        Arrays.fill(changedAt, 0, rows.size(), version);
+    }
+
+    // Stamps the row just added with the current version
+    private void stampAppended() {
+        int at = rows.size() - 1;
+        if (at == addedAt.length) {
+            addedAt = Arrays.copyOf(addedAt, Math.max(16, at * 2));
+            changedAt = Arrays.copyOf(changedAt, Math.max(16, at * 2));
+        }
+        addedAt[at] = version;
+        changedAt[at] = version;
+    }
+
+    private Map<String, Integer> index() {
+        if (byKey == null) {
+            byKey = new HashMap<>(rows.size() * 2);
+            for (int i = 0; i < rows.size(); i++) {
+                byKey.put(key(rows.get(i)), i);
+            }
+        }
+        return byKey;
+    }
+
+    private static String key(String[] row) {
+        return row[1] + '\u0001' + row[2] + '\u0001' + row[3];
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Loads the replica saved by an earlier session.
+     *
+     * @return whether there was one; a damaged file is discarded
+     */
+    public synchronized boolean restore() {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        List<String[]> loaded = new ArrayList<>();
+        String mark = null;
+        int deltaRows = 0;
+        boolean torn = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readByte() != SNAPSHOT) {
+                throw new IOException("not a loan replica");
+            }
+            mark = readRecord(in, loaded);
+            Map<String, Integer> index = null;
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                if (type != DELTA) {
+                    throw new IOException("bad record type " + type);
+                }
+                if (index == null) {
+                    index = new HashMap<>(loaded.size() * 2);
+                    for (int i = 0; i < loaded.size(); i++) {
+                        index.put(key(loaded.get(i)), i);
+                    }
+                }
+                List<String[]> changed = new ArrayList<>();
+                String next;
+                try {
+                    next = readRecord(in, changed);
+                } catch (EOFException ex) {
+                    // A sync was interrupted mid-write; its rows will be fetched again
+                    torn = true;
+                    break;
+                }
+                for (String[] row : changed) {
+                    Integer at = index.get(key(row));
+                    if (at != null) {
+                        loaded.set(at, row);
+                    } else {
+                        index.put(key(row), loaded.size());
+                        loaded.add(row);
+                    }
+                }
+                deltaRows += changed.size();
+                mark = next;
+            }
+        } catch (IOException ex) {
+            System.err.println("Discarding loan replica " + file + ": " + ex.getMessage());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Overwritten by the next full sync
+            }
+            return false;
+        }
+        rows.clear();
+        rows.addAll(loaded);
+        byKey = null;
+        watermark = mark;
+        journalRows = deltaRows;
+        rebuilt();
+        if (torn) {
+            // Later deltas can't be appended after the partial record
+            try {
+                writeSnapshot();
+            } catch (IOException ex) {
+                System.err.println("Could not rewrite loan replica " + file + ": " + ex.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void writeSnapshot() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), "loans", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(SNAPSHOT);
+            writeRecord(out, watermark, rows);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalRows = 0;
+    }
+
+    private void appendDelta(List<String[]> changed) throws IOException {
+        journalRows += changed.size();
+        // Replaying deltas costs more than rewriting once they pass a tenth of the history
+        if (!Files.isRegularFile(file) || journalRows > Math.max(1000, rows.size() / 10)) {
+            writeSnapshot();
+            return;
+        }
+        try (OutputStream os = Files.newOutputStream(file, StandardOpenOption.APPEND);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            out.writeByte(DELTA);
+            writeRecord(out, watermark, changed);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, String mark, List<String[]> records) throws IOException {
+        out.writeUTF(mark == null ? "" : mark);
+        out.writeInt(records.size());
+        for (String[] row : records) {
+            for (int f = 0; f < FIELDS; f++) {
+                out.writeUTF(row[f] == null ? "" : row[f]);
+            }
+        }
+    }
+
+    private static String readRecord(DataInputStream in, List<String[]> into) throws IOException {
+        String mark = in.readUTF();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String[] row = new String[FIELDS];
+            for (int f = 0; f < FIELDS; f++) {
+                row[f] = in.readUTF();
+            }
+            into.add(row);
+        }
+        return mark.isEmpty() ? null : mark;
+    }
+}
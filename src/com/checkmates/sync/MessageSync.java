@@ -0,0 +1,355 @@
+package com.checkmates.sync;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+import com.checkmates.data.MessageRepository;
+import com.checkmates.data.MessageRepository.Message;
+import com.checkmates.data.MessageRepository.Page;
+import com.checkmates.store.MessageLog;
+
+/**
+ * Keeps one open conversation current by asking only for messages newer than
+ * the last one received, and decides how often to ask.
+ *
+ * The poll interval starts at {@link #MIN_INTERVAL_MS}, grows by half after
+ * every poll that brought nothing new (up to {@link #MAX_INTERVAL_MS}) and
+ * drops back to the minimum as soon as either side writes, so an idle
+ * conversation costs a request every half minute and a lively one feels
+ * immediate.
+ *
+ * Messages the user sent are shown right away by the window; {@link #sent}
+ * records them so that the same message coming back from the server is not
+ * shown twice.
+ *
+ * While a push channel is live ({@link #setPushLive}) messages arrive
+ * through {@link #pushed} and polling drops to one request per
+ * {@link #MAX_INTERVAL_MS}, a safety net for anything the stream missed.
+ * Pushed messages are held back until a poll started after the stream came
+ * up has returned, so {@code lastId} never jumps past a message sent while
+ * the stream was connecting.
+ *
+ * With a {@link MessageLog}, {@link #restore} shows the stored end of the
+ * conversation and the first poll asks only for what came after it; every
+ * new message is appended to the log, as long as the server numbers them
+ * ({@link MessageRepository#hasServerIds}). Without stored messages the first poll
+ * fetches only the newest {@link #PAGE_SIZE}, and the rest of a long
+ * conversation is paged in by id with {@link #older} (and {@link #newer},
+ * for a view that dropped its newest messages), stored ones before the
+ * server's.
+ */
+public final class MessageSync {
+
+    public static final long MIN_INTERVAL_MS = Long.getLong("checkmates.chat.minPollMs", 1_000);
+    public static final long MAX_INTERVAL_MS = Long.getLong("checkmates.chat.maxPollMs", 30_000);
+    /** Messages fetched when a conversation opens, and per page when scrolling through it. */
+    public static final int PAGE_SIZE = Integer.getInteger("checkmates.chat.pageSize", 50);
+
+    private final MessageRepository messages;
+    private final String me;
+    private final String other;
+    private final Set<String> myNames;
+    private final MessageLog log; // null: nothing stored
+
+    // Guarded by this
+    private String lastId;
+    private String firstId; // of the whole conversation, once a page reached it
+    private final Deque<String> echoed = new ArrayDeque<>();
+    private long interval = MIN_INTERVAL_MS;
+    private long nextPoll; // 0: due now
+    private boolean polling;
+    private boolean pushLive;
+    private int pushEpoch; // bumped each time the push channel comes up
+    private boolean caughtUp; // a poll started since then is in
+    private final List<Message> early = new ArrayList<>(); // pushed before that
+
+    /**
+     * @param myNames what the server may put in {@code from} for the user's
+     *                own messages (name and id)
+     */
+    public MessageSync(MessageRepository messages, String me, String other, Set<String> myNames) {
+        this(messages, me, other, myNames, null);
+    }
+
+    public MessageSync(MessageRepository messages, String me, String other, Set<String> myNames, MessageLog log) {
+        this.messages = messages;
+        this.me = me;
+        this.other = other;
+        this.myNames = myNames;
+        this.log = log;
+    }
+
+    public String getOther() {
+        return other;
+    }
+
+    /**
+     * The last {@code n} stored messages, for showing before the first poll,
+     * which then starts after them. Call before polling.
+     */
+    public synchronized List<Message> restore(int n) {
+        if (log == null) {
+            return List.of();
+        }
+        try {
+            List<Message> stored = log.last(other, n);
+            if (!stored.isEmpty()) {
+                lastId = stored.get(stored.size() - 1).id();
+            }
+            return stored;
+        } catch (IOException ex) {
+            System.err.println("Could not read stored messages: " + ex.getMessage());
+            return List.of();
+        }
+    }
+
+    /** Whether the conversation has messages older than {@code beforeId}, as far as is known. */
+    public synchronized boolean hasOlder(String beforeId) {
+        if (beforeId == null) {
+            return false;
+        }
+        if (log != null && log.hasBefore(other, beforeId)) {
+            return true;
+        }
+        return firstId == null || MessageRepository.compareIds(beforeId, firstId) > 0;
+    }
+
+    /** Whether messages after {@code afterId} have come in (those a view may have dropped). */
+    public synchronized boolean hasNewer(String afterId) {
+        return lastId != null && (afterId == null || MessageRepository.compareIds(lastId, afterId) > 0);
+    }
+
+    /**
+     * Up to {@code n} messages just before {@code beforeId}, oldest first:
+     * stored ones while there are any, then from the server.
+     */
+    public Page older(String beforeId, int n) throws IOException {
+        if (log != null) {
+            List<Message> stored = log.before(other, beforeId, n);
+            if (!stored.isEmpty()) {
+                return new Page(stored, hasOlder(stored.get(0).id()));
+            }
+        }
+        Page page = messages.pageBefore(me, other, beforeId, n);
+        if (!page.more()) {
+            synchronized (this) {
+                firstId = page.messages().isEmpty() ? beforeId : page.messages().get(0).id();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Up to {@code n} messages just after {@code afterId}, oldest first, up
+     * to the last one received; newer ones are the polls' to deliver.
+     */
+    public Page newer(String afterId, int n) throws IOException {
+        String last;
+        synchronized (this) {
+            last = lastId;
+        }
+        if (last == null || MessageRepository.compareIds(afterId, last) >= 0) {
+            return new Page(List.of(), false);
+        }
+        String stored = log == null ? null : log.firstId(other);
+        List<Message> page;
+        if (stored != null && MessageRepository.compareIds(stored, afterId) <= 0) {
+            page = log.after(other, afterId, n);
+        } else {
+            page = new ArrayList<>();
+            for (Message m : messages.pageAfter(me, other, afterId, n).messages()) {
+                if (MessageRepository.compareIds(m.id(), last) <= 0) {
+                    page.add(m);
+                }
+            }
+        }
+        boolean more = !page.isEmpty() && MessageRepository.compareIds(page.get(page.size() - 1).id(), last) < 0;
+        return new Page(page, more);
+    }
+
+    /** The newest {@code n} messages received so far, for jumping back to the end. */
+    public List<Message> latest(int n) throws IOException {
+        if (log != null && log.lastId(other) != null) {
+            return log.last(other, n);
+        }
+        String last;
+        synchronized (this) {
+            last = lastId;
+        }
+        if (last == null) {
+            return List.of();
+        }
+        List<Message> page = new ArrayList<>();
+        for (Message m : messages.pageBefore(me, other, null, n).messages()) {
+            if (MessageRepository.compareIds(m.id(), last) <= 0) {
+                page.add(m);
+            }
+        }
+        return page;
+    }
+
+    /** Whether {@code m} was written by the user. */
+    public boolean isMine(Message m) {
+        return myNames.contains(m.from());
+    }
+
+    /**
+     * Claims the next poll if it is due and none is running; the caller then
+     * runs {@link #poll}.
+     */
+    public synchronized boolean beginPollIfDue(long nowMillis) {
+        if (polling || nowMillis < nextPoll) {
+            return false;
+        }
+        polling = true;
+        return true;
+    }
+
+    /**
+     * Fetches what arrived since the last poll and returns the messages to
+     * append (without the user's own, already shown ones). The first poll,
+     * unless {@link #restore} found stored messages, returns the newest
+     * {@link #PAGE_SIZE} of the conversation.
+     */
+    public List<Message> poll() throws IOException {
+        String after;
+        int epoch;
+        synchronized (this) {
+            polling = true;
+            after = lastId;
+            epoch = pushEpoch;
+        }
+        List<Message> fresh = List.of();
+        try {
+            if (after == null) {
+                Page first = messages.pageBefore(me, other, null, PAGE_SIZE);
+                fresh = first.messages();
+                if (!first.more() && !fresh.isEmpty()) {
+                    synchronized (this) {
+                        firstId = fresh.get(0).id();
+                    }
+                }
+            } else {
+                fresh = messages.conversationAfter(me, other, after);
+            }
+            synchronized (this) {
+                List<Message> shown = accept(fresh);
+                // Only a poll that started after the stream came up covers
+                // everything the stream didn't replay
+                if (!caughtUp && epoch == pushEpoch) {
+                    caughtUp = true;
+                    early.sort((a, b) -> MessageRepository.compareIds(a.id(), b.id()));
+                    shown.addAll(accept(early));
+                    early.clear();
+                }
+                return shown;
+            }
+        } finally {
+            synchronized (this) {
+                polling = false;
+                if (pushLive && !caughtUp) {
+                    interval = MIN_INTERVAL_MS; // started before the stream came up; catch up now
+                } else if (pushLive) {
+                    interval = MAX_INTERVAL_MS;
+                } else {
+                    interval = fresh.isEmpty() ? Math.min(MAX_INTERVAL_MS, interval + interval / 2) : MIN_INTERVAL_MS;
+                }
+                nextPoll = System.currentTimeMillis() + interval;
+            }
+        }
+    }
+
+    /**
+     * A message of this conversation from the push channel; returns what to
+     * append (nothing if a poll already had it, or it is the user's own).
+     */
+    public synchronized List<Message> pushed(Message m) {
+        if (!caughtUp) {
+            // Taking it now would move lastId past anything sent just before
+            // the stream started, which the catch-up poll would then skip
+            early.add(m);
+            return List.of();
+        }
+        return accept(List.of(m));
+    }
+
+    /**
+     * The push channel came up or went away. Either way the next poll is
+     * soon: on the way up it fetches what arrived before the stream started
+     * (pushed messages wait for it), on the way down polling takes over again.
+     */
+    public synchronized void setPushLive(boolean live) {
+        if (pushLive != live) {
+            pushLive = live;
+            if (live) {
+                pushEpoch++;
+                caughtUp = false;
+            }
+            interval = MIN_INTERVAL_MS;
+            nextPoll = Math.min(nextPoll, System.currentTimeMillis());
+        }
+    }
+
+    private synchronized List<Message> accept(List<Message> fresh) {
+        List<Message> shown = new ArrayList<>(fresh.size());
+        List<Message> added = new ArrayList<>(fresh.size());
+        for (Message m : fresh) {
+            if (lastId != null && MessageRepository.compareIds(m.id(), lastId) <= 0) {
+                continue; // an overlapping poll already delivered it
+            }
+            lastId = m.id();
+            added.add(m);
+            if (myNames.contains(m.from()) && m.text().equals(echoed.peekFirst())) {
+                echoed.pollFirst(); // already on screen
+                continue;
+            }
+            shown.add(m);
+        }
+        if (log != null && !added.isEmpty() && messages.hasServerIds()) {
+            try {
+                log.append(other, added);
+            } catch (IOException ex) {
+                System.err.println("Could not store messages: " + ex.getMessage());
+            }
+        }
+        return shown;
+    }
+
+    /**
+     * The user is sending {@code text}, which is already on screen. Call
+     * before posting it, so a poll can't return it first; then {@link #wake}
+     * once the post went through.
+     */
+    public synchronized void sent(String text) {
+        echoed.addLast(text);
+        if (!pushLive) {
+            interval = MIN_INTERVAL_MS;
+        }
+    }
+
+    /** Sending {@code text} failed, so it will never come back from the server. */
+    public synchronized void sendFailed(String text) {
+        echoed.removeFirstOccurrence(text);
+    }
+
+    /**
+     * Something suggests a message may be waiting (e.g. the window got
+     * focus); polls soon, unless the push channel is delivering anyway.
+     */
+    public synchronized void wake() {
+        if (pushLive) {
+            return;
+        }
+        interval = MIN_INTERVAL_MS;
+        nextPoll = Math.min(nextPoll, System.currentTimeMillis());
+    }
+
+    /** Milliseconds between polls right now. */
+    public synchronized long getInterval() {
+        return interval;
+    }
+}
@@ -0,0 +1,113 @@
+package com.checkmates.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.JTable;
+import javax.swing.RowSorter.SortKey;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.checkmates.concurrent.TaskScope;
+import com.checkmates.ui.table.ColumnarRowSorter;
+import com.checkmates.ui.table.LoanTableModel;
+
+/**
+ * Row changes while a background sort is still running must not let that
+ * sort's (now stale) order reach the table.
+ */
+public class ColumnarRowSorterTest {
+
+    private static final int ROWS = ColumnarRowSorter.ASYNC_THRESHOLD + 10_000;
+
+    private final AtomicReference<Throwable> edtError = new AtomicReference<>();
+    private TaskScope tasks;
+    private LoanTableModel model;
+    private ColumnarRowSorter<LoanTableModel> sorter;
+
+    @Before
+    public void setUp() throws Exception {
+        tasks = TaskScope.standalone("ColumnarRowSorterTest");
+        SwingUtilities.invokeAndWait(() -> {
+            Thread.currentThread().setUncaughtExceptionHandler((t, e) -> edtError.set(e));
+            model = new LoanTableModel(new String[]{"#", "ISBN", "Card", "Out", "Due", "In", "By", "In by"});
+            List<String[]> rows = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                // Numbers descending, so the ascending sort reverses the model
+                rows.add(new String[]{String.valueOf(ROWS - i), "978000000000" + (i % 10), "C" + i,
+                        "2024-01-01", "2024-02-01", "", "lib", ""});
+            }
+            model.appendRows(rows);
+            sorter = new ColumnarRowSorter<>(model, tasks);
+            new JTable(model).setRowSorter(sorter);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        tasks.close();
+    }
+
+    @Test
+    public void deleteWhileSortPendingKeepsMappingValid() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            sorter.setSortKeys(List.of(new SortKey(LoanTableModel.NUMBER, SortOrder.ASCENDING)));
+            // The sort above runs in the background; half the rows go before it is published
+            model.removeRows(0, ROWS / 2 - 1);
+        });
+        int left = ROWS - ROWS / 2;
+        waitForSortedView(left);
+        assertNull("EDT threw " + edtError.get(), edtError.get());
+        SwingUtilities.invokeAndWait(() -> {
+            assertEquals(left, sorter.getViewRowCount());
+            for (int view = 0; view < left; view++) {
+                // Remaining rows hold numbers left..1; ascending puts the last model row first
+                assertEquals(left - 1 - view, sorter.convertRowIndexToModel(view));
+            }
+        });
+    }
+
+    @Test
+    public void updateWhileSortPendingResortsWithFreshValues() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            sorter.setSortKeys(List.of(new SortKey(LoanTableModel.NUMBER, SortOrder.ASCENDING)));
+            model.setValueAt("0", 0, LoanTableModel.NUMBER); // the largest number becomes the smallest
+        });
+        waitForSortedView(ROWS);
+        assertNull("EDT threw " + edtError.get(), edtError.get());
+        SwingUtilities.invokeAndWait(() -> assertEquals(0, sorter.convertRowIndexToModel(0)));
+    }
+
+    // Until the view is the expected size and in ascending NUMBER order
+    private void waitForSortedView(int expectedRows) throws Exception {
+        long end = System.currentTimeMillis() + 60_000;
+        boolean[] sorted = new boolean[1];
+        while (!sorted[0] && System.currentTimeMillis() < end && edtError.get() == null) {
+            Thread.sleep(100);
+            SwingUtilities.invokeAndWait(() -> sorted[0] = isSorted(expectedRows));
+        }
+        assertTrue("view never settled on the sorted order", sorted[0] || edtError.get() != null);
+    }
+
+    private boolean isSorted(int expectedRows) {
+        if (sorter.getViewRowCount() != expectedRows || model.getRowCount() != expectedRows) {
+            return false;
+        }
+        long previous = Long.MIN_VALUE;
+        for (int view = 0; view < expectedRows; view++) {
+            long n = Long.parseLong(String.valueOf(model.getValueAt(sorter.convertRowIndexToModel(view), 0)));
+            if (n < previous) {
+                return false;
+            }
+            previous = n;
+        }
+        return true;
+    }
+}
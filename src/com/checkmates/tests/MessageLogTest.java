@@ -0,0 +1,294 @@
+package com.checkmates.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.checkmates.data.MessageRepository.Message;
+import com.checkmates.store.MessageLog;
+
+/**
+ * Crash safety of {@link MessageLog}: a torn or corrupt record ends the log
+ * on reopen, compaction moves to a new generation, and forgotten
+ * conversations stay forgotten.
+ */
+public class MessageLogTest {
+
+    private Path dir;
+    private MessageLog log;
+    // File size after each append in appendOneByOne, i.e. where the next record starts
+    private final List<Long> ends = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("message-log-test");
+        log = MessageLog.open(dir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        log.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path f : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    @Test
+    public void reopenRestoresIndex() throws Exception {
+        log.append("bob", messages(1, 10));
+        log.append("carol", messages(11, 15));
+
+        reopen();
+
+        assertEquals(10, log.count("bob"));
+        assertEquals("10", log.lastId("bob"));
+        assertEquals("1", log.firstId("bob"));
+        assertEquals(List.of("8", "9", "10"), ids(log.last("bob", 3)));
+        assertEquals(List.of("3", "4"), ids(log.before("bob", "5", 2)));
+        assertEquals(List.of("6", "7"), ids(log.after("bob", "5", 2)));
+        assertEquals("text 12", log.last("carol", 4).get(0).text());
+        assertTrue(log.hasBefore("bob", "2"));
+        assertFalse(log.hasBefore("bob", "1"));
+    }
+
+    @Test
+    public void appendSkipsWhatIsStored() throws Exception {
+        log.append("bob", messages(1, 5));
+        long size = log.size();
+
+        log.append("bob", messages(3, 5));
+        assertEquals(size, log.size());
+        log.append("bob", messages(3, 7));
+
+        assertEquals(List.of("1", "2", "3", "4", "5", "6", "7"), ids(log.last("bob", 10)));
+    }
+
+    @Test
+    public void tornTailIsCut() throws Exception {
+        appendOneByOne("bob", 10);
+        log.close();
+        // A crash three bytes short of finishing the tenth record
+        try (FileChannel ch = FileChannel.open(currentFile(), StandardOpenOption.WRITE)) {
+            ch.truncate(ends.get(9) - 3);
+        }
+
+        log = MessageLog.open(dir);
+
+        assertEquals(9, log.count("bob"));
+        assertEquals("9", log.lastId("bob"));
+        assertEquals((long) ends.get(8), log.size());
+        // The next poll brings the lost one back
+        log.append("bob", messages(10, 11));
+        reopen();
+        assertEquals(List.of("9", "10", "11"), ids(log.last("bob", 3)));
+    }
+
+    @Test
+    public void corruptPayloadEndsLog() throws Exception {
+        appendOneByOne("bob", 10);
+        log.close();
+        flipByte(ends.get(4) + 8 + 3); // inside the sixth record's payload
+
+        log = MessageLog.open(dir);
+
+        assertEquals(5, log.count("bob"));
+        assertEquals("5", log.lastId("bob"));
+        assertEquals((long) ends.get(4), log.size());
+        assertEquals(List.of("4", "5"), ids(log.last("bob", 2)));
+    }
+
+    @Test
+    public void corruptChecksumEndsLog() throws Exception {
+        appendOneByOne("bob", 10);
+        log.close();
+        flipByte(ends.get(6) + 4); // the eighth record's CRC
+
+        log = MessageLog.open(dir);
+
+        assertEquals(7, log.count("bob"));
+        assertEquals((long) ends.get(6), log.size());
+    }
+
+    @Test
+    public void impossibleLengthEndsLog() throws Exception {
+        appendOneByOne("bob", 4);
+        log.close();
+        try (FileChannel ch = FileChannel.open(currentFile(), StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), ends.get(1));
+        }
+
+        log = MessageLog.open(dir);
+
+        assertEquals(2, log.count("bob"));
+        assertEquals((long) ends.get(1), log.size());
+    }
+
+    @Test
+    public void otherVersionStartsOver() throws Exception {
+        log.append("bob", messages(1, 3));
+        log.close();
+        try (FileChannel ch = FileChannel.open(currentFile(), StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).putInt(0, MessageLog.VERSION - 1), 4);
+        }
+
+        log = MessageLog.open(dir);
+
+        assertEquals(0, log.count("bob"));
+        assertNull(log.lastId("bob"));
+        assertEquals(8, log.size());
+    }
+
+    @Test
+    public void forgetDropsConversationAcrossReopen() throws Exception {
+        log.append("bob", messages(1, 5));
+        log.append("carol", messages(6, 8));
+
+        log.forget("carol");
+        assertNull(log.lastId("carol"));
+        assertEquals(0, log.count("carol"));
+        assertTrue(log.getGarbage() > 0);
+        reopen();
+
+        assertNull(log.lastId("carol"));
+        assertEquals(5, log.count("bob"));
+        // A new conversation with the same person starts from scratch
+        log.append("carol", messages(1, 2));
+        reopen();
+        assertEquals(List.of("1", "2"), ids(log.last("carol", 10)));
+    }
+
+    @Test
+    public void forgetUnknownConversationWritesNothing() throws Exception {
+        log.append("bob", messages(1, 2));
+        long size = log.size();
+
+        log.forget("nobody");
+
+        assertEquals(size, log.size());
+        assertEquals(0, log.getGarbage());
+    }
+
+    @Test
+    public void compactSwitchesGeneration() throws Exception {
+        log.append("bob", messages(1, 20));
+        log.append("carol", messages(21, 40));
+        log.forget("carol");
+        Path before = currentFile();
+        long sizeBefore = log.size();
+
+        log.compact();
+
+        List<Path> files = logFiles();
+        assertEquals(1, files.size());
+        assertFalse(files.get(0).equals(before));
+        assertFalse(Files.exists(before));
+        assertTrue(log.size() < sizeBefore);
+        assertEquals(0, log.getGarbage());
+        assertEquals(20, log.count("bob"));
+        // Still appendable, and readable after reopening
+        log.append("bob", messages(41, 41));
+        reopen();
+        assertEquals(21, log.count("bob"));
+        assertEquals(List.of("20", "41"), ids(log.last("bob", 2)));
+        assertNull(log.lastId("carol"));
+    }
+
+    @Test
+    public void leftoverGenerationIsRemovedOnOpen() throws Exception {
+        log.append("bob", messages(1, 5));
+        log.compact();
+        Path current = currentFile();
+        log.close();
+        // As if a crash came between the rename and deleting the old file
+        Path stale = dir.resolve(String.format("messages-%012d.log", 1));
+        Files.write(stale, new byte[]{1, 2, 3});
+
+        log = MessageLog.open(dir);
+
+        assertEquals(List.of(current), logFiles());
+        assertEquals(5, log.count("bob"));
+    }
+
+    @Test
+    public void secondOpenIsRefused() throws Exception {
+        try {
+            MessageLog.open(dir).close();
+            fail("opened a log that is in use");
+        } catch (IOException expected) {
+            // the first one keeps it
+        }
+    }
+
+    // --- Helpers ---
+
+    private void reopen() throws IOException {
+        log.close();
+        log = MessageLog.open(dir);
+    }
+
+    private void appendOneByOne(String other, int n) throws IOException {
+        for (int i = 1; i <= n; i++) {
+            log.append(other, messages(i, i));
+            ends.add(log.size());
+        }
+    }
+
+    private void flipByte(long pos) throws IOException {
+        try (FileChannel ch = FileChannel.open(currentFile(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, pos);
+            b.put(0, (byte) ~b.get(0));
+            b.rewind();
+            ch.write(b, pos);
+        }
+    }
+
+    private Path currentFile() throws IOException {
+        List<Path> files = logFiles();
+        return files.get(files.size() - 1);
+    }
+
+    private List<Path> logFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "messages-*.log")) {
+            ds.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static List<Message> messages(int first, int last) {
+        List<Message> out = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            out.add(new Message(String.valueOf(i), i % 2 == 0 ? "me" : "them", "text " + i, "2024-01-01 10:00"));
+        }
+        return out;
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        List<String> out = new ArrayList<>(messages.size());
+        for (Message m : messages) {
+            out.add(m.id());
+        }
+        return out;
+    }
+}
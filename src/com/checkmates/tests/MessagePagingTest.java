@@ -0,0 +1,210 @@
+package com.checkmates.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.checkmates.data.MessageRepository.Message;
+import com.checkmates.data.MessageRepository.Page;
+import com.checkmates.data.http.HttpMessageRepository;
+import com.checkmates.net.BackendClient;
+import com.checkmates.net.BackendException;
+import com.checkmates.net.ResponseCache;
+import com.checkmates.net.stub.StubMessageServer;
+import com.checkmates.sync.MessageSync;
+
+/**
+ * Paging through a long conversation: getMessages.php's {@code before_id},
+ * {@code after_id} and {@code limit} on the stub, and {@link MessageSync}'s
+ * first page, {@code older} and {@code newer} on top of them.
+ */
+public class MessagePagingTest {
+
+    private static final int MESSAGES = 2 * MessageSync.PAGE_SIZE + 20;
+
+    private StubMessageServer server;
+    private HttpMessageRepository repo;
+    // Ids of the alice/bob conversation, oldest first
+    private final List<String> ids = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubMessageServer(0, 10_000);
+        server.start();
+        BackendClient client = new BackendClient(Duration.ofSeconds(5), Duration.ofSeconds(10),
+                new ResponseCache(Map.of(), 0, null, 0));
+        repo = new HttpMessageRepository(client, server.baseUrl());
+        for (int i = 0; i < MESSAGES; i++) {
+            // Another conversation in between, so ids have gaps
+            server.post("alice", "carol", "to carol " + i);
+            ids.add(String.valueOf(i % 2 == 0
+                    ? server.post("alice", "bob", "msg " + i)
+                    : server.post("bob", "alice", "msg " + i)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    // --- getMessages.php ---
+
+    @Test
+    public void beforeIdReturnsNewestBeforeIt() throws Exception {
+        Page page = repo.pageBefore("alice", "bob", ids.get(30), 10);
+
+        assertEquals(ids.subList(20, 30), idsOf(page.messages()));
+        assertTrue(page.more());
+    }
+
+    @Test
+    public void afterIdReturnsOldestAfterIt() throws Exception {
+        Page page = repo.pageAfter("alice", "bob", ids.get(30), 10);
+
+        assertEquals(ids.subList(31, 41), idsOf(page.messages()));
+        assertTrue(page.more());
+    }
+
+    @Test
+    public void pageAtEitherEndSaysThereIsNoMore() throws Exception {
+        Page first = repo.pageBefore("alice", "bob", ids.get(5), 10);
+        Page last = repo.pageAfter("alice", "bob", ids.get(MESSAGES - 6), 10);
+
+        assertEquals(ids.subList(0, 5), idsOf(first.messages()));
+        assertFalse(first.more());
+        assertEquals(ids.subList(MESSAGES - 5, MESSAGES), idsOf(last.messages()));
+        assertFalse(last.more());
+    }
+
+    @Test
+    public void pagesOnlyHoldTheConversation() throws Exception {
+        Page page = repo.pageBefore("alice", "carol", null, 5);
+
+        assertEquals(5, page.messages().size());
+        for (Message m : page.messages()) {
+            assertTrue(m.text().startsWith("to carol"));
+        }
+    }
+
+    @Test
+    public void badCursorIsRejected() throws Exception {
+        HttpClient http = HttpClient.newHttpClient();
+        for (String query : new String[]{"&before_id=abc", "&after_id=", "&limit=ten"}) {
+            HttpResponse<String> resp = http.send(HttpRequest.newBuilder(URI.create(
+                    server.baseUrl() + "getMessages.php?user1=alice&user2=bob" + query)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(query, 400, resp.statusCode());
+        }
+        try {
+            repo.pageBefore("alice", "bob", "abc", 10);
+            fail("bad before_id accepted");
+        } catch (BackendException expected) {
+            // the 400's body is not a message list
+        }
+    }
+
+    // --- MessageSync ---
+
+    @Test
+    public void firstPollFetchesOnlyNewestPage() throws Exception {
+        MessageSync sync = sync();
+        int before = server.getPollRequests();
+
+        List<Message> shown = sync.poll();
+
+        assertEquals(ids.subList(MESSAGES - MessageSync.PAGE_SIZE, MESSAGES), idsOf(shown));
+        assertEquals(1, server.getPollRequests() - before);
+        assertTrue(sync.hasOlder(shown.get(0).id()));
+    }
+
+    @Test
+    public void scrollingBackReachesFirstMessage() throws Exception {
+        MessageSync sync = sync();
+        List<Message> seen = new ArrayList<>(sync.poll());
+        int pages = 0;
+        while (sync.hasOlder(seen.get(0).id())) {
+            Page page = sync.older(seen.get(0).id(), MessageSync.PAGE_SIZE);
+            seen.addAll(0, page.messages());
+            assertTrue("paged past the first message", ++pages <= 3);
+        }
+
+        assertEquals(ids, idsOf(seen));
+        assertEquals(2, pages);
+        // Known now, so no request is needed to say so
+        assertFalse(sync.hasOlder(ids.get(0)));
+        assertTrue(sync.hasOlder(ids.get(1)));
+    }
+
+    @Test
+    public void olderBeforeFirstMessageIsEmpty() throws Exception {
+        MessageSync sync = sync();
+        sync.poll();
+
+        Page page = sync.older(ids.get(0), MessageSync.PAGE_SIZE);
+
+        assertTrue(page.messages().isEmpty());
+        assertFalse(page.more());
+        assertFalse(sync.hasOlder(ids.get(0)));
+    }
+
+    @Test
+    public void newerRefillsUpToLastReceived() throws Exception {
+        MessageSync sync = sync();
+        sync.poll();
+        // Arrived after the poll, so not the view's to page in
+        server.post("bob", "alice", "late");
+
+        Page page = sync.newer(ids.get(MESSAGES - 30), 20);
+        Page rest = sync.newer(ids.get(MESSAGES - 10), 20);
+
+        assertEquals(ids.subList(MESSAGES - 29, MESSAGES - 9), idsOf(page.messages()));
+        assertTrue(page.more());
+        assertEquals(ids.subList(MESSAGES - 9, MESSAGES), idsOf(rest.messages()));
+        assertFalse(rest.more());
+        assertTrue(sync.newer(ids.get(MESSAGES - 1), 20).messages().isEmpty());
+        assertTrue(sync.hasNewer(ids.get(MESSAGES - 2)));
+        assertFalse(sync.hasNewer(ids.get(MESSAGES - 1)));
+    }
+
+    @Test
+    public void olderWithBadCursorFails() {
+        MessageSync sync = sync();
+        try {
+            sync.older("abc", MessageSync.PAGE_SIZE);
+            fail("bad cursor accepted");
+        } catch (IOException expected) {
+            // and nothing was learned about where the conversation starts
+        }
+        assertTrue(sync.hasOlder(ids.get(0)));
+    }
+
+    // --- Helpers ---
+
+    private MessageSync sync() {
+        return new MessageSync(repo, "alice", "bob", Set.of("alice"));
+    }
+
+    private static List<String> idsOf(List<Message> messages) {
+        List<String> out = new ArrayList<>(messages.size());
+        for (Message m : messages) {
+            out.add(m.id());
+        }
+        return out;
+    }
+}
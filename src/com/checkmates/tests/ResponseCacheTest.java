@@ -0,0 +1,296 @@
+package com.checkmates.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.checkmates.net.BackendClient;
+import com.checkmates.net.ResponseCache;
+import com.checkmates.net.stub.StubBackendServer;
+
+/**
+ * BackendClient's response cache against the stub backend: conditional
+ * revalidation, stale-while-revalidate, invalidation by writes, and eviction
+ * from both tiers.
+ */
+public class ResponseCacheTest {
+
+    private static final long MB = 1024L * 1024;
+
+    private StubBackendServer server;
+    private Path dir;
+    private String booksUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubBackendServer(0, 200, 0);
+        server.start();
+        dir = Files.createTempDirectory("response-cache-test");
+        booksUrl = server.baseUrl() + "/getBooks.php";
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.stop();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path f : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    @Test
+    public void staleEntryIsRevalidatedWithETag() throws Exception {
+        BackendClient client = client(Duration.ZERO, false, MB, dir);
+
+        String first = client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+        String second = client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+
+        assertEquals(first, second);
+        assertEquals(1, server.getNotModifiedCount());
+        assertEquals(1, client.getCache().getNotModified());
+        assertEquals(1, client.getCache().getDownloads());
+    }
+
+    @Test
+    public void entryWithoutETagIsRevalidatedWithLastModified() throws Exception {
+        BackendClient client = client(Duration.ZERO, false, MB, dir);
+        ResponseCache cache = client.getCache();
+        String first = client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+        // Same body, but only the date to validate against
+        ResponseCache.Entry cached = cache.get(booksUrl);
+        HttpHeaders dateOnly = HttpHeaders.of(Map.of("Last-Modified", List.of(cached.lastModified())),
+                (k, v) -> true);
+        cache.store(booksUrl, null, 200, dateOnly, first.getBytes(StandardCharsets.UTF_8), cache.generation());
+        assertNull(cache.get(booksUrl).etag());
+
+        String second = client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+
+        assertEquals(first, second);
+        assertEquals(1, server.getNotModifiedCount());
+    }
+
+    @Test
+    public void changedBodyReplacesEntry() throws Exception {
+        BackendClient client = client(Duration.ZERO, false, MB, dir);
+        String first = client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+        renameFirstBook();
+
+        String second = client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+
+        assertNotEquals(first, second);
+        assertTrue(second.contains("Renamed"));
+        assertEquals(0, server.getNotModifiedCount());
+        assertEquals(second, client.getCache().get(booksUrl).text());
+    }
+
+    @Test
+    public void staleWhileRevalidateAnswersFromCacheAndReportsChange() throws Exception {
+        BackendClient client = client(Duration.ZERO, true, MB, dir);
+        String first = client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+        renameFirstBook();
+
+        CompletableFuture<String> update = new CompletableFuture<>();
+        String stale = client.getCached(booksUrl, update::complete).get(10, TimeUnit.SECONDS);
+        String fresh = update.get(10, TimeUnit.SECONDS);
+
+        assertEquals(first, stale);
+        assertTrue(fresh.contains("Renamed"));
+        assertEquals(fresh, client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void staleWhileRevalidateStaysQuietWhenUnchanged() throws Exception {
+        BackendClient client = client(Duration.ZERO, true, MB, dir);
+        client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+
+        CompletableFuture<String> update = new CompletableFuture<>();
+        client.getCached(booksUrl, update::complete).get(10, TimeUnit.SECONDS);
+        waitFor(() -> server.getNotModifiedCount() == 1);
+
+        assertFalse(update.isDone());
+    }
+
+    @Test
+    public void writeDropsEntriesOfChangedEndpoint() throws Exception {
+        BackendClient client = client(Duration.ofMinutes(5), true, MB, dir);
+        String before = client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+        assertNotNull(client.getCache().get(booksUrl));
+        assertEquals(1, cacheFiles().size());
+
+        String isbn = server.getBooks().get(1)[0];
+        client.postForm(server.baseUrl() + "/checkoutBook.php",
+                Map.of("isbn", isbn, "Card_id", "ID000001", "lib_id_checkout", "L1", "request_id", "r1"));
+
+        assertNull(client.getCache().get(booksUrl));
+        assertTrue(cacheFiles().isEmpty());
+        String after = client.getCached(booksUrl, null).get(10, TimeUnit.SECONDS);
+        assertEquals(2, client.getCache().getDownloads());
+        assertNotEquals(before, after); // the book is now out
+    }
+
+    @Test
+    public void largeBodyIsStreamedFromDisk() throws Exception {
+        // 200 books is well over a quarter of this memory budget
+        BackendClient client = client(Duration.ofMinutes(5), false, 16 * 1024, dir);
+        byte[] first;
+        try (InputStream in = client.getStreamCached(booksUrl, true, null)) {
+            first = in.readAllBytes();
+        }
+        ResponseCache.Entry entry = client.getCache().get(booksUrl);
+        assertNull(entry.body());
+        assertNotNull(entry.file());
+
+        byte[] second;
+        try (InputStream in = client.getStreamCached(booksUrl, true, null)) {
+            second = in.readAllBytes();
+        }
+        assertArrayEquals(first, second);
+        assertEquals(1, server.getNotModifiedCount());
+    }
+
+    @Test
+    public void memoryTierEvictsLeastRecentlyUsed() {
+        // 200 bytes in memory, at most 50 per entry; no disk
+        ResponseCache cache = new ResponseCache(policies(Duration.ofMinutes(5), false), 200, null, 0);
+        for (int i = 0; i < 5; i++) {
+            store(cache, i, 40);
+        }
+        assertNotNull(cache.get(url(0))); // now the most recent
+
+        store(cache, 5, 40);
+
+        assertNotNull(cache.get(url(0)));
+        assertNull(cache.get(url(1)));
+        for (int i = 2; i <= 5; i++) {
+            assertNotNull(cache.get(url(i)));
+        }
+    }
+
+    @Test
+    public void memoryTierSkipsOversizedBody() {
+        ResponseCache cache = new ResponseCache(policies(Duration.ofMinutes(5), false), 200, null, 0);
+        store(cache, 0, 40);
+        store(cache, 1, 51);
+
+        assertNotNull(cache.get(url(0)));
+        assertNull(cache.get(url(1)));
+    }
+
+    @Test
+    public void diskTierEvictsOldestFiles() throws Exception {
+        // No memory tier, so every lookup reads the disk
+        ResponseCache cache = new ResponseCache(policies(Duration.ofMinutes(5), false), 0, dir, 3 * 1200);
+        long base = System.currentTimeMillis() - 60_000;
+        List<Path> written = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            store(cache, i, 1000);
+            for (Path f : cacheFiles()) {
+                if (!written.contains(f)) {
+                    written.add(f);
+                    Files.setLastModifiedTime(f, FileTime.fromMillis(base + i * 1000));
+                }
+            }
+        }
+        assertEquals(3, cacheFiles().size());
+
+        store(cache, 3, 1000);
+
+        assertEquals(3, cacheFiles().size());
+        assertFalse(Files.exists(written.get(0)));
+        assertNull(cache.get(url(0)));
+        for (int i = 1; i <= 3; i++) {
+            ResponseCache.Entry e = cache.get(url(i));
+            assertNotNull(e);
+            assertEquals(1000, e.bytes().length);
+        }
+    }
+
+    @Test
+    public void corruptDiskEntryIsDropped() throws Exception {
+        ResponseCache cache = new ResponseCache(policies(Duration.ofMinutes(5), false), 0, dir, MB);
+        store(cache, 0, 1000);
+        Path f = cacheFiles().get(0);
+        byte[] data = Files.readAllBytes(f);
+        Files.write(f, Arrays.copyOf(data, data.length - 10));
+
+        assertNull(cache.get(url(0)));
+        assertFalse(Files.exists(f));
+    }
+
+    // --- Helpers ---
+
+    private BackendClient client(Duration ttl, boolean staleWhileRevalidate, long memoryBudget, Path disk) {
+        ResponseCache cache = new ResponseCache(policies(ttl, staleWhileRevalidate), memoryBudget, disk, 64 * MB);
+        return new BackendClient(Duration.ofSeconds(5), Duration.ofSeconds(10), cache);
+    }
+
+    private static Map<String, ResponseCache.Policy> policies(Duration ttl, boolean staleWhileRevalidate) {
+        return Map.of("getBooks.php", new ResponseCache.Policy(ttl, staleWhileRevalidate,
+                Set.of("checkoutBook.php", "checkinBook.php")));
+    }
+
+    private String url(int i) {
+        return booksUrl + "?page=" + i;
+    }
+
+    private void store(ResponseCache cache, int i, int length) {
+        byte[] body = new byte[length];
+        Arrays.fill(body, (byte) ('a' + i));
+        HttpHeaders headers = HttpHeaders.of(Map.of("ETag", List.of("\"" + i + "\"")), (k, v) -> true);
+        cache.store(url(i), null, 200, headers, body, cache.generation());
+    }
+
+    private void renameFirstBook() {
+        String[] book = server.getBooks().get(0).clone();
+        book[1] = "Renamed";
+        server.updateBook(0, book);
+    }
+
+    private List<Path> cacheFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.cache")) {
+            ds.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+        Thread.sleep(100); // let a (wrong) change callback run, if there is one
+    }
+}
@@ -60,18 +60,24 @@ import com.checkmates.model.Professor;
 import com.checkmates.model.Librarian;
 
 import com.checkmates.ai.ChatProcess;
+import com.checkmates.concurrent.TaskScope;
+import com.checkmates.data.ClassRepository;
+import com.checkmates.data.Repositories;
+import com.checkmates.net.BackendException;
 import com.checkmates.ui.components.HintTextField;
+import com.checkmates.ui.components.MessageListView;
 import com.checkmates.ui.components.FancyHoverButton;
 import com.checkmates.ui.components.ModernScrollBarUI;
 
 
 public class ChatDialog extends JDialog {
-    private final JTextArea chatArea;
+    private final MessageListView chatArea;
     private final JTextField inputField;
     private final JButton sendButton;
     private int classId; // Current selected class ID
     private final Librarian librarian;
     public final JComboBox<ClassItem> classComboBox; // To let professor choose a class
+    private final TaskScope tasks;
 
     public ChatDialog(JFrame parent, Librarian librarian){
         super(parent, "Saki Chat", true);
@@ -80,6 +86,7 @@ public class ChatDialog extends JDialog {
         setSize(600, 500);
         setLocationRelativeTo(parent);
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        tasks = TaskScope.forWindow(this);
 
         // Apply padding around the dialog content
         ((JComponent) getContentPane()).setBorder(new EmptyBorder(10, 10, 10, 10));
@@ -100,13 +107,8 @@ public class ChatDialog extends JDialog {
         add(topPanel, BorderLayout.NORTH);   
         loadProfessorClasses();
      
-        // Chat area with modern styling
-        chatArea = new JTextArea();
-        chatArea.setEditable(false);
-        chatArea.setFont(new Font("SansSerif", Font.PLAIN, 14));
-        chatArea.setLineWrap(true);
-        chatArea.setWrapStyleWord(true);
-        chatArea.setBackground(new Color(255, 255, 255));
+        // Conversation view; only the messages on screen are laid out
+        chatArea = new MessageListView();
         chatArea.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createLineBorder(new Color(220, 220, 220)),
                 new EmptyBorder(10, 10, 10, 10)
@@ -121,9 +123,9 @@ public class ChatDialog extends JDialog {
 
       // listener
       summaryBtn.addActionListener(e -> {
-      appendChat("You: [Requested summary of all classes]");
+      appendChat("You", "[Requested summary of all classes]");
 
-    new SwingWorker<String,Void>() {
+    tasks.submit(new SwingWorker<String,Void>() {
         @Override
         protected String doInBackground() {
             return ChatProcess.summarizeAllClasses(librarian.getLibID());
@@ -132,13 +134,12 @@ public class ChatDialog extends JDialog {
         protected void done() {
             try {
                 String summary = get();
-                appendChat("Saki (All‑Classes Summary):\n");
-                displayWithTypingEffect(summary);
+                displayWithTypingEffect("Saki (All‑Classes Summary)", summary);
             } catch (Exception ex) {
-                appendChat("Saki: [Error fetching summary]");
+                appendChat("Saki", "[Error fetching summary]");
             }
         }
-    }.execute();
+    });
 });
 
         // after classComboBox…
@@ -148,8 +149,8 @@ public class ChatDialog extends JDialog {
        tips.setFocusPainted(false);
        
        tips.addActionListener(e -> {
-           appendChat("You: [Want tips from Saki]");
-           new SwingWorker<String,Void>(){
+           appendChat("You", "[Want tips from Saki]");
+           tasks.submit(new SwingWorker<String,Void>(){
                @Override
                protected String doInBackground() {
                   return ChatProcess.giveTips(librarian.getLibID());
@@ -158,13 +159,12 @@ public class ChatDialog extends JDialog {
                protected void done() {
                  try {
                      String summary = get();
-                     appendChat("Saki (Tips on classes summary):\n");
-                     displayWithTypingEffect(summary);
+                     displayWithTypingEffect("Saki (Tips on classes summary)", summary);
                  } catch (Exception ex) {
-                     appendChat("Saki: [Error fetching tips]");
+                     appendChat("Saki", "[Error fetching tips]");
                  }
                }
-          }.execute();
+          });
    });
        
        topPanel.add(tips);
@@ -219,46 +219,23 @@ public class ChatDialog extends JDialog {
         SwingWorker<Void, Void> worker = new SwingWorker<>() {
             @Override
             protected Void doInBackground() {
-                String urlString = "";
                 try {
-                    urlString = "http://cm8tes.com/getClasses.php?professor_id=" +
-                            URLEncoder.encode(librarian.getLibID(), StandardCharsets.UTF_8.toString());
-                    URL url = new URL(urlString);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("GET");
-                    conn.setConnectTimeout(5000);
-                    conn.setReadTimeout(5000);
-                    // Using try-with-resources to ensure streams are closed properly
-                    try (BufferedReader in = new BufferedReader(
-                            new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                        StringBuilder response = new StringBuilder();
-                        String line;
-                        while ((line = in.readLine()) != null) {
-                            response.append(line);
+                    java.util.List<ClassRepository.ClassInfo> classes =
+                            Repositories.getInstance().classes().classesFor(librarian.getLibID());
+                    SwingUtilities.invokeLater(() -> {
+                        for (ClassRepository.ClassInfo c : classes) {
+                            String display = c.name() + " - " + c.section();
+                            classComboBox.addItem(new ClassItem(c.id(), display));
                         }
-                        JSONObject json = new JSONObject(response.toString());
-                        if ("success".equalsIgnoreCase(json.optString("status"))) {
-                            JSONArray classesArray = json.getJSONArray("classes");
-                            SwingUtilities.invokeLater(() -> {
-                                for (int i = 0; i < classesArray.length(); i++) {
-                                    JSONObject obj = classesArray.getJSONObject(i);
-                                    int id = obj.optInt("class_id");
-                                    String name = obj.optString("className");
-                                    String section = obj.optString("section");
-                                    String display = name + " - " + section;
-                                    classComboBox.addItem(new ClassItem(id, display));
-                                }
-                                
-                               if (classComboBox.getItemCount() > 0) {
-                                    ClassItem selected = (ClassItem) classComboBox.getItemAt(0);
-                                    classId = selected.id;
-                                }
-                            });
-                        } else {
-                            SwingUtilities.invokeLater(() ->
-                                    JOptionPane.showMessageDialog(ChatDialog.this, "Failed to load classes."));
+                        
+                       if (classComboBox.getItemCount() > 0) {
+                            ClassItem selected = (ClassItem) classComboBox.getItemAt(0);
+                            classId = selected.id;
                         }
-                    }
+                    });
+                } catch (BackendException ex) {
+                    SwingUtilities.invokeLater(() ->
+                            JOptionPane.showMessageDialog(ChatDialog.this, "Failed to load classes."));
                 } catch (Exception ex) {
                     ex.printStackTrace();
                     SwingUtilities.invokeLater(() ->
@@ -267,31 +244,29 @@ public class ChatDialog extends JDialog {
                 return null;
             }
         };
-        worker.execute();
+        tasks.submit(worker);
     }
     
-    private void displayWithTypingEffect(String fullText) {
+    private void displayWithTypingEffect(String from, String fullText) {
         // Disable input while “typing”
         sendButton.setEnabled(false);
         inputField.setEnabled(false);
 
-        // Prefix “Saki: ” and then the real content
-        chatArea.append("Saki: ");
-        chatArea.setCaretPosition(chatArea.getDocument().getLength());
-        
+        // An empty message from Saki that grows as it is "typed"
+        chatArea.append(new MessageListView.Item(from, "", false));
+
         final char[] chars = fullText.toCharArray();
         final int delayMs = 20;                // adjust for speed
         final int[] idx = { 0 };
 
         Timer timer = new Timer(delayMs, null);
         timer.addActionListener(e -> {
-            // append next character
-            chatArea.append(String.valueOf(chars[idx[0]++]));
-            chatArea.setCaretPosition(chatArea.getDocument().getLength());
+            // show the next character; only this message is measured again
+            idx[0]++;
+            chatArea.replaceLast(new MessageListView.Item(from, new String(chars, 0, Math.min(idx[0], chars.length)), false));
 
             if (idx[0] >= chars.length) {
                 timer.stop();
-                chatArea.append("\n\n");
                 // re‑enable input
                 sendButton.setEnabled(true);
                 inputField.setEnabled(true);
@@ -305,7 +280,7 @@ public class ChatDialog extends JDialog {
     private void processInput() {
         String userText = inputField.getText().trim();
         if (userText.isEmpty()) return;
-        appendChat("You: " + userText);
+        appendChat("You", userText);
         inputField.setText("");
 
         ClassItem selected = (ClassItem) classComboBox.getSelectedItem();
@@ -324,18 +299,17 @@ public class ChatDialog extends JDialog {
             protected void done() {
                  try {
                   String response = get();
-                  displayWithTypingEffect(response);
+                  displayWithTypingEffect("Saki", response);
                 } catch (Exception ex) {
-                  appendChat("Saki: [Error processing message]");
+                  appendChat("Saki", "[Error processing message]");
                  }
             }
         };
-        worker.execute();
+        tasks.submit(worker);
     }
 
-    public void appendChat(String message) {
-        chatArea.append(message + "\n\n");
-        chatArea.setCaretPosition(chatArea.getDocument().getLength());
+    public void appendChat(String from, String message) {
+        chatArea.append(new MessageListView.Item(from, message, "You".equals(from)));
     }
     
     
@@ -113,6 +113,9 @@ import org.json.JSONObject;
 import com.checkmates.ai.ChatProcess;
 import com.checkmates.model.Professor;
 import com.checkmates.model.Librarian;
+import com.checkmates.data.ClassRepository;
+import com.checkmates.data.Repositories;
+import com.checkmates.net.BackendException;
 import com.checkmates.main.Login;
 import com.checkmates.ui.components.FancyHoverButton;
 import com.checkmates.ui.components.FancyHoverButton2;
@@ -762,78 +765,45 @@ private String prefix64(String rawIp) {
                                  int    expirationMinutes) {
     new Thread(() -> {
         try {
-            // 1) build & POST the data from the database
-            String urlString = "http://cm8tes.com/createClass.php";
-            String params = "professor_id=" + URLEncoder.encode(professorId, StandardCharsets.UTF_8.name())
-                          + "&class="        + URLEncoder.encode(className, StandardCharsets.UTF_8.name())
-                          + "&section="      + URLEncoder.encode(section, StandardCharsets.UTF_8.name())
-                          + "&expiration="   + expirationMinutes
-                          + "&passcode="     + passcode
-                          + "&ip_restriction=" + (isIPRTurnOn ? "1" : "0");
-                          
-            if(isIPRTurnOn == true){
-                params += "&ip_address_v6=" + URLEncoder.encode(collectedIPv6, StandardCharsets.UTF_8.name());                
-            }
-            
-            byte[] postData = params.getBytes(StandardCharsets.UTF_8);
-
-            HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            conn.setDoOutput(true);
-
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(postData);
-            }
-
-            // 2) read response
-            InputStream  is       = conn.getInputStream();
-            BufferedReader in      = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-            StringBuilder  sb      = new StringBuilder();
-            String         line;
-            while ((line = in.readLine()) != null) {
-                sb.append(line);
-            }
-            in.close();
-            conn.disconnect();
+            // 1) create the class through the configured backend
+            ClassRepository.Passcode created = Repositories.getInstance().classes().create(
+                    professorId, className, section, passcode, expirationMinutes,
+                    isIPRTurnOn ? collectedIPv6 : null);
 
-            JSONObject json = new JSONObject(sb.toString());
-
-            // 3)UI
+            // 2) UI
             SwingUtilities.invokeLater(() -> {
-                if ("success".equalsIgnoreCase(json.optString("status"))) {
-                    JPanel panel = new JPanel(new BorderLayout());
-                    panel.setBackground(Color.WHITE);
-                    panel.setBorder(BorderFactory.createEmptyBorder(15,15,15,15));
-
-                    String html = "<html>"
-                        + "Class created successfully!<br/>"
-                        + "Passcode: " + json.optInt("passcode") + "<br/>"
-                        + "Expires: "  + json.optString("passcode_expires")
-                        + "</html>";
-                    JLabel message = new JLabel(html, SwingConstants.CENTER);
-                    message.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-                    panel.add(message, BorderLayout.CENTER);
-
-                    FancyHoverButton ok = new FancyHoverButton("OK");
-                    ok.addActionListener(e -> SwingUtilities.getWindowAncestor(panel).dispose());
-
-                    JPanel btnPanel = new JPanel();
-                    btnPanel.setBackground(Color.WHITE);
-                    btnPanel.add(ok);
-                    panel.add(btnPanel, BorderLayout.SOUTH);
-
-                    JDialog dlg = new JDialog(Dashboard.this, "Success", true);
-                    dlg.setContentPane(panel);
-                    dlg.pack();
-                    dlg.setLocationRelativeTo(Dashboard.this);
-                    dlg.setVisible(true);
-
-                } else {
-                    JOptionPane.showMessageDialog(Dashboard.this,
-                        "Error: " + json.optString("message"),
-                        "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                JPanel panel = new JPanel(new BorderLayout());
+                panel.setBackground(Color.WHITE);
+                panel.setBorder(BorderFactory.createEmptyBorder(15,15,15,15));
+
+                String html = "<html>"
+                    + "Class created successfully!<br/>"
+                    + "Passcode: " + created.passcode() + "<br/>"
+                    + "Expires: "  + created.expires()
+                    + "</html>";
+                JLabel message = new JLabel(html, SwingConstants.CENTER);
+                message.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+                panel.add(message, BorderLayout.CENTER);
+
+                FancyHoverButton ok = new FancyHoverButton("OK");
+                ok.addActionListener(e -> SwingUtilities.getWindowAncestor(panel).dispose());
+
+                JPanel btnPanel = new JPanel();
+                btnPanel.setBackground(Color.WHITE);
+                btnPanel.add(ok);
+                panel.add(btnPanel, BorderLayout.SOUTH);
+
+                JDialog dlg = new JDialog(Dashboard.this, "Success", true);
+                dlg.setContentPane(panel);
+                dlg.pack();
+                dlg.setLocationRelativeTo(Dashboard.this);
+                dlg.setVisible(true);
+            });
+        } catch (BackendException e) {
+            SwingUtilities.invokeLater(() -> {
+                JOptionPane.showMessageDialog(Dashboard.this,
+                    "Error: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
             });
         } catch (Exception e) {
             e.printStackTrace();
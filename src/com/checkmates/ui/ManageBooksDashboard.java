@@ -4,23 +4,34 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.table.*;
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import org.json.JSONObject;
-import org.json.JSONArray;
-import java.util.ArrayList;
-import javax.swing.RowFilter;
-
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import com.checkmates.audit.ShelfAudit;
+import com.checkmates.bulk.BookImporter;
+import com.checkmates.bulk.CirculationBatch;
+import com.checkmates.concurrent.SingleFlight;
+import com.checkmates.concurrent.TaskScope;
+import com.checkmates.data.Repositories;
 import com.checkmates.model.Librarian;
+import com.checkmates.net.BackendException;
+import com.checkmates.search.CatalogIndex;
+import com.checkmates.search.SearchPipeline;
+import com.checkmates.search.TrigramIndex;
+import com.checkmates.store.CatalogStore;
+import com.checkmates.store.MappedTable;
+import com.checkmates.ui.table.BookTableModel;
+import com.checkmates.ui.table.MappedTableModel;
+import com.checkmates.ui.table.PagedBookTableModel;
+import com.checkmates.ui.table.ColumnarRowSorter;
+import com.checkmates.ui.table.RowDiff;
+import com.checkmates.ui.table.RowBatcher;
 import com.checkmates.ui.components.FancyHoverButton;
 import com.checkmates.ui.components.FancyHoverButton2;
-import com.checkmates.ui.ManageLoanDashboard;
 
 
 import com.formdev.flatlaf.FlatLightLaf;
@@ -30,7 +41,30 @@ public class ManageBooksDashboard extends JFrame {
     private Librarian lib;
     private JTable booksTable;
     private JTextField searchField;
-    private TableRowSorter<TableModel> rowSorter;
+    private JCheckBox fuzzyCheck;
+    private ColumnarRowSorter<BookTableModel> rowSorter;
+    private final TaskScope tasks;
+    private final SingleFlight<String, Integer> loads = new SingleFlight<>();
+    private volatile Future<?> activeLoad;
+    private JLabel loadStatusLabel;
+    private JButton cancelLoadButton;
+    private PagedBookTableModel pagedModel;
+    // Installed catalog model, read by the loader to diff refreshes against it
+    private volatile BookTableModel booksModel;
+    // Search indexes over the rows of the installed (non-paged) model
+    private CatalogIndex bookIndex = new CatalogIndex();
+    private TrigramIndex bookTrigrams = new TrigramIndex();
+    private final SearchPipeline search;
+
+    private final Repositories backend = Repositories.getInstance();
+    // > 0 switches the catalog to on-demand pages of this size (needs offset/limit support in getBooks.php)
+    private static final int PAGE_SIZE = Integer.getInteger("checkmates.books.pageSize", 0);
+    private static final int MAX_RESIDENT_PAGES = 8;
+    // Catalog saved by the last load, shown on open while the download runs
+    private static final CatalogStore CATALOG_STORE = CatalogStore.forBackend(Repositories.getInstance());
+
+    // Columns required by Milestone 2
+    private static final String[] BOOK_COLUMNS = {"ISBN", "Book Title", "Authors", "Availability"};
 
     // Modern style properties
     private Color modernTextColor = new Color(60, 60, 60);
@@ -46,6 +80,8 @@ public class ManageBooksDashboard extends JFrame {
         setSize(1200, 800);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        tasks = TaskScope.forWindow(this);
+        search = new SearchPipeline(tasks, SearchPipeline.DEFAULT_DELAY_MS, this::applySearch);
 
         setupLookAndFeel();
         initComponents();
@@ -81,6 +117,19 @@ public class ManageBooksDashboard extends JFrame {
         titleLabel.setForeground(modernTextColor);
         topPanel.add(titleLabel);
 
+        loadStatusLabel = new JLabel(" ");
+        loadStatusLabel.setFont(modernFont);
+        loadStatusLabel.setForeground(new Color(120, 120, 120));
+        loadStatusLabel.setBorder(BorderFactory.createEmptyBorder(0, 20, 0, 0));
+        topPanel.add(loadStatusLabel);
+
+        cancelLoadButton = new JButton("Cancel");
+        cancelLoadButton.setFont(modernFont);
+        cancelLoadButton.setFocusPainted(false);
+        cancelLoadButton.setVisible(false);
+        cancelLoadButton.addActionListener(e -> cancelLoad());
+        topPanel.add(cancelLoadButton);
+
         // --- Table Setup ---
         booksTable = new JTable();
         customizeTable();
@@ -104,22 +153,33 @@ public class ManageBooksDashboard extends JFrame {
         searchPanel.add(new JLabel("Search (ISBN, Title, Author): "));
         searchField = new JTextField(25);
         searchPanel.add(searchField);
+
+        // Typo-tolerant title/author search, best matches first
+        fuzzyCheck = new JCheckBox("Fuzzy");
+        fuzzyCheck.setBackground(Color.WHITE);
+        fuzzyCheck.setToolTipText("Match misspelled titles and author names, best matches first");
+        fuzzyCheck.setVisible(PAGE_SIZE <= 0);
+        fuzzyCheck.addActionListener(e -> {
+            search.setMatcher(matcherFor(booksTable.getModel()));
+            updateFilter();
+        });
+        searchPanel.add(fuzzyCheck);
         
-        // Search Listener (Real-time search via PHP)
+        // Search Listener (debounced, matched off the EDT)
         searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
             @Override
             public void insertUpdate(javax.swing.event.DocumentEvent e) {
-                updateFilter();
+                search.queryChanged(searchField.getText());
             }
 
             @Override
             public void removeUpdate(javax.swing.event.DocumentEvent e) {
-                updateFilter();
+                search.queryChanged(searchField.getText());
             }
 
             @Override
             public void changedUpdate(javax.swing.event.DocumentEvent e) {
-                updateFilter();
+                search.queryChanged(searchField.getText());
             }
         });
 
@@ -132,6 +192,11 @@ public class ManageBooksDashboard extends JFrame {
         addButton.addActionListener(e -> addNewBook());
         buttonPanel.add(addButton);
 
+        FancyHoverButton importButton = new FancyHoverButton("Import...");
+        importButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        importButton.addActionListener(e -> importBooks());
+        buttonPanel.add(importButton);
+
         FancyHoverButton editButton = new FancyHoverButton("Edit Selected");
         editButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
         editButton.addActionListener(e -> editSelectedBook());
@@ -142,16 +207,31 @@ public class ManageBooksDashboard extends JFrame {
         deleteButton.addActionListener(e -> deleteSelectedBook());
         buttonPanel.add(deleteButton);
         
-        FancyHoverButton2 checkoutButton = new FancyHoverButton2("Checkout Book");
+        FancyHoverButton2 checkoutButton = new FancyHoverButton2("Checkout Books");
         checkoutButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
         checkoutButton.addActionListener(e -> checkoutBook());
         buttonPanel.add(checkoutButton);
         
-        FancyHoverButton2 checkinButton = new FancyHoverButton2("Checkin Book");
+        FancyHoverButton2 checkinButton = new FancyHoverButton2("Checkin Books");
         checkinButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
-        checkinButton.addActionListener(e -> new ManageLoanDashboard().setVisible(true));
+        checkinButton.addActionListener(e -> checkinBooks());
         buttonPanel.add(checkinButton);
 
+        FancyHoverButton2 scanButton = new FancyHoverButton2("Scan Mode");
+        scanButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        scanButton.addActionListener(e -> new ScanDeskDialog(this, lib, backend, this::scannedAvailability).setVisible(true));
+        buttonPanel.add(scanButton);
+
+        FancyHoverButton2 auditButton = new FancyHoverButton2("Shelf Audit");
+        auditButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        auditButton.addActionListener(e -> auditShelves());
+        buttonPanel.add(auditButton);
+
+        FancyHoverButton2 historyButton = new FancyHoverButton2("Loan History");
+        historyButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        historyButton.addActionListener(e -> new ManageLoanDashboard().setVisible(true));
+        buttonPanel.add(historyButton);
+
         FancyHoverButton refreshButton = new FancyHoverButton("\u27F3");
         refreshButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
         refreshButton.addActionListener(e -> loadAllBooks());
@@ -168,65 +248,386 @@ public class ManageBooksDashboard extends JFrame {
         getContentPane().add(mainPanel);
 
         // Load data on start
+        showSavedCatalog();
         loadAllBooks();
     }
     
     // --- Networking & Logic ---
 
-    private void loadAllBooks() {
-        new Thread(() -> {
+    // Renders straight from the mapped file; the first load replaces it
+    // once the download is complete, so the table never shrinks meanwhile.
+    private void showSavedCatalog() {
+        if (PAGE_SIZE > 0) {
+            return;
+        }
+        MappedTable saved = CATALOG_STORE.openLatest();
+        if (saved == null) {
+            return;
+        }
+        installModel(new MappedTableModel(BOOK_COLUMNS, saved));
+        setLoading(true, saved.getRowCount() + " saved books, checking for changes...");
+        tasks.submit(() -> {
+            if (!saved.verify()) {
+                System.err.println("Saved catalog " + saved + " is damaged; waiting for the download");
+                SwingUtilities.invokeLater(() -> {
+                    if (booksTable.getModel() instanceof MappedTableModel) {
+                        installModel(new BookTableModel(BOOK_COLUMNS));
+                    }
+                });
+                CATALOG_STORE.discard(saved);
+            }
+        });
+    }
+
+    // Writes the catalog for next launch while it loads, so no second copy is
+    // kept in memory; a disk problem only costs the saved copy.
+    private static final class CatalogSaver {
+        private CatalogStore.Segment segment;
+
+        CatalogSaver() {
+            try {
+                segment = CATALOG_STORE.begin(BOOK_COLUMNS.length);
+            } catch (Exception ex) {
+                failed(ex);
+            }
+        }
+
+        void add(List<String[]> rows) {
+            for (String[] row : rows) {
+                add(row);
+            }
+        }
+
+        void add(String[] row) {
             try {
-                String urlString = "http://cm8tes.com/CS4347_Project_Folder/getBooks.php"; 
-                String response = fetchUrl(urlString);
-                updateTableWithJson(response);
+                if (segment != null) {
+                    segment.add(row);
+                }
             } catch (Exception ex) {
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Error loading books: " + ex.getMessage());
+                failed(ex);
             }
-        }).start();
+        }
+
+        void commit() {
+            try {
+                if (segment != null) {
+                    segment.commit();
+                }
+            } catch (Exception ex) {
+                failed(ex);
+            } finally {
+                abandon();
+            }
+        }
+
+        void abandon() {
+            if (segment != null) {
+                try {
+                    segment.close();
+                } catch (Exception ex) {
+                    // only a leftover temp file
+                }
+                segment = null;
+            }
+        }
+
+        private void failed(Exception ex) {
+            System.err.println("Could not save the catalog for next time: " + ex.getMessage());
+            abandon();
+        }
     }
 
-    private void updateTableWithJson(String jsonString) {
+    private void loadAllBooks() {
+        if (PAGE_SIZE > 0) {
+            if (pagedModel == null) {
+                pagedModel = new PagedBookTableModel(BOOK_COLUMNS, backend.books()::page, tasks,
+                        PAGE_SIZE, MAX_RESIDENT_PAGES);
+                pagedModel.setFailureListener(message -> setLoading(false,
+                        message == null ? " " : "Could not load books: " + message + " (retrying)"));
+                installModel(pagedModel);
+            }
+            pagedModel.reload();
+            return;
+        }
+
+        // Reloads requested while one is running share a single follow-up load
+        loads.refresh("books", () -> {
+            CompletableFuture<Integer> load = tasks.supply(() -> {
+                BookTableModel current = booksModel;
+                return current == null ? streamBooks() : refreshBooks(current);
+            });
+            activeLoad = load;
+            return load;
+        });
+    }
+
+    private void cancelLoad() {
+        Future<?> load = activeLoad;
+        if (load != null) {
+            load.cancel(true);
+        }
+    }
+
+    // First load: rows are pushed into the table as they come off the socket.
+    private int streamBooks() {
+        BookTableModel model = new BookTableModel(BOOK_COLUMNS);
+        CatalogIndex index = new CatalogIndex();
+        TrigramIndex trigrams = new TrigramIndex();
+        RowBatcher<String[]> batcher = new RowBatcher<>(rows -> {
+            int first = model.getRowCount();
+            for (int i = 0; i < rows.size(); i++) {
+                String[] r = rows.get(i);
+                index.add(first + i, r[0], r[1], r[2]);
+                trigrams.add(first + i, r[1], r[2]);
+            }
+            if (booksTable.getModel() != model && !(booksTable.getModel() instanceof MappedTableModel)) {
+                bookIndex = index;
+                bookTrigrams = trigrams;
+                installModel(model);
+            }
+            model.appendRows(rows);
+            if (!searchField.getText().isBlank()) {
+                updateFilter(); // so matching rows in this chunk show up
+            }
+            loadStatusLabel.setText("Loading... " + model.getRowCount() + " books");
+        });
+        SwingUtilities.invokeLater(() -> setLoading(true, "Loading books..."));
+
+        CatalogSaver saver = new CatalogSaver();
         try {
-            JSONObject json = new JSONObject(jsonString);
-            if ("success".equalsIgnoreCase(json.optString("status"))) {
-                JSONArray booksArray = json.getJSONArray("books");
-                
-                // Columns required by Milestone 2
-                String[] columnNames = {"ISBN", "Book Title", "Authors", "Availability"};
-                ArrayList<String[]> rowData = new ArrayList<>();
-
-                for (int i = 0; i < booksArray.length(); i++) {
-                    JSONObject obj = booksArray.getJSONObject(i);
-                    String isbn = obj.optString("Isbn");
-                    String title = obj.optString("Title");
-                    String authors = obj.optString("Authors"); // Comma separated
-                    String availability = obj.optString("Availability"); // "IN" or "OUT"
-                    
-                    rowData.add(new String[]{isbn, title, authors, availability});
+            // A cached catalog renders at once; if it turns out stale, reload through the diff path
+            int count = backend.books().streamCached(rows -> {
+                saver.add(rows);
+                batcher.addAll(rows);
+            }, () -> SwingUtilities.invokeLater(this::loadAllBooks));
+
+            SwingUtilities.invokeLater(() -> {
+                if (booksTable.getModel() != model) {
+                    bookIndex = index;
+                    bookTrigrams = trigrams;
+                    replaceSavedCatalog(model);
                 }
+                setLoading(false, count + " books");
+            });
+            saver.commit();
+            return count;
+        } catch (Exception ex) {
+            saver.abandon();
+            loadFailed(ex);
+            return 0;
+        }
+    }
 
-                String[][] data = rowData.toArray(new String[0][]);
-                
-                SwingUtilities.invokeLater(() -> {
-                    DefaultTableModel model = new DefaultTableModel(data, columnNames) {
-                        @Override
-                        public boolean isCellEditable(int row, int column) { return false; }
-                    };
-                    booksTable.setModel(model);
-                    customizeTableColumns();
-                    
-                    rowSorter = new TableRowSorter<>(model);
-                    booksTable.setRowSorter(rowSorter);
-                });
+    // Later loads go into a detached model and only the differences are applied,
+    // so selection, scroll position and sort order survive and a checkout
+    // repaints a single row.
+    private int refreshBooks(BookTableModel current) {
+        BookTableModel fresh = new BookTableModel(BOOK_COLUMNS);
+        SwingUtilities.invokeLater(() -> setLoading(true, "Refreshing books..."));
 
-            } else {
-                SwingUtilities.invokeLater(() -> 
-                    JOptionPane.showMessageDialog(this, "Error: " + json.optString("message")));
+        try {
+            int count = backend.books().streamAll(fresh::appendRows);
+
+            RowDiff diff;
+            try {
+                diff = RowDiff.compute(current, fresh, BookTableModel.ISBN);
+            } catch (RuntimeException ex) {
+                diff = null; // the table was edited while we read it; retried below
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            RowDiff result = diff;
+            SwingUtilities.invokeLater(() -> applyBookDiff(current, result, count));
+            if (result == null || !result.isEmpty()) {
+                saveCatalog(fresh); // still detached, so safe to read here
+            }
+            return count;
+        } catch (Exception ex) {
+            loadFailed(ex);
+            return 0;
+        }
+    }
+
+    private static void saveCatalog(BookTableModel books) {
+        CatalogSaver saver = new CatalogSaver();
+        String[] row = new String[BOOK_COLUMNS.length];
+        for (int r = 0; r < books.getRowCount(); r++) {
+            for (int c = 0; c < row.length; c++) {
+                row[c] = (String) books.getValueAt(r, c);
+            }
+            saver.add(row);
+        }
+        saver.commit();
+    }
+
+    private void applyBookDiff(BookTableModel current, RowDiff diff, int count) {
+        if (booksModel != current) {
+            return; // replaced meanwhile
+        }
+        if (diff == null || !diff.isCurrentFor(current)) {
+            loadAllBooks();
+            return;
+        }
+
+        // Patch the search indexes the same way the rows are about to be patched
+        int[] updated = diff.getUpdatedRows();
+        int[] from = diff.getUpdatedFrom();
+        BookTableModel fresh = (BookTableModel) diff.getFresh();
+        for (int k = 0; k < updated.length; k++) {
+            int row = updated[k];
+            bookIndex.update(row, fresh.getIsbn(from[k]), fresh.getTitle(from[k]), fresh.getAuthors(from[k]));
+            bookTrigrams.update(row, current.getTitle(row), current.getAuthors(row),
+                    fresh.getTitle(from[k]), fresh.getAuthors(from[k]));
+        }
+        int[] deleted = diff.getDeletedRows();
+        String[] titles = new String[deleted.length];
+        String[] authors = new String[deleted.length];
+        for (int k = 0; k < deleted.length; k++) {
+            titles[k] = current.getTitle(deleted[k]);
+            authors[k] = current.getAuthors(deleted[k]);
+        }
+        bookIndex.deleteAll(deleted);
+        bookTrigrams.deleteAll(deleted, titles, authors);
+
+        diff.applyTo(current);
+
+        int[] inserted = diff.getInsertedFrom();
+        int first = current.getRowCount() - inserted.length;
+        for (int k = 0; k < inserted.length; k++) {
+            int f = inserted[k];
+            bookIndex.add(first + k, fresh.getIsbn(f), fresh.getTitle(f), fresh.getAuthors(f));
+            bookTrigrams.add(first + k, fresh.getTitle(f), fresh.getAuthors(f));
+        }
+
+        if (!diff.isEmpty()) {
+            updateFilter();
+        }
+        setLoading(false, count + " books");
+    }
+
+    // Swaps the saved catalog for the downloaded one, keeping the selected book
+    // (or else the scroll position) where the user left it.
+    private void replaceSavedCatalog(BookTableModel model) {
+        String selectedIsbn = null;
+        int viewRow = booksTable.getSelectedRow();
+        if (viewRow >= 0) {
+            selectedIsbn = String.valueOf(booksTable.getValueAt(viewRow, 0));
+        }
+        Rectangle visible = booksTable.getVisibleRect();
+
+        installModel(model);
+
+        int row = selectedIsbn == null ? -1 : findModelRow(selectedIsbn);
+        if (row >= 0 && rowSorter != null && rowSorter.convertRowIndexToView(row) >= 0) {
+            int view = rowSorter.convertRowIndexToView(row);
+            booksTable.setRowSelectionInterval(view, view);
+            booksTable.scrollRectToVisible(booksTable.getCellRect(view, 0, true));
+        } else {
+            booksTable.scrollRectToVisible(visible);
+        }
+    }
+
+    private void loadFailed(Exception ex) {
+        if (ex instanceof InterruptedIOException || Thread.currentThread().isInterrupted()) {
+            SwingUtilities.invokeLater(() -> setLoading(false, "Load cancelled"));
+            return;
+        }
+        ex.printStackTrace();
+        String message = ex instanceof BackendException
+                ? "Error: " + ex.getMessage()
+                : "Error loading books: " + ex.getMessage();
+        SwingUtilities.invokeLater(() -> {
+            setLoading(false, " ");
+            JOptionPane.showMessageDialog(this, message);
+        });
+    }
+
+    private void installModel(TableModel model) {
+        booksTable.setModel(model);
+        booksModel = model instanceof BookTableModel books ? books : null;
+        customizeTableColumns();
+
+        // A paged model only holds a few pages, so sorting and search happen server-side
+        rowSorter = booksModel == null ? null : new ColumnarRowSorter<>(booksModel, tasks);
+        booksTable.setRowSorter(rowSorter);
+        search.setMatcher(matcherFor(model));
+        updateFilter();
+    }
+
+    private SearchPipeline.Matcher matcherFor(TableModel model) {
+        // Paged and saved catalogs have no local index
+        if (!(model instanceof BookTableModel)) {
+            return null;
+        }
+        if (fuzzyCheck.isSelected()) {
+            return bookTrigrams;
+        }
+        CatalogIndex index = bookIndex;
+        return index::search;
+    }
+
+    // Edits and deletes are applied to the loaded rows and the search index in
+    // place; these return false when the row isn't loaded and a reload is needed.
+
+    private boolean updateLocalTitle(String isbn, String title) {
+        int row = findModelRow(isbn);
+        if (row < 0) {
+            return false;
+        }
+        TableModel model = booksTable.getModel();
+        String oldTitle = (String) model.getValueAt(row, 1);
+        String authors = (String) model.getValueAt(row, 2);
+        model.setValueAt(title, row, 1);
+        bookIndex.update(row, isbn, title, authors);
+        bookTrigrams.update(row, oldTitle, authors, title, authors);
+        updateFilter();
+        return true;
+    }
+
+    private boolean updateLocalAvailability(String isbn, String availability) {
+        int row = findModelRow(isbn);
+        if (row < 0) {
+            return false;
+        }
+        booksTable.getModel().setValueAt(availability, row, BookTableModel.AVAILABILITY);
+        return true;
+    }
+
+    // A scan was confirmed; books not loaded here show up on the next reload
+    private void scannedAvailability(String isbn, String availability) {
+        updateLocalAvailability(isbn, availability);
+    }
+
+    private boolean removeLocalRow(String isbn) {
+        int row = findModelRow(isbn);
+        if (row < 0) {
+            return false;
+        }
+        BookTableModel model = (BookTableModel) booksTable.getModel();
+        bookIndex.delete(row);
+        bookTrigrams.delete(row, model.getTitle(row), model.getAuthors(row));
+        model.removeRow(row);
+        updateFilter();
+        return true;
+    }
+
+    private int findModelRow(String isbn) {
+        if (!(booksTable.getModel() instanceof BookTableModel model)) {
+            return -1;
         }
+        BitSet hits = bookIndex.search(isbn);
+        if (hits == null) {
+            return -1;
+        }
+        for (int row = hits.nextSetBit(0); row >= 0; row = hits.nextSetBit(row + 1)) {
+            if (isbn.equals(model.getIsbn(row))) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private void setLoading(boolean loading, String status) {
+        loadStatusLabel.setText(status);
+        cancelLoadButton.setVisible(loading);
     }
 
     // --- CRUD Operations ---
@@ -302,112 +703,187 @@ public class ManageBooksDashboard extends JFrame {
         int confirm = JOptionPane.showConfirmDialog(this, "Delete book " + isbn + "?", "Confirm", JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
-            new Thread(() -> {
+            tasks.submitWrite(() -> {
                 try {
-                    String urlString = "http://cm8tes.com/CS4347_Project_Folder/deleteBook.php";
-                    String params = "isbn=" + URLEncoder.encode(isbn, "UTF-8");
-                    // 1. Send Request and GET THE RESPONSE STRING
-                    String response = postDataWithResponse(urlString, params);
-
-                    // 2. Parse JSON
-                    JSONObject json = new JSONObject(response);
-                    String status = json.optString("status");
-                    String message = json.optString("message");
+                    String message = backend.books().delete(isbn);
 
-                    // 3. Update UI on Event Dispatch Thread
+                    // Update UI on Event Dispatch Thread
                     SwingUtilities.invokeLater(() -> {
-                        if ("success".equalsIgnoreCase(status)) {
-                            showModernDialog("Success", message, true);
+                        showModernDialog("Success", message, true);
+                        if (!removeLocalRow(isbn)) {
                             loadAllBooks(); // Refresh table only on success
-                        } else {
-                            showModernDialog("Error", message, false);
                         }
                     });
+                } catch (BackendException e) {
+                    SwingUtilities.invokeLater(() -> showModernDialog("Error", e.getMessage(), false));
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
-            }).start();
+            });
+        }
+    }
+
+    private void importBooks() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Books");
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+                "Book lists (CSV, JSON lines)", "csv", "jsonl", "ndjson"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        Path file = chooser.getSelectedFile().toPath();
+        setLoading(false, "Importing " + file.getFileName() + "...");
+
+        tasks.submitBatch(() -> {
+            long[] lastUpdate = {0};
+            BookImporter importer = new BookImporter(backend.books(), tasks);
+            try {
+                BookImporter.Report report = importer.run(file, (added, failed, read, total) -> {
+                    long now = System.nanoTime();
+                    if (now - lastUpdate[0] < 200_000_000L) {
+                        return; // a few label updates a second is plenty
+                    }
+                    lastUpdate[0] = now;
+                    String status = "Importing: " + added + " added, " + failed + " failed ("
+                            + (total == 0 ? 100 : read * 100 / total) + "%)";
+                    SwingUtilities.invokeLater(() -> setLoading(false, status));
+                });
+
+                String message = report.added() + " books added in " + (report.elapsedMs() / 1000.0) + " s.";
+                if (report.failed() > 0) {
+                    Path errors = BookImporter.writeErrorReport(file, report);
+                    message += "<br>" + report.failed() + " rows were skipped; see " + errors;
+                }
+                String summary = message;
+                SwingUtilities.invokeLater(() -> {
+                    setLoading(false, " ");
+                    showModernDialog(report.failed() == 0 ? "Import Complete" : "Import Finished",
+                            summary, report.failed() == 0);
+                    if (report.added() > 0) {
+                        loadAllBooks();
+                    }
+                });
+            } catch (InterruptedIOException e) {
+                SwingUtilities.invokeLater(() -> setLoading(false, "Import cancelled"));
+            } catch (Exception e) {
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> {
+                    setLoading(false, " ");
+                    showModernDialog("Import Failed", e.getMessage(), false);
+                });
+            }
+        });
+    }
+
+    private void auditShelves() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Folder of Shelf Photos");
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path folder = chooser.getSelectedFile().toPath();
+        setLoading(false, "Reading shelf photos...");
+
+        tasks.submit(() -> {
+            long[] lastUpdate = {0};
+            try {
+                ShelfAudit.Scan scan = new ShelfAudit().scan(folder, (done, total) -> {
+                    long now = System.nanoTime();
+                    synchronized (lastUpdate) {
+                        if (now - lastUpdate[0] < 200_000_000L && done < total) {
+                            return;
+                        }
+                        lastUpdate[0] = now;
+                    }
+                    SwingUtilities.invokeLater(() -> setLoading(false, "Reading shelf photos: " + done + " of " + total));
+                });
+                MappedTable catalog = CATALOG_STORE.openLatest();
+                if (catalog == null) {
+                    SwingUtilities.invokeLater(() -> {
+                        setLoading(false, " ");
+                        showModernDialog("Error", "No saved catalog to compare with yet. Load the books once and try again.", false);
+                    });
+                    return;
+                }
+                ShelfAudit.Report report = ShelfAudit.compare(scan, catalog);
+                Path file = ShelfAudit.writeReport(folder.resolve("shelf-audit.csv"), report);
+                SwingUtilities.invokeLater(() -> {
+                    setLoading(false, " ");
+                    showAuditReport(report, file);
+                });
+            } catch (InterruptedIOException e) {
+                SwingUtilities.invokeLater(() -> setLoading(false, "Audit cancelled"));
+            } catch (Exception e) {
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> {
+                    setLoading(false, " ");
+                    showModernDialog("Audit Failed", e.getMessage(), false);
+                });
+            }
+        });
+    }
+
+    private void showAuditReport(ShelfAudit.Report report, Path file) {
+        ShelfAudit.Scan scan = report.scan();
+        String text = scan.images() + " photos read in " + (scan.elapsedMs() / 1000.0) + " s, "
+                + scan.seen().size() + " books seen.\n\n"
+                + report.missing().size() + " missing (IN in the catalog, not on any shelf)\n"
+                + report.checkedOutButShelved().size() + " on a shelf but checked out\n"
+                + report.onSeveralShelves().size() + " seen on more than one shelf\n"
+                + report.unknown().size() + " not in the catalog\n"
+                + scan.unreadable().size() + " photos could not be read\n\n"
+                + "Details: " + file;
+        JTextArea area = new JTextArea(text);
+        area.setEditable(false);
+        area.setFont(modernFont);
+        area.setOpaque(false);
+        JOptionPane.showMessageDialog(this, area, "Shelf Audit", JOptionPane.INFORMATION_MESSAGE);
     }
 
     // --- Helper Methods ---
 
     private void sendBookData(String isbn, String title, String authorId) {
-        new Thread(() -> {
+        tasks.submitWrite(() -> {
             try {
-                String urlString = "http://cm8tes.com/CS4347_Project_Folder/addBook.php";
-                String params = "isbn=" + URLEncoder.encode(isbn, "UTF-8") +
-                                "&title=" + URLEncoder.encode(title, "UTF-8") +
-                                "&author_id=" + URLEncoder.encode(authorId, "UTF-8");
+                String message = backend.books().add(isbn, title, authorId);
 
-                // 1. Send Request and GET THE RESPONSE STRING
-                String response = postDataWithResponse(urlString, params);
-                
-                // 2. Parse JSON
-                JSONObject json = new JSONObject(response);
-                String status = json.optString("status");
-                String message = json.optString("message");
-
-                // 3. Update UI on Event Dispatch Thread
+                // Update UI on Event Dispatch Thread
                 SwingUtilities.invokeLater(() -> {
-                    if ("success".equalsIgnoreCase(status)) {
-                        showModernDialog("Success", message, true);
-                        loadAllBooks(); // Refresh table only on success
-                    } else {
-                        showModernDialog("Error", message, false);
-                    }
+                    showModernDialog("Success", message, true);
+                    loadAllBooks(); // Refresh table only on success
                 });
 
+            } catch (BackendException e) {
+                SwingUtilities.invokeLater(() -> showModernDialog("Error", e.getMessage(), false));
             } catch (Exception e) {
                 e.printStackTrace();
                 SwingUtilities.invokeLater(() -> 
                     showModernDialog("Connection Error", e.getMessage(), false));
             }
-        }).start();
+        });
     }
     
     private void sendBookUpdate(String isbn, String title) {
-         new Thread(() -> {
+         tasks.submitWrite(() -> {
             try {
-                String urlString = "http://cm8tes.com/CS4347_Project_Folder/updateBook.php";
-                String params = "isbn=" + URLEncoder.encode(isbn, "UTF-8") +
-                                "&title=" + URLEncoder.encode(title, "UTF-8");
-                
-                // 1. Send Request and GET THE RESPONSE STRING
-                String response = postDataWithResponse(urlString, params);
-                
-                // 2. Parse JSON
-                JSONObject json = new JSONObject(response);
-                String status = json.optString("status");
-                String message = json.optString("message");
+                String message = backend.books().updateTitle(isbn, title);
 
-                // 3. Update UI on Event Dispatch Thread
+                // Update UI on Event Dispatch Thread
                 SwingUtilities.invokeLater(() -> {
-                    if ("success".equalsIgnoreCase(status)) {
-                        showModernDialog("Success", message, true);
+                    showModernDialog("Success", message, true);
+                    if (!updateLocalTitle(isbn, title)) {
                         loadAllBooks(); // Refresh table only on success
-                    } else {
-                        showModernDialog("Error", message, false);
                     }
                 });
+            } catch (BackendException e) {
+                SwingUtilities.invokeLater(() -> showModernDialog("Error", e.getMessage(), false));
             } catch (Exception e) {
                 e.printStackTrace();
             }
-        }).start();
+        });
     }
 
-    private String fetchUrl(String urlString) throws Exception {
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-        StringBuilder response = new StringBuilder();
-        String line;
-        while ((line = in.readLine()) != null) response.append(line);
-        in.close();
-        return response.toString();
-    }
-    
     private void addFormRow(JPanel panel, GridBagConstraints gbc, int row, String label, JComponent field) {
         gbc.gridx = 0; gbc.gridy = row;
         gbc.weightx = 0;
@@ -479,39 +955,20 @@ public class ManageBooksDashboard extends JFrame {
         return button;
     }
     
+    // Re-runs the current search now, e.g. after rows were added or changed
     private void updateFilter() {
-        String text = searchField.getText();
-        if (rowSorter != null) {
-            if (text.trim().length() == 0) {
-                rowSorter.setRowFilter(null);
-            } else {
-                rowSorter.setRowFilter(RowFilter.regexFilter("(?i)" + text));
-            }
-        }
+        search.refresh();
     }
-    
-    // Helper to send POST and return the server's response as a String
-    private String postDataWithResponse(String urlString, String urlParameters) throws Exception {
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setDoOutput(true);
-        
-        // Write parameters
-        try (DataOutputStream out = new DataOutputStream(conn.getOutputStream())) {
-            out.writeBytes(urlParameters);
-        }
 
-        // Read response
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = in.readLine()) != null) {
-                response.append(line);
-            }
-            return response.toString();
+    private void applySearch(SearchPipeline.Result result) {
+        if (pagedModel != null && booksTable.getModel() == pagedModel) {
+            pagedModel.setQuery(result.query());
+        } else if (rowSorter != null) {
+            // Token/prefix or fuzzy lookup in the indexes; the text is never treated as a regex
+            rowSorter.setRowFilter(result.rows(), result.ranking());
         }
     }
+    
 
     private void showModernDialog(String title, String message, boolean isSuccess) {
         JDialog dialog = new JDialog(this, title, true); // Modal dialog
@@ -565,8 +1022,8 @@ public class ManageBooksDashboard extends JFrame {
     }
     //kkkkjklljkklkllkkl;
     private void checkoutBook() {
-        JDialog dialog = new JDialog(this, "Checkout Book", true);
-        dialog.setSize(450, 300);
+        JDialog dialog = new JDialog(this, "Checkout Books", true);
+        dialog.setSize(450, 380);
         dialog.setLocationRelativeTo(this);
         
         JPanel panel = new JPanel(new GridBagLayout());
@@ -575,26 +1032,27 @@ public class ManageBooksDashboard extends JFrame {
         gbc.insets = new Insets(10, 10, 10, 10);
         gbc.fill = GridBagConstraints.HORIZONTAL;
         
-        JTextField isbnField = new JTextField(20);
         JTextField borrowerIdField = new JTextField(20); 
+        // One ISBN per line, so a whole stack can be scanned in
+        JTextArea isbnArea = new JTextArea(8, 20);
 
-        addFormRow(panel, gbc, 0, "ISBN:", isbnField);
-        addFormRow(panel, gbc, 1, "Borrower ID:", borrowerIdField);
+        addFormRow(panel, gbc, 0, "Borrower ID:", borrowerIdField);
+        addFormRow(panel, gbc, 1, "ISBNs:", new JScrollPane(isbnArea));
 
         JButton saveButton = createModernButton("Checkout");
         gbc.gridx = 1; gbc.gridy = 3;
         panel.add(saveButton, gbc);
 
         saveButton.addActionListener(e -> {
-            String isbn = isbnField.getText().trim();
+            List<String> isbns = CirculationBatch.parseIsbns(isbnArea.getText());
             String borrowerId = borrowerIdField.getText().trim();
 
-            if (isbn.isEmpty() ||  borrowerId.isEmpty()) {
+            if (isbns.isEmpty() ||  borrowerId.isEmpty()) {
                 JOptionPane.showMessageDialog(dialog, "All fields are required.");
                 return;
             }
 
-            sendToCheckout(isbn, borrowerId, lib.getLibID()); // Create this PHP
+            runCirculation(CirculationBatch.Kind.CHECK_OUT, isbns, borrowerId);
 
             dialog.dispose();
         });
@@ -602,39 +1060,137 @@ public class ManageBooksDashboard extends JFrame {
         dialog.add(panel);
         dialog.setVisible(true);
     }
-    //Checkout helper
-    private void sendToCheckout(String isbn, String borrowerId, String libId) {
-        new Thread(() -> {
-            try {
-                String urlString = "http://cm8tes.com/CS4347_Project_Folder/checkoutBook.php";
-                String params = "isbn=" + URLEncoder.encode(isbn, "UTF-8") +
-                                "&Card_id=" + URLEncoder.encode(borrowerId, "UTF-8") +
-                                "&lib_id_checkout=" + URLEncoder.encode(libId, "UTF-8");
 
-                // 1. Send Request and GET THE RESPONSE STRING
-                String response = postDataWithResponse(urlString, params);
+    private void checkinBooks() {
+        JDialog dialog = new JDialog(this, "Checkin Books", true);
+        dialog.setSize(450, 340);
+        dialog.setLocationRelativeTo(this);
 
-                // 2. Parse JSON
-                JSONObject json = new JSONObject(response);
-                String status = json.optString("status");
-                String message = json.optString("message");
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBackground(Color.WHITE);
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        JTextArea isbnArea = new JTextArea(8, 20);
+        addFormRow(panel, gbc, 0, "ISBNs:", new JScrollPane(isbnArea));
+
+        JButton saveButton = createModernButton("Checkin");
+        gbc.gridx = 1; gbc.gridy = 2;
+        panel.add(saveButton, gbc);
+
+        saveButton.addActionListener(e -> {
+            List<String> isbns = CirculationBatch.parseIsbns(isbnArea.getText());
+            if (isbns.isEmpty()) {
+                JOptionPane.showMessageDialog(dialog, "Enter at least one ISBN.");
+                return;
+            }
+            runCirculation(CirculationBatch.Kind.CHECK_IN, isbns, null);
+            dialog.dispose();
+        });
+
+        dialog.add(panel);
+        dialog.setVisible(true);
+    }
 
-                // 3. Update UI on Event Dispatch Thread
+    // Runs the batch in the background, flipping each book's availability as
+    // its answer arrives, then shows one summary for the lot. The batch has
+    // its own scope: closing the window must not cut off checkouts already
+    // sent, and the summary still tells the librarian which went through.
+    private void runCirculation(CirculationBatch.Kind kind, List<String> isbns, String borrowerId) {
+        String availability = kind == CirculationBatch.Kind.CHECK_OUT ? "OUT" : "IN";
+        setLoading(false, (kind == CirculationBatch.Kind.CHECK_OUT ? "Checking out " : "Checking in ")
+                + isbns.size() + " books...");
+
+        TaskScope batchTasks = TaskScope.standalone("circulation");
+        batchTasks.submitBatch(() -> {
+            CirculationBatch batch = new CirculationBatch(backend.loans(), batchTasks);
+            boolean[] needsReload = {false}; // touched only on the EDT
+            CirculationBatch.Listener listener = outcome -> {
+                if (outcome.ok()) {
+                    SwingUtilities.invokeLater(() -> {
+                        if (!updateLocalAvailability(outcome.isbn(), availability)) {
+                            needsReload[0] = true;
+                        }
+                    });
+                }
+            };
+            try {
+                CirculationBatch.Summary summary = kind == CirculationBatch.Kind.CHECK_OUT
+                        ? batch.checkOut(borrowerId, isbns, lib.getLibID(), listener)
+                        : batch.checkIn(isbns, lib.getLibID(), listener);
                 SwingUtilities.invokeLater(() -> {
-                    if ("success".equalsIgnoreCase(status)) {
-                        showModernDialog("Success", message, true);
-                        loadAllBooks(); // Refresh table only on success
-                    } else {
-                        showModernDialog("Error", message, false);
+                    if (summary.succeeded() > 0) {
+                        ManageLoanDashboard.refreshOpenWindows();
+                    }
+                    if (isDisplayable()) {
+                        setLoading(false, " ");
+                        if (needsReload[0]) {
+                            loadAllBooks();
+                        }
                     }
+                    showCirculationSummary(summary);
                 });
-
+            } catch (InterruptedIOException e) {
+                SwingUtilities.invokeLater(() -> setLoading(false, "Cancelled"));
             } catch (Exception e) {
                 e.printStackTrace();
-                SwingUtilities.invokeLater(() -> 
-                    showModernDialog("Connection Error", e.getMessage(), false));
+                SwingUtilities.invokeLater(() -> {
+                    if (isDisplayable()) {
+                        setLoading(false, " ");
+                        showModernDialog("Connection Error", e.getMessage(), false);
+                    } else {
+                        JOptionPane.showMessageDialog(null, e.getMessage(), "Connection Error",
+                                JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+            } finally {
+                batchTasks.close();
+            }
+        });
+    }
+
+    // Parentless once the window is gone, so the outcome is still reported
+    private void showCirculationSummary(CirculationBatch.Summary summary) {
+        String verb = summary.kind().pastTense();
+        if (summary.failed() == 0) {
+            String message = summary.succeeded() == 1
+                    ? summary.outcomes().get(0).message()
+                    : summary.succeeded() + " books " + verb + ".";
+            if (isDisplayable()) {
+                showModernDialog("Success", message, true);
+            } else {
+                JOptionPane.showMessageDialog(null, message, "Success", JOptionPane.INFORMATION_MESSAGE);
             }
-        }).start();
+            return;
+        }
+        StringBuilder details = new StringBuilder();
+        for (CirculationBatch.Outcome o : summary.outcomes()) {
+            if (!o.ok()) {
+                details.append(o.isbn()).append(": ").append(o.message()).append('\n');
+            }
+        }
+        JTextArea area = new JTextArea(details.toString(), Math.min(10, summary.failed()), 40);
+        area.setEditable(false);
+        area.setFont(modernFont);
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.add(new JLabel(summary.succeeded() + " of " + summary.outcomes().size() + " books " + verb
+                + ". These were not:"), BorderLayout.NORTH);
+        panel.add(new JScrollPane(area), BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(isDisplayable() ? this : null, panel,
+                "Some Books Were Not " + capitalize(verb),
+                summary.succeeded() == 0 ? JOptionPane.ERROR_MESSAGE : JOptionPane.WARNING_MESSAGE);
+    }
+
+    private static String capitalize(String words) {
+        StringBuilder sb = new StringBuilder(words.length());
+        for (String w : words.split(" ")) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(Character.toUpperCase(w.charAt(0))).append(w.substring(1));
+        }
+        return sb.toString();
     }
 
    
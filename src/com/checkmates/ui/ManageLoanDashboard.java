@@ -4,22 +4,28 @@ import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 // PDF Imports
 import com.itextpdf.text.Document;
-import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.Phrase;
 import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 
+import com.checkmates.concurrent.SingleFlight;
+import com.checkmates.concurrent.TaskScope;
+import com.checkmates.data.Repositories;
+import com.checkmates.net.BackendException;
+import com.checkmates.search.SearchPipeline;
+import com.checkmates.search.TableTextMatcher;
+import com.checkmates.sync.LoanSync;
+import com.checkmates.ui.table.ColumnarRowSorter;
+import com.checkmates.ui.table.LoanTableModel;
+import com.checkmates.ui.table.RowDiff;
+import com.checkmates.ui.table.RowBatcher;
 import com.checkmates.ui.components.FancyHoverButton;
 import com.checkmates.ui.components.FancyHoverButton2;
 
@@ -29,7 +35,23 @@ public class ManageLoanDashboard extends JFrame {
     private String borrowerName;
     private JTable recordsTable;
     private JTextField searchField;
-    private TableRowSorter<TableModel> rowSorter;
+    private ColumnarRowSorter<LoanTableModel> rowSorter;
+    private final TaskScope tasks;
+    private final SingleFlight<String, Integer> loads = new SingleFlight<>();
+    private volatile Future<?> activeLoad;
+    private JLabel loadStatusLabel;
+    private JButton cancelLoadButton;
+    private final SearchPipeline search;
+    // Installed loan model, read by the loader to diff refreshes against it
+    private volatile LoanTableModel loansModel;
+    // Replica version the installed model shows; set on the EDT with the rows
+    private volatile long loansVersion = -1;
+
+    // One replica per process: every loan window syncs the same history
+    private static final LoanSync LOAN_SYNC = LoanSync.forBackend(Repositories.getInstance());
+
+    // Updated Columns to include "Borrower Name" (Bname) from your PHP
+    private static final String[] LOAN_COLUMNS = {"No.", "Isbn", "Card ID", "Date Out", "Due Date", "Date In", "Lib ID OUT", "Lib ID IN"};
 
     // Modern style properties
     private Color modernTextColor = new Color(60, 60, 60);
@@ -45,6 +67,13 @@ public class ManageLoanDashboard extends JFrame {
         setSize(1100, 700); // Made wider for extra column
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        tasks = TaskScope.forWindow(this);
+        search = new SearchPipeline(tasks, SearchPipeline.DEFAULT_DELAY_MS,
+                result -> {
+                    if (rowSorter != null) {
+                        rowSorter.setRowFilter(result.rows());
+                    }
+                });
 
         setupLookAndFeel();
         initComponents();
@@ -76,8 +105,25 @@ public class ManageLoanDashboard extends JFrame {
         JLabel headerLabel = new JLabel("Loan History Management", SwingConstants.LEFT);
         headerLabel.setFont(modernTitleFont);
         headerLabel.setForeground(modernTextColor);
-        headerLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 20, 0));
-        mainPanel.add(headerLabel, BorderLayout.NORTH);
+
+        loadStatusLabel = new JLabel(" ");
+        loadStatusLabel.setFont(modernFont);
+        loadStatusLabel.setForeground(new Color(120, 120, 120));
+        loadStatusLabel.setBorder(BorderFactory.createEmptyBorder(0, 20, 0, 0));
+
+        cancelLoadButton = new JButton("Cancel");
+        cancelLoadButton.setFont(modernFont);
+        cancelLoadButton.setFocusPainted(false);
+        cancelLoadButton.setVisible(false);
+        cancelLoadButton.addActionListener(e -> cancelLoad());
+
+        JPanel headerPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        headerPanel.setBackground(Color.WHITE);
+        headerPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 20, 0));
+        headerPanel.add(headerLabel);
+        headerPanel.add(loadStatusLabel);
+        headerPanel.add(cancelLoadButton);
+        mainPanel.add(headerPanel, BorderLayout.NORTH);
 
         // --- Table Setup ---
         recordsTable = new JTable();
@@ -102,9 +148,9 @@ public class ManageLoanDashboard extends JFrame {
         
         // Search Listener
         searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { updateFilter(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { updateFilter(); }
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { updateFilter(); }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { search.queryChanged(searchField.getText()); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { search.queryChanged(searchField.getText()); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { search.queryChanged(searchField.getText()); }
         });
 
         // Buttons
@@ -115,6 +161,11 @@ public class ManageLoanDashboard extends JFrame {
         exportButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
         exportButton.addActionListener(e -> exportTableToPDF());
         buttonContainer.add(exportButton);
+
+        FancyHoverButton refreshButton = new FancyHoverButton("\u27F3");
+        refreshButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        refreshButton.addActionListener(e -> loadLoanHistory());
+        buttonContainer.add(refreshButton);
         
         FancyHoverButton closeButton = new FancyHoverButton("Close");
         closeButton.setFont(new Font("Segoe UI", Font.BOLD, 16));
@@ -131,89 +182,195 @@ public class ManageLoanDashboard extends JFrame {
     // --- Data Loading ---
 
     private void loadLoanHistory() {
-        new Thread(() -> {
-            try {
-                // Correct URL for getting ALL loans (not just one borrower)
-                String urlString = "http://cm8tes.com/CS4347_Project_Folder/getLoans.php";
-                String response = fetchUrl(urlString);
-                //System.out.println("JSON RECEIVED: " + response);
+        // Reloads requested while one is running share a single follow-up load
+        loads.refresh("loans", () -> {
+            CompletableFuture<Integer> load = tasks.supply(() -> {
+                LoanTableModel current = loansModel;
+                return current == null ? openLoans() : refreshLoans(current, loansVersion);
+            });
+            activeLoad = load;
+            return load;
+        });
+    }
 
-                updateTableWithJson(response);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                SwingUtilities.invokeLater(() -> 
-                    JOptionPane.showMessageDialog(this, "Error loading loan: " + ex.getMessage()));
+    /**
+     * Brings every open history window up to date, e.g. after loans were
+     * written from another window; each applies just the changed loans.
+     */
+    static void refreshOpenWindows() {
+        for (Window w : Window.getWindows()) {
+            if (w instanceof ManageLoanDashboard dashboard && w.isDisplayable()) {
+                dashboard.loadLoanHistory();
             }
-        }).start();
+        }
+    }
+
+    private void cancelLoad() {
+        Future<?> load = activeLoad;
+        if (load != null) {
+            load.cancel(true);
+        }
+    }
+
+    // First load: show the replica saved by the last session, or stream a full
+    // sync into the table as rows come off the socket.
+    private int openLoans() {
+        if (LOAN_SYNC.size() > 0 || LOAN_SYNC.restore()) {
+            LoanSync.Delta saved = LOAN_SYNC.changesSince(-1);
+            LoanTableModel model = new LoanTableModel(LOAN_COLUMNS);
+            model.appendRows(saved.appended()); // not installed yet, so safe off the EDT
+            SwingUtilities.invokeLater(() -> {
+                installModel(model);
+                loansVersion = saved.version();
+                setLoading(true, model.getRowCount() + " loans, checking for changes...");
+            });
+            return refreshLoans(model, saved.version());
+        }
+        return streamLoans();
     }
 
-    private void updateTableWithJson(String jsonString) {
+    private int streamLoans() {
+        LoanTableModel model = new LoanTableModel(LOAN_COLUMNS);
+        RowBatcher<String[]> batcher = new RowBatcher<>(rows -> {
+            if (recordsTable.getModel() != model) {
+                installModel(model);
+            }
+            model.appendRows(rows);
+            if (!searchField.getText().isBlank()) {
+                updateFilter(); // so matching rows in this chunk show up
+            }
+            loadStatusLabel.setText("Loading... " + model.getRowCount() + " loans");
+        });
+        SwingUtilities.invokeLater(() -> setLoading(true, "Loading loans..."));
+
         try {
-            JSONObject json = new JSONObject(jsonString);
-            if ("success".equalsIgnoreCase(json.optString("status"))) {
-                JSONArray recordsArray = json.getJSONArray("loans");
-                
-                // Updated Columns to include "Borrower Name" (Bname) from your PHP
-                String[] columnNames = {"No.", "Isbn", "Card ID", "Date Out", "Due Date", "Date In", "Lib ID OUT", "Lib ID IN"};
-                
-                ArrayList<String[]> rowData = new ArrayList<>();
-                for (int i = 0; i < recordsArray.length(); i++) {
-                    String displayNo = String.valueOf(i + 1);
-                    JSONObject obj = recordsArray.getJSONObject(i);
-                    
-                    String isbn = obj.optString("Isbn");
-                    String cId = obj.optString("Card_id");
-                    String dateOut = obj.optString("Date_out");
-                    String dueDate = obj.optString("Due_date");
-                    String dateIn = obj.optString("Date_in");
-                    
-                    if(dateIn == null || dateIn.equals("null")) dateIn = "---";
-                    
-                    String libOut = obj.optString("lib_id_checkout");
-                    String libIn = obj.optString("lib_id_return");
-                    if(libIn == null || libIn.equals("null")) libIn = "---";
-
-                    // Add ALL fields to the row
-                    rowData.add(new String[]{displayNo, isbn, cId, dateOut, dueDate, dateIn, libOut, libIn});
+            LoanSync.Delta all = LOAN_SYNC.sync(-1, batcher::addAll);
+            int count = all.appended().size();
+
+            SwingUtilities.invokeLater(() -> {
+                if (recordsTable.getModel() != model) {
+                    installModel(model);
                 }
+                if (model.getRowCount() != count) {
+                    // Another window's sync filled the replica first, so nothing streamed here
+                    loansModel = null;
+                    loadLoanHistory();
+                    return;
+                }
+                loansVersion = all.version();
+                setLoading(false, count + " loans");
+            });
+            return count;
+        } catch (Exception ex) {
+            loadFailed(ex);
+            return 0;
+        }
+    }
 
-                String[][] data = rowData.toArray(new String[0][]);
-                
-                SwingUtilities.invokeLater(() -> {
-                    DefaultTableModel model = new DefaultTableModel(data, columnNames) {
-                        @Override
-                        public boolean isCellEditable(int row, int column) { return false; }
-                    };
-                    recordsTable.setModel(model);
-                    
-                    DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
-                    centerRenderer.setHorizontalAlignment(SwingConstants.LEFT);
-                    for (int i = 0; i < recordsTable.getColumnCount(); i++) {
-                        recordsTable.getColumnModel().getColumn(i).setCellRenderer(centerRenderer);
-                    }
+    // Later loads fetch only the loans changed since the last sync and patch
+    // those rows in place. A full sync goes into a detached model and only the
+    // differences are applied, so selection, scroll position and sort order survive.
+    private int refreshLoans(LoanTableModel current, long since) {
+        SwingUtilities.invokeLater(() -> setLoading(true, "Checking for changed loans..."));
 
-                    rowSorter = new TableRowSorter<>(model);
-                    recordsTable.setRowSorter(rowSorter);
-                });
+        try {
+            LoanSync.Delta delta = LOAN_SYNC.sync(since, null);
+            if (!delta.full()) {
+                SwingUtilities.invokeLater(() -> applyLoanDelta(current, since, delta));
+                return delta.baseSize() + delta.appended().size();
+            }
+
+            List<String[]> rows = delta.appended();
+            int count = rows.size();
+            LoanTableModel fresh = new LoanTableModel(LOAN_COLUMNS);
+            fresh.appendRows(rows);
+            RowDiff diff;
+            try {
+                diff = RowDiff.compute(current, fresh,
+                        LoanTableModel.ISBN, LoanTableModel.CARD_ID, LoanTableModel.DATE_OUT);
+            } catch (RuntimeException ex) {
+                diff = null; // the table changed while we read it; retried below
+            }
+            RowDiff result = diff;
+            SwingUtilities.invokeLater(() -> {
+                if (loansModel != current) {
+                    return; // replaced meanwhile
+                }
+                if (result == null || !result.applyTo(current)) {
+                    loadLoanHistory();
+                    return;
+                }
+                loansVersion = delta.version();
+                if (!result.isEmpty()) {
+                    updateFilter();
+                }
+                setLoading(false, count + " loans");
+            });
+            return count;
+        } catch (Exception ex) {
+            loadFailed(ex);
+            return 0;
+        }
+    }
+
+    // Replica row i is table row i, so changed loans are patched by position
+    private void applyLoanDelta(LoanTableModel current, long since, LoanSync.Delta delta) {
+        if (loansModel != current) {
+            return; // replaced meanwhile
+        }
+        if (loansVersion != since || current.getRowCount() != delta.baseSize()) {
+            // The table isn't the version the delta was computed against; rebuild it
+            loansModel = null;
+            loadLoanHistory();
+            return;
+        }
+        int[] updatedRows = delta.updatedRows();
+        for (int i = 0; i < updatedRows.length; i++) {
+            current.setRow(updatedRows[i], delta.updated().get(i));
+        }
+        current.appendRows(delta.appended());
+        loansVersion = delta.version();
+        if (!delta.isEmpty()) {
+            updateFilter();
+        }
+        setLoading(false, current.getRowCount() + " loans");
+    }
+
+    private void loadFailed(Exception ex) {
+        if (ex instanceof InterruptedIOException || Thread.currentThread().isInterrupted()) {
+            SwingUtilities.invokeLater(() -> setLoading(false, "Load cancelled"));
+            return;
+        }
+        ex.printStackTrace();
+        SwingUtilities.invokeLater(() -> {
+            setLoading(false, " ");
+            if (ex instanceof BackendException) {
+                JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             } else {
-                SwingUtilities.invokeLater(() -> 
-                    JOptionPane.showMessageDialog(this, "Error: " + json.optString("message"), "Error", JOptionPane.ERROR_MESSAGE));
+                JOptionPane.showMessageDialog(this, "Error loading loan: " + ex.getMessage());
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        });
+    }
+
+    private void installModel(TableModel model) {
+        recordsTable.setModel(model);
+        loansModel = model instanceof LoanTableModel loans ? loans : null;
+
+        DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
+        centerRenderer.setHorizontalAlignment(SwingConstants.LEFT);
+        for (int i = 0; i < recordsTable.getColumnCount(); i++) {
+            recordsTable.getColumnModel().getColumn(i).setCellRenderer(centerRenderer);
         }
+
+        rowSorter = loansModel == null ? null : new ColumnarRowSorter<>(loansModel, tasks);
+        recordsTable.setRowSorter(rowSorter);
+        search.setMatcher(new TableTextMatcher(model));
+        updateFilter();
     }
-    
-    private String fetchUrl(String urlString) throws Exception {
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-        StringBuilder response = new StringBuilder();
-        String line;
-        while ((line = in.readLine()) != null) response.append(line);
-        in.close();
-        return response.toString();
+
+    private void setLoading(boolean loading, String status) {
+        loadStatusLabel.setText(status);
+        cancelLoadButton.setVisible(loading);
     }
 
     // --- Styling & Helpers ---
@@ -253,15 +410,9 @@ public class ManageLoanDashboard extends JFrame {
         });
     }
 
+    // Re-runs the current search now, e.g. after rows were added
     private void updateFilter() {
-        String text = searchField.getText();
-        if (rowSorter != null) {
-            if (text.trim().length() == 0) {
-                rowSorter.setRowFilter(null);
-            } else {
-                rowSorter.setRowFilter(RowFilter.regexFilter("(?i)" + text));
-            }
-        }
+        search.refresh();
     }
 
     private JButton createModernButton(String text) {
@@ -72,7 +72,10 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.checkmates.model.Professor;
+import com.checkmates.concurrent.TaskScope;
 import com.checkmates.model.Librarian;
+import com.checkmates.data.Repositories;
+import com.checkmates.net.BackendException;
 import com.checkmates.ui.components.ModernButton;
 import com.checkmates.ui.components.ModernScrollBarUI;
 import com.checkmates.ui.components.WrapLayout;
@@ -115,6 +118,7 @@ public class Note {
         frame.setSize(950, 750);
         frame.setLocationRelativeTo(null);
         frame.setLayout(new BorderLayout(10, 10));
+        TaskScope tasks = TaskScope.forWindow(frame);
                
         frame.getContentPane().setBackground(new Color(255, 255, 255));  
 ;
@@ -166,6 +170,7 @@ public class Note {
         //Initial load on startup
         if (librarian != null) {
             fetchAndDisplayNotes(
+                tasks,
                 librarian.getLibID(),
                 notesContainer,
                 notes
@@ -221,7 +226,7 @@ public class Note {
             }
             System.out.println("Saving note for professor ID → " + librarian.getLibID());
 
-            saveNoteToDatabase(librarian.getLibID(), inputArea.getText().trim());
+            saveNoteToDatabase(TaskScope.forWindow(parent), librarian.getLibID(), inputArea.getText().trim());
             
             
             dialog.dispose();
@@ -233,66 +238,30 @@ public class Note {
         dialog.setVisible(true);
     }
     
-    private static void saveNoteToDatabase(String professorId, String noteText) {
-    new Thread(() -> {
-        HttpURLConnection conn = null;
+    private static void saveNoteToDatabase(TaskScope tasks, String professorId, String noteText) {
+    tasks.submitWrite(() -> {
         try {
-            // 1) Prepare URL & open connection
-            URL url = new URL("https://cm8tes.com/createNote.php");
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setDoOutput(true);
-            conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-
-            // 2) Build POST body
-            String body = "professor_id=" + URLEncoder.encode(professorId, "UTF-8")
-                        + "&note="         + URLEncoder.encode(noteText,   "UTF-8");
-
-            // 3) Send it
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(body.getBytes(StandardCharsets.UTF_8));
-            }
-
-            // 4) Read the response
-            int code = conn.getResponseCode();
-            InputStream is = (code >= 200 && code < 300)
-                ? conn.getInputStream()
-                : conn.getErrorStream();
-
-            String jsonText;
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line);
-                }
-                jsonText = sb.toString();
-            }
-
-            // 5) Parse JSON
-            JSONObject json = new JSONObject(jsonText);
-            String status  = json.optString("status",  "error");
-            String message = json.optString("message", "Unknown error");
+            String message = Repositories.getInstance().notes().create(professorId, noteText);
 
-            // 6) Show result on the Swing thread
+            // Show result on the Swing thread
             SwingUtilities.invokeLater(() -> {
-                if ("success".equalsIgnoreCase(status)) {
-                    JOptionPane.showMessageDialog(
-                        ((Frame) null),
-                        message,
-                        "Note Saved",
-                        JOptionPane.INFORMATION_MESSAGE
-                    );
-                } else {
-                    JOptionPane.showMessageDialog(
-                        ((Frame) null),
-                        message,
-                        "Error Saving Note",
-                        JOptionPane.ERROR_MESSAGE
-                    );
-                }
+                JOptionPane.showMessageDialog(
+                    ((Frame) null),
+                    message,
+                    "Note Saved",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
             });
 
+        } catch (BackendException ex) {
+            SwingUtilities.invokeLater(() -> {
+                JOptionPane.showMessageDialog(
+                    ((Frame) null),
+                    ex.getMessage(),
+                    "Error Saving Note",
+                    JOptionPane.ERROR_MESSAGE
+                );
+            });
         } catch (Exception ex) {
             ex.printStackTrace();
             SwingUtilities.invokeLater(() -> {
@@ -303,46 +272,22 @@ public class Note {
                     JOptionPane.ERROR_MESSAGE
                 );
             });
-        } finally {
-            if (conn != null) conn.disconnect();
         }
-    }).start();
+    });
   }
-    private static void fetchAndDisplayNotes(String professorId,JPanel container,List<RealisticNotePanel> notes) {
-    new Thread(() -> {
+    private static void fetchAndDisplayNotes(TaskScope tasks, String professorId,JPanel container,List<RealisticNotePanel> notes) {
+    tasks.submit(() -> {
         try {
-            String urlString = "http://cm8tes.com/getNote.php?professor_id=" +
-                    URLEncoder.encode(String.valueOf(professorId), StandardCharsets.UTF_8.toString());
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            int code = conn.getResponseCode();
-            InputStream is = (code >= 200 && code < 300)
-                         ? conn.getInputStream()
-                         : conn.getErrorStream();
-
-            StringBuilder sb = new StringBuilder();
-            try (BufferedReader r = new BufferedReader(
-                     new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = r.readLine()) != null) sb.append(line);
-            }
-            /*
-            String raw = sb.toString();
-            System.out.println("▶ getNotes raw response: " + raw);
-            */
-
-            JSONObject resp = new JSONObject(sb.toString());
-            if (!"success".equalsIgnoreCase(resp.optString("status"))) {
-                System.err.println("getNotes error: " + resp.optString("message"));
+            List<String> saved;
+            try {
+                saved = Repositories.getInstance().notes().list(professorId);
+            } catch (BackendException ex) {
+                System.err.println("getNotes error: " + ex.getMessage());
                 return;
             }
 
-            JSONArray arr = resp.getJSONArray("data");
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject obj = arr.getJSONObject(i);
-                String text = obj.getString("note");
+            for (int i = 0; i < saved.size(); i++) {
+                String text = saved.get(i);
                 //  pick a random pastel color:
                 Random rand = new Random();
                 Color bg = new Color(
@@ -365,71 +310,33 @@ public class Note {
         } catch (Exception ex) {
             ex.printStackTrace();
         }
-    }).start();
+    });
    }
     
-   private static void deleteNoteFromDatabase(String professorId, String note) {
-    new Thread(() -> {
-        HttpURLConnection conn = null;
+   private static void deleteNoteFromDatabase(TaskScope tasks, String professorId, String note) {
+    tasks.submitWrite(() -> {
         try {
-            // Open connection to  delete endpoint
-            URL url = new URL("https://cm8tes.com/deleteNote.php");
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty(
-                "Content-Type",
-                "application/x-www-form-urlencoded; charset=UTF-8"
-            );
-            conn.setDoOutput(true);
-
-            // Build and send the form body
-            String urlParameters = 
-                  "professor_id=" + URLEncoder.encode(professorId, "UTF-8")
-                + "&note="         + URLEncoder.encode(note,   "UTF-8");
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(urlParameters.getBytes(StandardCharsets.UTF_8));
-            }
-
-            // Check HTTP response
-            int code = conn.getResponseCode();
-            System.out.println("▶ deleteNote returned HTTP " + code);
-
-            // Read JSON response
-            InputStream is = (code >= 200 && code < 300)
-                          ? conn.getInputStream()
-                          : conn.getErrorStream();
-            StringBuilder sb = new StringBuilder();
-            try (BufferedReader in = new BufferedReader(
-                     new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = in.readLine()) != null) {
-                    sb.append(line);
-                }
-            }
+            String message = Repositories.getInstance().notes().delete(professorId, note);
 
-            JSONObject json = new JSONObject(sb.toString());
-            String status  = json.optString("status",  "error");
-            String message = json.optString("message", "Unknown error");
-
-            // 5) Update UI on the EDT
+            // Update UI on the EDT
             SwingUtilities.invokeLater(() -> {
-                if ("success".equalsIgnoreCase(status)) {
-                    JOptionPane.showMessageDialog(
-                        null,
-                        message,
-                        "Note Deleted",
-                        JOptionPane.INFORMATION_MESSAGE
-                    );
-                } else {
-                    JOptionPane.showMessageDialog(
-                        null,
-                        message,
-                        "Error Deleting Note",
-                        JOptionPane.ERROR_MESSAGE
-                    );
-                }
+                JOptionPane.showMessageDialog(
+                    null,
+                    message,
+                    "Note Deleted",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
             });
 
+        } catch (BackendException ex) {
+            SwingUtilities.invokeLater(() -> {
+                JOptionPane.showMessageDialog(
+                    null,
+                    ex.getMessage(),
+                    "Error Deleting Note",
+                    JOptionPane.ERROR_MESSAGE
+                );
+            });
         } catch (Exception ex) {
             ex.printStackTrace();
             SwingUtilities.invokeLater(() -> {
@@ -440,14 +347,12 @@ public class Note {
                     JOptionPane.ERROR_MESSAGE
                 );
             });
-        } finally {
-            if (conn != null) conn.disconnect();
         }
-    }).start();
+    });
 }
 
-   public static void deleteNote(String professorId, String note){
-       deleteNoteFromDatabase(professorId, note);
+   public static void deleteNote(TaskScope tasks, String professorId, String note){
+       deleteNoteFromDatabase(tasks, professorId, note);
    }
 
 }
@@ -538,7 +443,7 @@ class RealisticNotePanel extends JPanel {
         xButton.addActionListener(e -> {
             Container parent = RealisticNotePanel.this.getParent();
             if (parent != null) {
-                Note.deleteNote(Note.getLibID(), text);
+                Note.deleteNote(TaskScope.of(parent), Note.getLibID(), text);
                 Note.decrementNoteIndex();
                 parent.remove(RealisticNotePanel.this);
                 parent.revalidate();
@@ -0,0 +1,323 @@
+package com.checkmates.ui;
+
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+import java.util.function.BiConsumer;
+
+import com.checkmates.bulk.CirculationBatch;
+import com.checkmates.bulk.ScanDetector;
+import com.checkmates.bulk.ScanWorker;
+import com.checkmates.data.Repositories;
+import com.checkmates.model.Librarian;
+import com.checkmates.util.Isbn;
+import com.checkmates.util.RateMeter;
+
+/**
+ * Circulation desk mode for barcode scanners.
+ *
+ * Every scan is checked locally (ISBN checksum, accidental double scans),
+ * acknowledged at once with a flash of the scan field, and handed to a
+ * {@link ScanWorker}; its answer arrives later in the list of recent scans.
+ * The librarian never waits on the network between two scans.
+ */
+public class ScanDeskDialog extends JDialog {
+
+    private static final int RECENT_SCANS = 200;
+    // The same code again this soon is a double trigger, not a second copy
+    private static final long REPEAT_MS = Long.getLong("checkmates.scan.repeatMs", 1500);
+
+    private static final Color OK_COLOR = new Color(76, 175, 80);
+    private static final Color ERROR_COLOR = new Color(220, 53, 69);
+    private static final Color PENDING_COLOR = new Color(120, 120, 120);
+
+    private final BiConsumer<String, String> availabilityChanged;
+    private final ScanDetector detector = new ScanDetector();
+    private final RateMeter rate = new RateMeter();
+    private ScanWorker worker;
+
+    private JRadioButton checkoutMode;
+    private JTextField cardField;
+    private JTextField scanField;
+    private JLabel statusLabel;
+    private JLabel rateLabel;
+    private final Timer rateTimer = new Timer(1000, e -> updateRate());
+    private final DefaultListModel<ScanEntry> recent = new DefaultListModel<>();
+    private Timer flashTimer;
+    private String lastCode;
+    private long lastCodeAt;
+    private boolean loansChanged;
+    private final java.util.List<String> failedAfterClose = new java.util.ArrayList<>();
+
+    private Font modernFont = new Font("Segoe UI", Font.PLAIN, 14);
+    private Font modernTitleFont = new Font("Segoe UI", Font.BOLD, 24);
+
+    /** One line of the recent-scans list; its outcome is filled in when answered. */
+    private static final class ScanEntry {
+        final ScanWorker.Scan scan;
+        CirculationBatch.Outcome outcome;
+
+        ScanEntry(ScanWorker.Scan scan) {
+            this.scan = scan;
+        }
+    }
+
+    /**
+     * {@code availabilityChanged} gets (ISBN, "IN" or "OUT") on the EDT for
+     * every confirmed scan, so the catalog can update its row in place.
+     */
+    public ScanDeskDialog(Frame owner, Librarian lib, Repositories backend,
+                          BiConsumer<String, String> availabilityChanged) {
+        super(owner, "Scan Mode", false);
+        this.availabilityChanged = availabilityChanged;
+        setSize(560, 600);
+        setLocationRelativeTo(owner);
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+
+        initComponents();
+        worker = new ScanWorker(backend.loans(), lib.getLibID(), this::answered);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                int waiting = worker.getPending();
+                if (waiting == 0 || JOptionPane.showConfirmDialog(ScanDeskDialog.this,
+                        waiting + " scans are still waiting for the server. Close anyway?\n"
+                                + "They will still be sent, and any that fail will be listed.",
+                        "Scans pending", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                    dispose();
+                }
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e) {
+                rateTimer.stop();
+                // Scans already flashed green are sent even with the window gone
+                worker.finish(() -> SwingUtilities.invokeLater(ScanDeskDialog.this::finished));
+            }
+        });
+        rateTimer.start();
+    }
+
+    private void initComponents() {
+        JPanel mainPanel = new JPanel(new BorderLayout(0, 15));
+        mainPanel.setBackground(Color.WHITE);
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel headerLabel = new JLabel("Scan Mode", SwingConstants.LEFT);
+        headerLabel.setFont(modernTitleFont);
+        headerLabel.setForeground(new Color(60, 60, 60));
+
+        // --- Mode ---
+        checkoutMode = new JRadioButton("Checkout to card", true);
+        JRadioButton checkinMode = new JRadioButton("Checkin");
+        ButtonGroup modes = new ButtonGroup();
+        modes.add(checkoutMode);
+        modes.add(checkinMode);
+        cardField = new JTextField(12);
+        checkoutMode.addItemListener(e -> cardField.setEnabled(checkoutMode.isSelected()));
+        for (AbstractButton b : new AbstractButton[]{checkoutMode, checkinMode}) {
+            b.setFont(modernFont);
+            b.setBackground(Color.WHITE);
+            b.setFocusable(false); // keep the focus in the scan field
+        }
+
+        JPanel modePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        modePanel.setBackground(Color.WHITE);
+        modePanel.add(checkoutMode);
+        modePanel.add(cardField);
+        modePanel.add(checkinMode);
+
+        // --- Scan field ---
+        scanField = new JTextField();
+        scanField.setFont(new Font("Segoe UI", Font.BOLD, 22));
+        scanField.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(PENDING_COLOR, 2),
+                BorderFactory.createEmptyBorder(8, 10, 8, 10)));
+        scanField.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyTyped(KeyEvent e) {
+                if (!Character.isISOControl(e.getKeyChar())) {
+                    detector.typed(e.getKeyChar(), e.getWhen());
+                }
+            }
+        });
+        scanField.addActionListener(e -> {
+            String scanned = detector.enter(e.getWhen());
+            String code = scanned != null ? scanned : scanField.getText().trim();
+            scanField.setText("");
+            if (!code.isEmpty()) {
+                scanned(code);
+            }
+        });
+        // Scanning into the card field by mistake would lend to an ISBN
+        cardField.addActionListener(e -> scanField.requestFocusInWindow());
+
+        statusLabel = new JLabel(" ");
+        statusLabel.setFont(modernFont);
+        statusLabel.setForeground(ERROR_COLOR);
+
+        JPanel scanPanel = new JPanel(new BorderLayout(0, 5));
+        scanPanel.setBackground(Color.WHITE);
+        scanPanel.add(scanField, BorderLayout.CENTER);
+        scanPanel.add(statusLabel, BorderLayout.SOUTH);
+
+        JPanel top = new JPanel(new BorderLayout(0, 10));
+        top.setBackground(Color.WHITE);
+        top.add(headerLabel, BorderLayout.NORTH);
+        top.add(modePanel, BorderLayout.CENTER);
+        top.add(scanPanel, BorderLayout.SOUTH);
+        mainPanel.add(top, BorderLayout.NORTH);
+
+        // --- Recent scans ---
+        JList<ScanEntry> list = new JList<>(recent);
+        list.setFocusable(false);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(l, value, index, isSelected, cellHasFocus);
+                ScanEntry entry = (ScanEntry) value;
+                String action = entry.scan.kind() == CirculationBatch.Kind.CHECK_OUT
+                        ? "Out to " + entry.scan.cardId() : "In";
+                if (entry.outcome == null) {
+                    setText(entry.scan.isbn() + "   " + action + "   sending...");
+                    setForeground(PENDING_COLOR);
+                } else if (entry.outcome.ok()) {
+                    setText(entry.scan.isbn() + "   " + action + "   ✔");
+                    setForeground(OK_COLOR);
+                } else {
+                    setText(entry.scan.isbn() + "   " + action + "   ⚠ " + entry.outcome.message());
+                    setForeground(ERROR_COLOR);
+                }
+                setFont(modernFont);
+                return this;
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setBorder(BorderFactory.createLineBorder(new Color(220, 220, 220)));
+        mainPanel.add(scrollPane, BorderLayout.CENTER);
+
+        rateLabel = new JLabel(" ");
+        rateLabel.setFont(modernFont);
+        rateLabel.setForeground(PENDING_COLOR);
+        mainPanel.add(rateLabel, BorderLayout.SOUTH);
+
+        getContentPane().add(mainPanel);
+        addWindowFocusListener(new WindowAdapter() {
+            @Override
+            public void windowGainedFocus(WindowEvent e) {
+                scanField.requestFocusInWindow();
+            }
+        });
+    }
+
+    // --- Scans ---
+
+    private void scanned(String code) {
+        String isbn = Isbn.normalize(code);
+        if (isbn == null) {
+            reject(code + " is not a valid ISBN");
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (isbn.equals(lastCode) && now - lastCodeAt < REPEAT_MS) {
+            lastCodeAt = now;
+            flash(PENDING_COLOR); // already taken; not an error
+            return;
+        }
+        boolean checkout = checkoutMode.isSelected();
+        String cardId = cardField.getText().trim();
+        if (checkout && cardId.isEmpty()) {
+            reject("Enter the borrower's card first");
+            cardField.requestFocusInWindow();
+            return;
+        }
+        lastCode = isbn;
+        lastCodeAt = now;
+        statusLabel.setText(" ");
+
+        ScanWorker.Scan scan = worker.offer(
+                checkout ? CirculationBatch.Kind.CHECK_OUT : CirculationBatch.Kind.CHECK_IN,
+                isbn, checkout ? cardId : null);
+        recent.add(0, new ScanEntry(scan));
+        if (recent.size() > RECENT_SCANS) {
+            recent.removeRange(RECENT_SCANS, recent.size() - 1);
+        }
+        flash(OK_COLOR);
+        updateRate();
+    }
+
+    // EDT, once the worker has sent everything queued before the window closed
+    private void finished() {
+        if (loansChanged) {
+            ManageLoanDashboard.refreshOpenWindows();
+        }
+        if (!failedAfterClose.isEmpty()) {
+            JOptionPane.showMessageDialog(null,
+                    "These scans failed after the scan window was closed:\n" + String.join("\n", failedAfterClose),
+                    "Scan Mode", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    // Background thread
+    private void answered(ScanWorker.Scan scan, CirculationBatch.Outcome outcome) {
+        if (outcome.ok()) {
+            rate.record(System.currentTimeMillis());
+        }
+        SwingUtilities.invokeLater(() -> {
+            for (int i = 0; i < recent.size(); i++) {
+                ScanEntry entry = recent.get(i);
+                if (entry.scan.id() == scan.id()) {
+                    entry.outcome = outcome;
+                    recent.set(i, entry); // repaints the row
+                    break;
+                }
+            }
+            if (outcome.ok()) {
+                loansChanged = true;
+                availabilityChanged.accept(scan.isbn(),
+                        scan.kind() == CirculationBatch.Kind.CHECK_OUT ? "OUT" : "IN");
+            } else if (!isDisplayable()) {
+                failedAfterClose.add((scan.kind() == CirculationBatch.Kind.CHECK_OUT ? "Checkout " : "Checkin ")
+                        + scan.isbn() + ": " + outcome.message());
+            } else {
+                Toolkit.getDefaultToolkit().beep();
+                flash(ERROR_COLOR);
+            }
+            updateRate();
+        });
+    }
+
+    private void reject(String message) {
+        Toolkit.getDefaultToolkit().beep();
+        flash(ERROR_COLOR);
+        statusLabel.setText(message);
+    }
+
+    private void flash(Color color) {
+        scanField.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(color, 2),
+                BorderFactory.createEmptyBorder(8, 10, 8, 10)));
+        scanField.setBackground(new Color(color.getRed(), color.getGreen(), color.getBlue(), 40));
+        if (flashTimer != null) {
+            flashTimer.stop();
+        }
+        flashTimer = new Timer(400, e -> {
+            scanField.setBackground(Color.WHITE);
+            scanField.setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createLineBorder(PENDING_COLOR, 2),
+                    BorderFactory.createEmptyBorder(8, 10, 8, 10)));
+        });
+        flashTimer.setRepeats(false);
+        flashTimer.start();
+    }
+
+    private void updateRate() {
+        if (!isDisplayable()) {
+            return;
+        }
+        rateLabel.setText(rate.perMinute(System.currentTimeMillis()) + " scans/min   "
+                + worker.getPending() + " waiting for the server");
+    }
+}
@@ -77,6 +77,7 @@ import org.json.JSONObject;
 import com.checkmates.ui.components.HintTextField;
 import com.checkmates.ui.components.HintPasswordField;
 import com.checkmates.main.Login;
+import com.checkmates.net.BackendClient;
 
 
 
@@ -280,30 +281,8 @@ chkTerms.addActionListener(new ActionListener() {
                 "&email=" + URLEncoder.encode(email, "UTF-8") +
                 "&passWord=" + URLEncoder.encode(password, "UTF-8");
 
-        byte[] postData = urlParameters.getBytes(StandardCharsets.UTF_8);
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        conn.setDoOutput(true);
-
-        // Write POST data
-        try (DataOutputStream out = new DataOutputStream(conn.getOutputStream())) {
-            out.write(postData);
-        }
-
-        // Read the response
-        int responseCode = conn.getResponseCode();
-        BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-        String inputLine;
-        StringBuilder response = new StringBuilder();
-        while ((inputLine = in.readLine()) != null) {
-            response.append(inputLine);
-        }
-        in.close();
-
-        // Optionally, parse the JSON response here using a JSON library
-        return response.toString();
+        // Write POST data and read the response
+        return BackendClient.getInstance().postForm(urlString, urlParameters);
     }
 
     // For testing, run this class directly
@@ -0,0 +1,643 @@
+package com.checkmates.ui.components;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.BorderFactory;
+import javax.swing.CellRendererPane;
+import javax.swing.JComponent;
+import javax.swing.JMenuItem;
+import javax.swing.JPopupMenu;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Conversation view that only lays out and paints the messages on screen.
+ *
+ * Works like a {@code JList} with variable row heights: a {@link Renderer}
+ * hands out one reused component that is stamped for each visible message
+ * through a {@link CellRendererPane}. Each message's height is measured once
+ * for the current width and cached, together with the running total that
+ * gives its y position, so appending is a single measurement and painting
+ * finds the first visible message by binary search. Only a change of width
+ * measures everything again.
+ *
+ * Appending keeps the view pinned to the bottom if it was there, and leaves
+ * it alone otherwise; {@link #prepend} keeps what is on screen in place.
+ * When the user scrolls to the top and {@link #setOlderAvailable} is set,
+ * the {@link OlderListener} is asked (once, until the next prepend) for
+ * earlier messages. Right-click copies a message.
+ *
+ * With {@link #setMaxItems} the view holds a window of a long conversation
+ * rather than all of it: when it grows past the limit, messages are dropped
+ * from whichever end is further from the screen, and that end becomes
+ * available again ({@link #setOlderAvailable}, or {@link #setNewerAvailable}
+ * with its {@link NewerListener} and {@link #appendNewer} for the way back
+ * down). While newer messages are dropped the owner should not
+ * {@link #append}, since that would leave a gap; they are paged in instead.
+ *
+ * Call on the EDT.
+ */
+public class MessageListView extends JComponent implements Scrollable {
+
+    /**
+     * One message as shown. {@code id} is the server's, for paging; null for
+     * a message not confirmed yet (or not from a server at all).
+     */
+    public record Item(String id, String from, String text, boolean mine) {
+        public Item(String from, String text, boolean mine) {
+            this(null, from, text, mine);
+        }
+    }
+
+    /** Configures a component to paint {@code item} at {@code width}; like a list cell renderer. */
+    public interface Renderer {
+        Component getMessageComponent(MessageListView view, Item item, int width);
+    }
+
+    public interface OlderListener {
+        void olderRequested();
+    }
+
+    public interface NewerListener {
+        void newerRequested();
+    }
+
+    private static final int GAP = 6;
+    private static final int TOP_THRESHOLD = 40; // px from either end that asks for another page
+
+    private final List<Item> items = new ArrayList<>();
+    private int[] heights = new int[64];
+    private int[] tops = new int[64]; // y of each message; tops[i] + heights[i] + GAP = tops[i + 1]
+    private int total; // height of everything measured
+    private int measuredWidth = -1;
+    private final CellRendererPane rendererPane = new CellRendererPane();
+    private Renderer renderer = new BubbleRenderer();
+    private OlderListener olderListener;
+    private boolean olderAvailable;
+    private boolean olderPending;
+    private NewerListener newerListener;
+    private boolean newerAvailable;
+    private boolean newerPending;
+    private int maxItems = Integer.MAX_VALUE;
+    private JViewport viewport;
+    private final ChangeListener scrolled = e -> {
+        checkTop();
+        checkBottom();
+    };
+
+    public MessageListView() {
+        add(rendererPane);
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                maybeShowMenu(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                maybeShowMenu(e);
+            }
+        });
+    }
+
+    public void setRenderer(Renderer renderer) {
+        this.renderer = renderer;
+        remeasure();
+    }
+
+    public void setOlderListener(OlderListener l) {
+        olderListener = l;
+    }
+
+    /** Whether scrolling to the top should ask for earlier messages. */
+    public void setOlderAvailable(boolean available) {
+        olderAvailable = available;
+        olderPending = false;
+        checkTop();
+    }
+
+    public void setNewerListener(NewerListener l) {
+        newerListener = l;
+    }
+
+    /** Whether newer messages were dropped and scrolling to the bottom should ask for them. */
+    public void setNewerAvailable(boolean available) {
+        newerAvailable = available;
+        newerPending = false;
+        checkBottom();
+    }
+
+    public boolean isNewerAvailable() {
+        return newerAvailable;
+    }
+
+    /**
+     * Most messages held at once; past it the ones furthest from the screen
+     * are dropped. A quarter more is dropped than needed, so that a message
+     * at a time doesn't shift the whole window each time.
+     */
+    public void setMaxItems(int max) {
+        maxItems = Math.max(1, max);
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public Item getItem(int i) {
+        return items.get(i);
+    }
+
+    public void clear() {
+        items.clear();
+        total = 0;
+        olderAvailable = false;
+        olderPending = false;
+        newerAvailable = false;
+        newerPending = false;
+        revalidate();
+        repaint();
+    }
+
+    public void append(Item item) {
+        appendAll(List.of(item));
+    }
+
+    public void appendAll(List<Item> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        boolean atBottom = isAtBottom();
+        addAll(added);
+        if (viewport != null && items.size() > maxItems) {
+            int y = viewport.getViewPosition().y;
+            int removed = trim(atBottom ? total - viewport.getExtentSize().height : y);
+            if (!atBottom && removed > 0) {
+                viewport.setViewPosition(new Point(0, Math.max(0, y - removed)));
+            }
+        }
+        changed(atBottom);
+    }
+
+    /**
+     * Adds a page of messages that were dropped earlier below the others,
+     * without scrolling; {@code more} if there are newer ones still.
+     */
+    public void appendNewer(List<Item> page, boolean more) {
+        newerAvailable = more;
+        newerPending = false;
+        addAll(page);
+        if (viewport != null && items.size() > maxItems) {
+            Point p = viewport.getViewPosition();
+            int removed = trim(p.y);
+            if (removed > 0) {
+                viewport.setViewPosition(new Point(p.x, Math.max(0, p.y - removed)));
+            }
+        }
+        revalidate();
+        repaint();
+    }
+
+    private void addAll(List<Item> added) {
+        for (Item item : added) {
+            int i = items.size();
+            items.add(item);
+            ensureCapacity(items.size());
+            measure(i);
+        }
+    }
+
+    /** Replaces the newest message, e.g. one still being typed out. */
+    public void replaceLast(Item item) {
+        if (items.isEmpty()) {
+            append(item);
+            return;
+        }
+        boolean atBottom = isAtBottom();
+        int i = items.size() - 1;
+        items.set(i, item);
+        total -= heights[i] + GAP;
+        measure(i);
+        changed(atBottom);
+    }
+
+    /** Inserts earlier messages above the others without moving what is on screen. */
+    public void prepend(List<Item> older) {
+        olderPending = false;
+        if (older.isEmpty()) {
+            return;
+        }
+        int n = older.size();
+        int oldTotal = total;
+        items.addAll(0, older);
+        ensureCapacity(items.size());
+        System.arraycopy(heights, 0, heights, n, items.size() - n);
+        int added = 0;
+        for (int i = 0; i < n; i++) {
+            heights[i] = height(items.get(i));
+            added += heights[i] + GAP;
+        }
+        total = 0;
+        for (int i = 0; i < items.size(); i++) { // tops all move; a page of older messages is rare
+            tops[i] = total;
+            total += heights[i] + GAP;
+        }
+        if (viewport != null && oldTotal > 0) {
+            Point p = viewport.getViewPosition();
+            int shift = added - (items.size() > maxItems ? trim(p.y + added) : 0);
+            SwingUtilities.invokeLater(() -> viewport.setViewPosition(new Point(p.x, p.y + shift)));
+        }
+        revalidate();
+        repaint();
+    }
+
+    /** Index of the message at {@code p}, or -1. */
+    public int indexAt(Point p) {
+        Insets in = getInsets();
+        int i = firstAtOrBelow(p.y - in.top);
+        return i < items.size() && p.y - in.top >= tops[i] && p.y - in.top < tops[i] + heights[i] ? i : -1;
+    }
+
+    // --- Window ---
+
+    /**
+     * Drops messages from the end further from a viewport at {@code viewY}
+     * until the window fits, never one on screen, and never leaving an
+     * unconfirmed message at the new edge (it has no id to page back from).
+     * Returns how far everything moved up.
+     */
+    private int trim(int viewY) {
+        int extent = viewport.getExtentSize().height;
+        int first = firstAtOrBelow(viewY);
+        int last = Math.max(first, firstAtOrBelow(viewY + extent));
+        int excess = items.size() - maxItems + maxItems / 4;
+        if (viewY > total - (viewY + extent)) {
+            int n = Math.min(excess, first);
+            while (n > 0 && n < first && items.get(n).id() == null) {
+                n++;
+            }
+            return n > 0 ? dropOldest(n) : 0;
+        }
+        int keep = Math.max(items.size() - excess, last + 1);
+        while (keep < items.size() && keep > last + 1 && items.get(keep - 1).id() == null) {
+            keep--;
+        }
+        if (keep < items.size()) {
+            items.subList(keep, items.size()).clear();
+            total = tops[keep];
+            newerAvailable = true;
+            newerPending = false;
+        }
+        return 0;
+    }
+
+    private int dropOldest(int n) {
+        int removed = tops[n];
+        int left = items.size() - n;
+        items.subList(0, n).clear();
+        System.arraycopy(heights, n, heights, 0, left);
+        for (int i = 0; i < left; i++) {
+            tops[i] = tops[i + n] - removed;
+        }
+        total -= removed;
+        olderAvailable = true;
+        olderPending = false;
+        return removed;
+    }
+
+    // --- Measuring ---
+
+    private void ensureCapacity(int n) {
+        if (n > heights.length) {
+            int size = Math.max(n, heights.length * 2);
+            heights = Arrays.copyOf(heights, size);
+            tops = Arrays.copyOf(tops, size);
+        }
+    }
+
+    private void measure(int i) {
+        heights[i] = height(items.get(i));
+        tops[i] = total;
+        total += heights[i] + GAP;
+    }
+
+    private int height(Item item) {
+        int width = contentWidth();
+        if (width <= 0) {
+            return 0; // measured properly once the view has a width
+        }
+        Component c = renderer.getMessageComponent(this, item, width);
+        return c.getPreferredSize().height;
+    }
+
+    private void remeasure() {
+        measuredWidth = contentWidth();
+        total = 0;
+        for (int i = 0; i < items.size(); i++) {
+            measure(i);
+        }
+        revalidate();
+        repaint();
+    }
+
+    private int contentWidth() {
+        Insets in = getInsets();
+        return getWidth() - in.left - in.right;
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        boolean atBottom = isAtBottom();
+        super.setBounds(x, y, width, height);
+        if (contentWidth() != measuredWidth) {
+            remeasure();
+            if (atBottom) {
+                scrollToBottomLater();
+            }
+        }
+    }
+
+    private void changed(boolean atBottom) {
+        revalidate();
+        repaint();
+        if (atBottom) {
+            scrollToBottomLater();
+        }
+    }
+
+    private boolean isAtBottom() {
+        if (viewport == null) {
+            return true;
+        }
+        Rectangle r = viewport.getViewRect();
+        return r.y + r.height >= getHeight() - GAP * 2;
+    }
+
+    private void scrollToBottomLater() {
+        SwingUtilities.invokeLater(() -> {
+            if (viewport != null) {
+                int y = Math.max(0, getPreferredSize().height - viewport.getExtentSize().height);
+                viewport.setViewPosition(new Point(0, y));
+            }
+        });
+    }
+
+    // First message whose bottom is at or below y
+    private int firstAtOrBelow(int y) {
+        int lo = 0;
+        int hi = items.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tops[mid] + heights[mid] <= y) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // --- Painting ---
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        Rectangle clip = g.getClipBounds();
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        Insets in = getInsets();
+        int width = contentWidth();
+        for (int i = firstAtOrBelow(clip.y - in.top); i < items.size(); i++) {
+            int y = in.top + tops[i];
+            if (y > clip.y + clip.height) {
+                break;
+            }
+            Component c = renderer.getMessageComponent(this, items.get(i), width);
+            rendererPane.paintComponent(g, c, this, in.left, y, width, heights[i], true);
+        }
+        rendererPane.removeAll();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Insets in = getInsets();
+        return new Dimension(200, total + in.top + in.bottom);
+    }
+
+    // --- Scrollable ---
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(400, 300);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+        return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        return Math.max(16, visible.height - 16);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport v && v.getHeight() > getPreferredSize().height;
+    }
+
+    // --- Older messages ---
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (getParent() instanceof JViewport v) {
+            viewport = v;
+            v.addChangeListener(scrolled);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (viewport != null) {
+            viewport.removeChangeListener(scrolled);
+            viewport = null;
+        }
+        super.removeNotify();
+    }
+
+    private void checkTop() {
+        if (!olderAvailable || olderPending || olderListener == null || viewport == null || items.isEmpty()) {
+            return;
+        }
+        if (viewport.getViewPosition().y <= TOP_THRESHOLD) {
+            olderPending = true;
+            olderListener.olderRequested();
+        }
+    }
+
+    private void checkBottom() {
+        if (!newerAvailable || newerPending || newerListener == null || viewport == null || items.isEmpty()) {
+            return;
+        }
+        Rectangle r = viewport.getViewRect();
+        if (r.y + r.height >= getPreferredSize().height - TOP_THRESHOLD) {
+            newerPending = true;
+            newerListener.newerRequested();
+        }
+    }
+
+    private void maybeShowMenu(MouseEvent e) {
+        if (!e.isPopupTrigger()) {
+            return;
+        }
+        int i = indexAt(e.getPoint());
+        if (i < 0) {
+            return;
+        }
+        Item item = items.get(i);
+        JPopupMenu menu = new JPopupMenu();
+        JMenuItem copy = new JMenuItem("Copy message");
+        copy.addActionListener(a -> Toolkit.getDefaultToolkit().getSystemClipboard()
+                .setContents(new StringSelection(item.text()), null));
+        menu.add(copy);
+        menu.show(this, e.getX(), e.getY());
+    }
+
+    /**
+     * Default look: the sender's name over a rounded bubble, the user's own
+     * messages on the right in blue, everyone else's on the left in grey.
+     * Wraps and paints the text itself, so measuring a message is a few
+     * string widths rather than a text component layout.
+     */
+    public static class BubbleRenderer extends JComponent implements Renderer {
+
+        private static final Color MINE = new Color(222, 235, 255);
+        private static final Color THEIRS = new Color(242, 242, 242);
+        private static final Color NAME = new Color(110, 110, 110);
+        private static final int ARC = 14;
+        private static final int PAD = 8;
+        private static final int NAME_GAP = 2;
+
+        private final Font nameFont = new Font("SansSerif", Font.BOLD, 12);
+        private final Font bodyFont = new Font("SansSerif", Font.PLAIN, 14);
+        private final List<String> lines = new ArrayList<>();
+        private String name;
+        private boolean mine;
+        private int bubbleWidth;
+
+        @Override
+        public Component getMessageComponent(MessageListView view, Item item, int width) {
+            name = item.from();
+            mine = item.mine();
+            FontMetrics fm = getFontMetrics(bodyFont);
+            // A bubble is at most three quarters of the width, and no wider than its text
+            int maxText = Math.max(40, width * 3 / 4 - PAD * 2);
+            lines.clear();
+            int widest = wrap(item.text(), fm, maxText, lines);
+            bubbleWidth = widest + PAD * 2;
+            int height = getFontMetrics(nameFont).getHeight() + NAME_GAP
+                    + lines.size() * fm.getHeight() + PAD * 2;
+            setPreferredSize(new Dimension(width, height));
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            FontMetrics nfm = g2.getFontMetrics(nameFont);
+            g2.setFont(nameFont);
+            g2.setColor(NAME);
+            int nameX = mine ? getWidth() - nfm.stringWidth(name) : 0;
+            g2.drawString(name, nameX, nfm.getAscent());
+
+            int x = mine ? getWidth() - bubbleWidth : 0;
+            int y = nfm.getHeight() + NAME_GAP;
+            g2.setColor(mine ? MINE : THEIRS);
+            g2.fillRoundRect(x, y, bubbleWidth, getHeight() - y, ARC, ARC);
+
+            FontMetrics fm = g2.getFontMetrics(bodyFont);
+            g2.setFont(bodyFont);
+            g2.setColor(Color.BLACK);
+            int baseline = y + PAD + fm.getAscent();
+            for (String line : lines) {
+                g2.drawString(line, x + PAD, baseline);
+                baseline += fm.getHeight();
+            }
+            g2.dispose();
+        }
+
+        /**
+         * Breaks {@code text} into lines no wider than {@code max}, at spaces
+         * where possible; returns the widest line's width.
+         */
+        static int wrap(String text, FontMetrics fm, int max, List<String> out) {
+            int widest = 0;
+            for (String paragraph : text.split("\n", -1)) {
+                StringBuilder line = new StringBuilder();
+                int lineWidth = 0;
+                for (String word : paragraph.split(" ", -1)) {
+                    int w = fm.stringWidth(word);
+                    int withSpace = line.isEmpty() ? w : lineWidth + fm.charWidth(' ') + w;
+                    if (withSpace <= max) {
+                        if (!line.isEmpty()) {
+                            line.append(' ');
+                        }
+                        line.append(word);
+                        lineWidth = withSpace;
+                        continue;
+                    }
+                    if (!line.isEmpty()) {
+                        out.add(line.toString());
+                        widest = Math.max(widest, lineWidth);
+                        line.setLength(0);
+                    }
+                    // A word longer than a line is broken wherever it has to be
+                    int start = 0;
+                    while (w > max) {
+                        int end = start + 1;
+                        while (end < word.length() && fm.stringWidth(word.substring(start, end + 1)) <= max) {
+                            end++;
+                        }
+                        out.add(word.substring(start, end));
+                        widest = Math.max(widest, fm.stringWidth(word.substring(start, end)));
+                        start = end;
+                        w = fm.stringWidth(word.substring(start));
+                    }
+                    line.append(word, start, word.length());
+                    lineWidth = w;
+                }
+                out.add(line.toString());
+                widest = Math.max(widest, lineWidth);
+            }
+            return widest;
+        }
+    }
+}
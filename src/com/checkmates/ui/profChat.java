@@ -41,8 +41,6 @@ import org.json.JSONException;
 import java.net.HttpURLConnection;
 import java.lang.Exception;
 import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CompletableFuture;
 
 
@@ -68,8 +66,6 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.StringJoiner;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
@@ -90,18 +86,52 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.checkmates.concurrent.PollScheduler;
+import com.checkmates.concurrent.TaskScope;
 import com.checkmates.model.Librarian;
+import com.checkmates.data.MessageRepository;
+import com.checkmates.data.Repositories;
+import com.checkmates.store.MessageLog;
+import com.checkmates.sync.MessageSync;
+import com.checkmates.net.push.MessagePush;
+import com.checkmates.net.BackendException;
 import com.checkmates.ui.components.ModernScrollBarUI;
-import com.checkmates.util.AESUtil;
 import com.checkmates.ui.components.FancyHoverButton;
 import com.checkmates.ui.components.HintTextField;
+import com.checkmates.ui.components.MessageListView;
 
 public class profChat extends JDialog {
-    private final JTextArea chatArea;
+    private final MessageListView chatArea;
     private final JTextField inputField;
     private final JButton sendButton;
     private final Librarian lib;
     public final JComboBox<otherLibs> professorComboBox;
+    private final TaskScope tasks;
+    private final Repositories backend = Repositories.getInstance();
+    private volatile MessageSync sync; // the conversation on screen
+    private Object opening; // EDT only; the latest openConversation call
+    // Stored messages shown when a conversation opens, before the server answers
+    private static final int HISTORY_ON_OPEN = Integer.getInteger("checkmates.chat.historyOnOpen", MessageSync.PAGE_SIZE);
+    // Messages kept on screen at once; scrolling further pages the far end out
+    private static final int WINDOW_SIZE = Integer.getInteger("checkmates.chat.windowSize", 500);
+    private final MessagePush push; // null: polling only
+    private final MessagePush.Listener pushListener = new MessagePush.Listener() {
+        @Override
+        public void received(String other, MessageRepository.Message message) {
+            MessageSync current = sync;
+            if (current != null && current.getOther().equals(other)) {
+                showMessages(current, current.pushed(message));
+            }
+        }
+
+        @Override
+        public void stateChanged(MessagePush.State state) {
+            MessageSync current = sync;
+            if (current != null) {
+                current.setPushLive(state == MessagePush.State.LIVE);
+            }
+        }
+    };
     
     
     public profChat(JFrame parent, Librarian lib){
@@ -111,6 +141,19 @@ public class profChat extends JDialog {
         setSize(600,500);
         setLocationRelativeTo(parent);
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        tasks = TaskScope.forWindow(this);
+        // One stream for all conversations; only the PHP backend has one
+        push = "http".equals(backend.name()) ? MessagePush.acquire(lib.getLibID()) : null;
+        if (push != null) {
+            push.addListener(pushListener);
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    push.removeListener(pushListener);
+                    push.release();
+                }
+            });
+        }
         
         //Apply padding around the dialog content
         ((JComponent) getContentPane()).setBorder(new EmptyBorder(10,10,10,10));
@@ -131,7 +174,7 @@ public class profChat extends JDialog {
         professorComboBox.addItemListener(e -> {
             if (e.getStateChange() == ItemEvent.SELECTED) {
               otherLibs sel = (otherLibs)e.getItem();
-              loadHistory(sel.lib.getLibID());
+              openConversation(sel.lib.getLibID());
             }
         });
 
@@ -139,17 +182,15 @@ public class profChat extends JDialog {
         loadComboBox();
         add(topPanel, BorderLayout.NORTH);
         
-         // Chat area with modern styling
-        chatArea = new JTextArea();
-        chatArea.setEditable(false);
-        chatArea.setFont(new Font("SansSerif", Font.PLAIN, 14));
-        chatArea.setLineWrap(true);
-        chatArea.setWrapStyleWord(true);
-        chatArea.setBackground(new Color(255, 255, 255));
+         // Conversation view; only the messages on screen are laid out
+        chatArea = new MessageListView();
         chatArea.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createLineBorder(new Color(220, 220, 220)),
                 new EmptyBorder(10, 10, 10, 10)
         ));
+        chatArea.setOlderListener(this::loadOlderMessages);
+        chatArea.setNewerListener(this::loadNewerMessages);
+        chatArea.setMaxItems(WINDOW_SIZE);
         
          // after classComboBox… -> Add button
        JButton addButton = new JButton("\u002b");
@@ -187,7 +228,7 @@ public class profChat extends JDialog {
             // (B) Remove from combo box
             professorComboBox.removeItem(sel);
             // (C) Clear chat area if they were selected
-            chatArea.setText("");
+            chatArea.clear();
         }
     });
 
@@ -246,36 +287,28 @@ public class profChat extends JDialog {
             String text = inputField.getText().trim(); if (text.isEmpty()) return;
             otherLibs sel = (otherLibs)professorComboBox.getSelectedItem();
 
-            // 1) encrypt
-            Map<String,String> enc;
-            try{
-                
-                enc = AESUtil.encrypt(text);
-                
-            } catch(Exception e){
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(parent, "Encryption error: " + 
-                        e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                return; //stop if encryption fails
+            MessageSync current = sync;
+            // Scrolled back so far that the end was dropped: go back to it,
+            // and let the message arrive like any other
+            boolean away = current != null && chatArea.isNewerAvailable();
+            if (current != null && !away) {
+                current.sent(text);
             }
-            
-            String c  = enc.get("cipher");
-            String iv = enc.get("iv");
-
-            // 2) POST to PHP
-            new Thread(() -> {
+            // Encrypted and posted by the message repository
+            tasks.submitWrite(() -> {
               try{
-                JSONObject resp = httpPost(
-                  "https://cm8tes.com/postMessages.php",
-                  Map.of(
-                    "sender_id",   lib.getLibID(),
-                    "receiver_id", sel.lib.getLibID(),
-                    "cipher",      c,
-                    "iv",          iv
-                  )
-                );
+                if (away) {
+                    showLatest(current);
+                }
+                backend.messages().send(lib.getLibID(), sel.lib.getLibID(), text);
+                if (current != null) {
+                    current.wake(); // picks up replies sent meanwhile
+                }
               } catch(Exception ex){
                   ex.printStackTrace();
+                  if (current != null) {
+                      current.sendFailed(text);
+                  }
             SwingUtilities.invokeLater(() -> {
                 JOptionPane.showMessageDialog(
                     ((Frame) null),
@@ -285,11 +318,12 @@ public class profChat extends JDialog {
                 );
             });
               }
-              // handle resp if needed
-            }).start();
+            });
 
             // 3) append locally
-            chatArea.append("Me: " + text + "\n");
+            if (!away) {
+                chatArea.append(new MessageListView.Item("Me", text, true));
+            }
             inputField.setText("");
        });
 
@@ -298,15 +332,24 @@ public class profChat extends JDialog {
        inputPanel.add(sendButton, BorderLayout.EAST);
        add(inputPanel, BorderLayout.SOUTH);
         
-       Executors.newSingleThreadScheduledExecutor()
-  .scheduleAtFixedRate(() -> {
-        SwingUtilities.invokeLater(() -> {
-          otherLibs sel = (otherLibs) professorComboBox.getSelectedItem();
-          if (sel != null) {
-            loadHistory(sel.lib.getLibID());
-          }
-        });
-      }, 1, 1, TimeUnit.SECONDS);
+       // Ticks every second while the window is on screen; the conversation's
+       // sync decides whether a poll is due. Cancelled when the window closes.
+       PollScheduler.getInstance().every(this, 1000, () -> {
+        MessageSync current = sync;
+        if (current != null && current.beginPollIfDue(System.currentTimeMillis())) {
+          pollMessages(current);
+        }
+      });
+
+       addWindowFocusListener(new WindowAdapter() {
+         @Override
+         public void windowGainedFocus(WindowEvent e) {
+           MessageSync current = sync;
+           if (current != null) {
+             current.wake();
+           }
+         }
+       });
 
 }
     
@@ -356,49 +399,7 @@ public class profChat extends JDialog {
     
     private static Librarian fetchProfessorById(String professorId){
             try{
-                String urlString ="http://cm8tes.com/getProfessors.php?professor_id=" +
-                       URLEncoder.encode(String.valueOf(professorId), StandardCharsets.UTF_8.toString());
-                URL url = new URL(urlString);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-                
-                int code = conn.getResponseCode();
-                InputStream is = (code >= 200 && code < 300)
-                                ? conn.getInputStream()
-                                : conn.getErrorStream();
-                
-                StringBuilder sb = new StringBuilder();
-                try(BufferedReader r = new BufferedReader(new InputStreamReader(is, 
-                                        StandardCharsets.UTF_8))){
-                    String line;
-                    while ((line = r.readLine()) != null){
-                        sb.append(line);
-                    }
-                }
-                
-                //Test out
-                String raw = sb.toString();
-                //System.out.println("JSon Rawreponse: " + raw);
-                
-                
-                
-                JSONObject response = new JSONObject(sb.toString());
-                if(response.getString("status").equals("success")){
-                    String id = response.getString("professor_id");
-                    String name = response.getString("professorName");
-                    //System.out.println("Parsed id:   " + id);
-                    //System.out.println("Parsed name: " + name);
-
-                    Librarian fetchedProfessor = new Librarian(name, null, id);
-                    //System.out.println("professor.getProfessorName(): " + fetchedProfessor.getProfessorName());
-
-                    return fetchedProfessor;
-                }
-                else{
-                    //404 or error from the php
-                    return null;
-                }
-                        
+                return Repositories.getInstance().messages().findLibrarian(professorId);
             } catch (Exception ex){
                 ex.printStackTrace();
                 return null;
@@ -419,65 +420,32 @@ public class profChat extends JDialog {
         );
         return;
     }
-        new Thread(() -> {
-            HttpURLConnection conn = null;
+        tasks.submitWrite(() -> {
             try {
-                URL url = new URL("https://cm8tes.com/addProfessorContact.php");
-                conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setDoOutput(true);
-                conn.setRequestProperty(
-                  "Content-Type","application/x-www-form-urlencoded; charset=UTF-8"
-                );
-
-                String body = "owner_id="  + URLEncoder.encode(
-                                  owner_id, StandardCharsets.UTF_8.name())
-                            + "&contact_id=" + URLEncoder.encode(
-                                  contact_id,    StandardCharsets.UTF_8.name());
-
-                try (OutputStream os = conn.getOutputStream()) {
-                    os.write(body.getBytes(StandardCharsets.UTF_8));
-                }
-
-                int code = conn.getResponseCode();
-                
-                InputStream is = (code>=200 && code<300)
-                              ? conn.getInputStream()
-                              : conn.getErrorStream();
-                
-                StringBuilder sb = new StringBuilder();
-                try (BufferedReader rd = new BufferedReader(
-                      new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = rd.readLine()) != null) sb.append(line);
-                }
-
-                JSONObject json = new JSONObject(sb.toString());
-                String status  = json.optString("status", "error");
-                String message = json.optString("message","Unknown error");
+                String message = backend.messages().addContact(owner_id, contact_id);
 
                 // Update UI on EDT
                 SwingUtilities.invokeLater(() -> {
-                    if ("success".equalsIgnoreCase(status)) {
-                        professorComboBox.addItem(
-                            new otherLibs(foundProfessor, foundProfessor.getLibName())
-                        );
-                        JOptionPane.showMessageDialog(
-                            this,
-                            message,
-                            "Contact Saved",
-                            JOptionPane.INFORMATION_MESSAGE
-                        );
-                    } else {
-                        JOptionPane.showMessageDialog(
-                            this,
-                            message,
-                            "Error Saving Contact",
-                            JOptionPane.ERROR_MESSAGE
-                        );
-                    }
+                    professorComboBox.addItem(
+                        new otherLibs(foundProfessor, foundProfessor.getLibName())
+                    );
+                    JOptionPane.showMessageDialog(
+                        this,
+                        message,
+                        "Contact Saved",
+                        JOptionPane.INFORMATION_MESSAGE
+                    );
                 });
 
+            } catch (BackendException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(
+                        this,
+                        ex.getMessage(),
+                        "Error Saving Contact",
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                });
             } catch (Exception ex) {
                 ex.printStackTrace();
                 SwingUtilities.invokeLater(() -> {
@@ -488,147 +456,62 @@ public class profChat extends JDialog {
                         JOptionPane.ERROR_MESSAGE
                     );
                 });
-            } finally {
-                if (conn != null) conn.disconnect();
             }
-        }).start();
+        });
     }
     
      private void loadComboBox() {
         // Clear any existing items
         professorComboBox.removeAllItems();
 
-        new Thread(() -> {
-            HttpURLConnection conn = null;
+        tasks.submit(() -> {
             try {
-                // Build URL for fetching contacts
-                String ownerId = URLEncoder.encode(lib.getLibID(), StandardCharsets.UTF_8.name());
-                URL url = new URL("https://cm8tes.com/loadContacts.php?owner_id=" + ownerId);
-                conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-
-                int code = conn.getResponseCode();
-                InputStream is = (code >= 200 && code < 300)
-                                ? conn.getInputStream()
-                                : conn.getErrorStream();
-
-                StringBuilder sb = new StringBuilder();
-                try (BufferedReader rd = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = rd.readLine()) != null) {
-                        sb.append(line);
-                    }
-                }
-
-                // Debug: print raw response to catch unexpected content
-                String raw = sb.toString();
-                System.out.println("DEBUG loadComboBox raw response: [" + raw + "]");
-
-                // Trim BOM or whitespace before parsing
-                raw = raw.trim();
-
-                JSONObject json;
+                java.util.List<Librarian> contacts;
                 try {
-                    json = new JSONObject(raw);
-                } catch (JSONException je) {
-                    // Print error and raw for analysis
-                    System.err.println("JSON parse error in loadComboBox: " + je.getMessage());
+                    contacts = backend.messages().contacts(lib.getLibID());
+                } catch (BackendException ex) {
+                    System.err.println("Failed to load contacts: " + ex.getMessage());
                     return;
                 }
 
-                if ("success".equalsIgnoreCase(json.optString("status"))) {
-                    JSONArray contacts = json.optJSONArray("contacts");
-                    if (contacts != null) {
-                        // Populate combo box on the EDT
-                        SwingUtilities.invokeLater(() -> {
-                            for (int i = 0; i < contacts.length(); i++) {
-                                JSONObject obj = contacts.optJSONObject(i);
-                                if (obj == null) continue;
-                                String id = obj.optString("professor_id", null);
-                                String name = obj.optString("professorName", "");
-                                if (id != null) {
-                                    Librarian p = new Librarian(name, null, id);
-                                    professorComboBox.addItem(new otherLibs(p, name));
-                                }
-                            }
-                        });
+                // Populate combo box on the EDT
+                SwingUtilities.invokeLater(() -> {
+                    for (Librarian p : contacts) {
+                        professorComboBox.addItem(new otherLibs(p, p.getLibName()));
                     }
-                } else {
-                    System.err.println("Failed to load contacts: " + json.optString("message"));
-                }
+                });
 
             } catch (Exception ex) {
                 ex.printStackTrace();
-            } finally {
-                if (conn != null) conn.disconnect();
             }
-        }).start();
+        });
     }
-     private static void deleteProfessorFromDatabase(String owner_id, String contact_id){
+     private void deleteProfessorFromDatabase(String owner_id, String contact_id){
      System.out.println("DELETING: owner_id=" + owner_id + ", contact_id=" + contact_id);
 
-    new Thread(() -> {
-        HttpURLConnection conn = null;
+    tasks.submitWrite(() -> {
         try {
-            // 1) Open connection to your delete endpoint
-            URL url = new URL("https://cm8tes.com/deleteChat.php");
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty(
-                "Content-Type",
-                "application/x-www-form-urlencoded; charset=UTF-8"
-            );
-            conn.setDoOutput(true);
+            String message = backend.messages().deleteContact(owner_id, contact_id);
 
-            // 2) Build and send the form body
-            String urlParameters = 
-                  "owner_id=" + URLEncoder.encode(owner_id, "UTF-8")
-                + "&contact_id="         + URLEncoder.encode(contact_id,   "UTF-8");
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(urlParameters.getBytes(StandardCharsets.UTF_8));
-            }
-
-            // 3) Check HTTP response
-            int code = conn.getResponseCode();
-            System.out.println("▶ deleteChat returned HTTP " + code);
-
-            // 4) Read JSON response
-            InputStream is = (code >= 200 && code < 300)
-                          ? conn.getInputStream()
-                          : conn.getErrorStream();
-            StringBuilder sb = new StringBuilder();
-            try (BufferedReader in = new BufferedReader(
-                     new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = in.readLine()) != null) {
-                    sb.append(line);
-                }
-            }
-
-            JSONObject json = new JSONObject(sb.toString());
-            String status  = json.optString("status",  "error");
-            String message = json.optString("message", "Unknown error");
-
-            // 5) Update UI on the EDT
+            // Update UI on the EDT
             SwingUtilities.invokeLater(() -> {
-                if ("success".equalsIgnoreCase(status)) {
-                    JOptionPane.showMessageDialog(
-                        null,
-                        message,
-                        "Contact Deleted Successfully",
-                        JOptionPane.INFORMATION_MESSAGE
-                    );
-                } else {
-                    JOptionPane.showMessageDialog(
-                        null,
-                        message,
-                        "Error Deleting Contact",
-                        JOptionPane.ERROR_MESSAGE
-                    );
-                }
+                JOptionPane.showMessageDialog(
+                    null,
+                    message,
+                    "Contact Deleted Successfully",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
             });
 
+        } catch (BackendException ex) {
+            SwingUtilities.invokeLater(() -> {
+                JOptionPane.showMessageDialog(
+                    null,
+                    ex.getMessage(),
+                    "Error Deleting Contact",
+                    JOptionPane.ERROR_MESSAGE
+                );
+            });
         } catch (Exception ex) {
             ex.printStackTrace();
             SwingUtilities.invokeLater(() -> {
@@ -639,84 +522,42 @@ public class profChat extends JDialog {
                     JOptionPane.ERROR_MESSAGE
                 );
             });
-        } finally {
-            if (conn != null) conn.disconnect();
         }
-    }).start();
+    });
 }
     
      
-private static void deleteChatMessages(String sender_id, String receiver_id, JTextArea chatArea){
+private void deleteChatMessages(String sender_id, String receiver_id, MessageListView chatArea){
     
-    new Thread(() -> {
-        HttpURLConnection conn = null;
-        
+    tasks.submitWrite(() -> {
         try{
-            // Open connection to delete endpoint
-            URL url = new URL("https://cm8tes.com/deleteMessages.php");
-            
-            conn = (HttpURLConnection) url.openConnection();
-            
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty(
-                    "Content-Type", "application/x-www-form-urlencoded; charset=UTF-8"
-            );
-            
-            conn.setDoOutput(true);
-            
-            //Build & Send the form body
-            
-            String urlParameters = 
-                    "sender_id=" + URLEncoder.encode(sender_id, "UTF-8")
-                    + "&receiver_id=" + URLEncoder.encode(receiver_id, "UTF-8");
-            
-            try(OutputStream os = conn.getOutputStream()){
-                os.write(urlParameters.getBytes(StandardCharsets.UTF_8));
+            String message = backend.messages().deleteConversation(sender_id, receiver_id);
+            MessageLog log = messageLog();
+            if (log != null) {
+                log.forget(receiver_id);
             }
-            
-            //Check HTTP Response
-            int response = conn.getResponseCode();
-            System.out.println("delete message returned HTTP" + response);
-            
-            //Read JSON response
-            InputStream is = (response >= 200 && response < 300)
-                    ? conn.getInputStream()
-                    : conn.getErrorStream();
-            
-            StringBuilder sb = new StringBuilder();
-            
-            try(BufferedReader in = new BufferedReader(
-                      new InputStreamReader(is, StandardCharsets.UTF_8))){
-                String line;
-                while((line = in.readLine()) != null){
-                    sb.append(line);
-                }
-            }
-            
-            JSONObject json = new JSONObject(sb.toString());
-            String status = json.optString("status", "error");
-            String message = json.optString("message", "Unknown error");
-            
+
             //Update UI
             SwingUtilities.invokeLater(() -> {
-                if("success".equalsIgnoreCase(status)) {
-                    chatArea.setText("");
-                    JOptionPane.showMessageDialog(null, message, "Messages deleted successfully", JOptionPane.INFORMATION_MESSAGE);
+                chatArea.clear();
+                MessageSync current = sync;
+                if (current != null && current.getOther().equals(receiver_id)) {
+                    openConversation(receiver_id); // ids seen so far may be reused by the next messages
                 }
+                JOptionPane.showMessageDialog(null, message, "Messages deleted successfully", JOptionPane.INFORMATION_MESSAGE);
             });
-            
+
+        } catch(BackendException ex){
+            // Nothing was deleted; the conversation stays as it is
+            System.err.println("deleteMessages: " + ex.getMessage());
         } catch(Exception ex){
             ex.printStackTrace();
             SwingUtilities.invokeLater(() -> {
                 JOptionPane.showMessageDialog(null, "Network error: " + ex.getMessage(),
                         "Error", JOptionPane.ERROR_MESSAGE);
             });
-        } finally {
-            if(conn != null){
-                conn.disconnect();
-            }
         }
-    }).start();
+    });
        
 }
     
@@ -736,75 +577,177 @@ private static void deleteChatMessages(String sender_id, String receiver_id, JTe
         }
     }
     
-    // Simple HTTP GET → String
-private String httpGet(String urlStr) throws IOException {
-    URL url = new URL(urlStr);
-    HttpURLConnection con = (HttpURLConnection) url.openConnection();
-    con.setRequestMethod("GET");
-    try (BufferedReader in = new BufferedReader(
-           new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))) {
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = in.readLine()) != null) sb.append(line);
-        return sb.toString();
-    } finally {
-        con.disconnect();
+// Shows the conversation with otherId from scratch: the stored end of it
+// first, then whatever is newer from the server, and keeps appending to it
+private void openConversation(String otherId) {
+  chatArea.clear();
+  sync = null; // nothing polls the old conversation, nor this one until its history is shown
+  Object opening = new Object();
+  this.opening = opening;
+  tasks.submit(() -> {
+    MessageSync opened = new MessageSync(backend.messages(), lib.getLibID(), otherId,
+        Set.of(lib.getLibID(), String.valueOf(lib.getLibName())), messageLog());
+    java.util.List<MessageRepository.Message> stored = opened.restore(HISTORY_ON_OPEN);
+    SwingUtilities.invokeLater(() -> {
+      if (this.opening != opening) {
+        return; // another conversation was picked meanwhile
+      }
+      chatArea.appendAll(toItems(opened, stored));
+      sync = opened;
+      chatArea.setOlderAvailable(opened.hasOlder(firstId()));
+      opened.setPushLive(push != null && push.getState() == MessagePush.State.LIVE);
+      pollMessages(opened);
+    });
+  });
+}
+
+// The view reached the top; shows the page before the oldest message on screen
+private void loadOlderMessages() {
+  MessageSync current = sync;
+  String before = firstId();
+  if (current == null || before == null) {
+    return;
+  }
+  tasks.submit(() -> {
+    try {
+      MessageRepository.Page page = current.older(before, MessageSync.PAGE_SIZE);
+      SwingUtilities.invokeLater(() -> {
+        if (sync != current) {
+          return;
+        }
+        if (before.equals(firstId())) {
+          chatArea.prepend(toItems(current, page.messages()));
+          chatArea.setOlderAvailable(page.more());
+        } else {
+          chatArea.setOlderAvailable(current.hasOlder(firstId())); // the view moved on; ask again from where it is
+        }
+      });
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      SwingUtilities.invokeLater(() -> chatArea.setOlderAvailable(true)); // try again on the next scroll
     }
+  });
 }
 
-// Simple HTTP POST form → JSON response
-private JSONObject httpPost(String urlStr, Map<String,String> params) throws IOException, JSONException {
-    URL url = new URL(urlStr);
-    HttpURLConnection con = (HttpURLConnection) url.openConnection();
-    con.setRequestMethod("POST");
-    con.setDoOutput(true);
-    con.setRequestProperty("Content-Type","application/x-www-form-urlencoded; charset=UTF-8");
-
-    // build body: key1=val1&key2=val2...
-    StringJoiner sj = new StringJoiner("&");
-    for (var e : params.entrySet()) {
-        sj.add(URLEncoder.encode(e.getKey(),"UTF-8")
-             + "="
-             + URLEncoder.encode(e.getValue(),"UTF-8"));
+// The view reached the bottom after dropping newer messages; shows the next page of them
+private void loadNewerMessages() {
+  MessageSync current = sync;
+  String after = lastId();
+  if (current == null || after == null) {
+    return;
+  }
+  tasks.submit(() -> {
+    try {
+      MessageRepository.Page page = current.newer(after, MessageSync.PAGE_SIZE);
+      SwingUtilities.invokeLater(() -> {
+        if (sync != current) {
+          return;
+        }
+        if (after.equals(lastId())) {
+          java.util.List<MessageListView.Item> items = toItems(current, page.messages());
+          String last = items.isEmpty() ? after : items.get(items.size() - 1).id();
+          // Messages received while the page was on its way are not on screen either
+          chatArea.appendNewer(items, page.more() || current.hasNewer(last));
+        } else {
+          chatArea.setNewerAvailable(chatArea.isNewerAvailable());
+        }
+      });
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      SwingUtilities.invokeLater(() -> chatArea.setNewerAvailable(true));
     }
-    try (OutputStream os = con.getOutputStream()) {
-        os.write(sj.toString().getBytes(StandardCharsets.UTF_8));
+  });
+}
+
+// Any thread; replaces the view with the newest messages, after the user
+// scrolled far enough back that they were dropped
+private void showLatest(MessageSync current) {
+  try {
+    java.util.List<MessageListView.Item> items = toItems(current, current.latest(MessageSync.PAGE_SIZE));
+    SwingUtilities.invokeLater(() -> {
+      if (sync == current) {
+        chatArea.clear();
+        chatArea.appendAll(items);
+        chatArea.setOlderAvailable(current.hasOlder(firstId()));
+        String last = lastId();
+        chatArea.setNewerAvailable(last != null && current.hasNewer(last));
+      }
+    });
+  } catch (Exception ex) {
+    ex.printStackTrace();
+  }
+}
+
+// Ids of the oldest and newest confirmed messages on screen; the paging cursors
+private String firstId() {
+  for (int i = 0; i < chatArea.getItemCount(); i++) {
+    if (chatArea.getItem(i).id() != null) {
+      return chatArea.getItem(i).id();
     }
+  }
+  return null;
+}
 
-    try (BufferedReader in = new BufferedReader(
-           new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))) {
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = in.readLine()) != null) sb.append(line);
-        return new JSONObject(sb.toString());
-    } finally {
-        con.disconnect();
+private String lastId() {
+  for (int i = chatArea.getItemCount() - 1; i >= 0; i--) {
+    if (chatArea.getItem(i).id() != null) {
+      return chatArea.getItem(i).id();
     }
+  }
+  return null;
 }
 
-private void loadHistory(String otherId) {
-  new Thread(() -> {
-    try {
-      String u1 = URLEncoder.encode(lib.getLibID(),"UTF-8");
-      String u2 = URLEncoder.encode(otherId, "UTF-8");
-      String json = httpGet("https://cm8tes.com/getMessages.php?user1=" + u1 + "&user2=" + u2);
-
-      JSONArray arr = new JSONArray(json);
-      StringBuilder buf = new StringBuilder();
-      for (int i = 0; i < arr.length(); i++) {
-        JSONObject m = arr.getJSONObject(i);
-        String from = m.getString("from");
-        String text = m.getString("plaintext");
-        String time = m.getString("time");
-        buf.append(from).append(": ").append(text).append("\n");
-      }
+private java.util.List<MessageListView.Item> toItems(MessageSync from, java.util.List<MessageRepository.Message> messages) {
+  java.util.List<MessageListView.Item> items = new java.util.ArrayList<>(messages.size());
+  for (MessageRepository.Message m : messages) {
+    items.add(new MessageListView.Item(m.id(), m.from(), m.text(), from.isMine(m)));
+  }
+  return items;
+}
+
+// The local message store; only the PHP backend's slow download needs one
+private MessageLog messageLog() {
+  return "http".equals(backend.name()) ? MessageLog.forOwner(lib.getLibID()) : null;
+}
 
-      SwingUtilities.invokeLater(() -> chatArea.setText(buf.toString()));
-      
+private void pollMessages(MessageSync from) {
+  tasks.submit(() -> {
+    try {
+      showMessages(from, from.poll());
+    } catch (MessageRepository.ConversationResetException ex) {
+      // Deleted by the other side; what is on screen is gone
+      SwingUtilities.invokeLater(() -> {
+        if (sync == from) {
+          openConversation(from.getOther());
+        }
+      });
     } catch (Exception ex) {
       ex.printStackTrace();
     }
-  }).start();
+  });
+}
+
+// Any thread; appends if from is still the conversation on screen
+private void showMessages(MessageSync from, java.util.List<MessageRepository.Message> fresh) {
+  if (fresh.isEmpty()) {
+    return;
+  }
+  java.util.List<MessageListView.Item> items = toItems(from, fresh);
+  SwingUtilities.invokeLater(() -> {
+    if (sync != from || chatArea.isNewerAvailable()) {
+      return; // dropped from the view's end; paged in when the user scrolls down
+    }
+    boolean first = chatArea.getItemCount() == 0;
+    String last = lastId();
+    if (last != null) {
+      // A page of newer messages may have brought some of these already
+      items.removeIf(item -> MessageRepository.compareIds(item.id(), last) <= 0);
+    }
+    chatArea.appendAll(items);
+    if (first) {
+      chatArea.setOlderAvailable(from.hasOlder(firstId()));
+    }
+  });
 }
 
     
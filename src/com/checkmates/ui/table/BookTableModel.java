@@ -0,0 +1,36 @@
+package com.checkmates.ui.table;
+
+/**
+ * Catalog rows from getBooks.php: ISBN, title, authors, availability.
+ *
+ * ISBNs are packed into longs; author lists and the "IN"/"OUT" availability
+ * repeat across many books and are dictionary-encoded.
+ */
+public class BookTableModel extends ColumnarTableModel {
+
+    public static final int ISBN = 0;
+    public static final int TITLE = 1;
+    public static final int AUTHORS = 2;
+    public static final int AVAILABILITY = 3;
+
+    public BookTableModel(String[] columnNames) {
+        super(columnNames, new Column[]{
+                new Column.Isbns(),
+                new Column.Strings(),
+                new Column.Dictionary(new StringDictionary()),
+                new Column.Dictionary(new StringDictionary())
+        });
+    }
+
+    public String getIsbn(int row) {
+        return (String) getValueAt(row, ISBN);
+    }
+
+    public String getTitle(int row) {
+        return (String) getValueAt(row, TITLE);
+    }
+
+    public String getAuthors(int row) {
+        return (String) getValueAt(row, AUTHORS);
+    }
+}
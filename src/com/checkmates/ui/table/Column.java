@@ -0,0 +1,438 @@
+package com.checkmates.ui.table;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * One column of a {@link ColumnarTableModel}, stored as a primitive array
+ * where the data allows it. Values come in as the strings the PHP endpoints
+ * send and go back out unchanged; anything that doesn't fit a compact form is
+ * kept verbatim in an overflow dictionary.
+ */
+abstract class Column {
+
+    protected int size;
+
+    abstract Class<?> type();
+
+    abstract Object get(int row);
+
+    abstract void set(int row, String value);
+
+    /**
+     * Snapshot of the column's current values for sorting. Taking it is a plain
+     * array copy (fine on the EDT); computing the ranks is the expensive part
+     * and may run on any thread.
+     */
+    abstract Ranker ranker();
+
+    /** Computes one int per row whose order is the column's sort order. */
+    interface Ranker {
+        int[] ranks();
+    }
+
+    void add(String value) {
+        ensureCapacity(size + 1);
+        size++;
+        set(size - 1, value);
+    }
+
+    /** Removes rows {@code first..last} inclusive. */
+    void removeRange(int first, int last) {
+        copyWithin(last + 1, first, size - last - 1);
+        truncate(size - (last - first + 1));
+    }
+
+    /** Removes the rows in {@code sorted} (ascending) in one pass. */
+    void removeAll(int[] sorted) {
+        if (sorted.length == 0) {
+            return;
+        }
+        int to = sorted[0];
+        for (int k = 0; k < sorted.length; k++) {
+            int from = sorted[k] + 1;
+            int end = k + 1 < sorted.length ? sorted[k + 1] : size;
+            copyWithin(from, to, end - from);
+            to += end - from;
+        }
+        truncate(to);
+    }
+
+    int size() {
+        return size;
+    }
+
+    protected abstract void ensureCapacity(int capacity);
+
+    protected abstract void copyWithin(int from, int to, int length);
+
+    protected void truncate(int newSize) {
+        size = newSize;
+    }
+
+    static int grow(int length, int capacity) {
+        return Math.max(capacity, Math.max(16, length + (length >> 1)));
+    }
+
+    /** Dense ranks (0, 1, 2, ... with ties sharing a rank) of numeric keys. */
+    static int[] denseRanks(long[] keys) {
+        long[] sorted = keys.clone();
+        Arrays.parallelSort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct == 0 || sorted[distinct - 1] != sorted[i]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        int[] ranks = new int[keys.length];
+        int m = distinct;
+        IntStream.range(0, keys.length).parallel()
+                .forEach(i -> ranks[i] = Arrays.binarySearch(sorted, 0, m, keys[i]));
+        return ranks;
+    }
+
+    /** Free text (titles): one reference per row. */
+    static final class Strings extends Column {
+        private String[] data = new String[0];
+
+        @Override
+        Class<?> type() {
+            return String.class;
+        }
+
+        @Override
+        Object get(int row) {
+            return data[row];
+        }
+
+        @Override
+        void set(int row, String value) {
+            data[row] = value;
+        }
+
+        @Override
+        Ranker ranker() {
+            String[] values = Arrays.copyOf(data, size);
+            return () -> collationRanks(values);
+        }
+
+        private record Keyed(CollationKey key, int row) {}
+
+        // Collation keys are built in parallel, one Collator per worker thread
+        private static int[] collationRanks(String[] values) {
+            ThreadLocal<Collator> collators = ThreadLocal.withInitial(Collator::getInstance);
+            Keyed[] keyed = new Keyed[values.length];
+            IntStream.range(0, values.length).parallel().forEach(i -> keyed[i] = new Keyed(
+                    values[i] == null ? null : collators.get().getCollationKey(values[i]), i));
+            Arrays.parallelSort(keyed, Comparator.comparing(Keyed::key, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+            int[] ranks = new int[values.length];
+            int rank = -1;
+            for (int i = 0; i < keyed.length; i++) {
+                CollationKey k = keyed[i].key();
+                CollationKey prev = i == 0 ? null : keyed[i - 1].key();
+                if (i == 0 || (k == null ? prev != null : prev == null || k.compareTo(prev) != 0)) {
+                    rank++;
+                }
+                ranks[keyed[i].row()] = rank;
+            }
+            return ranks;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > data.length) {
+                data = Arrays.copyOf(data, grow(data.length, capacity));
+            }
+        }
+
+        @Override
+        protected void copyWithin(int from, int to, int length) {
+            System.arraycopy(data, from, data, to, length);
+        }
+
+        @Override
+        protected void truncate(int newSize) {
+            Arrays.fill(data, newSize, size, null);
+            size = newSize;
+        }
+    }
+
+    /** Low-cardinality text stored as dictionary codes. */
+    static final class Dictionary extends Column {
+        private final StringDictionary dict;
+        private int[] codes = new int[0];
+
+        Dictionary(StringDictionary dict) {
+            this.dict = dict;
+        }
+
+        StringDictionary dictionary() {
+            return dict;
+        }
+
+        int code(int row) {
+            return codes[row];
+        }
+
+        @Override
+        Class<?> type() {
+            return String.class;
+        }
+
+        @Override
+        Object get(int row) {
+            return dict.decode(codes[row]);
+        }
+
+        @Override
+        void set(int row, String value) {
+            codes[row] = dict.encode(value);
+        }
+
+        // Only the distinct values are collated; rows just look up their code's rank
+        @Override
+        Ranker ranker() {
+            int[] snapshot = Arrays.copyOf(codes, size);
+            String[] values = new String[dict.size()];
+            for (int c = 0; c < values.length; c++) {
+                values[c] = dict.decode(c);
+            }
+            return () -> {
+                int[] codeRank = Strings.collationRanks(values);
+                int[] ranks = new int[snapshot.length];
+                for (int i = 0; i < snapshot.length; i++) {
+                    ranks[i] = codeRank[snapshot[i]];
+                }
+                return ranks;
+            };
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length, capacity));
+            }
+        }
+
+        @Override
+        protected void copyWithin(int from, int to, int length) {
+            System.arraycopy(codes, from, codes, to, length);
+        }
+    }
+
+    /** Row numbers and other small counts. */
+    static final class Ints extends Column {
+        private int[] data = new int[0];
+
+        @Override
+        Class<?> type() {
+            return Integer.class;
+        }
+
+        @Override
+        Object get(int row) {
+            return data[row];
+        }
+
+        int getInt(int row) {
+            return data[row];
+        }
+
+        @Override
+        void set(int row, String value) {
+            data[row] = Integer.parseInt(value.trim());
+        }
+
+        @Override
+        Ranker ranker() {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = data[i];
+            }
+            return () -> denseRanks(keys);
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > data.length) {
+                data = Arrays.copyOf(data, grow(data.length, capacity));
+            }
+        }
+
+        @Override
+        protected void copyWithin(int from, int to, int length) {
+            System.arraycopy(data, from, data, to, length);
+        }
+    }
+
+    /**
+     * ISO dates ("2024-03-15") as epoch days. Anything else ("---", timestamps,
+     * blanks) goes to the overflow dictionary and is stored as a code below
+     * {@link #OVERFLOW}.
+     */
+    static final class Dates extends Column {
+        // Far below any real epoch day (year -900 or so)
+        static final int OVERFLOW = -1_000_000;
+
+        private final StringDictionary overflow = new StringDictionary();
+        private int[] days = new int[0];
+
+        @Override
+        Class<?> type() {
+            return String.class;
+        }
+
+        /** Epoch day of the row, or {@link Integer#MIN_VALUE} if it isn't an ISO date. */
+        int epochDay(int row) {
+            int d = days[row];
+            return d <= OVERFLOW ? Integer.MIN_VALUE : d;
+        }
+
+        @Override
+        Object get(int row) {
+            int d = days[row];
+            return d <= OVERFLOW ? overflow.decode(OVERFLOW - d) : LocalDate.ofEpochDay(d).toString();
+        }
+
+        @Override
+        void set(int row, String value) {
+            days[row] = encode(value);
+        }
+
+        // Real dates in date order, then everything else ("---" for loans not yet returned)
+        @Override
+        Ranker ranker() {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                int d = days[i];
+                keys[i] = d <= OVERFLOW ? (long) Integer.MAX_VALUE + (OVERFLOW - d) : d;
+            }
+            return () -> denseRanks(keys);
+        }
+
+        private int encode(String value) {
+            if (value != null && value.length() == 10) {
+                try {
+                    LocalDate date = LocalDate.parse(value);
+                    int d = (int) date.toEpochDay();
+                    if (d > OVERFLOW && date.toString().equals(value)) {
+                        return d;
+                    }
+                } catch (DateTimeParseException e) {
+                    // fall through to overflow
+                }
+            }
+            return OVERFLOW - overflow.encode(value);
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > days.length) {
+                days = Arrays.copyOf(days, grow(days.length, capacity));
+            }
+        }
+
+        @Override
+        protected void copyWithin(int from, int to, int length) {
+            System.arraycopy(days, from, days, to, length);
+        }
+    }
+
+    /**
+     * ISBNs packed into a long: the digits as a number, the length in the top
+     * bits (so leading zeros survive) and a flag for an ISBN-10 "X" check
+     * digit. Anything else is kept in the overflow dictionary as a negative code.
+     */
+    static final class Isbns extends Column {
+        private static final int LENGTH_SHIFT = 58;
+        private static final long X_FLAG = 1L << 57;
+        private static final long DIGITS_MASK = X_FLAG - 1;
+
+        private final StringDictionary overflow = new StringDictionary();
+        private long[] packed = new long[0];
+
+        @Override
+        Class<?> type() {
+            return String.class;
+        }
+
+        /** Packed value of the row; negative for ISBNs kept verbatim. */
+        long packed(int row) {
+            return packed[row];
+        }
+
+        @Override
+        Object get(int row) {
+            return decode(packed[row]);
+        }
+
+        @Override
+        void set(int row, String value) {
+            long p = pack(value);
+            packed[row] = p >= 0 ? p : -1 - overflow.encode(value);
+        }
+
+        // Numeric order within a length, so ISBN-13s sort as numbers
+        @Override
+        Ranker ranker() {
+            long[] keys = Arrays.copyOf(packed, size);
+            return () -> denseRanks(keys);
+        }
+
+        private String decode(long p) {
+            if (p < 0) {
+                return overflow.decode((int) (-1 - p));
+            }
+            int length = (int) (p >>> LENGTH_SHIFT);
+            boolean x = (p & X_FLAG) != 0;
+            long digits = p & DIGITS_MASK;
+            char[] out = new char[length];
+            int i = length - 1;
+            if (x) {
+                out[i--] = 'X';
+            }
+            for (; i >= 0; i--) {
+                out[i] = (char) ('0' + digits % 10);
+                digits /= 10;
+            }
+            return new String(out);
+        }
+
+        /** Packed form of {@code isbn}, or -1 if it needs the overflow dictionary. */
+        static long pack(String isbn) {
+            // 17 digits still fit below the flag bit
+            if (isbn == null || isbn.isEmpty() || isbn.length() > 17) {
+                return -1;
+            }
+            int n = isbn.length();
+            boolean x = isbn.charAt(n - 1) == 'X' && n > 1;
+            long digits = 0;
+            for (int i = 0; i < (x ? n - 1 : n); i++) {
+                char c = isbn.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                digits = digits * 10 + (c - '0');
+            }
+            return ((long) n << LENGTH_SHIFT) | (x ? X_FLAG : 0) | digits;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > packed.length) {
+                packed = Arrays.copyOf(packed, grow(packed.length, capacity));
+            }
+        }
+
+        @Override
+        protected void copyWithin(int from, int to, int length) {
+            System.arraycopy(packed, from, packed, to, length);
+        }
+    }
+}
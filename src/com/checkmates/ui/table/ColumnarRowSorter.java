@@ -0,0 +1,490 @@
+package com.checkmates.ui.table;
+
+import com.checkmates.concurrent.TaskScope;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+
+/**
+ * Row sorter for {@link ColumnarTableModel}s that sorts on precomputed
+ * primitive keys instead of comparing cell values on the EDT.
+ *
+ * Each sorted column is first turned into one int rank per row (numbers and
+ * ISBNs numerically, dates by epoch day, text through collation keys) and
+ * cached until the column changes. Sorting is then a stable pass of
+ * {@code Arrays.parallelSort} over (rank, position) pairs per sort key, last
+ * key first. Tables of {@value #ASYNC_THRESHOLD} rows or more are ranked and
+ * sorted on the window's {@link TaskScope}; the old order stays on screen
+ * until the new one is published on the EDT.
+ *
+ * Filtering takes the {@code BitSet} of model rows a search produced, and a
+ * search ranking (model rows, best first) is shown as-is until a header is
+ * clicked.
+ */
+public class ColumnarRowSorter<M extends ColumnarTableModel> extends RowSorter<M> {
+
+    public static final int ASYNC_THRESHOLD = 50_000;
+
+    private static final int MAX_SORT_KEYS = 3;
+
+    private final M model;
+    private final TaskScope tasks;
+
+    private List<SortKey> sortKeys = List.of();
+    private BitSet included;
+    private int[] ranking;
+
+    private int modelRowCount;
+    // Both null while the view is the model as-is: unfiltered and unsorted
+    private int[] viewToModel;
+    private int[] modelToView;
+
+    private final Map<Integer, int[]> ranks = new HashMap<>();
+    private long version;
+    private CompletableFuture<?> pending;
+    private boolean resortQueued;
+
+    /** {@code tasks} may be null to always sort on the calling thread. */
+    public ColumnarRowSorter(M model, TaskScope tasks) {
+        this.model = model;
+        this.tasks = tasks;
+        this.modelRowCount = model.getRowCount();
+    }
+
+    @Override
+    public M getModel() {
+        return model;
+    }
+
+    // --- Sort keys ---
+
+    @Override
+    public void toggleSortOrder(int column) {
+        checkColumn(column);
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        int at = -1;
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i).getColumn() == column) {
+                at = i;
+                break;
+            }
+        }
+        if (at == 0) {
+            SortOrder flipped = keys.get(0).getSortOrder() == SortOrder.ASCENDING
+                    ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+            keys.set(0, new SortKey(column, flipped));
+        } else {
+            if (at > 0) {
+                keys.remove(at);
+            }
+            keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+            if (keys.size() > MAX_SORT_KEYS) {
+                keys = keys.subList(0, MAX_SORT_KEYS);
+            }
+        }
+        setSortKeys(keys);
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> next = new ArrayList<>();
+        if (keys != null) {
+            for (SortKey key : keys) {
+                checkColumn(key.getColumn());
+                if (key.getSortOrder() != SortOrder.UNSORTED) {
+                    next.add(key);
+                }
+            }
+        }
+        if (next.equals(sortKeys)) {
+            return;
+        }
+        sortKeys = List.copyOf(next);
+        fireSortOrderChanged();
+        resort();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    // --- Filtering and ranking ---
+
+    /** Shows only the model rows in {@code rows}; {@code null} shows all. */
+    public void setRowFilter(BitSet rows) {
+        setRowFilter(rows, ranking);
+    }
+
+    /**
+     * Shows only {@code rows} ({@code null} for all), in the order of
+     * {@code rankedRows} (model rows, best first) if given. A ranking replaces
+     * any header sort until the user clicks a header again.
+     */
+    public void setRowFilter(BitSet rows, int[] rankedRows) {
+        included = rows;
+        ranking = rankedRows;
+        if (rankedRows != null && !sortKeys.isEmpty()) {
+            sortKeys = List.of();
+            fireSortOrderChanged();
+        }
+        resort();
+    }
+
+    /** Orders rows as in {@code rankedRows}; {@code null} drops the ranking. */
+    public void setRanking(int[] rankedRows) {
+        setRowFilter(included, rankedRows);
+    }
+
+    // --- Mapping ---
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= modelRowCount) {
+                throw new IndexOutOfBoundsException("Invalid index " + index);
+            }
+            return index;
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (modelToView == null) {
+            if (index < 0 || index >= modelRowCount) {
+                throw new IndexOutOfBoundsException("Invalid index " + index);
+            }
+            return index;
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? modelRowCount : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return modelRowCount;
+    }
+
+    // --- Model events (forwarded by JTable) ---
+
+    @Override
+    public void modelStructureChanged() {
+        modelRowCount = model.getRowCount();
+        ranks.clear();
+        included = null;
+        ranking = null;
+        if (!sortKeys.isEmpty()) {
+            sortKeys = List.of();
+            fireSortOrderChanged();
+        }
+        resort();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        supersede();
+        modelRowCount = model.getRowCount();
+        ranks.clear();
+        if (included != null && included.length() > modelRowCount) {
+            included = included.get(0, modelRowCount);
+        }
+        // Rows may be gone; drop them now so the table stays consistent while re-sorting
+        if (viewToModel != null) {
+            int[] old = viewToModel;
+            int n = 0;
+            int[] kept = new int[old.length];
+            for (int r : old) {
+                if (r < modelRowCount) {
+                    kept[n++] = r;
+                }
+            }
+            install(Arrays.copyOf(kept, n), old);
+        }
+        resort();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if (firstRow < 0 || endRow < firstRow || firstRow > modelRowCount) {
+            throw new IndexOutOfBoundsException("Invalid range " + firstRow + ".." + endRow);
+        }
+        if (supersede() || !sortKeys.isEmpty()) {
+            queueResort();
+        }
+        int count = endRow - firstRow + 1;
+        int oldCount = modelRowCount;
+        modelRowCount += count;
+        ranks.clear();
+        if (included != null && firstRow < oldCount) {
+            included = shiftUp(included, firstRow, count);
+        }
+        if (viewToModel == null) {
+            return;
+        }
+
+        // New rows go at the end (or nowhere, when filtered) until the next sort
+        int[] old = viewToModel;
+        int[] next = Arrays.copyOf(old, old.length + (included == null ? count : 0));
+        for (int i = 0; i < old.length; i++) {
+            if (next[i] >= firstRow) {
+                next[i] += count;
+            }
+        }
+        if (included == null) {
+            for (int i = 0; i < count; i++) {
+                next[old.length + i] = firstRow + i;
+            }
+        }
+        install(next, old);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        checkRange(firstRow, endRow, modelRowCount);
+        if (supersede()) {
+            queueResort(); // deleting keeps the order on screen, but not the one being computed
+        }
+        int count = endRow - firstRow + 1;
+        modelRowCount -= count;
+        ranks.clear();
+        if (included != null) {
+            included = shiftDown(included, firstRow, count);
+        }
+        if (viewToModel == null) {
+            return;
+        }
+
+        // Deleting keeps the relative order of the rest, so no re-sort is needed
+        int[] old = viewToModel;
+        int[] next = new int[old.length];
+        int n = 0;
+        for (int r : old) {
+            if (r < firstRow) {
+                next[n++] = r;
+            } else if (r > endRow) {
+                next[n++] = r - count;
+            }
+        }
+        install(Arrays.copyOf(next, n), old);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        checkRange(firstRow, endRow, modelRowCount);
+        if (supersede() || !sortKeys.isEmpty()) {
+            queueResort();
+        }
+        ranks.clear();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        checkRange(firstRow, endRow, modelRowCount);
+        checkColumn(column);
+        if (supersede()) {
+            queueResort();
+        }
+        ranks.remove(column);
+        for (SortKey key : sortKeys) {
+            if (key.getColumn() == column) {
+                queueResort();
+                return;
+            }
+        }
+    }
+
+    // --- Sorting ---
+
+    // Loads append a chunk at a time; sort once per EDT burst rather than per event
+    private void queueResort() {
+        if (resortQueued) {
+            return;
+        }
+        resortQueued = true;
+        SwingUtilities.invokeLater(() -> {
+            resortQueued = false;
+            resort();
+        });
+    }
+
+    /**
+     * Discards a sort still being computed: it was taken from rows (and
+     * ranks) that just changed, so its order may name rows that are gone.
+     * Returns whether there was one.
+     */
+    private boolean supersede() {
+        version++;
+        if (pending == null) {
+            return false;
+        }
+        pending.cancel(true);
+        pending = null;
+        return true;
+    }
+
+    private void resort() {
+        supersede();
+        long v = version;
+        int n = modelRowCount;
+        int[] rows = included == null ? null : included.get(0, n).stream().toArray();
+
+        if (sortKeys.isEmpty()) {
+            publish(ranking != null ? rankedOrder(n) : rows);
+            return;
+        }
+
+        // Snapshot the columns on the EDT; ranking them is the slow part
+        List<SortKey> keys = sortKeys;
+        Map<Integer, int[]> known = new HashMap<>();
+        Map<Integer, Column.Ranker> missing = new HashMap<>();
+        for (SortKey key : keys) {
+            int c = key.getColumn();
+            int[] cached = ranks.get(c);
+            if (cached != null) {
+                known.put(c, cached);
+            } else if (!missing.containsKey(c)) {
+                missing.put(c, model.column(c).ranker());
+            }
+        }
+
+        int count = rows == null ? n : rows.length;
+        if (tasks == null || count < ASYNC_THRESHOLD) {
+            missing.forEach((c, ranker) -> known.put(c, ranker.ranks()));
+            ranks.putAll(known);
+            publish(sortRows(rows, n, keys, known));
+            return;
+        }
+
+        CompletableFuture<int[]> sorted = tasks.supply(() -> {
+            for (Map.Entry<Integer, Column.Ranker> e : missing.entrySet()) {
+                known.put(e.getKey(), e.getValue().ranks());
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Sort superseded");
+                }
+            }
+            return sortRows(rows, n, keys, known);
+        });
+        pending = sorted;
+        sorted.whenComplete((order, err) -> SwingUtilities.invokeLater(() -> {
+            if (v != version) {
+                return;
+            }
+            pending = null;
+            if (err != null) {
+                Throwable cause = err instanceof CompletionException ? err.getCause() : err;
+                if (!(cause instanceof CancellationException)) {
+                    cause.printStackTrace();
+                }
+                return;
+            }
+            ranks.putAll(known);
+            publish(order);
+        }));
+    }
+
+    /** Stable sort of {@code rows} (all rows if null) by the given keys; safe off the EDT. */
+    static int[] sortRows(int[] rows, int n, List<SortKey> keys, Map<Integer, int[]> ranks) {
+        int[] order = rows != null ? rows.clone() : identity(n);
+        long[] packed = new long[order.length];
+        for (int k = keys.size() - 1; k >= 0; k--) {
+            int[] rank = ranks.get(keys.get(k).getColumn());
+            boolean descending = keys.get(k).getSortOrder() == SortOrder.DESCENDING;
+            for (int i = 0; i < order.length; i++) {
+                int r = rank[order[i]];
+                // Position in the low half keeps equal ranks in their previous order
+                packed[i] = ((long) (descending ? Integer.MAX_VALUE - r : r) << 32) | i;
+            }
+            Arrays.parallelSort(packed);
+            int[] next = new int[order.length];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = order[(int) packed[i]];
+            }
+            order = next;
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Sort superseded");
+            }
+        }
+        return order;
+    }
+
+    private int[] rankedOrder(int n) {
+        int[] order = new int[ranking.length];
+        int count = 0;
+        for (int r : ranking) {
+            if (r < n && (included == null || included.get(r))) {
+                order[count++] = r;
+            }
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    private void publish(int[] order) {
+        int[] old = viewToModel != null ? viewToModel : identity(modelRowCount);
+        if (order == null && viewToModel == null) {
+            return;
+        }
+        install(order, old);
+    }
+
+    private void install(int[] order, int[] previous) {
+        viewToModel = order;
+        if (order == null) {
+            modelToView = null;
+        } else {
+            modelToView = new int[modelRowCount];
+            Arrays.fill(modelToView, -1);
+            for (int i = 0; i < order.length; i++) {
+                modelToView[order[i]] = i;
+            }
+        }
+        fireRowSorterChanged(previous);
+    }
+
+    // --- Helpers ---
+
+    private static int[] identity(int n) {
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    private static BitSet shiftUp(BitSet rows, int from, int count) {
+        BitSet shifted = rows.get(0, from);
+        rows.stream().filter(r -> r >= from).forEach(r -> shifted.set(r + count));
+        return shifted;
+    }
+
+    private static BitSet shiftDown(BitSet rows, int from, int count) {
+        BitSet shifted = rows.get(0, from);
+        rows.stream().filter(r -> r >= from + count).forEach(r -> shifted.set(r - count));
+        return shifted;
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= model.getColumnCount()) {
+            throw new IndexOutOfBoundsException("Column " + column + " out of range");
+        }
+    }
+
+    private static void checkRange(int firstRow, int endRow, int limit) {
+        if (firstRow < 0 || endRow < firstRow || endRow >= limit) {
+            throw new IndexOutOfBoundsException("Invalid range " + firstRow + ".." + endRow);
+        }
+    }
+}
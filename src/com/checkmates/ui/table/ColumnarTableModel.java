@@ -0,0 +1,152 @@
+package com.checkmates.ui.table;
+
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table model that keeps each column in its own primitive array
+ * instead of a {@code Vector<Vector<Object>>} of per-cell strings.
+ *
+ * Rows are added from the {@code String[]} rows the loaders produce and read
+ * back as the same strings. Like {@code DefaultTableModel} it must only be
+ * modified on the EDT.
+ */
+public abstract class ColumnarTableModel extends AbstractTableModel {
+
+    private final String[] columnNames;
+    private final Column[] columns;
+    private int rowCount;
+    private int modCount;
+
+    protected ColumnarTableModel(String[] columnNames, Column[] columns) {
+        if (columnNames.length != columns.length) {
+            throw new IllegalArgumentException("Expected " + columnNames.length + " columns, got " + columns.length);
+        }
+        this.columnNames = columnNames.clone();
+        this.columns = columns;
+    }
+
+    /** Appends a batch of rows with a single insert event. */
+    public void appendRows(List<String[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int first = rowCount;
+        for (String[] row : rows) {
+            for (int c = 0; c < columns.length; c++) {
+                columns[c].add(row[c]);
+            }
+        }
+        rowCount += rows.size();
+        modCount++;
+        fireTableRowsInserted(first, rowCount - 1);
+    }
+
+    public void removeRow(int row) {
+        removeRows(row, row);
+    }
+
+    /** Removes rows {@code first..last} inclusive with one delete event. */
+    public void removeRows(int first, int last) {
+        for (Column column : columns) {
+            column.removeRange(first, last);
+        }
+        rowCount -= last - first + 1;
+        modCount++;
+        fireTableRowsDeleted(first, last);
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        columns[column].set(row, value == null ? null : value.toString());
+        modCount++;
+        fireTableCellUpdated(row, column);
+    }
+
+    /** Overwrites one row with {@code values} and fires a single update event. */
+    public void setRow(int row, String[] values) {
+        for (int c = 0; c < columns.length; c++) {
+            columns[c].set(row, values[c]);
+        }
+        modCount++;
+        fireTableRowsUpdated(row, row);
+    }
+
+    /** Overwrites row {@code row} with row {@code sourceRow} of {@code source}, without firing. */
+    void copyRow(int row, ColumnarTableModel source, int sourceRow) {
+        for (int c = 0; c < columns.length; c++) {
+            Object v = source.getValueAt(sourceRow, c);
+            columns[c].set(row, v == null ? null : v.toString());
+        }
+        modCount++;
+    }
+
+    /** Appends rows of {@code source} with one insert event. */
+    void appendFrom(ColumnarTableModel source, int[] sourceRows) {
+        if (sourceRows.length == 0) {
+            return;
+        }
+        int first = rowCount;
+        appendSilently(source, sourceRows);
+        fireTableRowsInserted(first, rowCount - 1);
+    }
+
+    void appendSilently(ColumnarTableModel source, int[] sourceRows) {
+        for (int sourceRow : sourceRows) {
+            for (int c = 0; c < columns.length; c++) {
+                Object v = source.getValueAt(sourceRow, c);
+                columns[c].add(v == null ? null : v.toString());
+            }
+        }
+        rowCount += sourceRows.length;
+        modCount++;
+    }
+
+    /** Removes the rows in {@code sorted} (ascending) without firing. */
+    void removeAllSilently(int[] sorted) {
+        for (Column column : columns) {
+            column.removeAll(sorted);
+        }
+        rowCount -= sorted.length;
+        modCount++;
+    }
+
+    /** Incremented on every change, to detect edits made while a diff was computed. */
+    public int getModCount() {
+        return modCount;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columns[column].type();
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return columns[column].get(row);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    protected Column column(int index) {
+        return columns[index];
+    }
+}
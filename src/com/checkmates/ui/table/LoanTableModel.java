@@ -0,0 +1,38 @@
+package com.checkmates.ui.table;
+
+/**
+ * Loan rows from getLoans.php: row number, ISBN, card id, date out, due date,
+ * date in and the checkout/return librarian ids.
+ *
+ * Dates are kept as epoch days, ISBNs packed into longs, and card and
+ * librarian ids dictionary-encoded; both librarian columns share one
+ * dictionary since they hold the same ids.
+ */
+public class LoanTableModel extends ColumnarTableModel {
+
+    public static final int NUMBER = 0;
+    public static final int ISBN = 1;
+    public static final int CARD_ID = 2;
+    public static final int DATE_OUT = 3;
+    public static final int DUE_DATE = 4;
+    public static final int DATE_IN = 5;
+    public static final int LIB_ID_OUT = 6;
+    public static final int LIB_ID_IN = 7;
+
+    public LoanTableModel(String[] columnNames) {
+        this(columnNames, new StringDictionary());
+    }
+
+    private LoanTableModel(String[] columnNames, StringDictionary librarians) {
+        super(columnNames, new Column[]{
+                new Column.Ints(),
+                new Column.Isbns(),
+                new Column.Dictionary(new StringDictionary()),
+                new Column.Dates(),
+                new Column.Dates(),
+                new Column.Dates(),
+                new Column.Dictionary(librarians),
+                new Column.Dictionary(librarians)
+        });
+    }
+}
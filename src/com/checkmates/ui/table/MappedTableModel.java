@@ -0,0 +1,52 @@
+package com.checkmates.ui.table;
+
+import javax.swing.table.AbstractTableModel;
+
+import com.checkmates.store.MappedTable;
+
+/**
+ * Read-only view of a {@link MappedTable}. Nothing is copied up front; the
+ * table decodes only the cells it paints.
+ */
+public class MappedTableModel extends AbstractTableModel {
+
+    private final String[] columnNames;
+    private final MappedTable table;
+
+    public MappedTableModel(String[] columnNames, MappedTable table) {
+        if (columnNames.length != table.getColumnCount()) {
+            throw new IllegalArgumentException("Expected " + table.getColumnCount() + " columns, got " + columnNames.length);
+        }
+        this.columnNames = columnNames.clone();
+        this.table = table;
+    }
+
+    public MappedTable getTable() {
+        return table;
+    }
+
+    @Override
+    public int getRowCount() {
+        return table.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return table.get(row, column);
+    }
+}
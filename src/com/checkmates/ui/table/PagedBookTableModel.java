@@ -0,0 +1,238 @@
+package com.checkmates.ui.table;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import com.checkmates.concurrent.TaskScope;
+import com.checkmates.data.BookRepository.Page;
+
+/**
+ * Book table model that only holds the pages the user is actually looking at.
+ *
+ * The model knows the total row count from the first page and fetches fixed-size
+ * pages as {@code JTable} asks for cells in them (JTable only asks for rows in the
+ * viewport). While a page is loading its cells read as {@link #LOADING}. When a
+ * page is requested the next one in the same scroll direction is prefetched, and
+ * at most {@code maxResidentPages} pages are kept, least recently used first out.
+ *
+ * A page that fails to load reads as {@link #FAILED} and is not asked for again
+ * until its backoff (1 s, doubling up to 30 s) has run out; the rows are then
+ * repainted, which retries the page if it is still in view. The failure
+ * listener hears about the first failure and about the recovery.
+ *
+ * All methods must be called on the EDT.
+ */
+public class PagedBookTableModel extends AbstractTableModel {
+
+    public static final String LOADING = "...";
+    public static final String FAILED = "(not loaded)";
+
+    private static final long FIRST_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    /** Usually {@code BookRepository::page}. */
+    public interface PageSource {
+        Page fetch(int offset, int limit, String query) throws IOException;
+    }
+
+    private record Failure(int attempts, long retryAt) {
+    }
+
+    private final String[] columnNames;
+    private final PageSource source;
+    private final TaskScope tasks;
+    private final int pageSize;
+    private final Map<Integer, List<String[]>> pages;
+    private final Set<Integer> pending = new HashSet<>();
+    private final Map<Integer, Failure> failures = new HashMap<>();
+    private Consumer<String> failureListener = message -> { };
+
+    private int total;
+    private String query = "";
+    private int generation;
+    private int lastPage;
+    private int direction = 1;
+
+    public PagedBookTableModel(String[] columnNames, PageSource source, TaskScope tasks,
+                               int pageSize, int maxResidentPages) {
+        this.columnNames = columnNames;
+        this.source = source;
+        this.tasks = tasks;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<String[]>> eldest) {
+                return size() > maxResidentPages;
+            }
+        };
+    }
+
+    /** Drops every cached page and reloads from the first one. */
+    public void reload() {
+        generation++;
+        pages.clear();
+        pending.clear();
+        clearFailures();
+        requestPage(0);
+    }
+
+    /**
+     * Called with the error message when a page fails to load while none was
+     * failing, and with {@code null} once no page is failing any more.
+     */
+    public void setFailureListener(Consumer<String> listener) {
+        this.failureListener = listener;
+    }
+
+    public boolean hasFailedPages() {
+        return !failures.isEmpty();
+    }
+
+    /** Restricts the model to books matching {@code query} (server-side search). */
+    public void setQuery(String query) {
+        String q = query == null ? "" : query.trim();
+        if (q.equals(this.query)) {
+            return;
+        }
+        this.query = q;
+        reload();
+    }
+
+    public int getResidentPageCount() {
+        return pages.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return total;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / pageSize;
+        List<String[]> rows = pages.get(page);
+        if (page != lastPage) {
+            direction = page > lastPage ? 1 : -1;
+            lastPage = page;
+        }
+        if (rows == null) {
+            requestPage(page);
+            return failures.containsKey(page) && !pending.contains(page) ? FAILED : LOADING;
+        }
+        prefetch(page + direction);
+
+        int index = row - page * pageSize;
+        return index < rows.size() ? rows.get(index)[column] : null;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    private void prefetch(int page) {
+        if (page >= 0 && page * pageSize < total && !pages.containsKey(page)) {
+            requestPage(page);
+        }
+    }
+
+    private void requestPage(int page) {
+        Failure failure = failures.get(page);
+        if (failure != null && System.currentTimeMillis() < failure.retryAt()) {
+            return;
+        }
+        if (!pending.add(page)) {
+            return;
+        }
+        int gen = generation;
+        String q = query;
+        tasks.supply(() -> source.fetch(page * pageSize, pageSize, q))
+                .whenComplete((result, ex) -> SwingUtilities.invokeLater(() -> {
+                    if (gen != generation) {
+                        return; // reloaded or query changed meanwhile
+                    }
+                    pending.remove(page);
+                    if (ex != null) {
+                        pageFailed(page, ex instanceof CompletionException && ex.getCause() != null
+                                ? ex.getCause() : ex);
+                        return;
+                    }
+                    if (failures.remove(page) != null && failures.isEmpty()) {
+                        failureListener.accept(null);
+                    }
+                    pageLoaded(page, result);
+                }));
+    }
+
+    private void pageFailed(int page, Throwable error) {
+        error.printStackTrace();
+        Failure previous = failures.get(page);
+        int attempts = previous == null ? 1 : previous.attempts() + 1;
+        long backoff = Math.min(MAX_BACKOFF_MS, FIRST_BACKOFF_MS << Math.min(attempts - 1, 5));
+        boolean first = failures.isEmpty();
+        failures.put(page, new Failure(attempts, System.currentTimeMillis() + backoff));
+        if (first) {
+            failureListener.accept(error.getMessage() != null ? error.getMessage() : error.toString());
+        }
+        repaintPage(page);
+
+        int gen = generation;
+        Timer retry = new Timer((int) backoff, e -> {
+            if (gen != generation || pages.containsKey(page)) {
+                return;
+            }
+            if (total == 0) {
+                requestPage(page); // nothing on screen to ask for it
+            } else {
+                repaintPage(page);
+            }
+        });
+        retry.setRepeats(false);
+        retry.start();
+    }
+
+    private void clearFailures() {
+        if (!failures.isEmpty()) {
+            failures.clear();
+            failureListener.accept(null);
+        }
+    }
+
+    private void repaintPage(int page) {
+        int first = page * pageSize;
+        int last = Math.min(total, first + pageSize) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    private void pageLoaded(int page, Page result) {
+        pages.put(page, result.rows());
+        if (result.total() != total) {
+            total = result.total();
+            fireTableDataChanged();
+            return;
+        }
+        repaintPage(page);
+    }
+}
@@ -0,0 +1,46 @@
+package com.checkmates.ui.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Hands rows produced on a background thread to the EDT.
+ *
+ * However many chunks arrive before the EDT gets around to it, only one
+ * {@code invokeLater} is queued and it drains everything pending in one go, so a
+ * fast loader never floods the event queue.
+ */
+public class RowBatcher<T> {
+
+    private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Consumer<List<T>> edtSink;
+
+    /** {@code edtSink} is always called on the EDT with a non-empty list. */
+    public RowBatcher(Consumer<List<T>> edtSink) {
+        this.edtSink = edtSink;
+    }
+
+    public void addAll(List<T> rows) {
+        pending.addAll(rows);
+        if (scheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::drain);
+        }
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        List<T> batch = new ArrayList<>();
+        T row;
+        while ((row = pending.poll()) != null) {
+            batch.add(row);
+        }
+        if (!batch.isEmpty()) {
+            edtSink.accept(batch);
+        }
+    }
+}
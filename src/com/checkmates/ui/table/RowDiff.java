@@ -0,0 +1,242 @@
+package com.checkmates.ui.table;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Difference between the rows on screen and a freshly loaded copy, matched by
+ * key columns (ISBN for books; Isbn, Card_id and Date_out for loans).
+ *
+ * Applying it updates changed rows in place, deletes vanished rows and
+ * appends new ones with one event per contiguous range, so selection, scroll
+ * position and sort order survive a refresh and a checkout repaints one row.
+ * Row indices after applying are therefore predictable: surviving rows keep
+ * their order and inserted rows follow them, which lets search indexes be
+ * patched the same way.
+ *
+ * {@link #compute} only reads both models and can run off the EDT;
+ * {@link #applyTo} must run on the EDT and refuses a model that was changed
+ * after the diff was computed.
+ */
+public final class RowDiff {
+
+    // Beyond this many delete ranges, one data-changed event is cheaper
+    private static final int MAX_DELETE_RANGES = 256;
+
+    private final ColumnarTableModel fresh;
+    private final int baseModCount;
+    private final int baseRowCount;
+    private final int[] updatedRows;
+    private final int[] updatedFrom;
+    private final int[] deletedRows;
+    private final int[] insertedFrom;
+
+    private RowDiff(ColumnarTableModel fresh, int baseModCount, int baseRowCount,
+                    int[] updatedRows, int[] updatedFrom, int[] deletedRows, int[] insertedFrom) {
+        this.fresh = fresh;
+        this.baseModCount = baseModCount;
+        this.baseRowCount = baseRowCount;
+        this.updatedRows = updatedRows;
+        this.updatedFrom = updatedFrom;
+        this.deletedRows = deletedRows;
+        this.insertedFrom = insertedFrom;
+    }
+
+    public static RowDiff compute(ColumnarTableModel current, ColumnarTableModel fresh, int... keyColumns) {
+        int baseModCount = current.getModCount();
+        int n = current.getRowCount();
+
+        Map<String, Integer> currentRows = new HashMap<>(n * 4 / 3 + 1);
+        for (int row = 0; row < n; row++) {
+            currentRows.put(key(current, row, keyColumns), row);
+        }
+
+        boolean[] kept = new boolean[n];
+        LongList updated = new LongList(); // current row << 32 | fresh row
+        IntList inserted = new IntList();
+        for (int f = 0; f < fresh.getRowCount(); f++) {
+            Integer row = currentRows.remove(key(fresh, f, keyColumns));
+            if (row == null) {
+                inserted.add(f);
+                continue;
+            }
+            kept[row] = true;
+            if (!sameRow(current, row, fresh, f)) {
+                updated.add((long) row << 32 | f);
+            }
+        }
+
+        IntList deleted = new IntList();
+        for (int row = 0; row < n; row++) {
+            if (!kept[row]) {
+                deleted.add(row);
+            }
+        }
+
+        // Fresh rows can come back in any order; updates are applied by current row
+        long[] pairs = updated.toSortedArray();
+        int[] updatedRows = new int[pairs.length];
+        int[] updatedFrom = new int[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            updatedRows[i] = (int) (pairs[i] >>> 32);
+            updatedFrom[i] = (int) pairs[i];
+        }
+        return new RowDiff(fresh, baseModCount, n, updatedRows, updatedFrom,
+                deleted.toArray(), inserted.toArray());
+    }
+
+    /** Current-model rows whose values changed, in increasing order. */
+    public int[] getUpdatedRows() {
+        return updatedRows;
+    }
+
+    /** Fresh-model row holding the new values of {@code getUpdatedRows()[i]}. */
+    public int[] getUpdatedFrom() {
+        return updatedFrom;
+    }
+
+    /** Current-model rows that are gone, in increasing order. */
+    public int[] getDeletedRows() {
+        return deletedRows;
+    }
+
+    /** Fresh-model rows that are new; they are appended in this order. */
+    public int[] getInsertedFrom() {
+        return insertedFrom;
+    }
+
+    public ColumnarTableModel getFresh() {
+        return fresh;
+    }
+
+    public boolean isEmpty() {
+        return updatedRows.length == 0 && deletedRows.length == 0 && insertedFrom.length == 0;
+    }
+
+    /**
+     * Whether {@link #applyTo} fires per-range events; otherwise it patches
+     * silently and fires one data-changed event. Either way surviving rows keep
+     * their relative order and new rows are appended.
+     */
+    public boolean isIncremental() {
+        return countRanges(deletedRows) <= MAX_DELETE_RANGES;
+    }
+
+    /**
+     * Brings {@code model} up to date with the fresh rows. Returns false, leaving
+     * it untouched, if it changed since {@link #compute}.
+     */
+    public boolean applyTo(ColumnarTableModel model) {
+        if (!isCurrentFor(model)) {
+            return false;
+        }
+        if (!isIncremental()) {
+            for (int k = 0; k < updatedRows.length; k++) {
+                model.copyRow(updatedRows[k], fresh, updatedFrom[k]);
+            }
+            model.removeAllSilently(deletedRows);
+            model.appendSilently(fresh, insertedFrom);
+            model.fireTableDataChanged();
+            return true;
+        }
+
+        // Updates first, while row indices still match the diff
+        int i = 0;
+        while (i < updatedRows.length) {
+            int j = i;
+            while (j + 1 < updatedRows.length && updatedRows[j + 1] == updatedRows[j] + 1) {
+                j++;
+            }
+            for (int k = i; k <= j; k++) {
+                model.copyRow(updatedRows[k], fresh, updatedFrom[k]);
+            }
+            model.fireTableRowsUpdated(updatedRows[i], updatedRows[j]);
+            i = j + 1;
+        }
+
+        // Deletes from the bottom up so earlier ranges keep their indices
+        int end = deletedRows.length - 1;
+        while (end >= 0) {
+            int start = end;
+            while (start > 0 && deletedRows[start - 1] == deletedRows[start] - 1) {
+                start--;
+            }
+            model.removeRows(deletedRows[start], deletedRows[end]);
+            end = start - 1;
+        }
+
+        model.appendFrom(fresh, insertedFrom);
+        return true;
+    }
+
+    /** Whether {@code model} is unchanged since the diff was computed against it. */
+    public boolean isCurrentFor(ColumnarTableModel model) {
+        return model.getModCount() == baseModCount && model.getRowCount() == baseRowCount;
+    }
+
+    private static int countRanges(int[] sorted) {
+        int ranges = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1] + 1) {
+                ranges++;
+            }
+        }
+        return ranges;
+    }
+
+    private static String key(ColumnarTableModel model, int row, int[] keyColumns) {
+        if (keyColumns.length == 1) {
+            return String.valueOf(model.getValueAt(row, keyColumns[0]));
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int c : keyColumns) {
+            sb.append(model.getValueAt(row, c)).append('\u0001');
+        }
+        return sb.toString();
+    }
+
+    private static boolean sameRow(ColumnarTableModel a, int rowA, ColumnarTableModel b, int rowB) {
+        for (int c = 0; c < a.getColumnCount(); c++) {
+            if (!Objects.equals(a.getValueAt(rowA, c), b.getValueAt(rowB, c))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class IntList {
+        int[] data = new int[16];
+        int size;
+
+        void add(int v) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = v;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    private static final class LongList {
+        long[] data = new long[16];
+        int size;
+
+        void add(long v) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = v;
+        }
+
+        long[] toSortedArray() {
+            long[] out = Arrays.copyOf(data, size);
+            Arrays.sort(out);
+            return out;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.checkmates.ui.table;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns the distinct values of a low-cardinality column ("IN"/"OUT",
+ * librarian ids, author lists, ...) so each row stores a small int code and
+ * every value is held once.
+ */
+public final class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    /** Code of {@code value}, adding it if new. {@code null} is a value like any other. */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /** Code of {@code value}, or -1 if it has never been encoded. */
+    public int codeOf(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String decode(int code) {
+        return values[code];
+    }
+
+    /** Number of distinct values. */
+    public int size() {
+        return size;
+    }
+}
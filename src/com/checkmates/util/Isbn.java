@@ -0,0 +1,100 @@
+package com.checkmates.util;
+
+/**
+ * ISBN-10 / ISBN-13 validation.
+ *
+ * {@link #normalize} is lenient about how a number was typed (hyphens,
+ * spaces, a lowercase check digit "x", an ISBN-10 whose leading zero a
+ * spreadsheet dropped) but strict about the check digit, so a mistyped digit
+ * is always rejected.
+ */
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * The ISBN as bare digits (plus a trailing "X" for some ISBN-10s), or
+     * {@code null} if it isn't a valid ISBN-10 or ISBN-13.
+     */
+    public static String normalize(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(13);
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+            } else if (c == 'x' || c == 'X') {
+                sb.append('X');
+            } else if (c != '-' && c != ' ' && c != '\t' && c != '\u00A0') {
+                return null;
+            }
+        }
+        if (sb.length() == 9) {
+            sb.insert(0, '0');
+        }
+        String s = sb.toString();
+        return isValid(s) ? s : null;
+    }
+
+    /**
+     * A normalized ISBN as ISBN-13 (ISBN-10s get the 978 prefix and a new
+     * check digit), the form printed in barcodes.
+     */
+    public static String toIsbn13(String normalized) {
+        if (normalized.length() == 13) {
+            return normalized;
+        }
+        String body = "978" + normalized.substring(0, 9);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (i % 2 == 0) ? body.charAt(i) - '0' : (body.charAt(i) - '0') * 3;
+        }
+        return body + (10 - sum % 10) % 10;
+    }
+
+    /** Whether {@code s} is exactly a valid ISBN-10 or ISBN-13 (no separators). */
+    public static boolean isValid(String s) {
+        if (s.length() == 10) {
+            return isValid10(s);
+        }
+        if (s.length() == 13) {
+            return isValid13(s);
+        }
+        return false;
+    }
+
+    private static boolean isValid10(String s) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = s.charAt(i);
+            int d;
+            if (c >= '0' && c <= '9') {
+                d = c - '0';
+            } else if (c == 'X' && i == 9) {
+                d = 10;
+            } else {
+                return false;
+            }
+            sum += d * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    private static boolean isValid13(String s) {
+        if (!s.startsWith("978") && !s.startsWith("979")) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < 13; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            sum += (i % 2 == 0) ? c - '0' : (c - '0') * 3;
+        }
+        return sum % 10 == 0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.checkmates.util;
+
+/**
+ * Events per minute over the last minute, in one-second buckets.
+ *
+ * Recording is a bucket increment, and the window slides by reusing buckets
+ * whose second has passed, so the meter costs the same at one event a
+ * minute or a thousand.
+ */
+public final class RateMeter {
+
+    private static final int SECONDS = 60;
+
+    private final long[] counts = new long[SECONDS];
+    private final long[] stamps = new long[SECONDS]; // the second each bucket counts
+
+    public synchronized void record(long nowMillis) {
+        long second = nowMillis / 1000;
+        int i = (int) (second % SECONDS);
+        if (stamps[i] != second) {
+            stamps[i] = second;
+            counts[i] = 0;
+        }
+        counts[i]++;
+    }
+
+    /** Events in the minute up to {@code nowMillis}. */
+    public synchronized long perMinute(long nowMillis) {
+        long second = nowMillis / 1000;
+        long total = 0;
+        for (int i = 0; i < SECONDS; i++) {
+            if (second - stamps[i] < SECONDS) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+}